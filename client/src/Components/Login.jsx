@@ -47,7 +47,7 @@ function LoginForm() {
         });
 
         // Destructure user data from the response
-        const { role, token, username, email: userEmail, profilePictureUrl } = response.data;
+        const { role, token, refreshToken, username, email: userEmail, profilePictureUrl } = response.data;
         
         // --- THIS IS THE KEY CHANGE ---
         // Save the JWT to local storage and user data to context
@@ -58,7 +58,7 @@ function LoginForm() {
               email: userEmail,
               role,
               profilePictureUrl
-            }, token);
+            }, token, refreshToken);
             
             setSuccess("Login successful!");
             console.log("Login successful with role:", role);
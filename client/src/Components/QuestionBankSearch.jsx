@@ -0,0 +1,92 @@
+import React, { useState } from 'react';
+import { useAuth } from '../context/AuthContext';
+
+// Searches the questions of the teacher's earlier tests and hands a picked one to the form
+const QuestionBankSearch = ({ onPick }) => {
+    const { token } = useAuth();
+    const [query, setQuery] = useState('');
+    const [results, setResults] = useState([]);
+    const [searched, setSearched] = useState(false);
+    const [isLoading, setIsLoading] = useState(false);
+    const [error, setError] = useState(null);
+
+    const handleSearch = async () => {
+        if (!query.trim()) return;
+        setIsLoading(true);
+        setError(null);
+        try {
+            const response = await fetch(`/api/tests/questions/search?q=${encodeURIComponent(query)}&limit=10`, {
+                headers: { Authorization: `Bearer ${token}` },
+            });
+            const data = await response.json().catch(() => ({}));
+            if (!response.ok) {
+                throw new Error(data.error || `Search failed. Status: ${response.status}`);
+            }
+            setResults(data.results || []);
+            setSearched(true);
+        } catch (err) {
+            setError(err.message);
+        } finally {
+            setIsLoading(false);
+        }
+    };
+
+    return (
+        <div className="mt-6 p-4 border-2 border-gray-200 rounded-2xl">
+            <h3 className="text-lg font-semibold text-gray-800 mb-3">🔎 Reuse a Question</h3>
+            <div className="flex gap-2">
+                <input
+                    type="text"
+                    value={query}
+                    onChange={(e) => setQuery(e.target.value)}
+                    onKeyDown={(e) => {
+                        if (e.key === 'Enter') {
+                            e.preventDefault();
+                            handleSearch();
+                        }
+                    }}
+                    placeholder="Search questions from your earlier tests"
+                    className="flex-1 p-2 border border-gray-300 rounded-md shadow-sm"
+                />
+                <button
+                    type="button"
+                    onClick={handleSearch}
+                    disabled={isLoading}
+                    className="px-4 py-2 bg-indigo-600 text-white rounded-md hover:bg-indigo-700 disabled:opacity-50"
+                >
+                    {isLoading ? 'Searching...' : 'Search'}
+                </button>
+            </div>
+
+            {error && <p className="mt-2 text-sm text-red-600">{error}</p>}
+            {searched && results.length === 0 && !error && (
+                <p className="mt-2 text-sm text-gray-500">No matching questions.</p>
+            )}
+
+            <ul className="mt-3 space-y-2">
+                {results.map((result) => (
+                    <li key={result.hash} className="flex justify-between items-start gap-4 p-3 bg-gray-50 rounded-lg">
+                        <div>
+                            <span className="bg-indigo-600 text-white px-2 py-0.5 rounded text-xs font-medium mr-2">
+                                {result.question.type}
+                            </span>
+                            <span className="text-gray-800">{result.question.questionText}</span>
+                            {result.subjects?.length > 0 && (
+                                <p className="text-xs text-gray-500 mt-1">{result.subjects.join(', ')}</p>
+                            )}
+                        </div>
+                        <button
+                            type="button"
+                            onClick={() => onPick(result.question)}
+                            className="px-3 py-1 bg-cyan-600 text-white rounded-md hover:bg-cyan-700 text-sm whitespace-nowrap"
+                        >
+                            ➕ Add
+                        </button>
+                    </li>
+                ))}
+            </ul>
+        </div>
+    );
+};
+
+export default QuestionBankSearch;
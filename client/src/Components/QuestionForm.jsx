@@ -1,4 +1,5 @@
 import React, { useState } from 'react';
+import QuestionBankSearch from './QuestionBankSearch';
 
 const QuestionForm = ({ onQuestionsChange }) => {
     const [questions, setQuestions] = useState([]);
@@ -126,6 +127,23 @@ const QuestionForm = ({ onQuestionsChange }) => {
         }
     };
 
+    // Adds a copy of a question found in the teacher's earlier tests
+    const handleImportQuestion = (question) => {
+        const imported = {
+            ...question,
+            id: Date.now(),
+            options: question.options || [],
+            correctAnswer: question.correctAnswer || [],
+        };
+        if (question.type === 'Theory') {
+            imported.wordLimit = question.wordLimit ?? '';
+            imported.sampleAnswer = question.sampleAnswer ?? '';
+        }
+        const updatedQuestions = [...questions, imported];
+        setQuestions(updatedQuestions);
+        onQuestionsChange && onQuestionsChange(updatedQuestions);
+    };
+
     // Clear all questions
     const handleClearAll = () => {
         if (window.confirm('Are you sure you want to clear all questions?')) {
@@ -225,6 +243,8 @@ const QuestionForm = ({ onQuestionsChange }) => {
                                 </button>
                             )}
                         </div>
+
+                        <QuestionBankSearch onPick={handleImportQuestion} />
                     </div>
 
                     {/* Questions List */}
@@ -37,12 +37,42 @@ const StudentDashboard = () => {
   const [completedTests, setCompletedTests] = useState([]);
   const [isLoading, setIsLoading] = useState(true);
   const [error, setError] = useState(null);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [loadingMore, setLoadingMore] = useState(false);
   const { user, logout, token } = useAuth();
   const { theme, toggleTheme } = useTheme();
   const navigate = useNavigate();
   const location = useLocation();
   const [toast, setToast] = useState(null);
 
+  // Completed tests are paged; nextCursor is an opaque token from the server
+  const fetchCompletedPage = async (cursor) => {
+    const params = new URLSearchParams({ limit: '10' });
+    if (cursor) params.set('cursor', cursor);
+    const response = await fetch(`/api/tests/completed/page?${params}`, {
+      headers: {
+        'Authorization': `Bearer ${token}`,
+        'Content-Type': 'application/json',
+      },
+    });
+    if (!response.ok) throw new Error('Failed to fetch completed tests');
+    return response.json();
+  };
+
+  const loadMoreCompleted = async () => {
+    if (!nextCursor || loadingMore) return;
+    try {
+      setLoadingMore(true);
+      const page = await fetchCompletedPage(nextCursor);
+      setCompletedTests(prev => [...prev, ...page.items]);
+      setNextCursor(page.nextCursor);
+    } catch (err) {
+      setError(err.message);
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
   // Fetch completed tests
   useEffect(() => {
     const fetchCompletedTests = async () => {
@@ -53,17 +83,9 @@ const StudentDashboard = () => {
 
       try {
         setIsLoading(true);
-        const response = await fetch('/api/tests/completed', {
-          headers: {
-            'Authorization': `Bearer ${token}`,
-            'Content-Type': 'application/json',
-          },
-        });
-
-        if (!response.ok) throw new Error('Failed to fetch completed tests');
-
-        const tests = await response.json();
-        setCompletedTests(tests);
+        const page = await fetchCompletedPage(null);
+        setCompletedTests(page.items);
+        setNextCursor(page.nextCursor);
       } catch (err) {
         setError(err.message);
       } finally {
@@ -83,16 +105,9 @@ const StudentDashboard = () => {
       (async () => {
         try {
           setIsLoading(true);
-          const response = await fetch('/api/tests/completed', {
-            headers: {
-              'Authorization': `Bearer ${token}`,
-              'Content-Type': 'application/json',
-            },
-          });
-          if (response.ok) {
-            const tests = await response.json();
-            setCompletedTests(tests);
-          }
+          const page = await fetchCompletedPage(null);
+          setCompletedTests(page.items);
+          setNextCursor(page.nextCursor);
         } catch (_) { }
         finally { setIsLoading(false); }
       })();
@@ -279,6 +294,15 @@ const StudentDashboard = () => {
                           </div>
                         </div>
                       ))}
+                      {nextCursor && (
+                        <button
+                          onClick={loadMoreCompleted}
+                          disabled={loadingMore}
+                          className="w-full rounded-md bg-white px-4 py-2 text-sm font-medium text-gray-700 shadow-sm ring-1 ring-inset ring-gray-300 hover:bg-gray-50 disabled:opacity-50"
+                        >
+                          {loadingMore ? 'Loading...' : 'Load more'}
+                        </button>
+                      )}
                     </div>
                   )}
                 </div>
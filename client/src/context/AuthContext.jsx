@@ -1,4 +1,20 @@
-import { createContext, useContext, useState, useEffect } from "react";
+import { createContext, useContext, useState, useEffect, useCallback } from "react";
+import axios from "axios";
+
+const AUTH_URL = (import.meta.env.VITE_API_URL || "") + "/api/auth";
+
+// Seconds since epoch at which a JWT expires, or 0 if it cannot be read
+export const tokenExpiry = (jwt) => {
+  try {
+    const payload = JSON.parse(atob(jwt.split(".")[1].replace(/-/g, "+").replace(/_/g, "/")));
+    return payload.exp || 0;
+  } catch (_) {
+    return 0;
+  }
+};
+
+// One refresh at a time, shared by every request that hit an expired token
+let refreshInFlight = null;
 
 // Create context
 const AuthContext = createContext();
@@ -27,25 +43,75 @@ export const AuthProvider = ({ children }) => {
     }
   }, []);
 
-  const login = (userData, jwtToken) => {
+  const login = (userData, jwtToken, refreshToken) => {
     setUser(userData);
     localStorage.setItem("userData", JSON.stringify(userData));
     if (jwtToken) {
       setToken(jwtToken);
       localStorage.setItem("bearerToken", jwtToken);
     }
+    if (refreshToken) {
+      localStorage.setItem("refreshToken", refreshToken);
+    }
   };
 
+  // Stores a renewed token pair (from /api/auth/refresh or the STOMP /app/auth/refresh reply)
+  const updateTokens = useCallback((jwtToken, refreshToken) => {
+    if (jwtToken) {
+      setToken(jwtToken);
+      localStorage.setItem("bearerToken", jwtToken);
+    }
+    if (refreshToken) {
+      localStorage.setItem("refreshToken", refreshToken);
+    }
+  }, []);
+
   const logout = () => {
+    const refreshToken = localStorage.getItem("refreshToken");
+    const accessToken = localStorage.getItem("bearerToken");
+    if (refreshToken) {
+      // Sending the access token as well revokes it server-side
+      axios.post(`${AUTH_URL}/logout`, { refreshToken }, {
+        headers: accessToken ? { Authorization: `Bearer ${accessToken}` } : {},
+      }).catch(() => {});
+    }
     setUser(null);
     setToken(null);
     localStorage.removeItem("bearerToken");
+    localStorage.removeItem("refreshToken");
     localStorage.removeItem("userData");
   };
 
+  // When a request fails because the access token expired, renew it once and retry
+  useEffect(() => {
+    const id = axios.interceptors.response.use(undefined, async (error) => {
+      const original = error.config;
+      const status = error.response?.status;
+      const stored = localStorage.getItem("bearerToken");
+      const refreshToken = localStorage.getItem("refreshToken");
+      const expired = stored && tokenExpiry(stored) * 1000 <= Date.now();
+      if (!original || original._retried || (status !== 401 && status !== 403) || !expired || !refreshToken
+          || original.url?.startsWith(AUTH_URL)) {
+        return Promise.reject(error);
+      }
+      original._retried = true;
+      try {
+        refreshInFlight = refreshInFlight || axios.post(`${AUTH_URL}/refresh`, { refreshToken })
+          .finally(() => { refreshInFlight = null; });
+        const { data } = await refreshInFlight;
+        updateTokens(data.token, data.refreshToken);
+        original.headers = { ...original.headers, Authorization: `Bearer ${data.token}` };
+        return axios(original);
+      } catch (_) {
+        return Promise.reject(error);
+      }
+    });
+    return () => axios.interceptors.response.eject(id);
+  }, [updateTokens]);
+
   return (
     // The 'setUser' function has been added to the value object here
-    <AuthContext.Provider value={{ user, token, login, logout, setUser }}>
+    <AuthContext.Provider value={{ user, token, login, logout, setUser, updateTokens }}>
       {children}
     </AuthContext.Provider>
   );
@@ -2,9 +2,11 @@
 import { Client } from '@stomp/stompjs';
 import SockJS from 'sockjs-client';
 
-export function createStompClient({ onConnect, onDisconnect, onError } = {}) {
+export function createStompClient({ token, onConnect, onDisconnect, onError } = {}) {
   const client = new Client({
     webSocketFactory: () => new SockJS('/ws'),
+    // Lets the server attribute proctoring events to the signed-in user
+    connectHeaders: token ? { Authorization: `Bearer ${token}` } : {},
     reconnectDelay: 2000,
     debug: () => {},
     onConnect: frame => {
@@ -41,3 +43,23 @@ export function sendActivity(client, testId, payload) {
 }
 
 
+
+// Renews the access token over the open connection; the reply arrives on /user/queue/auth
+export function subscribeToAuthRefresh(client, handler) {
+  if (!client || !client.connected) return null;
+  return client.subscribe('/user/queue/auth', message => {
+    try {
+      handler(JSON.parse(message.body));
+    } catch (_) {
+      // ignore malformed
+    }
+  });
+}
+
+export function requestTokenRefresh(client, refreshToken) {
+  if (!client || !client.connected || !refreshToken) return;
+  client.publish({
+    destination: '/app/auth/refresh',
+    body: JSON.stringify({ refreshToken })
+  });
+}
@@ -8,6 +8,40 @@ export default function SavedTestsPage() {
   const [tests, setTests] = useState([]);
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState(null);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [loadingMore, setLoadingMore] = useState(false);
+
+  // Summaries come a page at a time; nextCursor is an opaque token from the server
+  const fetchPage = async (cursor) => {
+    const params = new URLSearchParams({ limit: '20' });
+    if (cursor) params.set('cursor', cursor);
+    const response = await fetch(`/api/tests/page?${params}`, {
+      method: 'GET',
+      headers: {
+        'Authorization': `Bearer ${token}`,
+        'Content-Type': 'application/json',
+      },
+    });
+    if (!response.ok) {
+      const errorText = await response.text();
+      throw new Error(`Failed to fetch tests. Status: ${response.status} - ${errorText}`);
+    }
+    return response.json();
+  };
+
+  const loadMore = async () => {
+    if (!nextCursor || loadingMore) return;
+    try {
+      setLoadingMore(true);
+      const page = await fetchPage(nextCursor);
+      setTests(prev => [...prev, ...page.items]);
+      setNextCursor(page.nextCursor);
+    } catch (err) {
+      setError(err.message);
+    } finally {
+      setLoadingMore(false);
+    }
+  };
 
   useEffect(() => {
     const fetchTests = async () => {
@@ -26,28 +60,10 @@ export default function SavedTestsPage() {
         setLoading(true);
         setError(null);
         
-        console.log('SavedTestsPage: Making API request to /api/tests');
-        const response = await fetch('/api/tests', {
-          method: 'GET',
-          headers: {
-            'Authorization': `Bearer ${token}`,
-            'Content-Type': 'application/json',
-          },
-        });
-
-        console.log('SavedTestsPage: Response status:', response.status);
-        console.log('SavedTestsPage: Response ok:', response.ok);
-
-        if (!response.ok) {
-          const errorText = await response.text();
-          console.log('SavedTestsPage: Error response:', errorText);
-          throw new Error(`Failed to fetch tests. Status: ${response.status} - ${errorText}`);
-        }
-
-        const testsData = await response.json();
-        console.log('SavedTestsPage: Tests data received:', testsData);
-        console.log('SavedTestsPage: Number of tests:', testsData.length);
-        setTests(testsData);
+        const page = await fetchPage(null);
+        console.log('SavedTestsPage: Number of tests:', page.items.length);
+        setTests(page.items);
+        setNextCursor(page.nextCursor);
       } catch (err) {
         console.error('SavedTestsPage: Error fetching tests:', err);
         setError(err.message);
@@ -151,11 +167,11 @@ export default function SavedTestsPage() {
                 </div>
                 <div>
                   <strong className="text-gray-800">Questions:</strong>
-                  <p>{test.questions ? test.questions.length : 0}</p>
+                  <p>{test.questionCount}</p>
                 </div>
                 <div>
                   <strong className="text-gray-800">Participants:</strong>
-                  <p>{test.participantIds ? test.participantIds.size : 0}</p>
+                  <p>{test.participantCount}</p>
                 </div>
                 <div>
                   <strong className="text-gray-800">Scheduled:</strong>
@@ -188,6 +204,17 @@ export default function SavedTestsPage() {
               </div>
             </div>
           ))}
+          {nextCursor && (
+            <div className="text-center">
+              <button
+                onClick={loadMore}
+                disabled={loadingMore}
+                className="px-4 py-2 bg-gray-100 text-gray-700 rounded-lg hover:bg-gray-200 transition disabled:opacity-50"
+              >
+                {loadingMore ? 'Loading...' : 'Load more'}
+              </button>
+            </div>
+          )}
         </div>
       )}
     </div>
@@ -406,6 +406,78 @@ const TeacherTestReviewPage = () => {
     );
   };
 
+  const SimilarityFlags = ({ analytics }) => {
+    const flags = analytics?.similarityFlags || [];
+    const patternFlags = analytics?.answerPatternFlags || [];
+
+    if (flags.length === 0 && patternFlags.length === 0) {
+      return (
+        <Card className="p-6">
+          <div className="text-center py-8">
+            <p className="text-gray-500">No near-duplicate answers found</p>
+            <p className="text-sm text-gray-400 mt-2">Written answers and wrong multiple-choice answers are compared once students submit.</p>
+          </div>
+        </Card>
+      );
+    }
+
+    return (
+      <div className="space-y-4">
+        {patternFlags.length > 0 && (
+          <Card className="p-6 border-red-200">
+            <h4 className="font-semibold text-gray-900 mb-3">Shared Wrong Answers</h4>
+            <table className="min-w-full divide-y divide-gray-200 text-sm">
+              <thead>
+                <tr className="text-left text-gray-500">
+                  <th className="py-2">Students</th>
+                  <th className="py-2">Identical wrong answers</th>
+                  <th className="py-2">Longest run</th>
+                  <th className="py-2">Chance of coincidence</th>
+                </tr>
+              </thead>
+              <tbody className="divide-y divide-gray-100">
+                {patternFlags.map((flag, index) => (
+                  <tr key={index}>
+                    <td className="py-2 text-gray-900">{flag.firstStudentName} &amp; {flag.secondStudentName}</td>
+                    <td className="py-2 text-gray-700">
+                      {flag.sharedWrongQuestions.length} (Q{flag.sharedWrongQuestions.map((q) => q + 1).join(', Q')})
+                    </td>
+                    <td className="py-2 text-gray-700">{flag.longestRun}</td>
+                    <td className="py-2 text-gray-700">1 in 10^{Math.round(-flag.log10Probability)}</td>
+                  </tr>
+                ))}
+              </tbody>
+            </table>
+          </Card>
+        )}
+
+        {flags.map((flag, index) => (
+          <Card key={index} className="p-6 border-amber-200">
+            <div className="flex items-center justify-between mb-3">
+              <h4 className="font-semibold text-gray-900">
+                Q{flag.questionIndex + 1}: {flag.questionText}
+              </h4>
+              <span className="px-2 py-1 rounded-full text-xs font-medium bg-amber-100 text-amber-800">
+                {Math.round(flag.similarity * 100)}% similar
+              </span>
+            </div>
+            <div className="grid grid-cols-1 md:grid-cols-2 gap-4">
+              {[
+                { name: flag.firstStudentName, answer: flag.firstAnswer },
+                { name: flag.secondStudentName, answer: flag.secondAnswer },
+              ].map((side, i) => (
+                <div key={i} className="bg-gray-50 rounded-lg p-3">
+                  <p className="text-sm font-medium text-gray-900 mb-1">{side.name}</p>
+                  <p className="text-sm text-gray-700 whitespace-pre-wrap">{side.answer}</p>
+                </div>
+              ))}
+            </div>
+          </Card>
+        ))}
+      </div>
+    );
+  };
+
   if (loading) {
     return (
       <div className="flex items-center justify-center min-h-screen">
@@ -497,6 +569,7 @@ const TeacherTestReviewPage = () => {
                     { id: 'overview', label: 'Overview', icon: '📊' },
                     { id: 'students', label: 'Students', icon: '👥' },
                     { id: 'ai-insights', label: 'AI Insights', icon: '🤖' },
+                    { id: 'integrity', label: 'Similar Answers', icon: '🔍' },
                   ].map((tab) => (
                     <button
                       key={tab.id}
@@ -530,6 +603,9 @@ const TeacherTestReviewPage = () => {
                     {activeTab === 'ai-insights' && (
                       <AIInsights analytics={testAnalytics} />
                     )}
+                    {activeTab === 'integrity' && (
+                      <SimilarityFlags analytics={testAnalytics} />
+                    )}
                   </>
                 )}
               </div>
@@ -1,18 +1,21 @@
 import React, { useEffect, useRef, useState } from 'react';
 import { useNavigate, useParams } from 'react-router-dom';
-import { createStompClient } from '../lib/stompClient';
+import { createStompClient, requestTokenRefresh, subscribeToAuthRefresh, subscribeToTestEvents } from '../lib/stompClient';
 import { ProctoringSession } from '../lib/proctoring';
-import { useAuth } from '../context/AuthContext';
+import { tokenExpiry, useAuth } from '../context/AuthContext';
 
 export default function TestAttemptPage() {
     const { testId } = useParams();
     const navigate = useNavigate();
-    const { token } = useAuth();
+    const { token, updateTokens } = useAuth();
 
     const sessionRef = useRef(null);
     const clientRef = useRef(null);
     const videoRef = useRef(null);
     const timerRef = useRef(null);
+    const refreshTimerRef = useRef(null);
+    // The test is fetched once; a renewed token must not reload it (and reset the timer)
+    const loadedTestRef = useRef(null);
 
     const [test, setTest] = useState(null);
     const [answers, setAnswers] = useState({});
@@ -23,31 +26,77 @@ export default function TestAttemptPage() {
     const [timeLeft, setTimeLeft] = useState(0);
     const [facesDetected, setFacesDetected] = useState(0);
     const [cameraActive, setCameraActive] = useState(false);
+    // Bumped by the server's START signal to retry a test that was not available yet
+    const [reloadKey, setReloadKey] = useState(0);
+    // Server deadline translated to the local clock; null until /start answers
+    const [deadline, setDeadline] = useState(null);
+    const answersRef = useRef(answers);
+    const lastSavedRef = useRef('');
 
-    // Timer functionality
+    // Timer functionality. The server owns the deadline; the local duration is only a fallback
     useEffect(() => {
-        if (test && test.durationInMinutes) {
-            const durationInSeconds = test.durationInMinutes * 60;
-            setTimeLeft(durationInSeconds);
-            
-            timerRef.current = setInterval(() => {
-                setTimeLeft(prev => {
-                    if (prev <= 1) {
-                        // Auto-submit when time runs out
-                        handleAutoSubmit();
-                        return 0;
-                    }
-                    return prev - 1;
-                });
-            }, 1000);
-
-            return () => {
-                if (timerRef.current) {
-                    clearInterval(timerRef.current);
-                }
-            };
+        if (!test) return;
+        let endsAt = deadline;
+        if (!endsAt) {
+            if (!test.durationInMinutes) return;
+            endsAt = Date.now() + test.durationInMinutes * 60 * 1000;
         }
-    }, [test]);
+        const update = () => {
+            const remaining = Math.max(0, Math.ceil((endsAt - Date.now()) / 1000));
+            setTimeLeft(remaining);
+            if (remaining <= 0) {
+                clearInterval(timerRef.current);
+                handleAutoSubmit();
+            }
+        };
+        update();
+        timerRef.current = setInterval(update, 1000);
+
+        return () => {
+            if (timerRef.current) {
+                clearInterval(timerRef.current);
+            }
+        };
+    }, [test, deadline]);
+
+    useEffect(() => {
+        answersRef.current = answers;
+    }, [answers]);
+
+    const orderedAnswers = (current) => {
+        const total = Array.isArray(test?.questions) ? test.questions.length : 0;
+        const ordered = new Array(total).fill(null);
+        Object.keys(current).forEach(k => {
+            const idx = Number(k);
+            if (!Number.isNaN(idx) && idx >= 0 && idx < total) ordered[idx] = current[k];
+        });
+        return ordered;
+    };
+
+    // Autosave: if time runs out server-side, the last saved answers are what gets graded
+    useEffect(() => {
+        if (!test || !deadline || result) return;
+        const save = async () => {
+            const body = JSON.stringify({ answers: orderedAnswers(answersRef.current) });
+            if (body === lastSavedRef.current) return;
+            try {
+                const res = await fetch(`/api/tests/${encodeURIComponent(testId)}/answers`, {
+                    method: 'PUT',
+                    headers: {
+                        'Content-Type': 'application/json',
+                        ...(token ? { 'Authorization': `Bearer ${token}` } : {}),
+                    },
+                    credentials: 'include',
+                    body
+                });
+                if (res.ok) lastSavedRef.current = body;
+            } catch (e) {
+                console.warn('Autosave failed:', e);
+            }
+        };
+        const interval = setInterval(save, 15000);
+        return () => clearInterval(interval);
+    }, [test, deadline, result, token, testId]);
 
     const formatTime = (seconds) => {
         const hours = Math.floor(seconds / 3600);
@@ -67,12 +116,7 @@ export default function TestAttemptPage() {
             setSubmitting(true);
             setError('');
             
-            const total = Array.isArray(test.questions) ? test.questions.length : 0;
-            const ordered = new Array(total).fill(null);
-            Object.keys(answers).forEach(k => {
-                const idx = Number(k);
-                if (!Number.isNaN(idx) && idx >= 0 && idx < total) ordered[idx] = answers[k];
-            });
+            const ordered = orderedAnswers(answersRef.current);
             
             console.log('Submitting test with token:', token ? token.substring(0, 20) + '...' : 'null');
             console.log('Test ID:', testId);
@@ -108,6 +152,7 @@ export default function TestAttemptPage() {
 
     useEffect(() => {
         let cancelled = false;
+        if (loadedTestRef.current === testId) return;
         const fetchTest = async () => {
             try {
                 setLoading(true);
@@ -123,7 +168,11 @@ export default function TestAttemptPage() {
                     throw new Error(raw || 'Failed to load test');
                 }
                 const data = await res.json();
-                if (!cancelled) setTest(data);
+                if (!cancelled) {
+                    loadedTestRef.current = testId;
+                    setTest(data);
+                    await startAttempt();
+                }
             } catch (e) {
                 if (!cancelled) setError(e.message || 'Failed to load test');
             } finally {
@@ -131,9 +180,37 @@ export default function TestAttemptPage() {
             }
         };
 
+        // Starts (or resumes) the server clock and restores answers saved before a reload
+        const startAttempt = async () => {
+            try {
+                const res = await fetch(`/api/tests/${encodeURIComponent(testId)}/start`, {
+                    method: 'POST',
+                    headers: {
+                        'Content-Type': 'application/json',
+                        ...(token ? { 'Authorization': `Bearer ${token}` } : {}),
+                    },
+                    credentials: 'include',
+                });
+                if (!res.ok || cancelled) return;
+                const data = await res.json();
+                if (data.deadlineAt) {
+                    const skew = Date.parse(data.serverTime) - Date.now();
+                    setDeadline(Date.parse(data.deadlineAt) - skew);
+                }
+                if (Array.isArray(data.savedAnswers)) {
+                    const restored = {};
+                    data.savedAnswers.forEach((a, i) => { if (a !== null && a !== undefined) restored[i] = a; });
+                    setAnswers(restored);
+                    lastSavedRef.current = JSON.stringify({ answers: data.savedAnswers });
+                }
+            } catch (e) {
+                console.warn('Could not start the attempt clock:', e);
+            }
+        };
+
         fetchTest();
         return () => { cancelled = true; };
-    }, [testId, token]);
+    }, [testId, token, reloadKey]);
 
     useEffect(() => {
         let stopped = false;
@@ -163,11 +240,35 @@ export default function TestAttemptPage() {
                     // If unsupported, continue but warn
                 }
 
-                const client = createStompClient();
+                const client = createStompClient({ token });
                 clientRef.current = client;
                 client.activate();
                 client.onConnect = async () => {
                     if (stopped) return;
+
+                    // Keep the access token fresh over this connection during long exams
+                    const scheduleRefresh = (jwt) => {
+                        clearTimeout(refreshTimerRef.current);
+                        const exp = tokenExpiry(jwt);
+                        if (!exp) return;
+                        const delay = Math.max(exp * 1000 - Date.now() - 60000, 5000);
+                        refreshTimerRef.current = setTimeout(
+                            () => requestTokenRefresh(client, localStorage.getItem('refreshToken')), delay);
+                    };
+                    subscribeToAuthRefresh(client, (reply) => {
+                        if (reply.token) {
+                            updateTokens(reply.token, reply.refreshToken);
+                            scheduleRefresh(reply.token);
+                        }
+                    });
+                    scheduleRefresh(localStorage.getItem('bearerToken'));
+
+                    // At start time the server says how widely to spread the fetches
+                    subscribeToTestEvents(client, testId, (event) => {
+                        if (event.type === 'START' && loadedTestRef.current !== testId) {
+                            setTimeout(() => setReloadKey(k => k + 1), Math.random() * (event.spreadMs || 0));
+                        }
+                    });
                     const session = new ProctoringSession({ 
                         testId, 
                         stompClient: client,
@@ -205,6 +306,7 @@ export default function TestAttemptPage() {
         startProctoring();
         return () => {
             stopped = true;
+            clearTimeout(refreshTimerRef.current);
             try { sessionRef.current?.stop(); } catch (_) {}
             try { clientRef.current?.deactivate(); } catch (_) {}
         };
@@ -314,7 +416,7 @@ export default function TestAttemptPage() {
                             {Array.isArray(test.questions) && test.questions.length > 0 ? (
                                 <div className="space-y-6">
                                     {test.questions.map((q, idx) => {
-                                        const isMulti = Array.isArray(q?.correctAnswer) && q.correctAnswer.length > 1;
+                                        const isMulti = !!q?.multiSelect;
                                         const a = answers[idx];
                                         return (
                                             <div key={idx} className="border-b pb-4 last:border-b-0">
@@ -0,0 +1,99 @@
+package com.procter.procter_app.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps track of the in-process caches so their hit/miss counters can be reported
+ * in one place, both here and as the standard cache.* meters tagged with the cache name.
+ */
+@Component
+public class CacheRegistry implements MeterBinder {
+
+    private final List<ExpiringLruCache<?, ?>> caches = new CopyOnWriteArrayList<>();
+    private volatile MeterRegistry meterRegistry;
+
+    public <K, V> ExpiringLruCache<K, V> register(ExpiringLruCache<K, V> cache) {
+        caches.add(cache);
+        MeterRegistry registry = meterRegistry;
+        if (registry != null) {
+            new CacheMetrics(cache).bindTo(registry);
+        }
+        return cache;
+    }
+
+    // Caches registered after this still get their meters, from register()
+    @Override
+    public synchronized void bindTo(MeterRegistry registry) {
+        meterRegistry = registry;
+        for (ExpiringLruCache<?, ?> cache : caches) {
+            new CacheMetrics(cache).bindTo(registry);
+        }
+    }
+
+    public List<ExpiringLruCache<?, ?>> getCaches() {
+        return Collections.unmodifiableList(caches);
+    }
+
+    public List<Map<String, Object>> stats() {
+        List<Map<String, Object>> stats = new ArrayList<>();
+        for (ExpiringLruCache<?, ?> cache : caches) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("name", cache.getName());
+            entry.put("size", cache.size());
+            entry.put("hits", cache.getHits());
+            entry.put("misses", cache.getMisses());
+            entry.put("evictions", cache.getEvictions());
+            entry.put("hitRate", cache.getHitRate());
+            stats.add(entry);
+        }
+        return stats;
+    }
+
+    private static final class CacheMetrics extends CacheMeterBinder<ExpiringLruCache<?, ?>> {
+
+        CacheMetrics(ExpiringLruCache<?, ?> cache) {
+            super(cache, cache.getName(), Tags.empty());
+        }
+
+        @Override
+        protected Long size() {
+            ExpiringLruCache<?, ?> cache = getCache();
+            return cache != null ? (long) cache.size() : null;
+        }
+
+        @Override
+        protected long hitCount() {
+            ExpiringLruCache<?, ?> cache = getCache();
+            return cache != null ? cache.getHits() : 0;
+        }
+
+        @Override
+        protected Long missCount() {
+            ExpiringLruCache<?, ?> cache = getCache();
+            return cache != null ? cache.getMisses() : null;
+        }
+
+        @Override
+        protected Long evictionCount() {
+            ExpiringLruCache<?, ?> cache = getCache();
+            return cache != null ? cache.getEvictions() : null;
+        }
+
+        @Override
+        protected long putCount() {
+            ExpiringLruCache<?, ?> cache = getCache();
+            return cache != null ? cache.getPuts() : 0;
+        }
+
+        @Override
+        protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+        }
+    }
+}
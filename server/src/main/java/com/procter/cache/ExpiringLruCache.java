@@ -0,0 +1,193 @@
+package com.procter.procter_app.cache;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Small bounded in-process cache with least-recently-used eviction and a per-entry
+ * time-to-live.
+ *
+ * Entries are spread over lock-striped segments (each an access-ordered LinkedHashMap),
+ * so concurrent requests for different keys rarely contend. Loads on a miss run outside
+ * the segment lock; two threads missing the same key at once may both load it. A load is
+ * not cached if its segment saw an invalidation while it ran, so a value read before a
+ * save cannot be put back after the save invalidated it.
+ */
+public class ExpiringLruCache<K, V> {
+
+    private static final int SEGMENTS = 16;
+
+    private final String name;
+    private final long ttlNanos;
+    private final Segment<K, V>[] segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public ExpiringLruCache(String name, int maxSize, Duration ttl) {
+        this.name = name;
+        this.ttlNanos = ttl.toNanos();
+        int perSegment = Math.max(1, (maxSize + SEGMENTS - 1) / SEGMENTS);
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment<>(perSegment, evictions);
+        }
+    }
+
+    /* ===================== ACCESS ===================== */
+
+    public V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        long now = System.nanoTime();
+        synchronized (segment) {
+            Entry<V> entry = segment.get(key);
+            if (entry != null && entry.expiresAtNanos - now > 0) {
+                hits.increment();
+                return entry.value;
+            }
+            if (entry != null) {
+                segment.remove(key);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Returns the cached value, or loads and caches it. A null result from the loader is
+     * returned but not cached.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        Segment<K, V> segment = segmentFor(key);
+        long generation;
+        synchronized (segment) {
+            generation = segment.generation;
+        }
+        value = loader.apply(key);
+        if (value != null) {
+            synchronized (segment) {
+                if (segment.generation == generation) {
+                    segment.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+                    puts.increment();
+                }
+            }
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        putUntil(key, value, System.nanoTime() + ttlNanos);
+    }
+
+    // For values that carry their own expiry (e.g. a token); the cache TTL still caps it
+    public void put(K key, V value, Instant notAfter) {
+        long remaining = Duration.between(Instant.now(), notAfter).toNanos();
+        if (remaining <= 0) {
+            return;
+        }
+        putUntil(key, value, System.nanoTime() + Math.min(ttlNanos, remaining));
+    }
+
+    private void putUntil(K key, V value, long expiresAtNanos) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.put(key, new Entry<>(value, expiresAtNanos));
+        }
+        puts.increment();
+    }
+
+    public void invalidate(K key) {
+        if (key == null) {
+            return;
+        }
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.remove(key);
+            segment.generation++;
+        }
+    }
+
+    public void invalidateIf(Predicate<? super V> predicate) {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.values().removeIf(entry -> predicate.test(entry.value));
+                segment.generation++;
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+                segment.generation++;
+            }
+        }
+    }
+
+    /* ===================== STATS ===================== */
+
+    public String getName() { return name; }
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+    public long getPuts() { return puts.sum(); }
+
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total > 0 ? (double) h / total : 0.0;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (SEGMENTS - 1)];
+    }
+
+    private record Entry<V>(V value, long expiresAtNanos) {}
+
+    private static final class Segment<K, V> extends LinkedHashMap<K, Entry<V>> {
+        private final int maxSize;
+        private final LongAdder evictions;
+        // Bumped by every invalidation; loads started under an older generation are not cached
+        long generation;
+
+        Segment(int maxSize, LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+            if (size() > maxSize) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.procter.procter_app.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller runs the loader, callers
+ * arriving while it is in flight wait for and share its result (or its exception). Nothing
+ * is kept once the load finishes, so this is not a cache; a later call loads again.
+ *
+ * After a write, {@link #forget} detaches the in-flight load for that key so callers arriving
+ * from then on start a fresh one and cannot be handed a result read before the write.
+ */
+public class SingleFlight<K, V> {
+
+    private final String name;
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Runs the loader for the key unless a load for it is already in flight, in which case
+     * that load's result is returned. Exceptions thrown by the loader reach every caller
+     * that shared it and are never remembered.
+     */
+    public V load(K key, Supplier<? extends V> loader) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        // Counted once the caller has joined or started a flight
+        calls.increment();
+        if (existing != null) {
+            return await(existing);
+        }
+
+        executions.increment();
+        try {
+            V value = loader.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            failures.increment();
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            // Only removes our own flight, not one started after a forget()
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            if (cause instanceof Error error) throw error;
+            throw e;
+        }
+    }
+
+    public void forget(K key) {
+        if (key != null) {
+            inFlight.remove(key);
+        }
+    }
+
+    public void forgetAll() {
+        inFlight.clear();
+    }
+
+    /* ===================== STATS ===================== */
+
+    public String getName() { return name; }
+    public long getCalls() { return calls.sum(); }
+    public long getExecutions() { return executions.sum(); }
+    public long getCoalesced() { return getCalls() - getExecutions(); }
+    public long getFailures() { return failures.sum(); }
+    public int getInFlight() { return inFlight.size(); }
+
+    // Callers served per query actually sent; 1.0 means no coalescing happened
+    public double getFanIn() {
+        long executed = getExecutions();
+        return executed == 0 ? 0.0 : (double) getCalls() / executed;
+    }
+}
@@ -0,0 +1,104 @@
+package com.procter.procter_app.config;
+
+import com.procter.procter_app.model.AnswerSheet;
+import com.procter.procter_app.model.TestAttempt;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Rewrites attempts stored with the legacy answers list into the {@link AnswerSheet} shape.
+ *
+ * Runs once at startup in the background and is safe to repeat: only documents that still
+ * have an answers field are touched, each is converted in memory and replaced by one
+ * $set sheet / $unset answers, written in unordered bulk batches. Until a document is
+ * migrated, {@link TestAttempt#getSheet()} converts it on read, so nothing waits for this.
+ */
+@Component
+public class AnswerSheetMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(AnswerSheetMigration.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+
+    public AnswerSheetMigration(MongoTemplate mongoTemplate,
+                                @Value("${app.migrations.answer-sheet.enabled:true}") boolean enabled,
+                                @Value("${app.migrations.answer-sheet.batch-size:500}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        Thread migration = new Thread(() -> {
+            try {
+                long started = System.currentTimeMillis();
+                long migrated = migrate();
+                if (migrated > 0) {
+                    log.info("Migrated {} attempts to answer sheets in {} ms", migrated, System.currentTimeMillis() - started);
+                }
+            } catch (Exception e) {
+                log.warn("Answer sheet migration failed: {}", e.getMessage());
+            }
+        }, "answer-sheet-migration");
+        migration.setDaemon(true);
+        migration.start();
+    }
+
+    /**
+     * @return the number of documents rewritten
+     */
+    @SuppressWarnings("unchecked")
+    public long migrate() {
+        String collection = mongoTemplate.getCollectionName(TestAttempt.class);
+        Query query = new Query(Criteria.where("answers").exists(true));
+        query.fields().include("answers", "sheet");
+        query.cursorBatchSize(batchSize);
+
+        long migrated = 0;
+        BulkOperations bulk = null;
+        int pending = 0;
+        try (Stream<Document> documents = mongoTemplate.stream(query, Document.class, collection)) {
+            for (Document document : (Iterable<Document>) documents::iterator) {
+                Update update = new Update().unset("answers");
+                // A document carrying both shapes keeps its sheet and only drops the legacy list
+                if (document.get("sheet") == null) {
+                    List<Document> answers = document.get("answers") instanceof List<?> list ? (List<Document>) list : List.of();
+                    update.set("sheet", AnswerSheet.fromLegacy(answers));
+                }
+                if (bulk == null) {
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TestAttempt.class);
+                }
+                // Matching on answers as well skips documents rewritten by a grader since they were read
+                bulk.updateOne(new Query(Criteria.where("_id").is(document.get("_id")).and("answers").exists(true)), update);
+                if (++pending == batchSize) {
+                    migrated += bulk.execute().getModifiedCount();
+                    bulk = null;
+                    pending = 0;
+                }
+            }
+        }
+        if (bulk != null) {
+            migrated += bulk.execute().getModifiedCount();
+        }
+        return migrated;
+    }
+}
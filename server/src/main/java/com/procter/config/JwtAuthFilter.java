@@ -1,12 +1,15 @@
 package com.procter.procter_app.config;
 
 import com.procter.procter_app.model.User;
-import com.procter.procter_app.repo.UserRepository;
 import com.procter.procter_app.service.JwtService;
+import com.procter.procter_app.service.TokenRevocationService;
+import com.procter.procter_app.service.UserPrincipalCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -20,12 +23,18 @@ import java.util.Optional;
 
 public class JwtAuthFilter extends OncePerRequestFilter {
 
+    private static final Logger log = LoggerFactory.getLogger(JwtAuthFilter.class);
+
     private final JwtService jwtService;
-    private final UserRepository userRepository;
+    private final UserPrincipalCache userPrincipalCache;
+    private final TokenRevocationService tokenRevocationService;
 
-    public JwtAuthFilter(JwtService jwtService, UserRepository userRepository) {
+    public JwtAuthFilter(JwtService jwtService,
+                         UserPrincipalCache userPrincipalCache,
+                         TokenRevocationService tokenRevocationService) {
         this.jwtService = jwtService;
-        this.userRepository = userRepository;
+        this.userPrincipalCache = userPrincipalCache;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     @Override
@@ -44,20 +53,21 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         }
 
         final String token = authHeader.substring(7);
-        final String email;
 
-        try {
-            email = jwtService.extractUsername(token);
-        } catch (Exception e) {
+        // Signature and expiry are checked once here; the claims are reused below.
+        // The revocation check runs on every request, including cached verifications.
+        Optional<JwtService.VerifiedToken> verified = jwtService.verify(token);
+        if (verified.isEmpty() || tokenRevocationService.isRevoked(verified.get())) {
             SecurityContextHolder.clearContext();
             filterChain.doFilter(request, response);
             return;
         }
+        final String email = verified.get().subject();
 
         // 2. Proceed only if email is present and not already authenticated
         if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-            Optional<User> userOpt = userRepository.findByEmail(email);
+            Optional<User> userOpt = userPrincipalCache.findByEmail(email);
             if (userOpt.isEmpty()) {
                 filterChain.doFilter(request, response);
                 return;
@@ -66,7 +76,7 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             User user = userOpt.get();
 
             // 3. Validate token against database user
-            if (!jwtService.isTokenValid(token, user)) {
+            if (!jwtService.isTokenValid(verified.get(), user)) {
                 SecurityContextHolder.clearContext();
                 filterChain.doFilter(request, response);
                 return;
@@ -90,10 +100,7 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
             SecurityContextHolder.getContext().setAuthentication(authentication);
 
-            // SERVER-SIDE DEBUG LOGS
-            System.out.println("✅ JWT AUTH SUCCESSFUL");
-            System.out.println("   📧 Email: " + user.getEmail());
-            System.out.println("   🔑 Authority Granted: " + authority.getAuthority());
+            log.debug("JWT authenticated user {} with {}", user.getId(), authority.getAuthority());
         }
 
         filterChain.doFilter(request, response);
@@ -0,0 +1,80 @@
+package com.procter.procter_app.config;
+
+import com.procter.procter_app.model.RefreshToken;
+import com.procter.procter_app.model.Test;
+import com.procter.procter_app.model.TestAttempt;
+import com.procter.procter_app.model.TestStats;
+import com.procter.procter_app.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates the indexes declared on the managed documents (@Indexed, @CompoundIndex).
+ *
+ * Spring's auto-index-creation is off, so without this the annotations are only
+ * documentation. Provisioning runs once at startup in the background: ensureIndex is a
+ * no-op for indexes that already exist, and one failing definition (e.g. a unique index
+ * over duplicate data) is logged without blocking the rest.
+ */
+@Component
+public class MongoIndexProvisioner {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoIndexProvisioner.class);
+
+    // Add a document class here when it declares indexes
+    public static final List<Class<?>> MANAGED_DOCUMENTS = List.of(
+            User.class, Test.class, TestAttempt.class, TestStats.class, RefreshToken.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    public MongoIndexProvisioner(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void provisionOnStartup() {
+        Thread provisioner = new Thread(() -> {
+            try {
+                List<String> ensured = provision();
+                log.info("Ensured {} Mongo indexes", ensured.size());
+            } catch (Exception e) {
+                log.warn("Mongo index provisioning failed: {}", e.getMessage());
+            }
+        }, "mongo-index-provisioner");
+        provisioner.setDaemon(true);
+        provisioner.start();
+    }
+
+    /**
+     * Ensures every declared index of the managed documents.
+     *
+     * @return "collection.indexName" of each index that was ensured
+     */
+    public List<String> provision() {
+        MongoPersistentEntityIndexResolver resolver =
+                new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        List<String> ensured = new ArrayList<>();
+        for (Class<?> type : MANAGED_DOCUMENTS) {
+            IndexOperations indexOps = mongoTemplate.indexOps(type);
+            String collection = mongoTemplate.getCollectionName(type);
+            for (IndexDefinition definition : resolver.resolveIndexFor(type)) {
+                try {
+                    ensured.add(collection + "." + indexOps.ensureIndex(definition));
+                } catch (RuntimeException e) {
+                    log.warn("Could not ensure index {} on {}: {}", definition.getIndexKeys(), collection, e.getMessage());
+                }
+            }
+        }
+        return ensured;
+    }
+}
@@ -0,0 +1,103 @@
+package com.procter.procter_app.config;
+
+import com.procter.procter_app.model.Test;
+import com.procter.procter_app.service.QuestionBank;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.stream.Stream;
+
+/**
+ * Moves the questions embedded in legacy test documents into the {@link QuestionBank}.
+ *
+ * Runs once at startup in the background and is safe to repeat: only tests without
+ * questionRefs are touched. Their questions are interned and the embedded list is replaced
+ * by the refs, in unordered bulk batches. Legacy tests read fine in the meantime.
+ */
+@Component
+public class QuestionBankMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(QuestionBankMigration.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final QuestionBank questionBank;
+    private final boolean enabled;
+    private final int batchSize;
+
+    public QuestionBankMigration(MongoTemplate mongoTemplate,
+                                 QuestionBank questionBank,
+                                 @Value("${app.migrations.question-bank.enabled:true}") boolean enabled,
+                                 @Value("${app.migrations.question-bank.batch-size:200}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.questionBank = questionBank;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        Thread migration = new Thread(() -> {
+            try {
+                long started = System.currentTimeMillis();
+                long migrated = migrate();
+                if (migrated > 0) {
+                    log.info("Moved the questions of {} tests into the question bank in {} ms",
+                            migrated, System.currentTimeMillis() - started);
+                }
+            } catch (Exception e) {
+                log.warn("Question bank migration failed: {}", e.getMessage());
+            }
+        }, "question-bank-migration");
+        migration.setDaemon(true);
+        migration.start();
+    }
+
+    /**
+     * @return the number of tests rewritten
+     */
+    public long migrate() {
+        Query query = new Query(Criteria.where("questions").exists(true).and("questionRefs").exists(false));
+        query.fields().include("questions");
+        query.cursorBatchSize(batchSize);
+
+        long migrated = 0;
+        BulkOperations bulk = null;
+        int pending = 0;
+        try (Stream<Test> tests = mongoTemplate.stream(query, Test.class)) {
+            for (Test test : (Iterable<Test>) tests::iterator) {
+                if (test.getQuestions() == null) {
+                    continue;
+                }
+                Update update = new Update()
+                        .set("questionRefs", questionBank.intern(test.getQuestions(), null))
+                        .unset("questions");
+                if (bulk == null) {
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Test.class);
+                }
+                // A test saved since it was read already has refs and is left alone
+                bulk.updateOne(new Query(Criteria.where("_id").is(test.getId()).and("questionRefs").exists(false)), update);
+                if (++pending == batchSize) {
+                    migrated += bulk.execute().getModifiedCount();
+                    bulk = null;
+                    pending = 0;
+                }
+            }
+        }
+        if (bulk != null) {
+            migrated += bulk.execute().getModifiedCount();
+        }
+        return migrated;
+    }
+}
@@ -1,8 +1,9 @@
 //This file in name of security config 
 package com.procter.procter_app.config;
 
-import com.procter.procter_app.repo.UserRepository;
 import com.procter.procter_app.service.JwtService;
+import com.procter.procter_app.service.TokenRevocationService;
+import com.procter.procter_app.service.UserPrincipalCache;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -20,11 +21,15 @@ import org.springframework.security.web.authentication.www.BasicAuthenticationFi
 public class SecurityConfig {
 
     private final JwtService jwtService;
-    private final UserRepository userRepository;
+    private final UserPrincipalCache userPrincipalCache;
+    private final TokenRevocationService tokenRevocationService;
 
-    public SecurityConfig(JwtService jwtService, UserRepository userRepository) {
+    public SecurityConfig(JwtService jwtService,
+                          UserPrincipalCache userPrincipalCache,
+                          TokenRevocationService tokenRevocationService) {
         this.jwtService = jwtService;
-        this.userRepository = userRepository;
+        this.userPrincipalCache = userPrincipalCache;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     @Bean
@@ -61,6 +66,9 @@ public class SecurityConfig {
                 // 🔓 WebSocket handshake + SockJS
                 .requestMatchers("/ws/**").permitAll()
 
+                // 🔓 Health checks and the Prometheus scrape
+                .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
+
                 // 👨‍🎓 Student-only endpoint
                 .requestMatchers(HttpMethod.GET, "/api/analytics/my-analytics")
                     .hasRole("STUDENT")
@@ -75,7 +83,7 @@ public class SecurityConfig {
 
             // ✅ JWT Filter
             .addFilterBefore(
-                new JwtAuthFilter(jwtService, userRepository),
+                new JwtAuthFilter(jwtService, userPrincipalCache, tokenRevocationService),
                 BasicAuthenticationFilter.class
             );
 
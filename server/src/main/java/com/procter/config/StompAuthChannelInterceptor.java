@@ -0,0 +1,62 @@
+package com.procter.procter_app.config;
+
+import com.procter.procter_app.model.User;
+import com.procter.procter_app.service.JwtService;
+import com.procter.procter_app.service.TokenRevocationService;
+import com.procter.procter_app.service.UserPrincipalCache;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Authenticates the STOMP session from the "Authorization: Bearer ..." header of the
+ * CONNECT frame, so @MessageMapping handlers can tell which user sent a message.
+ * Connections without a (valid) token stay anonymous, as before.
+ */
+public class StompAuthChannelInterceptor implements ChannelInterceptor {
+
+    private final JwtService jwtService;
+    private final UserPrincipalCache userPrincipalCache;
+    private final TokenRevocationService tokenRevocationService;
+
+    public StompAuthChannelInterceptor(JwtService jwtService,
+                                       UserPrincipalCache userPrincipalCache,
+                                       TokenRevocationService tokenRevocationService) {
+        this.jwtService = jwtService;
+        this.userPrincipalCache = userPrincipalCache;
+        this.tokenRevocationService = tokenRevocationService;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || !StompCommand.CONNECT.equals(accessor.getCommand())) {
+            return message;
+        }
+
+        String authHeader = accessor.getFirstNativeHeader("Authorization");
+        if (!StringUtils.hasText(authHeader) || !authHeader.startsWith("Bearer ")) {
+            return message;
+        }
+
+        // Invalid or expired token: leave the session anonymous
+        String token = authHeader.substring(7);
+        jwtService.verify(token).filter(verified -> !tokenRevocationService.isRevoked(verified)).ifPresent(verified -> {
+            Optional<User> user = userPrincipalCache.findByEmail(verified.subject());
+            if (user.isPresent() && jwtService.isTokenValid(verified, user.get())) {
+                SimpleGrantedAuthority authority = new SimpleGrantedAuthority("ROLE_" + user.get().getRole().name());
+                accessor.setUser(new UsernamePasswordAuthenticationToken(user.get(), null, List.of(authority)));
+            }
+        });
+        return message;
+    }
+}
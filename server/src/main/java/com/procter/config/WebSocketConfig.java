@@ -1,6 +1,11 @@
 package com.procter.procter_app.config;
 
+import com.procter.procter_app.service.JwtService;
+import com.procter.procter_app.service.TokenRevocationService;
+import com.procter.procter_app.service.UserPrincipalCache;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.*;
 
@@ -8,6 +13,21 @@ import org.springframework.web.socket.config.annotation.*;
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final JwtService jwtService;
+    private final UserPrincipalCache userPrincipalCache;
+    private final TokenRevocationService tokenRevocationService;
+    private final MeterRegistry meterRegistry;
+
+    public WebSocketConfig(JwtService jwtService,
+                           UserPrincipalCache userPrincipalCache,
+                           TokenRevocationService tokenRevocationService,
+                           MeterRegistry meterRegistry) {
+        this.jwtService = jwtService;
+        this.userPrincipalCache = userPrincipalCache;
+        this.tokenRevocationService = tokenRevocationService;
+        this.meterRegistry = meterRegistry;
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
 
@@ -28,5 +48,15 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.enableSimpleBroker("/topic", "/queue");
         registry.setApplicationDestinationPrefixes("/app");
     }
-}
 
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(new StompAuthChannelInterceptor(jwtService, userPrincipalCache, tokenRevocationService),
+                new WebSocketMetricsInterceptor(meterRegistry, "inbound"));
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(new WebSocketMetricsInterceptor(meterRegistry, "outbound"));
+    }
+}
@@ -0,0 +1,39 @@
+package com.procter.procter_app.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Counts STOMP messages entering a client channel, by direction and message type
+ * (procter.websocket.messages). Destinations and sessions are not tags, so the number
+ * of series stays fixed however many tests and students are connected.
+ */
+public class WebSocketMetricsInterceptor implements ChannelInterceptor {
+
+    private final Map<SimpMessageType, Counter> counters = new EnumMap<>(SimpMessageType.class);
+
+    public WebSocketMetricsInterceptor(MeterRegistry meterRegistry, String direction) {
+        for (SimpMessageType type : SimpMessageType.values()) {
+            counters.put(type, Counter.builder("procter.websocket.messages")
+                    .description("STOMP messages entering the client inbound or outbound channel")
+                    .tag("direction", direction)
+                    .tag("type", type.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+        counters.get(type != null ? type : SimpMessageType.OTHER).increment();
+        return message;
+    }
+}
@@ -1,20 +1,48 @@
 package com.procter.procter_app.controller;
 
+import com.procter.procter_app.dto.AnalyticsSummaryRow;
 import com.procter.procter_app.dto.StudentAnalyticsResponse;
+import com.procter.procter_app.model.Test;
 import com.procter.procter_app.model.User;
-import com.procter.procter_app.service.AIAnalyticsService;
+import com.procter.procter_app.service.AnalyticsPrecomputeService;
+import com.procter.procter_app.service.AttemptAnalyticsService;
+import com.procter.procter_app.service.AttemptColumnStore;
+import com.procter.procter_app.service.CoalescingLoader;
+import com.procter.procter_app.service.TestReviewService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
 @RestController
 @RequestMapping("/api/analytics")
 public class AnalyticsController {
 
-    private final AIAnalyticsService aiAnalyticsService;
+    private final AnalyticsPrecomputeService analyticsPrecomputeService;
+    private final AttemptAnalyticsService attemptAnalyticsService;
+    private final TestReviewService testReviewService;
+    private final CoalescingLoader coalescingLoader;
+    private final MeterRegistry meterRegistry;
 
-    public AnalyticsController(AIAnalyticsService aiAnalyticsService) {
-        this.aiAnalyticsService = aiAnalyticsService;
+    public AnalyticsController(AnalyticsPrecomputeService analyticsPrecomputeService,
+                               AttemptAnalyticsService attemptAnalyticsService,
+                               TestReviewService testReviewService,
+                               CoalescingLoader coalescingLoader,
+                               MeterRegistry meterRegistry) {
+        this.analyticsPrecomputeService = analyticsPrecomputeService;
+        this.attemptAnalyticsService = attemptAnalyticsService;
+        this.testReviewService = testReviewService;
+        this.coalescingLoader = coalescingLoader;
+        this.meterRegistry = meterRegistry;
     }
 
     /* ===================== STUDENT ENDPOINT ===================== */
@@ -30,23 +58,60 @@ public class AnalyticsController {
             return ResponseEntity.status(401).body(null);
         }
 
-        // Debug logs for verification
-        System.out.println("=== STUDENT ANALYTICS REQUEST ===");
-        System.out.println("Student ID: " + student.getId());
-        System.out.println("Student Email: " + student.getEmail());
-        System.out.println("Student Role: " + student.getRole());
-        System.out.println("Subject filter: " + subject);
-        System.out.println("Time range: " + timeRange);
-
-        StudentAnalyticsResponse response = aiAnalyticsService.generateStudentAnalytics(
-                student.getId(),
-                subject,
-                timeRange
-        );
+        // Default view comes from the nightly snapshot; filtered views are computed live
+        StudentAnalyticsResponse response = timer("student").record(() ->
+                analyticsPrecomputeService.getStudentAnalytics(student, subject, timeRange));
 
         return ResponseEntity.ok(response);
     }
 
+    /* ===================== TEACHER ENDPOINT ===================== */
+
+    // Aggregates over the teacher's own tests, grouped by test, subject or student
+    @PreAuthorize("hasRole('TEACHER')")
+    @GetMapping("/teacher/summary")
+    public ResponseEntity<?> getTeacherSummary(
+            @RequestParam(defaultValue = "test") String groupBy,
+            @RequestParam(required = false) String subject,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @AuthenticationPrincipal User teacher) {
+
+        AttemptColumnStore.GroupBy grouping;
+        try {
+            grouping = AttemptColumnStore.GroupBy.valueOf(groupBy.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "groupBy must be one of none, test, subject, student"));
+        }
+
+        List<AnalyticsSummaryRow> rows = timer("teacher_summary").record(() ->
+                attemptAnalyticsService.teacherSummary(teacher.getId(), grouping, subject, from, to));
+        return ResponseEntity.ok(rows);
+    }
+
+    // Class results for one test, including near-duplicate written answers
+    @PreAuthorize("hasRole('TEACHER')")
+    @GetMapping("/test/{testId}/review")
+    public ResponseEntity<?> getTestReview(
+            @PathVariable("testId") String testId,
+            @RequestParam(defaultValue = "false") boolean includeAIReport,
+            @AuthenticationPrincipal User teacher) {
+
+        Optional<Test> test = coalescingLoader.findTestById(testId);
+        if (test.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Test not found"));
+        }
+        if (!teacher.getId().equals(test.get().getCreatedByTeacherId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "You do not own this test."));
+        }
+        return ResponseEntity.ok(timer("test_review").record(() -> testReviewService.review(test.get(), includeAIReport)));
+    }
+
+    // One timer per report kind; the tag never carries ids
+    private Timer timer(String report) {
+        return meterRegistry.timer("procter.analytics", "report", report);
+    }
+
     /* ===================== AUTH TEST ===================== */
 
     @GetMapping("/test-auth")
@@ -5,17 +5,25 @@ package com.procter.procter_app.controller;
 import com.procter.procter_app.model.Role;
 import com.procter.procter_app.dto.AuthResponse;
 import com.procter.procter_app.dto.LoginRequest;
+import com.procter.procter_app.dto.RefreshTokenRequest;
 import com.procter.procter_app.dto.RegisterRequest;
 import com.procter.procter_app.model.User;
 import com.procter.procter_app.repo.UserRepository;
+import com.procter.procter_app.service.CoalescingLoader;
 import com.procter.procter_app.service.JwtService;
+import com.procter.procter_app.service.PasswordHashingService;
+import com.procter.procter_app.service.RefreshTokenService;
+import com.procter.procter_app.service.TokenRevocationService;
 import jakarta.validation.Valid;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -24,14 +32,25 @@ public class AuthController {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
+    private final PasswordHashingService passwordHashingService;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService tokenRevocationService;
+    private final CoalescingLoader coalescingLoader;
 
     public AuthController(UserRepository userRepository,
                           PasswordEncoder passwordEncoder,
-                          @Value("${app.jwt.secret}") String secret,
-                          @Value("${app.jwt.expiration}") long expirationMs) {
+                          JwtService jwtService,
+                          PasswordHashingService passwordHashingService,
+                          RefreshTokenService refreshTokenService,
+                          TokenRevocationService tokenRevocationService,
+                          CoalescingLoader coalescingLoader) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
-        this.jwtService = new JwtService(secret, expirationMs);
+        this.jwtService = jwtService;
+        this.passwordHashingService = passwordHashingService;
+        this.refreshTokenService = refreshTokenService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.coalescingLoader = coalescingLoader;
     }
 
     @PostMapping("/register")
@@ -49,23 +68,68 @@ public class AuthController {
         return ResponseEntity.ok(Map.of("status", "registered"));
     }
 
+    /**
+     * The password check runs on the hashing pool; the request thread is released while
+     * it waits. When that pool is saturated the client gets a 503 with Retry-After.
+     */
     @PostMapping("/login")
-    public ResponseEntity<AuthResponse> login(@Valid @RequestBody LoginRequest req) {
-        User u = userRepository.findByEmail(req.getEmail())
+    public CompletableFuture<ResponseEntity<?>> login(@Valid @RequestBody LoginRequest req) {
+        User u = coalescingLoader.findUserByEmail(req.getEmail())
                 .orElseThrow(() -> new RuntimeException("Invalid credentials"));
-        if (!passwordEncoder.matches(req.getPassword(), u.getPassword())) {
-            throw new RuntimeException("Invalid credentials");
+        return passwordHashingService.matches(u, req.getPassword())
+                .<ResponseEntity<?>>thenApply(matched -> {
+                    if (!matched) {
+                        throw new RuntimeException("Invalid credentials");
+                    }
+                    String token = jwtService.generateToken(
+                            u.getEmail(),
+                            Map.of("role", u.getRole().name(), "uid", u.getId())
+                    );
+                    AuthResponse response = new AuthResponse(
+                            token,
+                            u.getRole().name(),
+                            u.getUsername(),
+                            u.getEmail(),
+                            u.getProfilePictureUrl()
+                    );
+                    response.setRefreshToken(refreshTokenService.issue(u));
+                    return ResponseEntity.ok(response);
+                })
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof PasswordHashingService.SaturatedException) {
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header(HttpHeaders.RETRY_AFTER, String.valueOf(passwordHashingService.getRetryAfterSeconds()))
+                                .body(Map.of("error", "Too many logins at once, please retry shortly."));
+                    }
+                    throw cause instanceof RuntimeException re ? re : new CompletionException(cause);
+                });
+    }
+
+    /**
+     * Swaps a refresh token for a new access token and a new refresh token.
+     * The presented refresh token stops working.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@Valid @RequestBody RefreshTokenRequest req) {
+        return refreshTokenService.refresh(req.getRefreshToken())
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                        .body(Map.of("error", "Refresh token is invalid or expired")));
+    }
+
+    /**
+     * Ends the refresh session and, when the access token is sent along, revokes it too
+     * so it cannot be used for the rest of its lifetime.
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@Valid @RequestBody RefreshTokenRequest req,
+                                    @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authHeader) {
+        refreshTokenService.revoke(req.getRefreshToken());
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            jwtService.verify(authHeader.substring(7))
+                    .ifPresent(token -> tokenRevocationService.revokeToken(token.jti(), token.expiresAt()));
         }
-        String token = jwtService.generateToken(
-                u.getEmail(),
-                Map.of("role", u.getRole().name(), "uid", u.getId())
-        );
-        return ResponseEntity.ok(new AuthResponse(
-                token, 
-                u.getRole().name(), 
-                u.getUsername(), 
-                u.getEmail(),
-                u.getProfilePictureUrl()
-        ));
+        return ResponseEntity.ok(Map.of("status", "logged out"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,33 @@
+package com.procter.procter_app.controller;
+
+import com.procter.procter_app.dto.RefreshTokenRequest;
+import com.procter.procter_app.service.RefreshTokenService;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.stereotype.Controller;
+
+import java.util.Map;
+
+/**
+ * Token renewal over an open STOMP session, so an exam page can keep its access token
+ * fresh without dropping the proctoring connection. The reply goes to the sending session
+ * only, on /user/queue/auth.
+ */
+@Controller
+public class AuthSocketController {
+
+    private final RefreshTokenService refreshTokenService;
+
+    public AuthSocketController(RefreshTokenService refreshTokenService) {
+        this.refreshTokenService = refreshTokenService;
+    }
+
+    @MessageMapping("/auth/refresh")
+    @SendToUser(destinations = "/queue/auth", broadcast = false)
+    public Object refresh(@Payload RefreshTokenRequest request) {
+        return refreshTokenService.refresh(request.getRefreshToken())
+                .<Object>map(response -> response)
+                .orElseGet(() -> Map.of("error", "Refresh token is invalid or expired"));
+    }
+}
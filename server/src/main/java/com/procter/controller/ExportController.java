@@ -0,0 +1,123 @@
+package com.procter.procter_app.controller;
+
+import com.procter.procter_app.model.Test;
+import com.procter.procter_app.model.User;
+import com.procter.procter_app.repo.TestRepository;
+import com.procter.procter_app.service.AttemptExportService;
+import com.procter.procter_app.service.AttemptExportService.Format;
+import com.procter.procter_app.service.AttemptExportService.SpooledExport;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/exports")
+@PreAuthorize("hasRole('TEACHER')")
+public class ExportController {
+
+    private final AttemptExportService exportService;
+    private final TestRepository testRepository;
+
+    public ExportController(AttemptExportService exportService, TestRepository testRepository) {
+        this.exportService = exportService;
+        this.testRepository = testRepository;
+    }
+
+    @GetMapping("/tests/{testId}")
+    public ResponseEntity<?> exportTest(@PathVariable("testId") String testId,
+                                        @RequestParam(defaultValue = "csv") String format,
+                                        @RequestParam(defaultValue = "false") boolean gzip,
+                                        @RequestParam(defaultValue = "false") boolean spool,
+                                        @AuthenticationPrincipal User teacher) throws IOException {
+        Optional<Test> test = testRepository.findById(testId);
+        if (test.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Test not found"));
+        }
+        if (!teacher.getId().equals(test.get().getCreatedByTeacherId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "You do not own this test."));
+        }
+        return export(teacher, exportService.forTest(testId), format, gzip, spool, "test-" + testId);
+    }
+
+    @GetMapping("/subjects/{subject}")
+    public ResponseEntity<?> exportSubject(@PathVariable("subject") String subject,
+                                           @RequestParam(defaultValue = "csv") String format,
+                                           @RequestParam(defaultValue = "false") boolean gzip,
+                                           @RequestParam(defaultValue = "false") boolean spool,
+                                           @AuthenticationPrincipal User teacher) throws IOException {
+        return export(teacher, exportService.forSubject(teacher.getId(), subject), format, gzip, spool, "subject");
+    }
+
+    @GetMapping("/attempts")
+    public ResponseEntity<?> exportDateRange(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(defaultValue = "false") boolean spool,
+            @AuthenticationPrincipal User teacher) throws IOException {
+        return export(teacher, exportService.forDateRange(teacher.getId(), from, to), format, gzip, spool, "attempts");
+    }
+
+    // Re-download of a spooled export; served from the local file, not from Mongo
+    @GetMapping("/{exportId}")
+    public ResponseEntity<?> download(@PathVariable("exportId") String exportId,
+                                      @AuthenticationPrincipal User teacher) throws IOException {
+        Optional<SpooledExport> spooled = exportService.findSpooled(teacher.getId(), exportId);
+        if (spooled.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Export not found or expired"));
+        }
+        return serveSpooled(spooled.get());
+    }
+
+    private ResponseEntity<?> export(User teacher, Query query, String formatName,
+                                     boolean gzip, boolean spool, String baseName) throws IOException {
+        Format format;
+        try {
+            format = Format.valueOf(formatName.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Unsupported format: " + formatName));
+        }
+
+        if (spool) {
+            return serveSpooled(exportService.spool(teacher.getId(), query, format, gzip));
+        }
+
+        StreamingResponseBody body = out -> exportService.write(query, format, gzip, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, attachment(baseName + "." + format.getExtension() + (gzip ? ".gz" : "")))
+                .contentType(contentType(format, gzip))
+                .body(body);
+    }
+
+    private ResponseEntity<StreamingResponseBody> serveSpooled(SpooledExport export) throws IOException {
+        StreamingResponseBody body = out -> exportService.transfer(export.path(), out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, attachment(export.fileName()))
+                .header("X-Export-Id", export.exportId())
+                .contentLength(Files.size(export.path()))
+                .contentType(contentType(export.format(), export.gzip()))
+                .body(body);
+    }
+
+    private static MediaType contentType(Format format, boolean gzip) {
+        return MediaType.parseMediaType(gzip ? "application/gzip" : format.getContentType() + ";charset=UTF-8");
+    }
+
+    private static String attachment(String fileName) {
+        return "attachment; filename=\"" + fileName + "\"";
+    }
+}
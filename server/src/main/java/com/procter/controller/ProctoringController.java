@@ -1,29 +1,41 @@
 package com.procter.procter_app.controller;
 
+import com.procter.procter_app.model.Role;
 import com.procter.procter_app.model.User;
+import com.procter.procter_app.service.TestStatsService;
 import org.springframework.messaging.handler.annotation.*;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
-import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 
+import java.security.Principal;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.Map;
 
 @Controller
 public class ProctoringController {
 
     private final SimpMessagingTemplate messagingTemplate;
+    private final TestStatsService testStatsService;
 
-    public ProctoringController(SimpMessagingTemplate messagingTemplate) {
+    public ProctoringController(SimpMessagingTemplate messagingTemplate, TestStatsService testStatsService) {
         this.messagingTemplate = messagingTemplate;
+        this.testStatsService = testStatsService;
     }
 
     // Students can send activity pings/events to the teacher's topic for a given test
     @MessageMapping("/test/{testId}/activity")
     public void activity(@DestinationVariable String testId,
                          @Payload Map<String, Object> payload,
-                         @AuthenticationPrincipal User user) {
+                         Principal principal) {
+        // Set by StompAuthChannelInterceptor when the client connected with a token
+        User user = principal instanceof Authentication auth && auth.getPrincipal() instanceof User u ? u : null;
+
+        if (user != null && user.getRole() == Role.STUDENT && isSuspicious(payload)) {
+            testStatsService.onStudentFlagged(testId, user.getId());
+        }
+
         messagingTemplate.convertAndSend("/topic/test/" + testId + "/events",
                 Map.of(
                         "type", "ACTIVITY",
@@ -32,4 +44,9 @@ public class ProctoringController {
                         "timestamp", Instant.now().toString()
                 ));
     }
+
+    // The client reports what it detected in "suspiciousActivity" (e.g. multiple faces)
+    private boolean isSuspicious(Map<String, Object> payload) {
+        return payload.get("suspiciousActivity") instanceof Collection<?> activities && !activities.isEmpty();
+    }
 }
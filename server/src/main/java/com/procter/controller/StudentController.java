@@ -1,17 +1,26 @@
 package com.procter.procter_app.controller;
 
+import com.procter.procter_app.dto.AttemptSummary;
+import com.procter.procter_app.dto.PageResponse;
 import com.procter.procter_app.dto.StudentTestReviewResponse;
 import com.procter.procter_app.model.TestAttempt;
 import com.procter.procter_app.model.User;
 import com.procter.procter_app.repo.TestAttemptRepository;
 import com.procter.procter_app.repo.TestRepository;
 import com.procter.procter_app.repo.UserRepository;
+import com.procter.procter_app.service.SummaryPageService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -19,16 +28,25 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/student")
 public class StudentController {
 
+    private static final Logger log = LoggerFactory.getLogger(StudentController.class);
+
     private final TestAttemptRepository testAttemptRepository;
     private final TestRepository testRepository;
     private final UserRepository userRepository;
+    private final SummaryPageService summaryPageService;
+    // Rank, class size and percentile of a review; each currently reads every attempt of the test
+    private final Timer rankingTimer;
 
     public StudentController(TestAttemptRepository testAttemptRepository,
                            TestRepository testRepository,
-                           UserRepository userRepository) {
+                           UserRepository userRepository,
+                           SummaryPageService summaryPageService,
+                           MeterRegistry meterRegistry) {
         this.testAttemptRepository = testAttemptRepository;
         this.testRepository = testRepository;
         this.userRepository = userRepository;
+        this.summaryPageService = summaryPageService;
+        this.rankingTimer = meterRegistry.timer("procter.ranking");
     }
 
     // Debug endpoint to check if server is running
@@ -43,23 +61,14 @@ public class StudentController {
             @PathVariable("testId") String testId,
             @AuthenticationPrincipal User student) {
         
-        System.out.println("=== DEBUG: Student Test Review Request ===");
-        System.out.println("TestId: " + testId);
-        System.out.println("Student: " + (student != null ? student.getEmail() + " (ID: " + student.getId() + ")" : "null"));
-        System.out.println("Student Role: " + (student != null ? student.getRole() : "null"));
-
         // Find the student's attempt for this test
         List<TestAttempt> allAttempts = testAttemptRepository.findByTestIdAndStudentId(testId, student.getId());
-        System.out.println("All attempts found: " + allAttempts.size());
-        
         List<TestAttempt> attempts = allAttempts.stream()
                 .filter(TestAttempt::isCompleted)
                 .collect(Collectors.toList());
-        
-        System.out.println("Completed attempts: " + attempts.size());
 
         if (attempts.isEmpty()) {
-            System.out.println("No completed attempts found for student " + student.getId() + " and test " + testId);
+            log.debug("No completed attempt of test {} for student {}", testId, student.getId());
             return ResponseEntity.notFound().build();
         }
 
@@ -95,17 +104,19 @@ public class StudentController {
         List<StudentTestReviewResponse.QuestionResult> questionResults = buildQuestionResults(test, attempt);
         response.setQuestionResults(questionResults);
 
-        // Calculate rank
-        int rank = calculateRank(testId, attempt.getScore(), attempt.getCorrectAnswers());
-        response.setRank(rank);
-        
-        // Get total students who completed this test
-        int totalStudents = getTotalStudents(testId);
-        response.setTotalStudents(totalStudents);
-        
-        // Get percentile
-        double percentile = calculatePercentile(testId, attempt.getScore());
-        response.setPercentile(percentile);
+        rankingTimer.record(() -> {
+            // Calculate rank
+            int rank = calculateRank(testId, attempt.getScore(), attempt.getCorrectAnswers());
+            response.setRank(rank);
+
+            // Get total students who completed this test
+            int totalStudents = getTotalStudents(testId);
+            response.setTotalStudents(totalStudents);
+
+            // Get percentile
+            double percentile = calculatePercentile(testId, attempt.getScore());
+            response.setPercentile(percentile);
+        });
 
         return ResponseEntity.ok(response);
     }
@@ -180,29 +191,46 @@ public class StudentController {
     public ResponseEntity<List<StudentTestReviewResponse>> getMyTestAttempts(
             @AuthenticationPrincipal User student) {
 
-        List<TestAttempt> attempts = testAttemptRepository.findByStudentId(student.getId())
+        // Completed-only filter and answer-free projection run in Mongo
+        List<StudentTestReviewResponse> responses = summaryPageService.allCompletedAttempts(student.getId())
                 .stream()
-                .filter(TestAttempt::isCompleted)
+                .map(this::toReviewSummary)
                 .collect(Collectors.toList());
 
-        List<StudentTestReviewResponse> responses = attempts.stream()
-                .map(attempt -> {
-                    StudentTestReviewResponse response = new StudentTestReviewResponse();
-                    response.setTestId(attempt.getTestId());
-                    response.setTestTitle(attempt.getTestTitle());
-                    response.setSubject(attempt.getSubject());
-                    response.setScore(attempt.getScore());
-                    response.setCorrectAnswers(attempt.getCorrectAnswers());
-                    response.setTotalQuestions(attempt.getTotalQuestions());
-                    response.setCompletedAt(attempt.getCompletedAt());
-                    response.setDurationInMinutes(attempt.getDurationInMinutes());
-                    response.setGrade(calculateGrade(attempt.getScore()));
-                    response.setPerformanceLevel(calculatePerformanceLevel(attempt.getScore()));
-                    return response;
-                })
+        return ResponseEntity.ok(responses);
+    }
+
+    @PreAuthorize("hasRole('STUDENT')")
+    @GetMapping("/my-attempts/page")
+    public ResponseEntity<?> getMyTestAttemptsPage(
+            @AuthenticationPrincipal User student,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        PageResponse<AttemptSummary> page;
+        try {
+            page = summaryPageService.completedAttempts(student.getId(), cursor, limit);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "Invalid cursor"));
+        }
+        List<StudentTestReviewResponse> items = page.getItems().stream()
+                .map(this::toReviewSummary)
                 .collect(Collectors.toList());
+        return ResponseEntity.ok(new PageResponse<>(items, page.getNextCursor()));
+    }
 
-        return ResponseEntity.ok(responses);
+    private StudentTestReviewResponse toReviewSummary(AttemptSummary attempt) {
+        StudentTestReviewResponse response = new StudentTestReviewResponse();
+        response.setTestId(attempt.getTestId());
+        response.setTestTitle(attempt.getTestTitle());
+        response.setSubject(attempt.getSubject());
+        response.setScore(attempt.getScore());
+        response.setCorrectAnswers(attempt.getCorrectAnswers());
+        response.setTotalQuestions(attempt.getTotalQuestions());
+        response.setCompletedAt(attempt.getCompletedAt());
+        response.setDurationInMinutes(attempt.getDurationInMinutes());
+        response.setGrade(calculateGrade(attempt.getScore()));
+        response.setPerformanceLevel(calculatePerformanceLevel(attempt.getScore()));
+        return response;
     }
 
     private String calculateGrade(int score) {
@@ -220,33 +248,24 @@ public class StudentController {
         return "Needs Improvement";
     }
 
-    private List<StudentTestReviewResponse.QuestionResult> buildQuestionResults(
+    // Package-private for AnswerSheetBenchmarkTest
+    static List<StudentTestReviewResponse.QuestionResult> buildQuestionResults(
             com.procter.procter_app.model.Test test, TestAttempt attempt) {
         
         List<StudentTestReviewResponse.QuestionResult> results = new java.util.ArrayList<>();
         
-        if (test.getQuestions() != null && attempt.getAnswers() != null) {
+        // The sheet is indexed by question, so each answer is a direct lookup
+        com.procter.procter_app.model.AnswerSheet sheet = attempt.getSheet();
+        if (test.getQuestions() != null && sheet != null) {
             for (int i = 0; i < test.getQuestions().size(); i++) {
                 com.procter.procter_app.model.Question question = test.getQuestions().get(i);
                 
-                // Find the student's answer for this question
-                Object studentAnswer = null;
-                boolean isCorrect = false;
-                
-                for (java.util.Map<String, Object> answerEntry : attempt.getAnswers()) {
-                    if (answerEntry.get("questionIndex").equals(i)) {
-                        studentAnswer = answerEntry.get("answer");
-                        isCorrect = (Boolean) answerEntry.get("isCorrect");
-                        break;
-                    }
-                }
-                
                 StudentTestReviewResponse.QuestionResult result = new StudentTestReviewResponse.QuestionResult();
                 result.setQuestionIndex(i);
                 result.setQuestionText(question.getQuestionText());
-                result.setStudentAnswer(studentAnswer);
+                result.setStudentAnswer(sheet.response(i, question));
                 result.setCorrectAnswer(question.getCorrectAnswer());
-                result.setCorrect(isCorrect);
+                result.setCorrect(sheet.isCorrect(i));
                 result.setQuestion(question);
                 
                 results.add(result);
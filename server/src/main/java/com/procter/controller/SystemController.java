@@ -0,0 +1,106 @@
+package com.procter.procter_app.controller;
+
+import com.procter.procter_app.cache.CacheRegistry;
+import com.procter.procter_app.model.Role;
+import com.procter.procter_app.model.User;
+import com.procter.procter_app.repo.TestRepository;
+import com.procter.procter_app.repo.UserRepository;
+import com.procter.procter_app.service.CoalescingLoader;
+import com.procter.procter_app.service.JoinCodeIndex;
+import com.procter.procter_app.service.PasswordHashingService;
+import com.procter.procter_app.service.RefreshTokenService;
+import com.procter.procter_app.service.TokenRevocationService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/system")
+@PreAuthorize("hasRole('TEACHER')")
+public class SystemController {
+
+    private final CacheRegistry cacheRegistry;
+    private final PasswordHashingService passwordHashingService;
+    private final TokenRevocationService tokenRevocationService;
+    private final RefreshTokenService refreshTokenService;
+    private final UserRepository userRepository;
+    private final TestRepository testRepository;
+    private final CoalescingLoader coalescingLoader;
+    private final JoinCodeIndex joinCodeIndex;
+
+    public SystemController(CacheRegistry cacheRegistry,
+                            PasswordHashingService passwordHashingService,
+                            TokenRevocationService tokenRevocationService,
+                            RefreshTokenService refreshTokenService,
+                            UserRepository userRepository,
+                            TestRepository testRepository,
+                            CoalescingLoader coalescingLoader,
+                            JoinCodeIndex joinCodeIndex) {
+        this.cacheRegistry = cacheRegistry;
+        this.passwordHashingService = passwordHashingService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.refreshTokenService = refreshTokenService;
+        this.userRepository = userRepository;
+        this.testRepository = testRepository;
+        this.coalescingLoader = coalescingLoader;
+        this.joinCodeIndex = joinCodeIndex;
+    }
+
+    // Size, hit / miss counters and hit rate of every in-process cache
+    @GetMapping("/caches")
+    public ResponseEntity<List<Map<String, Object>>> caches() {
+        return ResponseEntity.ok(cacheRegistry.stats());
+    }
+
+    // Pool size, queue depth, rejections and queue-wait / hash timings of the login hashing pool
+    // fanIn = callers served per Mongo query; above 1 means concurrent lookups were merged
+    @GetMapping("/single-flight")
+    public ResponseEntity<List<Map<String, Object>>> singleFlight() {
+        return ResponseEntity.ok(coalescingLoader.stats());
+    }
+
+    @GetMapping("/join-codes")
+    public ResponseEntity<Map<String, Object>> joinCodes() {
+        return ResponseEntity.ok(joinCodeIndex.stats());
+    }
+
+    @GetMapping("/password-hashing")
+    public ResponseEntity<Map<String, Object>> passwordHashing() {
+        return ResponseEntity.ok(passwordHashingService.stats());
+    }
+
+    @GetMapping("/revocations")
+    public ResponseEntity<Map<String, Object>> revocations() {
+        return ResponseEntity.ok(tokenRevocationService.stats());
+    }
+
+    /**
+     * Signs a user out everywhere: all access tokens issued so far stop working and the
+     * refresh sessions are deleted. Teachers can do this for themselves and for students who
+     * take part in one of their tests.
+     */
+    @PostMapping("/revocations/users/{userId}")
+    public ResponseEntity<?> revokeUser(@PathVariable("userId") String userId,
+                                        @AuthenticationPrincipal User currentUser) {
+        Optional<User> target = userRepository.findById(userId);
+        if (target.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "User not found"));
+        }
+        boolean self = target.get().getId().equals(currentUser.getId());
+        if (!self && target.get().getRole() != Role.STUDENT) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Only students can be signed out by a teacher."));
+        }
+        if (!self && !testRepository.existsByCreatedByTeacherIdAndParticipantIds(currentUser.getId(), userId)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "This student is not in any of your tests."));
+        }
+        tokenRevocationService.revokeUser(userId);
+        refreshTokenService.revokeAllForUser(userId);
+        return ResponseEntity.ok(Map.of("status", "revoked", "userId", userId));
+    }
+}
@@ -4,28 +4,52 @@ package com.procter.procter_app.controller;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.boot.actuate.metrics.http.Outcome;
 
 // Your existing project-specific imports
+import com.procter.procter_app.dto.AttemptSummary;
 import com.procter.procter_app.dto.CreateTestRequest;
+import com.procter.procter_app.dto.TeacherTestOverview;
 import com.procter.procter_app.model.Test;
 import com.procter.procter_app.model.TestAttempt;
 import com.procter.procter_app.model.User;
 import com.procter.procter_app.repo.TestRepository;
-import com.procter.procter_app.repo.TestAttemptRepository;
+import com.procter.procter_app.service.AttemptAnalyticsService;
+import com.procter.procter_app.service.AttemptDeadlineService;
+import com.procter.procter_app.service.CoalescingLoader;
+import com.procter.procter_app.service.JoinCodeIndex;
+import com.procter.procter_app.service.QuestionSearchService;
+import com.procter.procter_app.service.RegradeService;
+import com.procter.procter_app.service.StudentTestViewCache;
+import com.procter.procter_app.service.StudentTestViewCache.RenderedView;
+import com.procter.procter_app.service.SummaryPageService;
+import com.procter.procter_app.service.TestImportService;
+import com.procter.procter_app.service.TestStatsService;
+import com.procter.procter_app.service.TextGradingService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import jakarta.validation.constraints.NotBlank;
 
 // Other standard Java imports
-import java.security.SecureRandom;
+import java.io.IOException;
 import java.time.Instant;
-import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -34,15 +58,46 @@ import java.util.Optional;
 @RequestMapping("/api/tests")
 public class TestController {
 
+    private static final Logger log = LoggerFactory.getLogger(TestController.class);
+
     private final TestRepository testRepository;
-    private final TestAttemptRepository testAttemptRepository;
     private final SimpMessagingTemplate messagingTemplate;
-    private final SecureRandom random = new SecureRandom();
-
-    public TestController(TestRepository testRepository, TestAttemptRepository testAttemptRepository, SimpMessagingTemplate messagingTemplate) {
+    private final TestStatsService testStatsService;
+    private final AttemptAnalyticsService attemptAnalyticsService;
+    private final StudentTestViewCache studentTestViewCache;
+    private final AttemptDeadlineService attemptDeadlineService;
+    private final SummaryPageService summaryPageService;
+    private final CoalescingLoader coalescingLoader;
+    private final JoinCodeIndex joinCodeIndex;
+    private final TextGradingService textGradingService;
+    private final RegradeService regradeService;
+    private final QuestionSearchService questionSearchService;
+    private final TestImportService testImportService;
+    private final MeterRegistry meterRegistry;
+
+    public TestController(TestRepository testRepository,
+                          SimpMessagingTemplate messagingTemplate, TestStatsService testStatsService,
+                          AttemptAnalyticsService attemptAnalyticsService,
+                          StudentTestViewCache studentTestViewCache,
+                          AttemptDeadlineService attemptDeadlineService, SummaryPageService summaryPageService,
+                          CoalescingLoader coalescingLoader, JoinCodeIndex joinCodeIndex,
+                          TextGradingService textGradingService, RegradeService regradeService,
+                          QuestionSearchService questionSearchService, TestImportService testImportService,
+                          MeterRegistry meterRegistry) {
         this.testRepository = testRepository;
-        this.testAttemptRepository = testAttemptRepository;
         this.messagingTemplate = messagingTemplate;
+        this.testStatsService = testStatsService;
+        this.attemptAnalyticsService = attemptAnalyticsService;
+        this.studentTestViewCache = studentTestViewCache;
+        this.attemptDeadlineService = attemptDeadlineService;
+        this.summaryPageService = summaryPageService;
+        this.coalescingLoader = coalescingLoader;
+        this.joinCodeIndex = joinCodeIndex;
+        this.textGradingService = textGradingService;
+        this.regradeService = regradeService;
+        this.questionSearchService = questionSearchService;
+        this.testImportService = testImportService;
+        this.meterRegistry = meterRegistry;
     }
 
     @PreAuthorize("hasRole('TEACHER')")
@@ -52,10 +107,49 @@ public class TestController {
         return ResponseEntity.ok(tests);
     }
 
+    // Paged summaries for list views; see SummaryPageService
+    @PreAuthorize("hasRole('TEACHER')")
+    @GetMapping("/page")
+    public ResponseEntity<?> getTeacherTestsPage(@AuthenticationPrincipal User teacher,
+                                                 @RequestParam(value = "cursor", required = false) String cursor,
+                                                 @RequestParam(value = "limit", required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(summaryPageService.teacherTests(teacher.getId(), cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "Invalid cursor"));
+        }
+    }
+
+    // One call for the teacher dashboard: per-test counters, no questions or participant sets
+    @PreAuthorize("hasRole('TEACHER')")
+    @GetMapping("/overview")
+    public ResponseEntity<List<TeacherTestOverview>> getTeacherOverview(@AuthenticationPrincipal User teacher) {
+        return ResponseEntity.ok(testStatsService.overviewForTeacher(teacher.getId()));
+    }
+
+    // Ranked matches among the questions of the teacher's earlier tests, to reuse when building a new one
+    @PreAuthorize("hasRole('TEACHER')")
+    @GetMapping("/questions/search")
+    public ResponseEntity<?> searchQuestions(@AuthenticationPrincipal User teacher,
+                                             @RequestParam("q") String query,
+                                             @RequestParam(value = "subject", required = false) String subject,
+                                             @RequestParam(value = "limit", required = false) Integer limit) {
+        if (query.isBlank()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "q must not be blank"));
+        }
+        return ResponseEntity.ok(Map.of(
+                "results", questionSearchService.search(teacher.getId(), query, subject, limit),
+                "indexReady", questionSearchService.isReady()
+        ));
+    }
+
     @PreAuthorize("hasRole('TEACHER')")
     @PostMapping
     public ResponseEntity<?> createTestWithQuestions(@AuthenticationPrincipal User teacher,
                                                      @RequestBody CreateTestRequest request) {
+        if (request.getDurationInMinutes() < 0) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "durationInMinutes must not be negative"));
+        }
 
         Test newTest = new Test();
         newTest.setTitle(request.getTitle());
@@ -64,9 +158,10 @@ public class TestController {
         newTest.setDurationInMinutes(request.getDurationInMinutes());
         newTest.setQuestions(request.getQuestions());
         newTest.setCreatedByTeacherId(teacher.getId());
-        newTest.setJoinCode(generateJoinCode());
+        newTest.setJoinCode(joinCodeIndex.newJoinCode());
 
         Test savedTest = testRepository.save(newTest);
+        testStatsService.onTestCreated(savedTest);
 
         String joinLink = "/api/tests/join/" + savedTest.getJoinCode();
 
@@ -78,10 +173,43 @@ public class TestController {
         ));
     }
 
+    /**
+     * Bulk-creates tests from a JSON-lines or CSV upload sent as the raw request body, without
+     * buffering it. Invalid records are skipped and listed in the report; see TestImportService.
+     */
+    @PreAuthorize("hasRole('TEACHER')")
+    @PostMapping("/import")
+    public ResponseEntity<?> importTests(@AuthenticationPrincipal User teacher,
+                                         @RequestParam(value = "format", required = false) String format,
+                                         HttpServletRequest httpRequest) {
+        TestImportService.Format importFormat = TestImportService.Format.resolve(format, httpRequest.getContentType());
+        if (importFormat == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "format must be ndjson or csv"));
+        }
+        try {
+            return ResponseEntity.ok(testImportService.importTests(teacher.getId(), importFormat, httpRequest.getInputStream()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "Could not read upload"));
+        }
+    }
+
     @GetMapping("/{id}")
     // --- FIX APPLIED HERE ---
-    public ResponseEntity<?> getTestById(@PathVariable("id") String id, @AuthenticationPrincipal User user) {
-        Optional<Test> testOptional = testRepository.findById(id);
+    public ResponseEntity<?> getTestById(@PathVariable("id") String id, @AuthenticationPrincipal User user,
+                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                         @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // Students are served the cached answer-free view without reading the test
+        RenderedView cached = studentTestViewCache.get(id);
+        if (cached != null && !user.getId().equals(cached.createdByTeacherId())) {
+            if (!studentTestViewCache.isParticipant(cached, user.getId())) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "You do not have permission to view this test."));
+            }
+            return studentView(cached, ifNoneMatch, acceptEncoding);
+        }
+
+        Optional<Test> testOptional = coalescingLoader.findTestById(id);
 
         if (testOptional.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Test not found with id: " + id));
@@ -92,44 +220,106 @@ public class TestController {
         boolean isCreator = test.getCreatedByTeacherId().equals(user.getId());
         boolean isParticipant = test.getParticipantIds().contains(user.getId());
 
-        if (isCreator || isParticipant) {
+        if (isCreator) {
             return ResponseEntity.ok(test);
+        } else if (isParticipant) {
+            return studentView(studentTestViewCache.render(test), ifNoneMatch, acceptEncoding);
         } else {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "You do not have permission to view this test."));
         }
     }
 
+    // Pre-encoded bytes: a 304 on a matching ETag, otherwise gzip when the client accepts it
+    private ResponseEntity<?> studentView(RenderedView view, String ifNoneMatch, String acceptEncoding) {
+        CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        String etag = gzip ? view.gzipEtag() : view.etag();
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl)
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING).build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(view.gzip());
+        }
+        return response.body(view.json());
+    }
+
     @PreAuthorize("hasRole('STUDENT')")
     @PostMapping("/join/{joinCode}")
     // --- FIX APPLIED HERE ---
     public ResponseEntity<?> join(@PathVariable("joinCode") @NotBlank String joinCode,
-                                  @AuthenticationPrincipal User student) {
-
-        Optional<Test> testOptional = testRepository.findByJoinCode(joinCode);
+                                  @AuthenticationPrincipal User student,
+                                  HttpServletRequest httpRequest) {
+
+        // Failed codes count per account, and per address only where that is configured
+        String[] clientKeys = joinCodeIndex.clientKeys(student.getId(), httpRequest.getRemoteAddr());
+        if (joinCodeIndex.isBlocked(clientKeys)) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(joinCodeIndex.getRetryAfterSeconds()))
+                    .body(Map.of("error", "Too many invalid join codes. Try again later."));
+        }
 
-        if (testOptional.isEmpty()) {
+        Optional<String> resolved = joinCodeIndex.resolve(joinCode, clientKeys);
+        if (resolved.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Invalid join code."));
         }
+        String testId = resolved.get();
 
-        Test test = testOptional.get();
-
-        if (test.getParticipantIds().contains(student.getId())) {
-            return ResponseEntity.ok(Map.of("status", "already_joined", "testId", test.getId()));
+        // Atomic $addToSet; 0 modified means the student had already joined
+        if (testRepository.addParticipant(testId, student.getId()) == 0) {
+            return ResponseEntity.ok(Map.of("status", "already_joined", "testId", testId));
         }
+        coalescingLoader.forgetTest(testId, joinCode);
+        testStatsService.onParticipantJoined(testId);
+        studentTestViewCache.onParticipantJoined(testId, student.getId());
 
-        test.getParticipantIds().add(student.getId());
-        testRepository.save(test);
-
-        messagingTemplate.convertAndSend("/topic/test/" + test.getId() + "/events",
+        messagingTemplate.convertAndSend("/topic/test/" + testId + "/events",
                 Map.of("type", "JOINED", "studentId", student.getId(), "timestamp", Instant.now().toString()));
 
-        return ResponseEntity.ok(Map.of("status", "joined", "testId", test.getId()));
+        return ResponseEntity.ok(Map.of("status", "joined", "testId", testId));
     }
 
-    private String generateJoinCode() {
-        byte[] buf = new byte[6];
-        random.nextBytes(buf);
-        return Base64.getUrlEncoder().withoutPadding().encodeToString(buf);
+    /**
+     * Starts the server-side clock for the student's attempt. Calling it again returns the
+     * same attempt and deadline, so reloading the page does not reset the timer.
+     */
+    @PreAuthorize("hasRole('STUDENT')")
+    @PostMapping("/{id}/start")
+    public ResponseEntity<?> startAttempt(@PathVariable("id") String id, @AuthenticationPrincipal User student) {
+        Optional<Test> testOptional = coalescingLoader.findTestById(id);
+        if (testOptional.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Test not found"));
+        }
+        Test test = testOptional.get();
+        if (!test.getParticipantIds().contains(student.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Join the test before starting it."));
+        }
+
+        TestAttempt attempt = attemptDeadlineService.start(test, student.getId());
+        Map<String, Object> body = new java.util.HashMap<>();
+        body.put("attemptId", attempt.getId());
+        body.put("startedAt", attempt.getStartedAt());
+        body.put("deadlineAt", attempt.getDeadlineAt());
+        body.put("serverTime", Instant.now());
+        body.put("savedAnswers", attempt.getSavedAnswers());
+        return ResponseEntity.ok(body);
+    }
+
+    // Periodic autosave; whatever is saved last is graded if the deadline passes
+    @PreAuthorize("hasRole('STUDENT')")
+    @PutMapping("/{id}/answers")
+    public ResponseEntity<?> saveAnswers(@PathVariable("id") String id,
+                                         @AuthenticationPrincipal User student,
+                                         @RequestBody com.procter.procter_app.dto.SubmitAttemptRequest request) {
+        if (!attemptDeadlineService.saveAnswers(id, student.getId(), request.getAnswers())) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "No open attempt, or its time is up."));
+        }
+        return ResponseEntity.ok(Map.of("status", "saved"));
     }
 
     @PreAuthorize("hasRole('STUDENT')")
@@ -137,103 +327,165 @@ public class TestController {
     public ResponseEntity<?> submitAttempt(@PathVariable("id") String id,
                                            @AuthenticationPrincipal User student,
                                            @RequestBody com.procter.procter_app.dto.SubmitAttemptRequest request) {
-        
-        // Debug logging
-        System.out.println("Submit attempt called for test ID: " + id);
-        System.out.println("Student: " + (student != null ? student.getEmail() + " (Role: " + student.getRole() + ")" : "null"));
-        System.out.println("Request answers: " + request.getAnswers());
-        
+        Timer.Sample sample = Timer.start(meterRegistry);
+        ResponseEntity<?> response = null;
+        try {
+            response = submit(id, student, request);
+            return response;
+        } finally {
+            Outcome outcome = response != null ? Outcome.forStatus(response.getStatusCode().value()) : Outcome.SERVER_ERROR;
+            sample.stop(meterRegistry.timer("procter.submit", "outcome", outcome.name()));
+        }
+    }
+
+    private ResponseEntity<?> submit(String id, User student, com.procter.procter_app.dto.SubmitAttemptRequest request) {
+        log.debug("Submit attempt for test {} by user {}", id, student.getId());
+
         Optional<Test> testOptional = testRepository.findById(id);
         if (testOptional.isEmpty()) {
-            System.out.println("Test not found with ID: " + id);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Test not found"));
         }
         Test test = testOptional.get();
-        System.out.println("Test found: " + test.getTitle());
-        
-        // Check if user is a participant in the test
-        boolean isCreator = test.getCreatedByTeacherId().equals(student.getId());
-        boolean isParticipant = test.getParticipantIds().contains(student.getId());
-        
-        if (!isCreator && !isParticipant) {
-            System.out.println("User is not a participant in the test, auto-adding them...");
-            // Auto-add the user as a participant
-            test.getParticipantIds().add(student.getId());
-            testRepository.save(test);
-            System.out.println("User added as participant");
-        }
-        
-        System.out.println("User is authorized to submit the test");
-
-        // Build attempt and compute simple score
-        TestAttempt attempt = new TestAttempt();
-        attempt.setTestId(test.getId());
-        attempt.setStudentId(student.getId());
-        attempt.setTestTitle(test.getTitle());
-        attempt.setSubject(test.getSubject());
-        attempt.setJoinCode(test.getJoinCode());
-        attempt.setDurationInMinutes(request.getDurationInMinutes() != null ? request.getDurationInMinutes() : test.getDurationInMinutes());
-
-        int total = test.getQuestions() != null ? test.getQuestions().size() : 0;
-        int correct = 0;
-
-        // Normalize answers into list indexed by question
-        java.util.List<?> answers = request.getAnswers();
-        java.util.List<java.util.Map<String, Object>> storedAnswers = new java.util.ArrayList<>();
-
-        for (int i = 0; i < total; i++) {
-            com.procter.procter_app.model.Question q = test.getQuestions().get(i);
-            Object ans = (answers != null && i < answers.size()) ? answers.get(i) : null;
-            boolean isCorrect = false;
-
-            if (q.getOptions() != null && !q.getOptions().isEmpty()) {
-                // choice based
-                java.util.List<Integer> correctIdx = q.getCorrectAnswer();
-                if (ans instanceof Number) {
-                    isCorrect = correctIdx != null && correctIdx.size() == 1 && correctIdx.get(0).equals(((Number) ans).intValue());
-                } else if (ans instanceof java.util.List<?>) {
-                    try {
-                        java.util.List<Integer> selected = new java.util.ArrayList<>();
-                        for (Object o : (java.util.List<?>) ans) selected.add(((Number) o).intValue());
-                        java.util.List<Integer> aSorted = new java.util.ArrayList<>(selected);
-                        java.util.Collections.sort(aSorted);
-                        java.util.List<Integer> cSorted = new java.util.ArrayList<>(correctIdx != null ? correctIdx : java.util.List.of());
-                        java.util.Collections.sort(cSorted);
-                        isCorrect = aSorted.equals(cSorted);
-                    } catch (Exception ignore) { isCorrect = false; }
-                }
-            } else {
-                // text based; not auto-graded
-                isCorrect = false;
-            }
-
-            if (isCorrect) correct++;
+        if (!test.getParticipantIds().contains(student.getId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Join the test before submitting."));
+        }
 
-            java.util.Map<String, Object> entry = new java.util.HashMap<>();
-            entry.put("questionIndex", i);
-            entry.put("answer", ans);
-            entry.put("isCorrect", isCorrect);
-            storedAnswers.add(entry);
+        // Only attempts opened through /start are graded: their clock and deadline live on the
+        // server, so nothing the client sends about timing is trusted
+        Optional<TestAttempt> open = attemptDeadlineService.findOpen(test.getId(), student.getId());
+        Optional<TestAttempt> sealed = open.isPresent()
+                ? attemptDeadlineService.submit(open.get(), test, request.getAnswers())
+                : Optional.empty();
+        if (sealed.isEmpty()) {
+            // Sealed by the deadline sweeper, either before this submit or racing it
+            sealed = attemptDeadlineService.findLatestAutoSubmitted(test.getId(), student.getId());
+        }
+        if (sealed.isEmpty()) {
+            String error = open.isPresent()
+                    ? "This attempt has already been submitted."
+                    : "No open attempt. Start the test before submitting.";
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", error));
         }
 
-        attempt.setTotalQuestions(total);
-        attempt.setCorrectAnswers(correct);
-        attempt.setScore(total > 0 ? Math.round((correct * 100.0f) / total) : 0);
-        attempt.setAnswers(storedAnswers);
-        attempt.setCompleted(true);
-        attempt.setCompletedAt(java.time.Instant.now());
+        TestAttempt attempt = sealed.get();
+        return ResponseEntity.ok(Map.of(
+                "attemptId", attempt.getId(),
+                "score", attempt.getScore(),
+                "correct", attempt.getCorrectAnswers(),
+                "total", attempt.getTotalQuestions(),
+                "autoSubmitted", attempt.isAutoSubmitted()
+        ));
+    }
 
-        TestAttempt saved = testAttemptRepository.save(attempt);
-        messagingTemplate.convertAndSend("/topic/test/" + test.getId() + "/events",
-                Map.of("type", "SUBMITTED", "studentId", student.getId(), "attemptId", saved.getId(), "timestamp", java.time.Instant.now().toString()));
+    // Teacher's points for one written answer; replaces the suggestion stored by TextGradingService
+    @PreAuthorize("hasRole('TEACHER')")
+    @PutMapping("/{id}/attempts/{attemptId}/answers/{questionIndex}/grade")
+    public ResponseEntity<?> gradeTextAnswer(@PathVariable("id") String id,
+                                             @PathVariable("attemptId") String attemptId,
+                                             @PathVariable("questionIndex") int questionIndex,
+                                             @RequestBody Map<String, Object> body,
+                                             @AuthenticationPrincipal User teacher) {
+        Optional<Test> testOptional = coalescingLoader.findTestById(id);
+        if (testOptional.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Test not found"));
+        }
+        if (!teacher.getId().equals(testOptional.get().getCreatedByTeacherId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "You do not own this test."));
+        }
+        if (!(body.get("points") instanceof Number points)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "points is required"));
+        }
 
+        Optional<TestAttempt> graded;
+        try {
+            graded = textGradingService.confirm(testOptional.get(), attemptId, questionIndex, points.doubleValue());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+        }
+        if (graded.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Attempt or answer not found"));
+        }
         return ResponseEntity.ok(Map.of(
-                "attemptId", saved.getId(),
-                "score", saved.getScore(),
-                "correct", saved.getCorrectAnswers(),
-                "total", saved.getTotalQuestions()
+                "attemptId", graded.get().getId(),
+                "score", graded.get().getScore(),
+                "correct", graded.get().getCorrectAnswers(),
+                "total", graded.get().getTotalQuestions()
         ));
     }
+
+    // Re-scores every completed attempt's written answers, e.g. after sample answers were edited
+    @PreAuthorize("hasRole('TEACHER')")
+    @PostMapping("/{id}/text-suggestions")
+    public ResponseEntity<?> suggestTextScores(@PathVariable("id") String id, @AuthenticationPrincipal User teacher) {
+        if (!textGradingService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Text answer suggestions are disabled"));
+        }
+        Optional<Test> testOptional = coalescingLoader.findTestById(id);
+        if (testOptional.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Test not found"));
+        }
+        if (!teacher.getId().equals(testOptional.get().getCreatedByTeacherId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "You do not own this test."));
+        }
+        return ResponseEntity.accepted().body(Map.of("queued", textGradingService.suggestAll(testOptional.get())));
+    }
+
+    /**
+     * Fixes correct options, e.g. {"correctAnswers": {"2": [1], "5": [0, 3]}}, and regrades
+     * every completed attempt. Progress arrives on /topic/test/{id}/events.
+     */
+    @PreAuthorize("hasRole('TEACHER')")
+    @PutMapping("/{id}/answer-key")
+    public ResponseEntity<?> updateAnswerKey(@PathVariable("id") String id,
+                                             @RequestBody Map<String, Map<String, List<Integer>>> body,
+                                             @AuthenticationPrincipal User teacher) {
+        Optional<Test> testOptional = coalescingLoader.findTestById(id);
+        if (testOptional.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Test not found"));
+        }
+        if (!teacher.getId().equals(testOptional.get().getCreatedByTeacherId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "You do not own this test."));
+        }
+        Map<String, List<Integer>> changes = body.get("correctAnswers");
+        if (changes == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "correctAnswers is required"));
+        }
+
+        try {
+            Map<Integer, List<Integer>> byIndex = new java.util.LinkedHashMap<>();
+            changes.forEach((index, options) -> byIndex.put(Integer.parseInt(index), options));
+            return ResponseEntity.accepted().body(regradeService.updateAnswerKey(testOptional.get(), byIndex).toMap());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Regrades with the current key; rerunning is harmless, unchanged attempts are not written
+    @PreAuthorize("hasRole('TEACHER')")
+    @PostMapping("/{id}/regrade")
+    public ResponseEntity<?> regrade(@PathVariable("id") String id, @AuthenticationPrincipal User teacher) {
+        Optional<Test> testOptional = coalescingLoader.findTestById(id);
+        if (testOptional.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Test not found"));
+        }
+        if (!teacher.getId().equals(testOptional.get().getCreatedByTeacherId())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "You do not own this test."));
+        }
+        return ResponseEntity.accepted().body(regradeService.start(id).toMap());
+    }
+
+    @PreAuthorize("hasRole('TEACHER')")
+    @GetMapping("/{id}/regrade")
+    public ResponseEntity<?> regradeStatus(@PathVariable("id") String id, @AuthenticationPrincipal User teacher) {
+        Optional<Test> testOptional = coalescingLoader.findTestById(id);
+        if (testOptional.isEmpty() || !teacher.getId().equals(testOptional.get().getCreatedByTeacherId())) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Test not found"));
+        }
+        return regradeService.lastJob(id)
+                .<ResponseEntity<?>>map(job -> ResponseEntity.ok(job.toMap()))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "No regrade has run for this test")));
+    }
+
     @PreAuthorize("hasRole('STUDENT') or hasRole('TEACHER')")
     @GetMapping("/subject/{subject}")
     public ResponseEntity<List<Test>> getUserTestsBySubject(
@@ -247,9 +499,20 @@ public class TestController {
 
     @PreAuthorize("hasRole('STUDENT')")
     @GetMapping("/completed")
-    public ResponseEntity<List<TestAttempt>> getStudentCompletedTests(@AuthenticationPrincipal User student) {
-        List<TestAttempt> completedTests = testAttemptRepository.findByStudentIdAndIsCompletedTrueOrderByCompletedAtDesc(student.getId());
-        return ResponseEntity.ok(completedTests);
+    public ResponseEntity<List<AttemptSummary>> getStudentCompletedTests(@AuthenticationPrincipal User student) {
+        return ResponseEntity.ok(summaryPageService.allCompletedAttempts(student.getId()));
+    }
+
+    @PreAuthorize("hasRole('STUDENT')")
+    @GetMapping("/completed/page")
+    public ResponseEntity<?> getStudentCompletedTestsPage(@AuthenticationPrincipal User student,
+                                                          @RequestParam(value = "cursor", required = false) String cursor,
+                                                          @RequestParam(value = "limit", required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(summaryPageService.completedAttempts(student.getId(), cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "Invalid cursor"));
+        }
     }
 
 }
@@ -0,0 +1,35 @@
+package com.procter.procter_app.dto;
+
+public class AnalyticsSummaryRow {
+    private String key; // test id, subject or student id depending on groupBy; null when not grouped
+    private int attempts;
+    private double averageScore;
+    private int minScore;
+    private int maxScore;
+    private double passRate;
+    private double accuracy; // correct answers / questions across all attempts, in percent
+
+    public AnalyticsSummaryRow() {}
+
+    // Getters and Setters
+    public String getKey() { return key; }
+    public void setKey(String key) { this.key = key; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public double getAverageScore() { return averageScore; }
+    public void setAverageScore(double averageScore) { this.averageScore = averageScore; }
+
+    public int getMinScore() { return minScore; }
+    public void setMinScore(int minScore) { this.minScore = minScore; }
+
+    public int getMaxScore() { return maxScore; }
+    public void setMaxScore(int maxScore) { this.maxScore = maxScore; }
+
+    public double getPassRate() { return passRate; }
+    public void setPassRate(double passRate) { this.passRate = passRate; }
+
+    public double getAccuracy() { return accuracy; }
+    public void setAccuracy(double accuracy) { this.accuracy = accuracy; }
+}
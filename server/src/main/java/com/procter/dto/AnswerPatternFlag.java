@@ -0,0 +1,48 @@
+package com.procter.procter_app.dto;
+
+import java.util.List;
+
+// Two students sharing a set of identical wrong multiple-choice answers unlikely to arise by chance
+public class AnswerPatternFlag {
+    private String firstStudentId;
+    private String firstStudentName;
+    private String secondStudentId;
+    private String secondStudentName;
+    private List<Integer> sharedWrongQuestions;
+    private int longestRun;
+    // Chance of two independent students sharing these wrong answers, as log10 and as a probability
+    private double log10Probability;
+    private double probability;
+    // probability x number of student pairs in the class: well below 1 means hard to explain as luck
+    private double expectedByChance;
+
+    public AnswerPatternFlag() {}
+
+    // Getters and Setters
+    public String getFirstStudentId() { return firstStudentId; }
+    public void setFirstStudentId(String firstStudentId) { this.firstStudentId = firstStudentId; }
+
+    public String getFirstStudentName() { return firstStudentName; }
+    public void setFirstStudentName(String firstStudentName) { this.firstStudentName = firstStudentName; }
+
+    public String getSecondStudentId() { return secondStudentId; }
+    public void setSecondStudentId(String secondStudentId) { this.secondStudentId = secondStudentId; }
+
+    public String getSecondStudentName() { return secondStudentName; }
+    public void setSecondStudentName(String secondStudentName) { this.secondStudentName = secondStudentName; }
+
+    public List<Integer> getSharedWrongQuestions() { return sharedWrongQuestions; }
+    public void setSharedWrongQuestions(List<Integer> sharedWrongQuestions) { this.sharedWrongQuestions = sharedWrongQuestions; }
+
+    public int getLongestRun() { return longestRun; }
+    public void setLongestRun(int longestRun) { this.longestRun = longestRun; }
+
+    public double getLog10Probability() { return log10Probability; }
+    public void setLog10Probability(double log10Probability) { this.log10Probability = log10Probability; }
+
+    public double getProbability() { return probability; }
+    public void setProbability(double probability) { this.probability = probability; }
+
+    public double getExpectedByChance() { return expectedByChance; }
+    public void setExpectedByChance(double expectedByChance) { this.expectedByChance = expectedByChance; }
+}
@@ -0,0 +1,50 @@
+package com.procter.procter_app.dto;
+
+import java.time.Instant;
+
+// A completed attempt without its answers; field names match TestAttempt
+public class AttemptSummary {
+    private String id;
+    private String testId;
+    private String testTitle;
+    private String subject;
+    private String joinCode;
+    private int score;
+    private int correctAnswers;
+    private int totalQuestions;
+    private int durationInMinutes;
+    private Instant completedAt;
+
+    public AttemptSummary() {}
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getTestId() { return testId; }
+    public void setTestId(String testId) { this.testId = testId; }
+
+    public String getTestTitle() { return testTitle; }
+    public void setTestTitle(String testTitle) { this.testTitle = testTitle; }
+
+    public String getSubject() { return subject; }
+    public void setSubject(String subject) { this.subject = subject; }
+
+    public String getJoinCode() { return joinCode; }
+    public void setJoinCode(String joinCode) { this.joinCode = joinCode; }
+
+    public int getScore() { return score; }
+    public void setScore(int score) { this.score = score; }
+
+    public int getCorrectAnswers() { return correctAnswers; }
+    public void setCorrectAnswers(int correctAnswers) { this.correctAnswers = correctAnswers; }
+
+    public int getTotalQuestions() { return totalQuestions; }
+    public void setTotalQuestions(int totalQuestions) { this.totalQuestions = totalQuestions; }
+
+    public int getDurationInMinutes() { return durationInMinutes; }
+    public void setDurationInMinutes(int durationInMinutes) { this.durationInMinutes = durationInMinutes; }
+
+    public Instant getCompletedAt() { return completedAt; }
+    public void setCompletedAt(Instant completedAt) { this.completedAt = completedAt; }
+}
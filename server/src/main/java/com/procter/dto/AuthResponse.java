@@ -6,6 +6,7 @@ public class AuthResponse {
     private String username;
     private String email;
     private String profilePictureUrl;
+    private String refreshToken;
 
     public AuthResponse(String token, String role, String username, String email, String profilePictureUrl) {
         this.token = token;
@@ -34,4 +35,12 @@ public class AuthResponse {
     public String getProfilePictureUrl() {
         return profilePictureUrl;
     }
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
 }
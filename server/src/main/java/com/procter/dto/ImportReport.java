@@ -0,0 +1,71 @@
+package com.procter.procter_app.dto;
+
+import java.util.List;
+
+// Outcome of a bulk test import: counts, throughput and the records that were rejected
+public class ImportReport {
+    private String format;
+    private int records;
+    private int imported;
+    private int failed;
+    private long questions;
+    private long elapsedMs;
+    private double questionsPerSecond;
+    private List<RecordError> errors;
+    // True when more records failed than the report lists
+    private boolean errorsTruncated;
+
+    public ImportReport() {}
+
+    // Getters and Setters
+    public String getFormat() { return format; }
+    public void setFormat(String format) { this.format = format; }
+
+    public int getRecords() { return records; }
+    public void setRecords(int records) { this.records = records; }
+
+    public int getImported() { return imported; }
+    public void setImported(int imported) { this.imported = imported; }
+
+    public int getFailed() { return failed; }
+    public void setFailed(int failed) { this.failed = failed; }
+
+    public long getQuestions() { return questions; }
+    public void setQuestions(long questions) { this.questions = questions; }
+
+    public long getElapsedMs() { return elapsedMs; }
+    public void setElapsedMs(long elapsedMs) { this.elapsedMs = elapsedMs; }
+
+    public double getQuestionsPerSecond() { return questionsPerSecond; }
+    public void setQuestionsPerSecond(double questionsPerSecond) { this.questionsPerSecond = questionsPerSecond; }
+
+    public List<RecordError> getErrors() { return errors; }
+    public void setErrors(List<RecordError> errors) { this.errors = errors; }
+
+    public boolean isErrorsTruncated() { return errorsTruncated; }
+    public void setErrorsTruncated(boolean errorsTruncated) { this.errorsTruncated = errorsTruncated; }
+
+    public static class RecordError {
+        // 1-based record number and the input line it starts on
+        private int record;
+        private long line;
+        private String error;
+
+        public RecordError() {}
+
+        public RecordError(int record, long line, String error) {
+            this.record = record;
+            this.line = line;
+            this.error = error;
+        }
+
+        public int getRecord() { return record; }
+        public void setRecord(int record) { this.record = record; }
+
+        public long getLine() { return line; }
+        public void setLine(long line) { this.line = line; }
+
+        public String getError() { return error; }
+        public void setError(String error) { this.error = error; }
+    }
+}
@@ -0,0 +1,26 @@
+package com.procter.procter_app.dto;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated list. nextCursor is opaque to clients; pass it back
+ * unchanged to get the following page. It is null on the last page.
+ */
+public class PageResponse<T> {
+    private List<T> items;
+    private String nextCursor;
+
+    public PageResponse() {}
+
+    public PageResponse(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters and Setters
+    public List<T> getItems() { return items; }
+    public void setItems(List<T> items) { this.items = items; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
@@ -0,0 +1,35 @@
+package com.procter.procter_app.dto;
+
+import com.procter.procter_app.model.Question;
+
+import java.util.List;
+
+// One question bank match for a teacher building a test
+public class QuestionSearchResult {
+    private String hash;
+    private double score;
+    private List<String> subjects;
+    private Question question;
+
+    public QuestionSearchResult() {}
+
+    public QuestionSearchResult(String hash, double score, List<String> subjects, Question question) {
+        this.hash = hash;
+        this.score = score;
+        this.subjects = subjects;
+        this.question = question;
+    }
+
+    // Getters and Setters
+    public String getHash() { return hash; }
+    public void setHash(String hash) { this.hash = hash; }
+
+    public double getScore() { return score; }
+    public void setScore(double score) { this.score = score; }
+
+    public List<String> getSubjects() { return subjects; }
+    public void setSubjects(List<String> subjects) { this.subjects = subjects; }
+
+    public Question getQuestion() { return question; }
+    public void setQuestion(Question question) { this.question = question; }
+}
@@ -0,0 +1,44 @@
+package com.procter.procter_app.dto;
+
+// Two students whose answers to the same free-text question are near-duplicates
+public class SimilarityFlag {
+    private int questionIndex;
+    private String questionText;
+    private String firstStudentId;
+    private String firstStudentName;
+    private String firstAnswer;
+    private String secondStudentId;
+    private String secondStudentName;
+    private String secondAnswer;
+    private double similarity;
+
+    public SimilarityFlag() {}
+
+    // Getters and Setters
+    public int getQuestionIndex() { return questionIndex; }
+    public void setQuestionIndex(int questionIndex) { this.questionIndex = questionIndex; }
+
+    public String getQuestionText() { return questionText; }
+    public void setQuestionText(String questionText) { this.questionText = questionText; }
+
+    public String getFirstStudentId() { return firstStudentId; }
+    public void setFirstStudentId(String firstStudentId) { this.firstStudentId = firstStudentId; }
+
+    public String getFirstStudentName() { return firstStudentName; }
+    public void setFirstStudentName(String firstStudentName) { this.firstStudentName = firstStudentName; }
+
+    public String getFirstAnswer() { return firstAnswer; }
+    public void setFirstAnswer(String firstAnswer) { this.firstAnswer = firstAnswer; }
+
+    public String getSecondStudentId() { return secondStudentId; }
+    public void setSecondStudentId(String secondStudentId) { this.secondStudentId = secondStudentId; }
+
+    public String getSecondStudentName() { return secondStudentName; }
+    public void setSecondStudentName(String secondStudentName) { this.secondStudentName = secondStudentName; }
+
+    public String getSecondAnswer() { return secondAnswer; }
+    public void setSecondAnswer(String secondAnswer) { this.secondAnswer = secondAnswer; }
+
+    public double getSimilarity() { return similarity; }
+    public void setSimilarity(double similarity) { this.similarity = similarity; }
+}
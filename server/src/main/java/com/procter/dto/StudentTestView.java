@@ -0,0 +1,70 @@
+package com.procter.procter_app.dto;
+
+import com.procter.procter_app.model.Question;
+import com.procter.procter_app.model.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * What a student sees of a test while taking it: no correct answers, sample answers,
+ * join code or participant list.
+ */
+public class StudentTestView {
+    private String id;
+    private String title;
+    private String subject;
+    private Instant scheduledAt;
+    private int durationInMinutes;
+    private List<QuestionView> questions;
+
+    public static class QuestionView {
+        private String type;
+        private String questionText;
+        private int points;
+        private List<String> options;
+        private Integer wordLimit;
+        // Replaces the client's old "correctAnswer.length > 1" check
+        private boolean multiSelect;
+
+        public String getType() { return type; }
+        public String getQuestionText() { return questionText; }
+        public int getPoints() { return points; }
+        public List<String> getOptions() { return options; }
+        public Integer getWordLimit() { return wordLimit; }
+        public boolean isMultiSelect() { return multiSelect; }
+    }
+
+    public static StudentTestView of(Test test) {
+        StudentTestView view = new StudentTestView();
+        view.id = test.getId();
+        view.title = test.getTitle();
+        view.subject = test.getSubject();
+        view.scheduledAt = test.getScheduledAt();
+        view.durationInMinutes = test.getDurationInMinutes();
+        view.questions = test.getQuestions() == null ? List.of() : test.getQuestions().stream()
+                .map(StudentTestView::toView)
+                .collect(Collectors.toList());
+        return view;
+    }
+
+    private static QuestionView toView(Question q) {
+        QuestionView view = new QuestionView();
+        view.type = q.getType();
+        view.questionText = q.getQuestionText();
+        view.points = q.getPoints();
+        view.options = q.getOptions();
+        view.wordLimit = q.getWordLimit();
+        // From the type, never the key: the number of correct options must not reach students
+        view.multiSelect = "MSQ".equalsIgnoreCase(q.getType());
+        return view;
+    }
+
+    public String getId() { return id; }
+    public String getTitle() { return title; }
+    public String getSubject() { return subject; }
+    public Instant getScheduledAt() { return scheduledAt; }
+    public int getDurationInMinutes() { return durationInMinutes; }
+    public List<QuestionView> getQuestions() { return questions; }
+}
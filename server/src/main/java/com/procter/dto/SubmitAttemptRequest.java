@@ -5,6 +5,7 @@ import java.util.List;
 public class SubmitAttemptRequest {
     // Each entry can be a number (single choice), list of numbers (multi), or string (text)
     private List<Object> answers;
+    // Ignored: the attempt's duration is measured from the server-side startedAt
     private Integer durationInMinutes;
 
     public List<Object> getAnswers() { return answers; }
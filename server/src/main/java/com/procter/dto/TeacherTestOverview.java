@@ -0,0 +1,45 @@
+package com.procter.procter_app.dto;
+
+import java.time.Instant;
+
+public class TeacherTestOverview {
+    private String testId;
+    private String title;
+    private String subject;
+    private Instant scheduledAt;
+    private int participantCount;
+    private int submissionCount;
+    private double averageScore;
+    private double passRate;
+    private int flaggedCount;
+
+    public TeacherTestOverview() {}
+
+    // Getters and Setters
+    public String getTestId() { return testId; }
+    public void setTestId(String testId) { this.testId = testId; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getSubject() { return subject; }
+    public void setSubject(String subject) { this.subject = subject; }
+
+    public Instant getScheduledAt() { return scheduledAt; }
+    public void setScheduledAt(Instant scheduledAt) { this.scheduledAt = scheduledAt; }
+
+    public int getParticipantCount() { return participantCount; }
+    public void setParticipantCount(int participantCount) { this.participantCount = participantCount; }
+
+    public int getSubmissionCount() { return submissionCount; }
+    public void setSubmissionCount(int submissionCount) { this.submissionCount = submissionCount; }
+
+    public double getAverageScore() { return averageScore; }
+    public void setAverageScore(double averageScore) { this.averageScore = averageScore; }
+
+    public double getPassRate() { return passRate; }
+    public void setPassRate(double passRate) { this.passRate = passRate; }
+
+    public int getFlaggedCount() { return flaggedCount; }
+    public void setFlaggedCount(int flaggedCount) { this.flaggedCount = flaggedCount; }
+}
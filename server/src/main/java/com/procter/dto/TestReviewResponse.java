@@ -1,5 +1,7 @@
 package com.procter.procter_app.dto;
 
+import com.procter.procter_app.model.TextGrade;
+
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
@@ -12,6 +14,10 @@ public class TestReviewResponse {
     private List<StudentResult> studentResults;
     private QuestionAnalysis questionAnalysis;
     private AIReport aiReport;
+    // Near-duplicate free-text answers, per question
+    private List<SimilarityFlag> similarityFlags;
+    // Pairs with improbable identical wrong multiple-choice answers, most suspicious first
+    private List<AnswerPatternFlag> answerPatternFlags;
     
     public TestReviewResponse() {}
     
@@ -37,6 +43,12 @@ public class TestReviewResponse {
     public AIReport getAiReport() { return aiReport; }
     public void setAiReport(AIReport aiReport) { this.aiReport = aiReport; }
     
+    public List<SimilarityFlag> getSimilarityFlags() { return similarityFlags; }
+    public void setSimilarityFlags(List<SimilarityFlag> similarityFlags) { this.similarityFlags = similarityFlags; }
+    
+    public List<AnswerPatternFlag> getAnswerPatternFlags() { return answerPatternFlags; }
+    public void setAnswerPatternFlags(List<AnswerPatternFlag> answerPatternFlags) { this.answerPatternFlags = answerPatternFlags; }
+    
     // Inner classes
     public static class TestStatistics {
         private int totalStudents;
@@ -125,6 +137,8 @@ public class TestReviewResponse {
         private Object studentAnswer;
         private Object correctAnswer;
         private double difficultyLevel;
+        // Written answers only: auto-grader suggestion and the teacher's confirmed points
+        private TextGrade textGrade;
         
         public QuestionResult() {}
         
@@ -146,6 +160,9 @@ public class TestReviewResponse {
         
         public double getDifficultyLevel() { return difficultyLevel; }
         public void setDifficultyLevel(double difficultyLevel) { this.difficultyLevel = difficultyLevel; }
+        
+        public TextGrade getTextGrade() { return textGrade; }
+        public void setTextGrade(TextGrade textGrade) { this.textGrade = textGrade; }
     }
     
     public static class QuestionAnalysis {
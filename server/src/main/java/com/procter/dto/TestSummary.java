@@ -0,0 +1,42 @@
+package com.procter.procter_app.dto;
+
+import java.time.Instant;
+
+// A teacher's test without its questions or participant set
+public class TestSummary {
+    private String id;
+    private String title;
+    private String subject;
+    private String joinCode;
+    private Instant scheduledAt;
+    private int durationInMinutes;
+    private int questionCount;
+    private int participantCount;
+
+    public TestSummary() {}
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getSubject() { return subject; }
+    public void setSubject(String subject) { this.subject = subject; }
+
+    public String getJoinCode() { return joinCode; }
+    public void setJoinCode(String joinCode) { this.joinCode = joinCode; }
+
+    public Instant getScheduledAt() { return scheduledAt; }
+    public void setScheduledAt(Instant scheduledAt) { this.scheduledAt = scheduledAt; }
+
+    public int getDurationInMinutes() { return durationInMinutes; }
+    public void setDurationInMinutes(int durationInMinutes) { this.durationInMinutes = durationInMinutes; }
+
+    public int getQuestionCount() { return questionCount; }
+    public void setQuestionCount(int questionCount) { this.questionCount = questionCount; }
+
+    public int getParticipantCount() { return participantCount; }
+    public void setParticipantCount(int participantCount) { this.participantCount = participantCount; }
+}
@@ -0,0 +1,17 @@
+package com.procter.procter_app.dto;
+
+public class TokenRefreshResponse {
+    private String token;
+    private String refreshToken;
+    private long expiresInMs;
+
+    public TokenRefreshResponse(String token, String refreshToken, long expiresInMs) {
+        this.token = token;
+        this.refreshToken = refreshToken;
+        this.expiresInMs = expiresInMs;
+    }
+
+    public String getToken() { return token; }
+    public String getRefreshToken() { return refreshToken; }
+    public long getExpiresInMs() { return expiresInMs; }
+}
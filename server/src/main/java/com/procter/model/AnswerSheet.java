@@ -0,0 +1,207 @@
+package com.procter.procter_app.model;
+
+import java.util.*;
+
+/**
+ * A graded attempt's answers, stored positionally: index q of every array is question q.
+ *
+ * Choice answers are one int per question with bit k set when option k was chosen (so single
+ * and multi-select answers share one encoding and 0 means no choice), correctness is a
+ * packed bitset, and written answers sit in a parallel list that is only present when the
+ * attempt has any. Compared to one {questionIndex, answer, isCorrect} document per question
+ * this drops the repeated key names and lets readers index by question instead of searching.
+ */
+public class AnswerSheet {
+
+    // Options beyond this index cannot be encoded; tests never come close
+    public static final int MAX_OPTIONS = 31;
+
+    private int[] choices;
+    private List<String> texts;
+    private long[] correct;
+    // Keyed by question index; only written answers that were scored or graded by hand
+    private Map<String, TextGrade> textGrades;
+
+    public AnswerSheet() {}
+
+    public AnswerSheet(int questionCount) {
+        this.choices = new int[questionCount];
+        this.correct = new long[(questionCount + 63) / 64];
+    }
+
+    /* ===================== ENCODING ===================== */
+
+    /**
+     * Bit mask of the chosen options: a single index or a list of indexes. Anything else,
+     * including indexes out of range, encodes as 0.
+     */
+    public static int choiceMask(Object answer) {
+        if (answer instanceof Number n) {
+            return option(n.intValue());
+        }
+        int mask = 0;
+        if (answer instanceof List<?> selected) {
+            for (Object item : selected) {
+                if (item instanceof Number n) {
+                    mask |= option(n.intValue());
+                }
+            }
+        }
+        return mask;
+    }
+
+    private static int option(int index) {
+        return index >= 0 && index < MAX_OPTIONS ? 1 << index : 0;
+    }
+
+    /**
+     * Converts the pre-AnswerSheet shape (a list of {questionIndex, answer, isCorrect} maps,
+     * plus suggestion / awardedPoints on written answers).
+     */
+    public static AnswerSheet fromLegacy(List<? extends Map<String, Object>> entries) {
+        int size = 0;
+        for (Map<String, Object> entry : entries) {
+            if (entry.get("questionIndex") instanceof Number n) {
+                size = Math.max(size, n.intValue() + 1);
+            }
+        }
+        AnswerSheet sheet = new AnswerSheet(size);
+        for (Map<String, Object> entry : entries) {
+            if (!(entry.get("questionIndex") instanceof Number n) || n.intValue() < 0) {
+                continue;
+            }
+            int q = n.intValue();
+            Object answer = entry.get("answer");
+            if (answer instanceof String text) {
+                sheet.setText(q, text);
+            } else {
+                sheet.choices[q] = choiceMask(answer);
+            }
+            sheet.setCorrect(q, Boolean.TRUE.equals(entry.get("isCorrect")));
+
+            TextGrade grade = null;
+            if (entry.get("suggestion") instanceof Map<?, ?> suggestion) {
+                grade = new TextGrade();
+                grade.setSimilarity(number(suggestion.get("similarity")));
+                grade.setSuggestedPoints(number(suggestion.get("suggestedPoints")));
+                Double maxPoints = number(suggestion.get("maxPoints"));
+                grade.setMaxPoints(maxPoints != null ? maxPoints.intValue() : null);
+                grade.setConfidence(number(suggestion.get("confidence")));
+                grade.setOverWordLimit(Boolean.TRUE.equals(suggestion.get("overWordLimit")));
+                grade.setStatus(suggestion.get("status") != null ? suggestion.get("status").toString() : null);
+                if (suggestion.get("scoredAt") instanceof Date date) {
+                    grade.setScoredAt(date.toInstant());
+                } else if (suggestion.get("scoredAt") instanceof java.time.Instant instant) {
+                    grade.setScoredAt(instant);
+                }
+            }
+            if (entry.get("awardedPoints") instanceof Number awarded) {
+                grade = grade != null ? grade : new TextGrade();
+                grade.setAwardedPoints(awarded.doubleValue());
+            }
+            if (grade != null) {
+                sheet.putTextGrade(q, grade);
+            }
+        }
+        return sheet;
+    }
+
+    private static Double number(Object value) {
+        return value instanceof Number n ? n.doubleValue() : null;
+    }
+
+    /* ===================== ACCESS ===================== */
+
+    public int size() {
+        return choices != null ? choices.length : 0;
+    }
+
+    public int choice(int q) {
+        return q < size() ? choices[q] : 0;
+    }
+
+    public void setChoice(int q, int mask) {
+        choices[q] = mask;
+    }
+
+    public String text(int q) {
+        return texts != null && q < texts.size() ? texts.get(q) : null;
+    }
+
+    public void setText(int q, String text) {
+        if (texts == null) {
+            texts = new ArrayList<>(Collections.nCopies(size(), null));
+        }
+        texts.set(q, text);
+    }
+
+    public boolean isCorrect(int q) {
+        return correct != null && q < size() && (correct[q >>> 6] & (1L << q)) != 0;
+    }
+
+    public void setCorrect(int q, boolean value) {
+        if (value) {
+            correct[q >>> 6] |= 1L << q;
+        } else {
+            correct[q >>> 6] &= ~(1L << q);
+        }
+    }
+
+    public int correctCount() {
+        int count = 0;
+        if (correct != null) {
+            for (long word : correct) {
+                count += Long.bitCount(word);
+            }
+        }
+        return count;
+    }
+
+    public TextGrade textGrade(int q) {
+        return textGrades != null ? textGrades.get(Integer.toString(q)) : null;
+    }
+
+    public void putTextGrade(int q, TextGrade grade) {
+        if (textGrades == null) {
+            textGrades = new HashMap<>();
+        }
+        textGrades.put(Integer.toString(q), grade);
+    }
+
+    /**
+     * The answer as the client sent it: text, an option index for single-choice questions,
+     * a list of indexes for multi-select ones, or null when unanswered.
+     */
+    public Object response(int q, Question question) {
+        String text = text(q);
+        if (text != null) {
+            return text;
+        }
+        int mask = choice(q);
+        if (mask == 0) {
+            return null;
+        }
+        boolean multiSelect = question != null && "MSQ".equalsIgnoreCase(question.getType());
+        if (!multiSelect && Integer.bitCount(mask) == 1) {
+            return Integer.numberOfTrailingZeros(mask);
+        }
+        List<Integer> selected = new ArrayList<>(Integer.bitCount(mask));
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            selected.add(Integer.numberOfTrailingZeros(bits));
+        }
+        return selected;
+    }
+
+    // Getters and Setters (persistence)
+    public int[] getChoices() { return choices; }
+    public void setChoices(int[] choices) { this.choices = choices; }
+
+    public List<String> getTexts() { return texts; }
+    public void setTexts(List<String> texts) { this.texts = texts; }
+
+    public long[] getCorrect() { return correct; }
+    public void setCorrect(long[] correct) { this.correct = correct; }
+
+    public Map<String, TextGrade> getTextGrades() { return textGrades; }
+    public void setTextGrades(Map<String, TextGrade> textGrades) { this.textGrades = textGrades; }
+}
@@ -0,0 +1,28 @@
+package com.procter.procter_app.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// One distinct question, stored once however many tests use it. Never modified after insert.
+@Document("question_bank")
+public class BankQuestion {
+    // Content hash of the question, see QuestionBank.hash
+    @Id
+    private String hash;
+    private Question question;
+    private Instant createdAt;
+
+    public BankQuestion() {}
+
+    // Getters and Setters
+    public String getHash() { return hash; }
+    public void setHash(String hash) { this.hash = hash; }
+
+    public Question getQuestion() { return question; }
+    public void setQuestion(Question question) { this.question = question; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+}
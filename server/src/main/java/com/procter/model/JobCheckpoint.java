@@ -0,0 +1,55 @@
+package com.procter.procter_app.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// Progress marker for long-running batch jobs, so a restart can resume mid-run.
+@Document("job_checkpoints")
+public class JobCheckpoint {
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+
+    @Id
+    private String jobName;
+
+    private String status;
+    private Instant startedAt;
+    private Instant updatedAt;
+    private Instant finishedAt;
+
+    // Every key <= this one has been fully processed in the current run
+    private String lastCompletedKey;
+    private long processedCount;
+
+    public JobCheckpoint() {}
+
+    public JobCheckpoint(String jobName) {
+        this.jobName = jobName;
+    }
+
+    // Getters and Setters
+    public String getJobName() { return jobName; }
+    public void setJobName(String jobName) { this.jobName = jobName; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public Instant getStartedAt() { return startedAt; }
+    public void setStartedAt(Instant startedAt) { this.startedAt = startedAt; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+
+    public Instant getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(Instant finishedAt) { this.finishedAt = finishedAt; }
+
+    public String getLastCompletedKey() { return lastCompletedKey; }
+    public void setLastCompletedKey(String lastCompletedKey) { this.lastCompletedKey = lastCompletedKey; }
+
+    public long getProcessedCount() { return processedCount; }
+    public void setProcessedCount(long processedCount) { this.processedCount = processedCount; }
+
+    public boolean isRunning() { return RUNNING.equals(status); }
+}
@@ -1,5 +1,6 @@
 package com.procter.procter_app.model;
 
+import java.util.ArrayList;
 import java.util.List;
 
 // This is NOT a @Document. It's a plain object that gets embedded.
@@ -12,6 +13,19 @@ public class Question {
     private Integer wordLimit;
     private String sampleAnswer;
 
+    public Question() {}
+
+    // Bank questions are shared between tests, so edits start from a copy
+    public Question(Question other) {
+        this.type = other.type;
+        this.questionText = other.questionText;
+        this.points = other.points;
+        this.options = other.options != null ? new ArrayList<>(other.options) : null;
+        this.correctAnswer = other.correctAnswer != null ? new ArrayList<>(other.correctAnswer) : null;
+        this.wordLimit = other.wordLimit;
+        this.sampleAnswer = other.sampleAnswer;
+    }
+
     // --- Getters and Setters for all fields ---
     public String getType() { return type; }
     public void setType(String type) { this.type = type; }
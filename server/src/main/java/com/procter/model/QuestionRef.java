@@ -0,0 +1,21 @@
+package com.procter.procter_app.model;
+
+// A test's pointer into the question bank. version counts edits of the question in this test.
+public class QuestionRef {
+    private String hash;
+    private int version;
+
+    public QuestionRef() {}
+
+    public QuestionRef(String hash, int version) {
+        this.hash = hash;
+        this.version = version;
+    }
+
+    // Getters and Setters
+    public String getHash() { return hash; }
+    public void setHash(String hash) { this.hash = hash; }
+
+    public int getVersion() { return version; }
+    public void setVersion(int version) { this.version = version; }
+}
@@ -0,0 +1,72 @@
+package com.procter.procter_app.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * One login session's refresh token. Rotation replaces the secret hash in place, so a
+ * session is always a single small document; deleting it revokes the whole token family.
+ * Only SHA-256 hashes of secrets are stored.
+ */
+@Document("refresh_tokens")
+public class RefreshToken {
+    @Id
+    private String id;
+
+    @Indexed
+    private String userId;
+    // Copied from the user so a refresh can sign a new access token without a user lookup
+    private String email;
+    private String role;
+
+    private String secretHash;
+    // Hash replaced by the last rotation; lets a racing duplicate refresh fail softly
+    private String previousHash;
+    private int rotations;
+
+    private Instant createdAt;
+    private Instant lastUsedAt;
+    // Sliding expiry, pushed forward on every refresh but never past absoluteExpiresAt
+    @Indexed(expireAfterSeconds = 0)
+    private Instant expiresAt;
+    private Instant absoluteExpiresAt;
+
+    public RefreshToken() {}
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public String getEmail() { return email; }
+    public void setEmail(String email) { this.email = email; }
+
+    public String getRole() { return role; }
+    public void setRole(String role) { this.role = role; }
+
+    public String getSecretHash() { return secretHash; }
+    public void setSecretHash(String secretHash) { this.secretHash = secretHash; }
+
+    public String getPreviousHash() { return previousHash; }
+    public void setPreviousHash(String previousHash) { this.previousHash = previousHash; }
+
+    public int getRotations() { return rotations; }
+    public void setRotations(int rotations) { this.rotations = rotations; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public Instant getLastUsedAt() { return lastUsedAt; }
+    public void setLastUsedAt(Instant lastUsedAt) { this.lastUsedAt = lastUsedAt; }
+
+    public Instant getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Instant expiresAt) { this.expiresAt = expiresAt; }
+
+    public Instant getAbsoluteExpiresAt() { return absoluteExpiresAt; }
+    public void setAbsoluteExpiresAt(Instant absoluteExpiresAt) { this.absoluteExpiresAt = absoluteExpiresAt; }
+}
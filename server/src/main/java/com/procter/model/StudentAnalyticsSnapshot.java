@@ -0,0 +1,48 @@
+package com.procter.procter_app.model;
+
+import com.procter.procter_app.dto.StudentAnalyticsResponse;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+// Precomputed "all subjects / all time" analytics for one student.
+@Document("student_analytics")
+public class StudentAnalyticsSnapshot {
+    @Id
+    private String studentId;
+
+    private StudentAnalyticsResponse analytics;
+
+    // completedAt of the newest attempt that went into this snapshot (null if none)
+    private Instant latestAttemptAt;
+    private int attemptCount;
+    private Instant computedAt;
+
+    public StudentAnalyticsSnapshot() {}
+
+    public StudentAnalyticsSnapshot(String studentId, StudentAnalyticsResponse analytics,
+                                    Instant latestAttemptAt, int attemptCount, Instant computedAt) {
+        this.studentId = studentId;
+        this.analytics = analytics;
+        this.latestAttemptAt = latestAttemptAt;
+        this.attemptCount = attemptCount;
+        this.computedAt = computedAt;
+    }
+
+    // Getters and Setters
+    public String getStudentId() { return studentId; }
+    public void setStudentId(String studentId) { this.studentId = studentId; }
+
+    public StudentAnalyticsResponse getAnalytics() { return analytics; }
+    public void setAnalytics(StudentAnalyticsResponse analytics) { this.analytics = analytics; }
+
+    public Instant getLatestAttemptAt() { return latestAttemptAt; }
+    public void setLatestAttemptAt(Instant latestAttemptAt) { this.latestAttemptAt = latestAttemptAt; }
+
+    public int getAttemptCount() { return attemptCount; }
+    public void setAttemptCount(int attemptCount) { this.attemptCount = attemptCount; }
+
+    public Instant getComputedAt() { return computedAt; }
+    public void setComputedAt(Instant computedAt) { this.computedAt = computedAt; }
+}
@@ -1,6 +1,9 @@
 package com.procter.procter_app.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
@@ -9,6 +12,13 @@ import java.util.List;
 import java.util.Set;
 
 @Document("tests") // This is a top-level database document
+@CompoundIndexes({
+        // A teacher's tests, newest first (ObjectIds grow with creation time)
+        @CompoundIndex(name = "teacher_page", def = "{'createdByTeacherId': 1, '_id': -1}"),
+        // The two branches of TestRepository.findBySubjectAndUserInvolvement
+        @CompoundIndex(name = "subject_teacher", def = "{'subject': 1, 'createdByTeacherId': 1}"),
+        @CompoundIndex(name = "subject_participant", def = "{'subject': 1, 'participantIds': 1}")
+})
 public class Test {
     @Id
     private String id;
@@ -16,16 +26,23 @@ public class Test {
     // --- Fields from your form ---
     private String title;
     private String subject; // Added field
+    @Indexed
     private Instant scheduledAt;
     private int durationInMinutes; // Added field
 
     // --- System-generated and relationship fields ---
     private String createdByTeacherId;
+    @Indexed
     private String joinCode;
     private Set<String> participantIds = new HashSet<>();
 
-    // The list of Question objects is embedded directly inside this document
+    // Stored as questionRefs into the question bank; filled in from the bank when the test is read.
+    // Only documents written before the bank existed still embed the questions themselves.
     private List<Question> questions;
+    private List<QuestionRef> questionRefs;
+    // Last write of the questions (save or answer key edit); lets the search index catch up on restart
+    @Indexed(sparse = true)
+    private Instant questionsUpdatedAt;
 
     // --- Getters and Setters for ALL fields ---
 
@@ -55,4 +72,10 @@ public class Test {
 
     public List<Question> getQuestions() { return questions; }
     public void setQuestions(List<Question> questions) { this.questions = questions; }
+
+    public List<QuestionRef> getQuestionRefs() { return questionRefs; }
+    public void setQuestionRefs(List<QuestionRef> questionRefs) { this.questionRefs = questionRefs; }
+
+    public Instant getQuestionsUpdatedAt() { return questionsUpdatedAt; }
+    public void setQuestionsUpdatedAt(Instant questionsUpdatedAt) { this.questionsUpdatedAt = questionsUpdatedAt; }
 }
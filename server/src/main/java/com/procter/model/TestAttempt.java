@@ -1,6 +1,9 @@
 package com.procter.procter_app.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.Instant;
@@ -8,6 +11,14 @@ import java.util.List;
 import java.util.Map;
 
 @Document("test_attempts")
+@CompoundIndexes({
+        // A student's history and the keyset-paged summaries (newest first)
+        @CompoundIndex(name = "student_completed_page", def = "{'studentId': 1, 'isCompleted': 1, 'completedAt': -1, '_id': -1}"),
+        // Per-test results, ranks and percentiles
+        @CompoundIndex(name = "test_completed_score", def = "{'testId': 1, 'isCompleted': 1, 'score': -1}"),
+        // One student's attempt at one test, open or completed
+        @CompoundIndex(name = "test_student", def = "{'testId': 1, 'studentId': 1, 'isCompleted': 1}")
+})
 public class TestAttempt {
     @Id
     private String id;
@@ -22,8 +33,21 @@ public class TestAttempt {
     private int totalQuestions;
     private int correctAnswers;
     private int durationInMinutes;
-    private List<Map<String, Object>> answers; // Store student's answers
+    // Graded answers, one slot per question
+    private AnswerSheet sheet;
+    // Pre-AnswerSheet documents only, until AnswerSheetMigration has rewritten them
+    private List<Map<String, Object>> answers;
     private boolean isCompleted;
+
+    // Set when the attempt is started through /start; the server enforces deadlineAt
+    private Instant startedAt;
+    @Indexed(sparse = true)
+    private Instant deadlineAt;
+    // Answers saved while in progress (same shape as SubmitAttemptRequest.answers), graded on submit or expiry
+    private List<Object> savedAnswers;
+    private boolean autoSubmitted;
+    // Last time a regrade after an answer-key change altered this attempt's result
+    private Instant regradedAt;
     
     // Constructors
     public TestAttempt() {}
@@ -71,9 +95,33 @@ public class TestAttempt {
     public int getDurationInMinutes() { return durationInMinutes; }
     public void setDurationInMinutes(int durationInMinutes) { this.durationInMinutes = durationInMinutes; }
     
-    public List<Map<String, Object>> getAnswers() { return answers; }
-    public void setAnswers(List<Map<String, Object>> answers) { this.answers = answers; }
+    // Falls back to converting the legacy answers of documents not yet migrated
+    public AnswerSheet getSheet() {
+        if (sheet == null && answers != null) {
+            sheet = AnswerSheet.fromLegacy(answers);
+        }
+        return sheet;
+    }
+    public void setSheet(AnswerSheet sheet) { this.sheet = sheet; }
+
+    // True while the stored document still has the legacy answers list instead of a sheet
+    public boolean hasLegacyAnswers() { return answers != null; }
     
     public boolean isCompleted() { return isCompleted; }
     public void setCompleted(boolean completed) { isCompleted = completed; }
+
+    public Instant getStartedAt() { return startedAt; }
+    public void setStartedAt(Instant startedAt) { this.startedAt = startedAt; }
+
+    public Instant getDeadlineAt() { return deadlineAt; }
+    public void setDeadlineAt(Instant deadlineAt) { this.deadlineAt = deadlineAt; }
+
+    public List<Object> getSavedAnswers() { return savedAnswers; }
+    public void setSavedAnswers(List<Object> savedAnswers) { this.savedAnswers = savedAnswers; }
+
+    public boolean isAutoSubmitted() { return autoSubmitted; }
+    public void setAutoSubmitted(boolean autoSubmitted) { this.autoSubmitted = autoSubmitted; }
+
+    public Instant getRegradedAt() { return regradedAt; }
+    public void setRegradedAt(Instant regradedAt) { this.regradedAt = regradedAt; }
 }
@@ -0,0 +1,73 @@
+package com.procter.procter_app.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+// Per-test counters, maintained with $inc as students join, submit and get flagged.
+@Document("test_stats")
+public class TestStats {
+    @Id
+    private String testId;
+
+    // Copied from the test so the teacher overview never has to load Test documents
+    @Indexed
+    private String teacherId;
+    private String title;
+    private String subject;
+    private Instant scheduledAt;
+
+    private int participantCount;
+    private int submissionCount;
+    private long scoreSum;
+    private int passCount;
+    private int flaggedCount;
+
+    // Only used to keep flaggedCount distinct; excluded from overview reads
+    private Set<String> flaggedStudentIds = new HashSet<>();
+
+    private Instant updatedAt;
+
+    public TestStats() {}
+
+    // Getters and Setters
+    public String getTestId() { return testId; }
+    public void setTestId(String testId) { this.testId = testId; }
+
+    public String getTeacherId() { return teacherId; }
+    public void setTeacherId(String teacherId) { this.teacherId = teacherId; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getSubject() { return subject; }
+    public void setSubject(String subject) { this.subject = subject; }
+
+    public Instant getScheduledAt() { return scheduledAt; }
+    public void setScheduledAt(Instant scheduledAt) { this.scheduledAt = scheduledAt; }
+
+    public int getParticipantCount() { return participantCount; }
+    public void setParticipantCount(int participantCount) { this.participantCount = participantCount; }
+
+    public int getSubmissionCount() { return submissionCount; }
+    public void setSubmissionCount(int submissionCount) { this.submissionCount = submissionCount; }
+
+    public long getScoreSum() { return scoreSum; }
+    public void setScoreSum(long scoreSum) { this.scoreSum = scoreSum; }
+
+    public int getPassCount() { return passCount; }
+    public void setPassCount(int passCount) { this.passCount = passCount; }
+
+    public int getFlaggedCount() { return flaggedCount; }
+    public void setFlaggedCount(int flaggedCount) { this.flaggedCount = flaggedCount; }
+
+    public Set<String> getFlaggedStudentIds() { return flaggedStudentIds; }
+    public void setFlaggedStudentIds(Set<String> flaggedStudentIds) { this.flaggedStudentIds = flaggedStudentIds; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+}
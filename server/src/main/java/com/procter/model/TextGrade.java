@@ -0,0 +1,42 @@
+package com.procter.procter_app.model;
+
+import java.time.Instant;
+
+// Auto-grader suggestion and teacher-confirmed points for one written answer
+public class TextGrade {
+    private Double similarity;
+    private Double suggestedPoints;
+    private Integer maxPoints;
+    private Double confidence;
+    private boolean overWordLimit;
+    private String status;
+    private Instant scoredAt;
+    private Double awardedPoints;
+
+    public TextGrade() {}
+
+    // Getters and Setters
+    public Double getSimilarity() { return similarity; }
+    public void setSimilarity(Double similarity) { this.similarity = similarity; }
+
+    public Double getSuggestedPoints() { return suggestedPoints; }
+    public void setSuggestedPoints(Double suggestedPoints) { this.suggestedPoints = suggestedPoints; }
+
+    public Integer getMaxPoints() { return maxPoints; }
+    public void setMaxPoints(Integer maxPoints) { this.maxPoints = maxPoints; }
+
+    public Double getConfidence() { return confidence; }
+    public void setConfidence(Double confidence) { this.confidence = confidence; }
+
+    public boolean isOverWordLimit() { return overWordLimit; }
+    public void setOverWordLimit(boolean overWordLimit) { this.overWordLimit = overWordLimit; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public Instant getScoredAt() { return scoredAt; }
+    public void setScoredAt(Instant scoredAt) { this.scoredAt = scoredAt; }
+
+    public Double getAwardedPoints() { return awardedPoints; }
+    public void setAwardedPoints(Double awardedPoints) { this.awardedPoints = awardedPoints; }
+}
@@ -0,0 +1,9 @@
+package com.procter.procter_app.repo;
+
+import com.procter.procter_app.model.JobCheckpoint;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface JobCheckpointRepository extends MongoRepository<JobCheckpoint, String> {
+}
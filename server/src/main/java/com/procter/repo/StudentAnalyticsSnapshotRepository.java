@@ -0,0 +1,9 @@
+package com.procter.procter_app.repo;
+
+import com.procter.procter_app.model.StudentAnalyticsSnapshot;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StudentAnalyticsSnapshotRepository extends MongoRepository<StudentAnalyticsSnapshot, String> {
+}
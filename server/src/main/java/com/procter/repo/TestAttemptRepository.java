@@ -4,6 +4,7 @@ import com.procter.procter_app.model.TestAttempt;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
 
 @Repository
@@ -13,4 +14,6 @@ public interface TestAttemptRepository extends MongoRepository<TestAttempt, Stri
     List<TestAttempt> findByStudentId(String studentId);
     boolean existsByTestIdAndStudentIdAndIsCompletedTrue(String testId, String studentId);
     List<TestAttempt> findByTestId(String testId);
+    boolean existsByStudentIdAndIsCompletedTrue(String studentId);
+    boolean existsByStudentIdAndIsCompletedTrueAndCompletedAtAfter(String studentId, Instant completedAt);
 }
@@ -3,6 +3,7 @@ package com.procter.procter_app.repo;
 import com.procter.procter_app.model.Test;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,7 +13,14 @@ import java.util.Optional;
 public interface TestRepository extends MongoRepository<Test, String> {
     Optional<Test> findByJoinCode(String joinCode);
     List<Test> findAllByCreatedByTeacherId(String teacherId);
+    // True if the student takes part in any test of the teacher
+    boolean existsByCreatedByTeacherIdAndParticipantIds(String teacherId, String studentId);
     // For MongoDB queries, use custom query annotation or query method
     @Query("{ 'subject': ?0, '$or': [ {'createdByTeacherId': ?1}, {'participantIds': ?1} ] }")
     List<Test> findBySubjectAndUserInvolvement(String subject, String userId);
+
+    // Atomic join; returns 0 if the student was already a participant
+    @Query("{ '_id': ?0, 'participantIds': { '$ne': ?1 } }")
+    @Update("{ '$addToSet': { 'participantIds': ?1 } }")
+    long addParticipant(String testId, String studentId);
 }
@@ -128,14 +128,29 @@ public class AIAnalyticsService {
             String subject,
             String timeRange
     ) {
-        StudentAnalyticsResponse response = new StudentAnalyticsResponse();
-        response.setStudentId(studentId);
-
-        userRepository.findById(studentId)
-                .ifPresent(u -> response.setStudentName(u.getUsername()));
+        String studentName = userRepository.findById(studentId)
+                .map(User::getUsername)
+                .orElse(null);
 
         List<TestAttempt> attempts = getFilteredAttempts(studentId, subject, timeRange);
 
+        return buildStudentAnalytics(studentId, studentName, attempts);
+    }
+
+    /**
+     * Builds the analytics payload from an already loaded list of completed attempts.
+     * Used by the live endpoint and by the nightly precompute job, which loads attempts
+     * for a whole partition of students in one query.
+     */
+    public StudentAnalyticsResponse buildStudentAnalytics(
+            String studentId,
+            String studentName,
+            List<TestAttempt> attempts
+    ) {
+        StudentAnalyticsResponse response = new StudentAnalyticsResponse();
+        response.setStudentId(studentId);
+        response.setStudentName(studentName);
+
         if (attempts.isEmpty()) {
             return response;
         }
@@ -0,0 +1,311 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.dto.StudentAnalyticsResponse;
+import com.procter.procter_app.model.JobCheckpoint;
+import com.procter.procter_app.model.Role;
+import com.procter.procter_app.model.StudentAnalyticsSnapshot;
+import com.procter.procter_app.model.TestAttempt;
+import com.procter.procter_app.model.User;
+import com.procter.procter_app.repo.JobCheckpointRepository;
+import com.procter.procter_app.repo.StudentAnalyticsSnapshotRepository;
+import com.procter.procter_app.repo.TestAttemptRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Nightly precompute of the default ("all subjects, all time") student analytics.
+ *
+ * Students are walked in ascending _id order in fixed-size key ranges. Each range is
+ * processed on a fixed worker pool: one query loads every completed attempt of the range,
+ * the payloads are built in memory and written back with a single unordered bulk upsert.
+ * A checkpoint records the highest key below which every range has finished, so a restart
+ * resumes from there instead of from the first student.
+ */
+@Service
+public class AnalyticsPrecomputeService {
+
+    static final String JOB_NAME = "student-analytics-precompute";
+
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsPrecomputeService.class);
+
+    private final AIAnalyticsService aiAnalyticsService;
+    private final TestAttemptRepository testAttemptRepository;
+    private final StudentAnalyticsSnapshotRepository snapshotRepository;
+    private final JobCheckpointRepository checkpointRepository;
+    private final MongoTemplate mongoTemplate;
+
+    private final boolean enabled;
+    private final int workers;
+    private final int batchSize;
+
+    private final ExecutorService workerPool;
+    private final ExecutorService coordinator;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    public AnalyticsPrecomputeService(AIAnalyticsService aiAnalyticsService,
+                                      TestAttemptRepository testAttemptRepository,
+                                      StudentAnalyticsSnapshotRepository snapshotRepository,
+                                      JobCheckpointRepository checkpointRepository,
+                                      MongoTemplate mongoTemplate,
+                                      @Value("${app.analytics.precompute.enabled:true}") boolean enabled,
+                                      @Value("${app.analytics.precompute.workers:4}") int workers,
+                                      @Value("${app.analytics.precompute.batch-size:200}") int batchSize) {
+        this.aiAnalyticsService = aiAnalyticsService;
+        this.testAttemptRepository = testAttemptRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.workers = Math.max(1, workers);
+        this.batchSize = Math.max(1, batchSize);
+        this.workerPool = Executors.newFixedThreadPool(this.workers, DaemonThreads.named("analytics-precompute-"));
+        this.coordinator = Executors.newSingleThreadExecutor(DaemonThreads.named("analytics-precompute-coordinator-"));
+    }
+
+    /* ===================== SERVING ===================== */
+
+    /**
+     * Returns analytics for the student. The default view is served from the precomputed
+     * snapshot unless the student has completed an attempt since it was built; filtered
+     * views (subject / time range) are always computed live.
+     */
+    public StudentAnalyticsResponse getStudentAnalytics(User student, String subject, String timeRange) {
+        if (subject != null || (timeRange != null && !"all".equals(timeRange))) {
+            return aiAnalyticsService.generateStudentAnalytics(student.getId(), subject, timeRange);
+        }
+
+        Optional<StudentAnalyticsSnapshot> snapshot = snapshotRepository.findById(student.getId());
+        if (snapshot.isPresent() && isFresh(snapshot.get())) {
+            StudentAnalyticsResponse response = snapshot.get().getAnalytics();
+            // Name changes do not touch attempts, so always reflect the current one
+            response.setStudentName(student.getUsername());
+            return response;
+        }
+
+        List<TestAttempt> attempts = loadCompletedAttempts(List.of(student.getId()))
+                .getOrDefault(student.getId(), List.of());
+        StudentAnalyticsSnapshot fresh = buildSnapshot(student.getId(), student.getUsername(), attempts);
+        snapshotRepository.save(fresh);
+        return fresh.getAnalytics();
+    }
+
+    /**
+     * Drops the snapshots of students whose stored scores changed without a new completed
+     * attempt (a confirmed text grade, a regrade), which {@link #isFresh} cannot detect. The
+     * next request rebuilds them live.
+     */
+    public void invalidate(Collection<String> studentIds) {
+        if (!studentIds.isEmpty()) {
+            mongoTemplate.remove(new Query(Criteria.where("_id").in(studentIds)), StudentAnalyticsSnapshot.class);
+        }
+    }
+
+    private boolean isFresh(StudentAnalyticsSnapshot snapshot) {
+        if (snapshot.getLatestAttemptAt() == null) {
+            return !testAttemptRepository.existsByStudentIdAndIsCompletedTrue(snapshot.getStudentId());
+        }
+        return !testAttemptRepository.existsByStudentIdAndIsCompletedTrueAndCompletedAtAfter(
+                snapshot.getStudentId(), snapshot.getLatestAttemptAt());
+    }
+
+    /* ===================== SCHEDULING ===================== */
+
+    @Scheduled(cron = "${app.analytics.precompute.cron:0 0 2 * * *}")
+    public void scheduledRun() {
+        if (enabled) {
+            coordinator.submit(this::runOrResume);
+        }
+    }
+
+    // A run that was interrupted by a shutdown picks up where its checkpoint left off
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedRun() {
+        if (!enabled) {
+            return;
+        }
+        coordinator.submit(() -> {
+            try {
+                Optional<JobCheckpoint> checkpoint = checkpointRepository.findById(JOB_NAME);
+                if (checkpoint.isPresent() && checkpoint.get().isRunning()) {
+                    runOrResume();
+                }
+            } catch (Exception e) {
+                log.warn("Could not check analytics precompute checkpoint: {}", e.getMessage());
+            }
+        });
+    }
+
+    /* ===================== JOB ===================== */
+
+    /**
+     * Runs the precompute job, resuming an interrupted run if the checkpoint says so.
+     * Returns false if a run is already in progress on this instance.
+     */
+    public boolean runOrResume() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            JobCheckpoint checkpoint = checkpointRepository.findById(JOB_NAME)
+                    .filter(JobCheckpoint::isRunning)
+                    .orElseGet(this::startNewRun);
+            walkPartitions(checkpoint);
+            return true;
+        } catch (Exception e) {
+            log.error("Analytics precompute failed, will resume from checkpoint", e);
+            return false;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private JobCheckpoint startNewRun() {
+        JobCheckpoint checkpoint = new JobCheckpoint(JOB_NAME);
+        checkpoint.setStatus(JobCheckpoint.RUNNING);
+        checkpoint.setStartedAt(Instant.now());
+        checkpoint.setUpdatedAt(checkpoint.getStartedAt());
+        return checkpointRepository.save(checkpoint);
+    }
+
+    private void walkPartitions(JobCheckpoint checkpoint) throws InterruptedException {
+        log.info("Analytics precompute starting after key {}", checkpoint.getLastCompletedKey());
+
+        // Ranges complete out of order; the checkpoint only advances over a contiguous prefix
+        TreeMap<Integer, Partition> finished = new TreeMap<>();
+        Semaphore inFlight = new Semaphore(workers * 2);
+        Object lock = new Object();
+        int[] nextToCommit = {0};
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+
+        String lastKey = checkpoint.getLastCompletedKey();
+        int sequence = 0;
+
+        while (failures.isEmpty()) {
+            List<User> students = nextStudents(lastKey);
+            if (students.isEmpty()) {
+                break;
+            }
+            Partition partition = new Partition(sequence++, students);
+            lastKey = partition.lastKey();
+
+            inFlight.acquire();
+            workerPool.submit(() -> {
+                try {
+                    processPartition(partition);
+                    synchronized (lock) {
+                        finished.put(partition.sequence(), partition);
+                        commitContiguous(checkpoint, finished, nextToCommit);
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+
+        // Wait for every submitted range to drain
+        inFlight.acquire(workers * 2);
+        inFlight.release(workers * 2);
+
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException("Analytics precompute partition failed", failures.get(0));
+        }
+
+        checkpoint.setStatus(JobCheckpoint.COMPLETED);
+        checkpoint.setFinishedAt(Instant.now());
+        checkpoint.setUpdatedAt(checkpoint.getFinishedAt());
+        checkpoint.setLastCompletedKey(null);
+        checkpointRepository.save(checkpoint);
+        log.info("Analytics precompute finished, {} students processed", checkpoint.getProcessedCount());
+    }
+
+    private void commitContiguous(JobCheckpoint checkpoint, TreeMap<Integer, Partition> finished, int[] nextToCommit) {
+        Partition last = null;
+        while (finished.containsKey(nextToCommit[0])) {
+            last = finished.remove(nextToCommit[0]);
+            checkpoint.setProcessedCount(checkpoint.getProcessedCount() + last.students().size());
+            nextToCommit[0]++;
+        }
+        if (last != null) {
+            checkpoint.setLastCompletedKey(last.lastKey());
+            checkpoint.setUpdatedAt(Instant.now());
+            checkpointRepository.save(checkpoint);
+        }
+    }
+
+    private List<User> nextStudents(String afterKey) {
+        Query query = new Query(Criteria.where("role").is(Role.STUDENT));
+        if (afterKey != null) {
+            query.addCriteria(Criteria.where("id").gt(afterKey));
+        }
+        query.with(Sort.by(Sort.Direction.ASC, "id")).limit(batchSize);
+        query.fields().include("username");
+        return mongoTemplate.find(query, User.class);
+    }
+
+    private void processPartition(Partition partition) {
+        List<String> ids = partition.students().stream().map(User::getId).collect(Collectors.toList());
+        Map<String, List<TestAttempt>> attemptsByStudent = loadCompletedAttempts(ids);
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, StudentAnalyticsSnapshot.class);
+        for (User student : partition.students()) {
+            List<TestAttempt> attempts = attemptsByStudent.getOrDefault(student.getId(), List.of());
+            StudentAnalyticsSnapshot snapshot = buildSnapshot(student.getId(), student.getUsername(), attempts);
+            bulk.replaceOne(new Query(Criteria.where("_id").is(student.getId())), snapshot,
+                    FindAndReplaceOptions.options().upsert());
+        }
+        bulk.execute();
+    }
+
+    private StudentAnalyticsSnapshot buildSnapshot(String studentId, String studentName, List<TestAttempt> attempts) {
+        StudentAnalyticsResponse analytics = aiAnalyticsService.buildStudentAnalytics(studentId, studentName, attempts);
+        Instant latest = attempts.stream()
+                .map(TestAttempt::getCompletedAt)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .orElse(null);
+        return new StudentAnalyticsSnapshot(studentId, analytics, latest, attempts.size(), Instant.now());
+    }
+
+    // One query per range; the answers array is not needed for analytics
+    private Map<String, List<TestAttempt>> loadCompletedAttempts(Collection<String> studentIds) {
+        Query query = new Query(Criteria.where("studentId").in(studentIds).and("isCompleted").is(true));
+        query.fields().exclude("sheet", "answers");
+        return mongoTemplate.find(query, TestAttempt.class).stream()
+                .collect(Collectors.groupingBy(TestAttempt::getStudentId));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        coordinator.shutdownNow();
+        workerPool.shutdownNow();
+    }
+
+
+    private record Partition(int sequence, List<User> students) {
+        String lastKey() {
+            return students.get(students.size() - 1).getId();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.model.AnswerSheet;
+import com.procter.procter_app.model.TestAttempt;
+
+import java.util.BitSet;
+
+/**
+ * An attempt's multiple-choice responses packed into bitsets.
+ *
+ * Question q owns bits [q * stride, (q + 1) * stride) of {@code choices}, one per option, so
+ * single and multi-select answers encode the same way and two responses are equal when
+ * their slices are equal. {@code wrong} has one bit per question, set when an auto-graded
+ * question was answered incorrectly. Free-text and unanswered questions leave both empty.
+ */
+public final class AnswerFingerprint {
+
+    private final String attemptId;
+    private final String studentId;
+    private final int stride;
+    private final BitSet choices;
+    private final BitSet wrong;
+
+    private AnswerFingerprint(String attemptId, String studentId, int stride, BitSet choices, BitSet wrong) {
+        this.attemptId = attemptId;
+        this.studentId = studentId;
+        this.stride = stride;
+        this.choices = choices;
+        this.wrong = wrong;
+    }
+
+    /**
+     * @param stride bits per question; at least the largest option count in the test and at most 32
+     */
+    public static AnswerFingerprint encode(TestAttempt attempt, AnswerKey key, int stride) {
+        BitSet choices = new BitSet(key.size() * stride);
+        BitSet wrong = new BitSet(key.size());
+        AnswerSheet sheet = attempt.getSheet();
+        if (sheet != null) {
+            int optionBits = stride >= 32 ? -1 : (1 << stride) - 1;
+            for (int q = 0, n = Math.min(sheet.size(), key.size()); q < n; q++) {
+                int mask = sheet.choice(q) & optionBits;
+                if (!key.isAutoGraded(q) || mask == 0) {
+                    continue;
+                }
+                for (int option = 0; option < stride; option++) {
+                    if ((mask & (1 << option)) != 0) {
+                        choices.set(q * stride + option);
+                    }
+                }
+                if (!key.isCorrect(q, sheet.choice(q))) {
+                    wrong.set(q);
+                }
+            }
+        }
+        return new AnswerFingerprint(attempt.getId(), attempt.getStudentId(), stride, choices, wrong);
+    }
+
+    public String getAttemptId() { return attemptId; }
+    public String getStudentId() { return studentId; }
+
+    public BitSet wrongAnswers() {
+        return (BitSet) wrong.clone();
+    }
+
+    public boolean isWrong(int questionIndex) {
+        return wrong.get(questionIndex);
+    }
+
+    public int response(int questionIndex) {
+        int from = questionIndex * stride;
+        long[] bits = choices.get(from, from + stride).toLongArray();
+        return bits.length == 0 ? 0 : (int) bits[0];
+    }
+}
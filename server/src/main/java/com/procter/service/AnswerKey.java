@@ -0,0 +1,77 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.model.AnswerSheet;
+import com.procter.procter_app.model.Question;
+import com.procter.procter_app.model.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A test's correct answers compiled into option bit masks, so grading a submission is one
+ * int comparison per question instead of boxing and sorting lists.
+ */
+public final class AnswerKey {
+
+    private final String testId;
+    // null entry = question is not auto-graded (free text)
+    private final int[][] correct;
+    // Same key as AnswerSheet choice masks; -1 when the key cannot be expressed as one
+    private final int[] correctMasks;
+
+    private AnswerKey(String testId, int[][] correct) {
+        this.testId = testId;
+        this.correct = correct;
+        this.correctMasks = new int[correct.length];
+        for (int q = 0; q < correct.length; q++) {
+            correctMasks[q] = mask(correct[q]);
+        }
+    }
+
+    private static int mask(int[] options) {
+        if (options == null || options.length == 0) {
+            return -1;
+        }
+        int mask = 0;
+        for (int option : options) {
+            if (option < 0 || option >= AnswerSheet.MAX_OPTIONS || (mask & (1 << option)) != 0) {
+                return -1;
+            }
+            mask |= 1 << option;
+        }
+        return mask;
+    }
+
+    public static AnswerKey compile(Test test) {
+        List<Question> questions = test.getQuestions() != null ? test.getQuestions() : List.of();
+        int[][] correct = new int[questions.size()][];
+        for (int i = 0; i < questions.size(); i++) {
+            Question q = questions.get(i);
+            if (q.getOptions() != null && !q.getOptions().isEmpty()) {
+                List<Integer> answer = q.getCorrectAnswer() != null ? q.getCorrectAnswer() : List.of();
+                int[] sorted = answer.stream().mapToInt(Integer::intValue).toArray();
+                Arrays.sort(sorted);
+                correct[i] = sorted;
+            }
+        }
+        return new AnswerKey(test.getId(), correct);
+    }
+
+    public String getTestId() { return testId; }
+
+    public int size() {
+        return correct.length;
+    }
+
+    public boolean isAutoGraded(int questionIndex) {
+        return correct[questionIndex] != null;
+    }
+
+    /**
+     * For an {@link AnswerSheet} choice mask: the chosen options must be exactly the correct
+     * ones. No choice, and any choice on a text question, is not correct.
+     */
+    public boolean isCorrect(int questionIndex, int choiceMask) {
+        return correct[questionIndex] != null && choiceMask != 0 && choiceMask == correctMasks[questionIndex];
+    }
+}
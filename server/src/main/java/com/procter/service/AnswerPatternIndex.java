@@ -0,0 +1,221 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.model.Question;
+import com.procter.procter_app.model.Test;
+import com.procter.procter_app.model.TestAttempt;
+
+import java.util.*;
+
+/**
+ * Answer fingerprints of one test's completed attempts, and the search for pairs of
+ * students who share an unlikely set of identical wrong answers.
+ *
+ * Candidates come from hashing: every window of {@code window} consecutive wrong answers
+ * (question and chosen options) in an attempt is hashed into a bucket, and only attempts
+ * meeting in a bucket are compared. A bucket holding more than {@code maxBucketSize}
+ * attempts is a shared misconception rather than evidence of copying, so instead of
+ * comparing its members the windows are doubled in length and hashed again.
+ *
+ * A candidate pair is scored by the chance of two independent students matching on at
+ * least as many of the questions they both got wrong, given how spread out the class's
+ * wrong answers to each of those questions are. Pairs are ranked by that probability,
+ * smallest first.
+ */
+public final class AnswerPatternIndex {
+
+    public record Suspect(AnswerFingerprint first, AnswerFingerprint second, List<Integer> sharedWrong,
+                          int longestRun, double log10Probability, double expectedByChance) {}
+
+    public record Settings(int window, int minSharedWrong, double maxProbability, int maxBucketSize, int maxPairs) {}
+
+    private final AnswerKey key;
+    private final int stride;
+    private final Map<String, AnswerFingerprint> byAttempt = new LinkedHashMap<>();
+
+    public AnswerPatternIndex(Test test, AnswerKey key) {
+        this.key = key;
+        int widest = 1;
+        if (test.getQuestions() != null) {
+            for (Question q : test.getQuestions()) {
+                if (q.getOptions() != null) {
+                    widest = Math.max(widest, q.getOptions().size());
+                }
+            }
+        }
+        this.stride = Math.min(widest, 32);
+    }
+
+    // Re-adding an attempt replaces its earlier fingerprint
+    public synchronized void add(TestAttempt attempt) {
+        byAttempt.put(attempt.getId(), AnswerFingerprint.encode(attempt, key, stride));
+    }
+
+    public synchronized int size() {
+        return byAttempt.size();
+    }
+
+    private synchronized List<AnswerFingerprint> snapshot() {
+        return new ArrayList<>(byAttempt.values());
+    }
+
+    /* ===================== DETECTION ===================== */
+
+    public List<Suspect> findSuspects(Settings settings) {
+        List<AnswerFingerprint> prints = snapshot();
+        int n = prints.size();
+        int questions = key.size();
+        if (n < 2) {
+            return List.of();
+        }
+
+        // Decoded once per scan; wrongResponses[i][q] is 0 unless attempt i got q wrong
+        int[][] wrongResponses = new int[n][questions];
+        for (int i = 0; i < n; i++) {
+            AnswerFingerprint print = prints.get(i);
+            for (int q = 0; q < questions; q++) {
+                if (print.isWrong(q)) {
+                    wrongResponses[i][q] = print.response(q);
+                }
+            }
+        }
+
+        // Chance that two students who both got q wrong picked the same wrong response
+        double[] matchChance = new double[questions];
+        for (int q = 0; q < questions; q++) {
+            Map<Integer, Integer> counts = new HashMap<>();
+            int wrong = 0;
+            for (int[] responses : wrongResponses) {
+                if (responses[q] != 0) {
+                    counts.merge(responses[q], 1, Integer::sum);
+                    wrong++;
+                }
+            }
+            double sum = 0;
+            for (int count : counts.values()) {
+                double share = (double) count / wrong;
+                sum += share * share;
+            }
+            matchChance[q] = sum;
+        }
+
+        int[][] wrongQuestions = new int[n][];
+        int mostWrong = 0;
+        for (int i = 0; i < n; i++) {
+            wrongQuestions[i] = prints.get(i).wrongAnswers().stream().toArray();
+            mostWrong = Math.max(mostWrong, wrongQuestions[i].length);
+        }
+
+        double pairs = n * (n - 1) / 2.0;
+        double maxLog10 = Math.log10(settings.maxProbability());
+        Set<Long> seen = new HashSet<>();
+        List<Suspect> suspects = new ArrayList<>();
+        // Oversized buckets are retried with windows twice as long until they split up
+        boolean oversized = true;
+        for (int length = settings.window(); oversized && length <= mostWrong; length *= 2) {
+            oversized = false;
+            for (List<Integer> bucket : buckets(wrongQuestions, wrongResponses, length, settings.maxBucketSize())) {
+                if (bucket.size() > settings.maxBucketSize()) {
+                    oversized = true;
+                    continue;
+                }
+                for (int a = 0; a < bucket.size(); a++) {
+                    for (int b = a + 1; b < bucket.size(); b++) {
+                        int first = bucket.get(a);
+                        int second = bucket.get(b);
+                        if (first == second || !seen.add(((long) first << 32) | second)) {
+                            continue;
+                        }
+                        Suspect suspect = score(prints.get(first), prints.get(second), wrongResponses[first],
+                                wrongResponses[second], matchChance, pairs, settings.minSharedWrong());
+                        if (suspect != null && suspect.log10Probability() <= maxLog10) {
+                            suspects.add(suspect);
+                        }
+                    }
+                }
+            }
+        }
+        suspects.sort(Comparator.comparingDouble(Suspect::log10Probability));
+        return suspects.size() > settings.maxPairs() ? suspects.subList(0, settings.maxPairs()) : suspects;
+    }
+
+    // Attempts grouped by the hash of each run of `length` consecutive wrong answers
+    private static Collection<List<Integer>> buckets(int[][] wrongQuestions, int[][] wrongResponses,
+                                                     int length, int maxBucketSize) {
+        Map<Long, List<Integer>> buckets = new HashMap<>();
+        for (int i = 0; i < wrongQuestions.length; i++) {
+            int[] questions = wrongQuestions[i];
+            for (int start = 0; start + length <= questions.length; start++) {
+                long hash = 0x9E3779B97F4A7C15L;
+                for (int w = start; w < start + length; w++) {
+                    int q = questions[w];
+                    hash = mix(hash ^ (((long) q << 32) | (wrongResponses[i][q] & 0xFFFFFFFFL)));
+                }
+                List<Integer> bucket = buckets.computeIfAbsent(hash, h -> new ArrayList<>(2));
+                // One past the limit is enough to know the bucket is oversized
+                if (bucket.size() <= maxBucketSize) {
+                    bucket.add(i);
+                }
+            }
+        }
+        return buckets.values();
+    }
+
+    /**
+     * Conditions on the questions both students got wrong, so two weak students are not
+     * suspicious merely for missing the same questions: the probability is the upper tail
+     * P(X >= matches), where X counts identical wrong responses among those questions and each
+     * question matches independently with its class-wide matchChance.
+     */
+    private Suspect score(AnswerFingerprint first, AnswerFingerprint second, int[] firstWrong, int[] secondWrong,
+                          double[] matchChance, double pairs, int minSharedWrong) {
+        List<Integer> shared = new ArrayList<>();
+        double[] chances = new double[firstWrong.length];
+        int jointlyWrong = 0;
+        int run = 0;
+        int longestRun = 0;
+        int previous = -2;
+        for (int q = 0; q < firstWrong.length; q++) {
+            if (firstWrong[q] == 0 || secondWrong[q] == 0) {
+                continue;
+            }
+            chances[jointlyWrong++] = matchChance[q];
+            if (firstWrong[q] == secondWrong[q]) {
+                shared.add(q);
+                run = q == previous + 1 ? run + 1 : 1;
+                longestRun = Math.max(longestRun, run);
+                previous = q;
+            }
+        }
+        if (shared.size() < minSharedWrong) {
+            return null;
+        }
+        double log10 = log10UpperTail(chances, jointlyWrong, shared.size());
+        double expected = Math.min(Math.pow(10, log10) * pairs, pairs);
+        return new Suspect(first, second, shared, longestRun, log10, expected);
+    }
+
+    // log10 P(X >= k) for X a sum of independent Bernoulli(chances[0..count)) (Poisson binomial)
+    static double log10UpperTail(double[] chances, int count, int k) {
+        double[] dist = new double[count + 1];
+        dist[0] = 1;
+        for (int i = 0; i < count; i++) {
+            double p = chances[i];
+            for (int j = i + 1; j >= 1; j--) {
+                dist[j] = dist[j] * (1 - p) + dist[j - 1] * p;
+            }
+            dist[0] *= 1 - p;
+        }
+        double tail = 0;
+        for (int j = k; j < dist.length; j++) {
+            tail += dist[j];
+        }
+        return tail > 0 ? Math.min(0, Math.log10(tail)) : -300;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,97 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.cache.CacheRegistry;
+import com.procter.procter_app.cache.ExpiringLruCache;
+import com.procter.procter_app.dto.AnswerPatternFlag;
+import com.procter.procter_app.model.Test;
+import com.procter.procter_app.model.TestAttempt;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Keeps an {@link AnswerPatternIndex} per test and turns its suspects into review flags.
+ *
+ * An index is built from the test's completed attempts the first time it is asked for and
+ * then kept current by {@link #onSubmission}; it is dropped after app.review.collusion.cache-ttl-minutes
+ * or when the answer key changes.
+ */
+@Service
+public class AnswerPatternService {
+
+    private final MongoTemplate mongoTemplate;
+    private final GradingService gradingService;
+    private final ExpiringLruCache<String, AnswerPatternIndex> indexes;
+    private final AnswerPatternIndex.Settings settings;
+
+    public AnswerPatternService(MongoTemplate mongoTemplate,
+                                GradingService gradingService,
+                                CacheRegistry cacheRegistry,
+                                @Value("${app.review.collusion.window:3}") int window,
+                                @Value("${app.review.collusion.min-shared-wrong:4}") int minSharedWrong,
+                                @Value("${app.review.collusion.max-probability:0.001}") double maxProbability,
+                                @Value("${app.review.collusion.max-bucket-size:64}") int maxBucketSize,
+                                @Value("${app.review.collusion.max-pairs:100}") int maxPairs,
+                                @Value("${app.review.collusion.cache-max-size:100}") int cacheMaxSize,
+                                @Value("${app.review.collusion.cache-ttl-minutes:30}") long cacheTtlMinutes) {
+        this.mongoTemplate = mongoTemplate;
+        this.gradingService = gradingService;
+        this.indexes = cacheRegistry.register(
+                new ExpiringLruCache<>("answerPatternIndexes", cacheMaxSize, Duration.ofMinutes(cacheTtlMinutes)));
+        this.settings = new AnswerPatternIndex.Settings(Math.max(1, window), minSharedWrong, maxProbability, maxBucketSize, maxPairs);
+    }
+
+    /**
+     * Ranked pairs of students with improbable identical wrong answers, most suspicious first.
+     *
+     * @param names studentId -> display name
+     */
+    public List<AnswerPatternFlag> flagsFor(Test test, Map<String, String> names) {
+        AnswerPatternIndex index = indexes.get(test.getId(), id -> load(test));
+        List<AnswerPatternFlag> flags = new ArrayList<>();
+        for (AnswerPatternIndex.Suspect suspect : index.findSuspects(settings)) {
+            AnswerPatternFlag flag = new AnswerPatternFlag();
+            flag.setFirstStudentId(suspect.first().getStudentId());
+            flag.setFirstStudentName(names.getOrDefault(suspect.first().getStudentId(), "Unknown"));
+            flag.setSecondStudentId(suspect.second().getStudentId());
+            flag.setSecondStudentName(names.getOrDefault(suspect.second().getStudentId(), "Unknown"));
+            flag.setSharedWrongQuestions(suspect.sharedWrong());
+            flag.setLongestRun(suspect.longestRun());
+            flag.setLog10Probability(Math.round(suspect.log10Probability() * 100) / 100.0);
+            flag.setProbability(Math.pow(10, suspect.log10Probability()));
+            flag.setExpectedByChance(suspect.expectedByChance());
+            flags.add(flag);
+        }
+        return flags;
+    }
+
+    public void onSubmission(TestAttempt attempt) {
+        AnswerPatternIndex index = indexes.get(attempt.getTestId());
+        if (index != null) {
+            index.add(attempt);
+        }
+    }
+
+    public void invalidate(String testId) {
+        indexes.invalidate(testId);
+    }
+
+    private AnswerPatternIndex load(Test test) {
+        AnswerPatternIndex index = new AnswerPatternIndex(test, gradingService.keyFor(test));
+        Query query = new Query(Criteria.where("testId").is(test.getId()).and("isCompleted").is(true));
+        query.fields().include("studentId", "sheet.choices", "answers");
+        query.cursorBatchSize(500);
+        try (Stream<TestAttempt> attempts = mongoTemplate.stream(query, TestAttempt.class)) {
+            attempts.forEach(index::add);
+        }
+        return index;
+    }
+}
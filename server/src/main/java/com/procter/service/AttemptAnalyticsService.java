@@ -0,0 +1,229 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.dto.AnalyticsSummaryRow;
+import com.procter.procter_app.model.Test;
+import com.procter.procter_app.model.TestAttempt;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Ad-hoc attempt analytics for teachers on top of {@link AttemptColumnStore}.
+ *
+ * With app.analytics.columnar.enabled=true one store holding every completed attempt is
+ * built in the background at startup and kept current on submission. When it is disabled
+ * (the default) or still loading, a request builds a throwaway store from just the
+ * attempts of the teacher's own tests, so the query code is the same either way.
+ */
+@Service
+public class AttemptAnalyticsService {
+
+    private static final Logger log = LoggerFactory.getLogger(AttemptAnalyticsService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final long reloadDelaySeconds;
+    private final ScheduledExecutorService reloadScheduler;
+    private final AtomicBoolean reloadScheduled = new AtomicBoolean();
+
+    private volatile AttemptColumnStore store = new AttemptColumnStore();
+    private volatile boolean loaded;
+    // Guarded by pendingDuringLoad
+    private boolean loading;
+    private boolean reloadRequested;
+
+    // Submissions that arrive while a load is streaming; the stream wins on overlap
+    private final Map<String, TestAttempt> pendingDuringLoad = new LinkedHashMap<>();
+
+    public AttemptAnalyticsService(MongoTemplate mongoTemplate,
+                                   @Value("${app.analytics.columnar.enabled:false}") boolean enabled,
+                                   @Value("${app.analytics.columnar.reload-delay-seconds:30}") long reloadDelaySeconds) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.reloadDelaySeconds = Math.max(1, reloadDelaySeconds);
+        this.reloadScheduler = Executors.newSingleThreadScheduledExecutor(DaemonThreads.named("attempt-column-store-reload-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reloadScheduler.shutdownNow();
+    }
+
+    /* ===================== LOADING ===================== */
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        reload();
+    }
+
+    /**
+     * Rebuilds the store in the background, e.g. after stored scores were regraded. Queries
+     * keep using the current store until the new one is complete; a reload requested while
+     * one is streaming runs again once it finishes.
+     */
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (pendingDuringLoad) {
+            if (loading) {
+                reloadRequested = true;
+                return;
+            }
+            loading = true;
+        }
+        Thread loader = new Thread(this::load, "attempt-column-store-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void load() {
+        long started = System.currentTimeMillis();
+        AttemptColumnStore fresh = new AttemptColumnStore();
+        // Only attempts completed around or after the load started can also be in the pending map
+        Instant overlapFrom = Instant.ofEpochMilli(started).minusSeconds(60);
+        Set<String> streamedRecently = new HashSet<>();
+        Query query = projected(new Query(Criteria.where("isCompleted").is(true)));
+        try (Stream<TestAttempt> attempts = mongoTemplate.stream(query, TestAttempt.class)) {
+            attempts.forEach(attempt -> {
+                if (attempt.getCompletedAt() != null && attempt.getCompletedAt().isAfter(overlapFrom)) {
+                    streamedRecently.add(attempt.getId());
+                }
+                fresh.append(attempt);
+            });
+            synchronized (pendingDuringLoad) {
+                pendingDuringLoad.forEach((id, attempt) -> {
+                    if (!streamedRecently.contains(id)) {
+                        fresh.append(attempt);
+                    }
+                });
+                pendingDuringLoad.clear();
+                store = fresh;
+                loaded = true;
+            }
+            log.info("Attempt column store loaded {} attempts in {} ms", fresh.size(), System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            synchronized (pendingDuringLoad) {
+                pendingDuringLoad.clear();
+            }
+            log.error("Attempt column store failed to load; teacher analytics will query Mongo", e);
+        }
+        boolean again;
+        synchronized (pendingDuringLoad) {
+            loading = false;
+            again = reloadRequested;
+            reloadRequested = false;
+        }
+        if (again) {
+            reload();
+        }
+    }
+
+    /**
+     * For scores that change one attempt at a time, e.g. a teacher confirming text grades:
+     * every request within reload-delay-seconds of the first shares one {@link #reload}.
+     */
+    public void reloadSoon() {
+        if (enabled && reloadScheduled.compareAndSet(false, true)) {
+            reloadScheduler.schedule(() -> {
+                reloadScheduled.set(false);
+                reload();
+            }, reloadDelaySeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    public void onSubmission(TestAttempt attempt) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (pendingDuringLoad) {
+            if (loading) {
+                pendingDuringLoad.put(attempt.getId(), attempt);
+            }
+            if (!loaded) {
+                return;
+            }
+            // During a reload the current store keeps serving, so it gets the row as well
+            store.append(attempt);
+        }
+    }
+
+    /* ===================== QUERIES ===================== */
+
+    /**
+     * Aggregates the completed attempts of every test the teacher owns.
+     *
+     * @param subject optional subject filter
+     * @param from    optional inclusive lower bound on completedAt
+     * @param to      optional exclusive upper bound on completedAt
+     */
+    public List<AnalyticsSummaryRow> teacherSummary(String teacherId, AttemptColumnStore.GroupBy groupBy,
+                                                    String subject, Instant from, Instant to) {
+        List<String> testIds = ownedTestIds(teacherId);
+        if (testIds.isEmpty()) {
+            return List.of();
+        }
+
+        AttemptColumnStore source = enabled && loaded ? store : loadTransient(testIds);
+        AttemptColumnStore.Query query = source.query()
+                .tests(testIds)
+                .completedFrom(from)
+                .completedBefore(to);
+        if (subject != null) {
+            query.subjects(List.of(subject));
+        }
+
+        return query.aggregate(groupBy, TestStatsService.PASS_SCORE).stream()
+                .map(this::toRow)
+                .collect(Collectors.toList());
+    }
+
+    private AttemptColumnStore loadTransient(List<String> testIds) {
+        AttemptColumnStore transientStore = new AttemptColumnStore();
+        Query query = projected(new Query(Criteria.where("testId").in(testIds).and("isCompleted").is(true)));
+        try (Stream<TestAttempt> attempts = mongoTemplate.stream(query, TestAttempt.class)) {
+            attempts.forEach(transientStore::append);
+        }
+        return transientStore;
+    }
+
+    private List<String> ownedTestIds(String teacherId) {
+        Query query = new Query(Criteria.where("createdByTeacherId").is(teacherId));
+        query.fields().include("_id");
+        return mongoTemplate.find(query, Test.class).stream().map(Test::getId).collect(Collectors.toList());
+    }
+
+    private static Query projected(Query query) {
+        query.fields().include("testId", "studentId", "subject", "score", "correctAnswers", "totalQuestions", "completedAt");
+        query.cursorBatchSize(1000);
+        return query;
+    }
+
+    private AnalyticsSummaryRow toRow(AttemptColumnStore.Aggregate aggregate) {
+        AnalyticsSummaryRow row = new AnalyticsSummaryRow();
+        row.setKey(aggregate.key());
+        row.setAttempts(aggregate.count());
+        row.setAverageScore(aggregate.averageScore());
+        row.setMinScore(aggregate.minScore());
+        row.setMaxScore(aggregate.maxScore());
+        row.setPassRate(aggregate.passRate());
+        row.setAccuracy(aggregate.accuracy());
+        return row;
+    }
+}
@@ -0,0 +1,237 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.model.TestAttempt;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Column-oriented, append-only copy of completed attempts for ad-hoc aggregation.
+ *
+ * Each attempt is one row spread over primitive arrays: scores and counts as ints,
+ * student / test / subject as dictionary codes and completion time as epoch seconds.
+ * Queries are tight loops over those arrays, with id filters turned into boolean masks
+ * over dictionary codes, so a scan touches no objects and no boxed values.
+ *
+ * One writer at a time (appends are synchronized); readers work on an immutable
+ * {@link Columns} snapshot published through a volatile field and never block.
+ */
+public class AttemptColumnStore {
+
+    public enum GroupBy { NONE, TEST, SUBJECT, STUDENT }
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Dictionary students = new Dictionary();
+    private final Dictionary tests = new Dictionary();
+    private final Dictionary subjects = new Dictionary();
+
+    private volatile Columns columns = new Columns(INITIAL_CAPACITY);
+
+    /* ===================== WRITES ===================== */
+
+    public synchronized void append(TestAttempt attempt) {
+        Columns current = columns;
+        int row = current.size;
+        Columns target = row < current.score.length ? current : current.grow();
+
+        target.score[row] = attempt.getScore();
+        target.correct[row] = attempt.getCorrectAnswers();
+        target.total[row] = attempt.getTotalQuestions();
+        target.student[row] = students.encode(attempt.getStudentId());
+        target.test[row] = tests.encode(attempt.getTestId());
+        target.subject[row] = subjects.encode(attempt.getSubject());
+        target.completedAt[row] = attempt.getCompletedAt() != null ? attempt.getCompletedAt().getEpochSecond() : 0L;
+
+        // Publishing a new snapshot object makes the row visible to readers
+        columns = target.withSize(row + 1);
+    }
+
+    public int size() {
+        return columns.size;
+    }
+
+    /* ===================== READS ===================== */
+
+    public Query query() {
+        return new Query();
+    }
+
+    public final class Query {
+        private Set<String> testIds;
+        private Set<String> subjectNames;
+        private Set<String> studentIds;
+        private long fromEpoch = Long.MIN_VALUE;
+        private long toEpoch = Long.MAX_VALUE;
+        private int minScore = Integer.MIN_VALUE;
+        private int maxScore = Integer.MAX_VALUE;
+
+        private Query() {}
+
+        public Query tests(Collection<String> ids) { this.testIds = new HashSet<>(ids); return this; }
+        public Query subjects(Collection<String> names) { this.subjectNames = new HashSet<>(names); return this; }
+        public Query students(Collection<String> ids) { this.studentIds = new HashSet<>(ids); return this; }
+        public Query completedFrom(Instant from) { if (from != null) this.fromEpoch = from.getEpochSecond(); return this; }
+        public Query completedBefore(Instant to) { if (to != null) this.toEpoch = to.getEpochSecond(); return this; }
+        public Query scoreBetween(int min, int max) { this.minScore = min; this.maxScore = max; return this; }
+
+        /**
+         * Scans the snapshot once and aggregates per group key.
+         *
+         * @param passScore rows with score >= passScore count towards the pass rate
+         */
+        public List<Aggregate> aggregate(GroupBy groupBy, int passScore) {
+            Columns c = columns;
+            boolean[] testMask = tests.mask(testIds);
+            boolean[] subjectMask = subjects.mask(subjectNames);
+            boolean[] studentMask = students.mask(studentIds);
+
+            int[] keys = switch (groupBy) {
+                case TEST -> c.test;
+                case SUBJECT -> c.subject;
+                case STUDENT -> c.student;
+                case NONE -> null;
+            };
+            Dictionary keyDictionary = switch (groupBy) {
+                case TEST -> tests;
+                case SUBJECT -> subjects;
+                case STUDENT -> students;
+                case NONE -> null;
+            };
+            int groups = keyDictionary != null ? keyDictionary.size() : 1;
+
+            int[] count = new int[groups];
+            int[] pass = new int[groups];
+            long[] scoreSum = new long[groups];
+            long[] correctSum = new long[groups];
+            long[] totalSum = new long[groups];
+            int[] min = new int[groups];
+            int[] max = new int[groups];
+            Arrays.fill(min, Integer.MAX_VALUE);
+            Arrays.fill(max, Integer.MIN_VALUE);
+
+            int[] score = c.score;
+            long[] completedAt = c.completedAt;
+            for (int i = 0, n = c.size; i < n; i++) {
+                int s = score[i];
+                long t = completedAt[i];
+                if (s < minScore || s > maxScore || t < fromEpoch || t >= toEpoch) continue;
+                if (testMask != null && !testMask[c.test[i]]) continue;
+                if (subjectMask != null && !subjectMask[c.subject[i]]) continue;
+                if (studentMask != null && !studentMask[c.student[i]]) continue;
+
+                int g = keys != null ? keys[i] : 0;
+                count[g]++;
+                scoreSum[g] += s;
+                correctSum[g] += c.correct[i];
+                totalSum[g] += c.total[i];
+                if (s >= passScore) pass[g]++;
+                if (s < min[g]) min[g] = s;
+                if (s > max[g]) max[g] = s;
+            }
+
+            List<Aggregate> result = new ArrayList<>();
+            for (int g = 0; g < groups; g++) {
+                if (count[g] == 0) continue;
+                String key = keyDictionary != null ? keyDictionary.decode(g) : null;
+                result.add(new Aggregate(key, count[g], scoreSum[g], min[g], max[g], pass[g], correctSum[g], totalSum[g]));
+            }
+            return result;
+        }
+    }
+
+    public record Aggregate(String key, int count, long scoreSum, int minScore, int maxScore,
+                            int passCount, long correctSum, long questionSum) {
+        public double averageScore() { return count > 0 ? (double) scoreSum / count : 0; }
+        public double passRate() { return count > 0 ? passCount * 100.0 / count : 0; }
+        public double accuracy() { return questionSum > 0 ? correctSum * 100.0 / questionSum : 0; }
+    }
+
+    /* ===================== STORAGE ===================== */
+
+    private static final class Columns {
+        final int size;
+        final int[] score;
+        final int[] correct;
+        final int[] total;
+        final int[] student;
+        final int[] test;
+        final int[] subject;
+        final long[] completedAt;
+
+        Columns(int capacity) {
+            this(0, new int[capacity], new int[capacity], new int[capacity], new int[capacity],
+                    new int[capacity], new int[capacity], new long[capacity]);
+        }
+
+        private Columns(int size, int[] score, int[] correct, int[] total, int[] student,
+                        int[] test, int[] subject, long[] completedAt) {
+            this.size = size;
+            this.score = score;
+            this.correct = correct;
+            this.total = total;
+            this.student = student;
+            this.test = test;
+            this.subject = subject;
+            this.completedAt = completedAt;
+        }
+
+        Columns grow() {
+            int capacity = score.length * 2;
+            return new Columns(size, Arrays.copyOf(score, capacity), Arrays.copyOf(correct, capacity),
+                    Arrays.copyOf(total, capacity), Arrays.copyOf(student, capacity), Arrays.copyOf(test, capacity),
+                    Arrays.copyOf(subject, capacity), Arrays.copyOf(completedAt, capacity));
+        }
+
+        Columns withSize(int newSize) {
+            return new Columns(newSize, score, correct, total, student, test, subject, completedAt);
+        }
+    }
+
+    // String <-> dense int code. Codes are assigned under the store's write lock.
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+        private volatile String[] values = new String[64];
+        private volatile int size;
+
+        int encode(String value) {
+            String key = value != null ? value : "";
+            Integer code = codes.get(key);
+            if (code != null) {
+                return code;
+            }
+            int next = size;
+            if (next == values.length) {
+                values = Arrays.copyOf(values, next * 2);
+            }
+            values[next] = key;
+            codes.put(key, next);
+            size = next + 1;
+            return next;
+        }
+
+        String decode(int code) {
+            return values[code];
+        }
+
+        int size() {
+            return size;
+        }
+
+        // null means "no filter"; unknown ids simply select nothing
+        boolean[] mask(Set<String> selected) {
+            if (selected == null) {
+                return null;
+            }
+            boolean[] mask = new boolean[size];
+            for (String value : selected) {
+                Integer code = codes.get(value);
+                if (code != null && code < mask.length) {
+                    mask[code] = true;
+                }
+            }
+            return mask;
+        }
+    }
+}
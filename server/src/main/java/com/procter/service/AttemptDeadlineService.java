@@ -0,0 +1,285 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.model.Test;
+import com.procter.procter_app.model.TestAttempt;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * Server-side exam clock. An attempt started through {@link #start} gets a deadline of
+ * startedAt + the test's duration; answers saved meanwhile are kept on the attempt, and when
+ * the deadline (plus a small grace for in-flight submits) passes the attempt is graded and
+ * sealed with what was saved.
+ *
+ * Deadlines live in a {@link HierarchicalTimingWheel} ticked once per second, so hundreds of
+ * thousands of open attempts cost one small node each and start / submit are O(1). The wheel
+ * is rebuilt from the open attempts' deadlineAt after a restart.
+ *
+ * Sealing is a findAndModify guarded by isCompleted=false, so a submit racing the deadline
+ * (or another instance) completes the attempt exactly once.
+ */
+@Service
+public class AttemptDeadlineService {
+
+    private static final Logger log = LoggerFactory.getLogger(AttemptDeadlineService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final GradingService gradingService;
+    private final TestStatsService testStatsService;
+    private final AttemptAnalyticsService attemptAnalyticsService;
+    private final AnswerPatternService answerPatternService;
+    private final TextGradingService textGradingService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final Duration grace;
+
+    private final HierarchicalTimingWheel<String> wheel;
+    private final Map<String, HierarchicalTimingWheel<String>.Timeout> timeouts = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService ticker;
+    private final ExecutorService sealers;
+
+    public AttemptDeadlineService(MongoTemplate mongoTemplate,
+                                  GradingService gradingService,
+                                  TestStatsService testStatsService,
+                                  AttemptAnalyticsService attemptAnalyticsService,
+                                  AnswerPatternService answerPatternService,
+                                  TextGradingService textGradingService,
+                                  SimpMessagingTemplate messagingTemplate,
+                                  @Value("${app.attempts.deadline-grace-seconds:30}") long graceSeconds,
+                                  @Value("${app.attempts.sealer-threads:2}") int sealerThreads) {
+        this.mongoTemplate = mongoTemplate;
+        this.gradingService = gradingService;
+        this.testStatsService = testStatsService;
+        this.attemptAnalyticsService = attemptAnalyticsService;
+        this.answerPatternService = answerPatternService;
+        this.textGradingService = textGradingService;
+        this.messagingTemplate = messagingTemplate;
+        this.grace = Duration.ofSeconds(graceSeconds);
+        this.wheel = new HierarchicalTimingWheel<>(1000, System.currentTimeMillis());
+        this.ticker = Executors.newSingleThreadScheduledExecutor(DaemonThreads.named("attempt-deadline-ticker-"));
+        this.sealers = Executors.newFixedThreadPool(Math.max(1, sealerThreads), DaemonThreads.named("attempt-sealer-"));
+        this.ticker.scheduleAtFixedRate(this::tick, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /* ===================== LIFECYCLE ===================== */
+
+    /**
+     * Opens (or returns the already open) attempt of the student for this test and starts
+     * its clock. Idempotent, so a page reload does not restart the timer. A test with
+     * {@code durationInMinutes == 0} is untimed: the attempt gets no deadline and stays open
+     * until submitted, and its duration is still measured from the server's startedAt.
+     */
+    public TestAttempt start(Test test, String studentId) {
+        Instant now = Instant.now();
+        Query open = openAttempt(test.getId(), studentId);
+        // testId, studentId and isCompleted=false come from the query on insert
+        Update init = new Update()
+                .setOnInsert("testTitle", test.getTitle())
+                .setOnInsert("subject", test.getSubject())
+                .setOnInsert("joinCode", test.getJoinCode())
+                .setOnInsert("startedAt", now);
+        if (test.getDurationInMinutes() > 0) {
+            init.setOnInsert("deadlineAt", now.plus(Duration.ofMinutes(test.getDurationInMinutes())));
+        }
+        TestAttempt attempt = mongoTemplate.findAndModify(open, init,
+                FindAndModifyOptions.options().upsert(true).returnNew(true), TestAttempt.class);
+        track(attempt);
+        return attempt;
+    }
+
+    public Optional<TestAttempt> findOpen(String testId, String studentId) {
+        return Optional.ofNullable(mongoTemplate.findOne(openAttempt(testId, studentId), TestAttempt.class));
+    }
+
+    /**
+     * The student's most recent attempt if the server sealed it at its deadline. A submit that
+     * loses that race gets this result back instead of creating a second attempt.
+     */
+    public Optional<TestAttempt> findLatestAutoSubmitted(String testId, String studentId) {
+        Query query = new Query(Criteria.where("testId").is(testId).and("studentId").is(studentId).and("isCompleted").is(true))
+                .with(Sort.by(Sort.Direction.DESC, "completedAt"))
+                .limit(1);
+        return Optional.ofNullable(mongoTemplate.findOne(query, TestAttempt.class))
+                .filter(TestAttempt::isAutoSubmitted);
+    }
+
+    /**
+     * Stores in-progress answers. Refused once the deadline (plus grace) has passed.
+     *
+     * @return false if there is no open attempt or it is already past its deadline
+     */
+    public boolean saveAnswers(String testId, String studentId, List<Object> answers) {
+        Instant cutoff = Instant.now().minus(grace);
+        Query query = openAttempt(testId, studentId).addCriteria(new Criteria().orOperator(
+                Criteria.where("deadlineAt").exists(false),
+                Criteria.where("deadlineAt").gt(cutoff)));
+        return mongoTemplate.updateFirst(query, new Update().set("savedAnswers", answers), TestAttempt.class)
+                .getMatchedCount() > 0;
+    }
+
+    /**
+     * Grades and seals an open attempt on the student's submit. A submit arriving after the
+     * deadline seals with the answers saved before it instead.
+     *
+     * @return the sealed attempt, or empty if it had already been sealed
+     */
+    public Optional<TestAttempt> submit(TestAttempt open, Test test, List<Object> answers) {
+        Instant now = Instant.now();
+        boolean late = open.getDeadlineAt() != null && now.isAfter(open.getDeadlineAt().plus(grace));
+        List<Object> graded = late || answers == null ? open.getSavedAnswers() : answers;
+        Instant completedAt = late ? open.getDeadlineAt() : now;
+        return seal(open, test, graded, completedAt, late);
+    }
+
+    private Optional<TestAttempt> seal(TestAttempt open, Test test, List<Object> answers,
+                                       Instant completedAt, boolean autoSubmitted) {
+        cancel(open.getId());
+        GradingService.GradeResult grade = gradingService.grade(gradingService.keyFor(test), answers);
+        long elapsedSeconds = open.getStartedAt() != null
+                ? Math.max(0, Duration.between(open.getStartedAt(), completedAt).getSeconds())
+                : 0;
+        int minutes = (int) Math.max(1, (elapsedSeconds + 59) / 60);
+        if (test.getDurationInMinutes() > 0) {
+            minutes = Math.min(minutes, test.getDurationInMinutes());
+        }
+
+        Update update = new Update()
+                .set("isCompleted", true)
+                .set("completedAt", completedAt)
+                .set("autoSubmitted", autoSubmitted)
+                .set("totalQuestions", grade.totalQuestions())
+                .set("correctAnswers", grade.correctAnswers())
+                .set("score", grade.score())
+                .set("sheet", grade.sheet())
+                .set("durationInMinutes", minutes)
+                .unset("savedAnswers");
+        TestAttempt sealed = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(open.getId()).and("isCompleted").is(false)),
+                update, FindAndModifyOptions.options().returnNew(true), TestAttempt.class);
+        if (sealed == null) {
+            return Optional.empty();
+        }
+        onCompleted(sealed);
+        return Optional.of(sealed);
+    }
+
+    /**
+     * Bookkeeping shared by every path that completes an attempt: stats counters, the
+     * in-memory analytics store, the answer-pattern index, text answer suggestions and the
+     * teacher's live feed.
+     */
+    public void onCompleted(TestAttempt attempt) {
+        testStatsService.onSubmission(attempt.getTestId(), attempt.getScore());
+        attemptAnalyticsService.onSubmission(attempt);
+        answerPatternService.onSubmission(attempt);
+        textGradingService.onSubmission(attempt);
+        messagingTemplate.convertAndSend("/topic/test/" + attempt.getTestId() + "/events",
+                Map.of("type", "SUBMITTED",
+                        "studentId", attempt.getStudentId(),
+                        "attemptId", attempt.getId(),
+                        "autoSubmitted", attempt.isAutoSubmitted(),
+                        "timestamp", Instant.now().toString()));
+    }
+
+    /* ===================== TIMING WHEEL ===================== */
+
+    private void track(TestAttempt attempt) {
+        if (attempt == null || attempt.getDeadlineAt() == null || attempt.isCompleted()) {
+            return;
+        }
+        timeouts.computeIfAbsent(attempt.getId(),
+                id -> wheel.schedule(id, attempt.getDeadlineAt().plus(grace).toEpochMilli()));
+    }
+
+    private void cancel(String attemptId) {
+        HierarchicalTimingWheel<String>.Timeout timeout = timeouts.remove(attemptId);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    private void tick() {
+        try {
+            wheel.advanceTo(System.currentTimeMillis() / wheel.tickMs(), attemptId -> {
+                timeouts.remove(attemptId);
+                sealers.execute(() -> sealExpired(attemptId));
+            });
+        } catch (Exception e) {
+            // Never let an exception cancel the fixed-rate ticker
+            log.error("Attempt deadline tick failed", e);
+        }
+    }
+
+    private void sealExpired(String attemptId) {
+        try {
+            TestAttempt open = mongoTemplate.findOne(
+                    new Query(Criteria.where("_id").is(attemptId).and("isCompleted").is(false)), TestAttempt.class);
+            if (open == null) {
+                return;
+            }
+            Test test = mongoTemplate.findById(open.getTestId(), Test.class);
+            if (test == null) {
+                return;
+            }
+            seal(open, test, open.getSavedAnswers(), open.getDeadlineAt(), true)
+                    .ifPresent(sealed -> log.info("Auto-submitted attempt {} of student {} at its deadline",
+                            sealed.getId(), sealed.getStudentId()));
+        } catch (Exception e) {
+            log.error("Could not seal expired attempt {}", attemptId, e);
+        }
+    }
+
+    /* ===================== RECOVERY ===================== */
+
+    // Deadlines that passed while the server was down fire on the first tick
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        Thread loader = new Thread(() -> {
+            Query query = new Query(Criteria.where("isCompleted").is(false).and("deadlineAt").exists(true));
+            query.fields().include("_id", "deadlineAt", "isCompleted");
+            query.cursorBatchSize(1000);
+            int count = 0;
+            try (Stream<TestAttempt> open = mongoTemplate.stream(query, TestAttempt.class)) {
+                for (TestAttempt attempt : (Iterable<TestAttempt>) open::iterator) {
+                    track(attempt);
+                    count++;
+                }
+                log.info("Rebuilt {} attempt deadlines", count);
+            } catch (Exception e) {
+                log.error("Could not rebuild attempt deadlines after {} attempts", count, e);
+            }
+        }, "attempt-deadline-recovery");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private static Query openAttempt(String testId, String studentId) {
+        return new Query(Criteria.where("testId").is(testId).and("studentId").is(studentId).and("isCompleted").is(false));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        ticker.shutdownNow();
+        sealers.shutdownNow();
+    }
+
+}
@@ -0,0 +1,282 @@
+package com.procter.procter_app.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.procter.procter_app.model.Test;
+import com.procter.procter_app.model.TestAttempt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams completed attempts out of Mongo as CSV or NDJSON.
+ *
+ * Rows are read through a cursor with a projection that leaves out the answers array and
+ * are written straight to the output stream, so heap use does not grow with the export.
+ * Large exports can be spooled to a local file and downloaded again later without
+ * touching Mongo.
+ */
+@Service
+public class AttemptExportService {
+
+    public enum Format {
+        CSV("csv", "text/csv"),
+        NDJSON("ndjson", "application/x-ndjson");
+
+        private final String extension;
+        private final String contentType;
+
+        Format(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        public String getExtension() { return extension; }
+        public String getContentType() { return contentType; }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(AttemptExportService.class);
+
+    private static final String[] COLUMNS = {
+            "attemptId", "testId", "testTitle", "subject", "studentId",
+            "score", "correctAnswers", "totalQuestions", "durationInMinutes", "completedAt"
+    };
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int CURSOR_BATCH_SIZE = 500;
+    private static final Pattern EXPORT_ID = Pattern.compile("[0-9a-f\\-]{36}");
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final Path spoolDir;
+    private final Duration spoolRetention;
+
+    public AttemptExportService(MongoTemplate mongoTemplate,
+                                ObjectMapper objectMapper,
+                                @Value("${app.export.spool-dir:${java.io.tmpdir}/procter-exports}") String spoolDir,
+                                @Value("${app.export.spool-retention-hours:24}") long spoolRetentionHours) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.spoolDir = Paths.get(spoolDir);
+        this.spoolRetention = Duration.ofHours(spoolRetentionHours);
+    }
+
+    /* ===================== SCOPES ===================== */
+
+    public Query forTest(String testId) {
+        return completedAttempts(Criteria.where("testId").is(testId));
+    }
+
+    // Only tests owned by the teacher are included, so the $in list doubles as the access check
+    public Query forSubject(String teacherId, String subject) {
+        Query tests = new Query(Criteria.where("createdByTeacherId").is(teacherId).and("subject").is(subject));
+        return completedAttempts(Criteria.where("testId").in(ownedTestIds(tests)));
+    }
+
+    public Query forDateRange(String teacherId, Instant from, Instant to) {
+        Query tests = new Query(Criteria.where("createdByTeacherId").is(teacherId));
+        Criteria criteria = Criteria.where("testId").in(ownedTestIds(tests));
+        if (from != null || to != null) {
+            Criteria completedAt = Criteria.where("completedAt");
+            if (from != null) completedAt = completedAt.gte(from);
+            if (to != null) completedAt = completedAt.lt(to);
+            criteria = new Criteria().andOperator(criteria, completedAt);
+        }
+        return completedAttempts(criteria);
+    }
+
+    private List<String> ownedTestIds(Query tests) {
+        tests.fields().include("_id");
+        return mongoTemplate.find(tests, Test.class).stream()
+                .map(Test::getId)
+                .collect(Collectors.toList());
+    }
+
+    // No sort: an unindexed sort would make Mongo buffer the whole result before the first row
+    private Query completedAttempts(Criteria criteria) {
+        Query query = new Query(criteria).addCriteria(Criteria.where("isCompleted").is(true));
+        query.fields()
+                .include("testId", "testTitle", "subject", "studentId", "score",
+                        "correctAnswers", "totalQuestions", "durationInMinutes", "completedAt");
+        query.cursorBatchSize(CURSOR_BATCH_SIZE);
+        return query;
+    }
+
+    /* ===================== STREAMING ===================== */
+
+    /**
+     * Writes every attempt matched by the query to the output stream.
+     * The caller owns the stream; it is flushed but not closed (except for the gzip trailer).
+     *
+     * @return the number of rows written
+     */
+    public long write(Query query, Format format, boolean gzip, OutputStream target) throws IOException {
+        OutputStream out = gzip ? new GZIPOutputStream(nonClosing(target), BUFFER_SIZE) : nonClosing(target);
+        try (Stream<TestAttempt> attempts = mongoTemplate.stream(query, TestAttempt.class);
+             OutputStream sink = new BufferedOutputStream(out, BUFFER_SIZE)) {
+            return format == Format.CSV ? writeCsv(attempts, sink) : writeNdjson(attempts, sink);
+        }
+    }
+
+    private long writeCsv(Stream<TestAttempt> attempts, OutputStream sink) throws IOException {
+        Writer writer = new OutputStreamWriter(sink, StandardCharsets.UTF_8);
+        writer.write(String.join(",", COLUMNS));
+        writer.write("\r\n");
+
+        long rows = 0;
+        for (TestAttempt a : (Iterable<TestAttempt>) attempts::iterator) {
+            writer.write(csv(a.getId())); writer.write(',');
+            writer.write(csv(a.getTestId())); writer.write(',');
+            writer.write(csv(a.getTestTitle())); writer.write(',');
+            writer.write(csv(a.getSubject())); writer.write(',');
+            writer.write(csv(a.getStudentId())); writer.write(',');
+            writer.write(Integer.toString(a.getScore())); writer.write(',');
+            writer.write(Integer.toString(a.getCorrectAnswers())); writer.write(',');
+            writer.write(Integer.toString(a.getTotalQuestions())); writer.write(',');
+            writer.write(Integer.toString(a.getDurationInMinutes())); writer.write(',');
+            writer.write(a.getCompletedAt() != null ? a.getCompletedAt().toString() : "");
+            writer.write("\r\n");
+            rows++;
+        }
+        writer.flush();
+        return rows;
+    }
+
+    private long writeNdjson(Stream<TestAttempt> attempts, OutputStream sink) throws IOException {
+        long rows = 0;
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(sink)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // One object per line: no separator between root values, just the newline below
+            json.setRootValueSeparator(null);
+            for (TestAttempt a : (Iterable<TestAttempt>) attempts::iterator) {
+                json.writeStartObject();
+                json.writeStringField("attemptId", a.getId());
+                json.writeStringField("testId", a.getTestId());
+                json.writeStringField("testTitle", a.getTestTitle());
+                json.writeStringField("subject", a.getSubject());
+                json.writeStringField("studentId", a.getStudentId());
+                json.writeNumberField("score", a.getScore());
+                json.writeNumberField("correctAnswers", a.getCorrectAnswers());
+                json.writeNumberField("totalQuestions", a.getTotalQuestions());
+                json.writeNumberField("durationInMinutes", a.getDurationInMinutes());
+                json.writeStringField("completedAt", a.getCompletedAt() != null ? a.getCompletedAt().toString() : null);
+                json.writeEndObject();
+                json.writeRaw('\n');
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private static String csv(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static OutputStream nonClosing(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+
+    /* ===================== SPOOLING ===================== */
+
+    public record SpooledExport(String exportId, Path path, Format format, boolean gzip) {
+        public String fileName() {
+            return "export-" + exportId + "." + format.getExtension() + (gzip ? ".gz" : "");
+        }
+    }
+
+    /**
+     * Runs the export into a file under the spool directory. The file name carries the
+     * teacher id so a spooled export can only be fetched again by its owner.
+     */
+    public SpooledExport spool(String teacherId, Query query, Format format, boolean gzip) throws IOException {
+        Files.createDirectories(spoolDir);
+        String exportId = UUID.randomUUID().toString();
+        Path path = spoolDir.resolve(spoolName(teacherId, exportId, format, gzip));
+        Path partial = spoolDir.resolve(path.getFileName() + ".part");
+        try (OutputStream out = Files.newOutputStream(partial)) {
+            write(query, format, gzip, out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+        Files.move(partial, path, StandardCopyOption.ATOMIC_MOVE);
+        return new SpooledExport(exportId, path, format, gzip);
+    }
+
+    public Optional<SpooledExport> findSpooled(String teacherId, String exportId) {
+        if (!EXPORT_ID.matcher(exportId).matches()) {
+            return Optional.empty();
+        }
+        for (Format format : Format.values()) {
+            for (boolean gzip : new boolean[]{false, true}) {
+                Path path = spoolDir.resolve(spoolName(teacherId, exportId, format, gzip));
+                if (Files.isRegularFile(path)) {
+                    return Optional.of(new SpooledExport(exportId, path, format, gzip));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Copies a spooled file to the response. The servlet stream is not a file or socket
+     * channel, so the bytes pass through a small heap buffer either way; what spooling saves
+     * is the Mongo query, not the copy.
+     */
+    public void transfer(Path path, OutputStream out) throws IOException {
+        Files.copy(path, out);
+        out.flush();
+    }
+
+    private static String spoolName(String teacherId, String exportId, Format format, boolean gzip) {
+        return teacherId + "-" + exportId + "." + format.getExtension() + (gzip ? ".gz" : "");
+    }
+
+    @Scheduled(fixedDelayString = "${app.export.spool-cleanup-interval-ms:3600000}")
+    public void purgeExpiredSpoolFiles() {
+        if (!Files.isDirectory(spoolDir)) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(spoolRetention);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(spoolDir)) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not purge export spool directory {}: {}", spoolDir, e.getMessage());
+        }
+    }
+}
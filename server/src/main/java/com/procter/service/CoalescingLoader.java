@@ -0,0 +1,103 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.cache.SingleFlight;
+import com.procter.procter_app.model.Test;
+import com.procter.procter_app.model.User;
+import com.procter.procter_app.repo.TestRepository;
+import com.procter.procter_app.repo.UserRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Single-flight lookups for the keys every student hits at once when an exam opens: the
+ * test by id and by join code, and the user by email.
+ *
+ * Concurrent callers share one Mongo query and therefore one result object, so callers must
+ * treat the returned Test / User as read-only and write through atomic updates instead.
+ * Saves and deletes made through the repositories detach in-flight loads for the affected
+ * keys; code that updates with MongoTemplate calls {@link #forget(Test)} itself.
+ */
+@Service
+public class CoalescingLoader {
+
+    private final TestRepository testRepository;
+    private final UserRepository userRepository;
+
+    private final SingleFlight<String, Optional<Test>> testsById = new SingleFlight<>("testsById");
+    private final SingleFlight<String, Optional<Test>> testsByJoinCode = new SingleFlight<>("testsByJoinCode");
+    private final SingleFlight<String, Optional<User>> usersByEmail = new SingleFlight<>("usersByEmail");
+
+    public CoalescingLoader(TestRepository testRepository, UserRepository userRepository) {
+        this.testRepository = testRepository;
+        this.userRepository = userRepository;
+    }
+
+    public Optional<Test> findTestById(String id) {
+        return testsById.load(id, () -> testRepository.findById(id));
+    }
+
+    public Optional<Test> findTestByJoinCode(String joinCode) {
+        return testsByJoinCode.load(joinCode, () -> testRepository.findByJoinCode(joinCode));
+    }
+
+    public Optional<User> findUserByEmail(String email) {
+        return usersByEmail.load(email, () -> userRepository.findByEmail(email));
+    }
+
+    /* ===================== INVALIDATION ===================== */
+
+    public void forget(Test test) {
+        forgetTest(test.getId(), test.getJoinCode());
+    }
+
+    public void forgetTest(String testId, String joinCode) {
+        testsById.forget(testId);
+        testsByJoinCode.forget(joinCode);
+    }
+
+    @EventListener
+    public void onAfterSave(AfterSaveEvent<?> event) {
+        if (event.getSource() instanceof Test test) {
+            forget(test);
+        } else if (event.getSource() instanceof User user) {
+            usersByEmail.forget(user.getEmail());
+        }
+    }
+
+    // The delete event only carries the query, so every in-flight load of that type is dropped
+    @EventListener
+    public void onAfterDelete(AfterDeleteEvent<?> event) {
+        if (Test.class.equals(event.getType())) {
+            testsById.forgetAll();
+            testsByJoinCode.forgetAll();
+        } else if (User.class.equals(event.getType())) {
+            usersByEmail.forgetAll();
+        }
+    }
+
+    /* ===================== STATS ===================== */
+
+    public List<Map<String, Object>> stats() {
+        List<Map<String, Object>> stats = new ArrayList<>();
+        for (SingleFlight<?, ?> flight : List.of(testsById, testsByJoinCode, usersByEmail)) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("name", flight.getName());
+            entry.put("calls", flight.getCalls());
+            entry.put("queries", flight.getExecutions());
+            entry.put("coalesced", flight.getCoalesced());
+            entry.put("failures", flight.getFailures());
+            entry.put("inFlight", flight.getInFlight());
+            entry.put("fanIn", flight.getFanIn());
+            stats.add(entry);
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,19 @@
+package com.procter.procter_app.service;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Thread factory for the services' background pools: numbered daemon threads that never hold up shutdown
+final class DaemonThreads {
+
+    private DaemonThreads() {}
+
+    static ThreadFactory named(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,101 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.cache.CacheRegistry;
+import com.procter.procter_app.cache.ExpiringLruCache;
+import com.procter.procter_app.model.AnswerSheet;
+import com.procter.procter_app.model.Test;
+import com.procter.procter_app.model.TestAttempt;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Grades submissions against a compiled {@link AnswerKey}. Keys are cached per test;
+ * anything that edits a test's questions must call {@link #invalidate}.
+ */
+@Service
+public class GradingService {
+
+    public record GradeResult(int totalQuestions, int correctAnswers, int score, AnswerSheet sheet) {}
+
+    private final ExpiringLruCache<String, AnswerKey> answerKeys;
+    private final Timer gradeTimer;
+
+    public GradingService(CacheRegistry cacheRegistry,
+                          MeterRegistry meterRegistry,
+                          @Value("${app.tests.answer-key-cache.max-size:500}") int maxSize,
+                          @Value("${app.tests.answer-key-cache.ttl-minutes:180}") long ttlMinutes) {
+        this.answerKeys = cacheRegistry.register(
+                new ExpiringLruCache<>("answerKeys", maxSize, Duration.ofMinutes(ttlMinutes)));
+        this.gradeTimer = meterRegistry.timer("procter.grading");
+    }
+
+    public AnswerKey keyFor(Test test) {
+        return answerKeys.get(test.getId(), id -> AnswerKey.compile(test));
+    }
+
+    public AnswerKey warm(Test test) {
+        AnswerKey key = AnswerKey.compile(test);
+        answerKeys.put(test.getId(), key);
+        return key;
+    }
+
+    public void invalidate(String testId) {
+        answerKeys.invalidate(testId);
+    }
+
+    /**
+     * Scores the answers (indexed by question) into an {@link AnswerSheet}. Choice questions
+     * store the chosen options, free-text questions the text; the latter count as not correct.
+     */
+    public GradeResult grade(AnswerKey key, List<?> answers) {
+        long started = System.nanoTime();
+        int total = key.size();
+        AnswerSheet sheet = new AnswerSheet(total);
+        for (int i = 0; i < total; i++) {
+            Object answer = (answers != null && i < answers.size()) ? answers.get(i) : null;
+            if (key.isAutoGraded(i)) {
+                int mask = AnswerSheet.choiceMask(answer);
+                sheet.setChoice(i, mask);
+                sheet.setCorrect(i, key.isCorrect(i, mask));
+            } else if (answer instanceof String || answer instanceof Number) {
+                sheet.setText(i, answer.toString());
+            }
+        }
+        int correct = sheet.correctCount();
+        gradeTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return new GradeResult(total, correct, score(correct, total), sheet);
+    }
+
+    /** Percentage score, rounded; 0 for a test without questions. */
+    public static int score(int correct, int total) {
+        return total > 0 ? Math.round((correct * 100.0f) / total) : 0;
+    }
+
+    /* ===================== STORED GRADES ===================== */
+
+    /**
+     * Matches the stored attempt only while its correctness bits and question count are still
+     * the ones read into {@code attempt}. A writer that recomputes correctAnswers and score from
+     * its copy makes the write conditional on this and re-reads when nothing matched, so a
+     * concurrent confirm or regrade is never reverted. A legacy document matches only until
+     * it is converted.
+     */
+    public static Query unchangedGrades(TestAttempt attempt) {
+        Criteria criteria = Criteria.where("_id").is(attempt.getId()).and("totalQuestions").is(attempt.getTotalQuestions());
+        if (attempt.hasLegacyAnswers()) {
+            criteria.and("answers").exists(true);
+        } else {
+            long[] correct = attempt.getSheet() != null ? attempt.getSheet().getCorrect() : null;
+            criteria.and("sheet.correct").is(correct != null ? Arrays.stream(correct).boxed().toList() : null);
+        }
+        return new Query(criteria);
+    }
+}
@@ -0,0 +1,188 @@
+package com.procter.procter_app.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel (as in the Varghese & Lauck paper, and the Linux and Kafka timers):
+ * four levels of 64 slots, each level's slot covering a whole lap of the level below.
+ *
+ * schedule and cancel are O(1): a deadline goes straight into the slot of the coarsest level
+ * it needs, and each slot is an intrusive doubly-linked list. Every tick expires one level-0
+ * slot. When a level wraps, the next level's current slot is cascaded down, so an entry is
+ * moved at most once per level. With a 1 s tick the wheel spans 64^4 s (about 194 days); later
+ * deadlines wait in the top level and are re-placed on each pass.
+ *
+ * Not driven by itself: the owner calls {@link #advanceTo} with the current tick. Expired
+ * payloads are handed to the consumer after the lock is released.
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    public final class Timeout {
+        private final T payload;
+        private final long deadlineTick;
+        private Timeout prev;
+        private Timeout next;
+        private boolean linked;
+
+        private Timeout(T payload, long deadlineTick) {
+            this.payload = payload;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T payload() { return payload; }
+        public long deadlineTick() { return deadlineTick; }
+
+        /** @return false if the timeout already fired or was cancelled */
+        public boolean cancel() {
+            synchronized (HierarchicalTimingWheel.this) {
+                if (!linked) {
+                    return false;
+                }
+                unlink(this);
+                size--;
+                return true;
+            }
+        }
+    }
+
+    // Per slot a sentinel node of a circular list
+    private final Timeout[][] slots;
+    private final long tickMs;
+    private long currentTick;
+    private int size;
+
+    public HierarchicalTimingWheel(long tickMs, long startTimeMs) {
+        this.tickMs = tickMs;
+        this.currentTick = startTimeMs / tickMs;
+        this.slots = newSlots();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Timeout[][] newSlots() {
+        Timeout[][] result = (Timeout[][]) java.lang.reflect.Array.newInstance(Timeout.class, LEVELS, SLOTS);
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                Timeout sentinel = new Timeout(null, Long.MIN_VALUE);
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                result[level][slot] = sentinel;
+            }
+        }
+        return result;
+    }
+
+    public long tickOf(long timeMs) {
+        // Round up: a deadline never fires before its time
+        return (timeMs + tickMs - 1) / tickMs;
+    }
+
+    public long tickMs() {
+        return tickMs;
+    }
+
+    /* ===================== SCHEDULING ===================== */
+
+    /**
+     * Deadlines at or before the current tick fire on the next advance.
+     */
+    public synchronized Timeout schedule(T payload, long deadlineMs) {
+        Timeout timeout = new Timeout(payload, Math.max(tickOf(deadlineMs), currentTick + 1));
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void place(Timeout timeout) {
+        long delta = timeout.deadlineTick - currentTick;
+        for (int level = 0; level < LEVELS; level++) {
+            long span = 1L << (SLOT_BITS * (level + 1));
+            if (delta < span || level == LEVELS - 1) {
+                // Beyond the top level's range: park it one lap ahead and re-place it when that slot cascades
+                long tick = delta < span ? timeout.deadlineTick : currentTick + span - 1;
+                int slot = (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+                link(slots[level][slot], timeout);
+                return;
+            }
+        }
+    }
+
+    /* ===================== TICKING ===================== */
+
+    /**
+     * Advances the wheel up to the given tick and passes every expired payload to the
+     * consumer, in deadline order across ticks.
+     */
+    public void advanceTo(long targetTick, Consumer<T> onExpired) {
+        List<T> expired = new ArrayList<>();
+        synchronized (this) {
+            while (currentTick < targetTick) {
+                currentTick++;
+                cascade();
+                drain(slots[0][(int) (currentTick & SLOT_MASK)], expired);
+            }
+        }
+        expired.forEach(onExpired);
+    }
+
+    // Coarsest level first, so entries can fall through several levels in one tick
+    private void cascade() {
+        for (int level = LEVELS - 1; level >= 1; level--) {
+            long lowerSpanMask = (1L << (SLOT_BITS * level)) - 1;
+            if ((currentTick & lowerSpanMask) != 0) {
+                continue;
+            }
+            Timeout sentinel = slots[level][(int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK)];
+            Timeout node = sentinel.next;
+            while (node != sentinel) {
+                Timeout next = node.next;
+                unlink(node);
+                if (node.deadlineTick <= currentTick) {
+                    link(slots[0][(int) (currentTick & SLOT_MASK)], node);
+                } else {
+                    place(node);
+                }
+                node = next;
+            }
+        }
+    }
+
+    private void drain(Timeout sentinel, List<T> expired) {
+        Timeout node = sentinel.next;
+        while (node != sentinel) {
+            Timeout next = node.next;
+            if (node.deadlineTick <= currentTick) {
+                unlink(node);
+                size--;
+                expired.add(node.payload);
+            }
+            node = next;
+        }
+    }
+
+    private static <T> void link(HierarchicalTimingWheel<T>.Timeout sentinel, HierarchicalTimingWheel<T>.Timeout node) {
+        node.prev = sentinel.prev;
+        node.next = sentinel;
+        sentinel.prev.next = node;
+        sentinel.prev = node;
+        node.linked = true;
+    }
+
+    private static <T> void unlink(HierarchicalTimingWheel<T>.Timeout node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+        node.linked = false;
+    }
+}
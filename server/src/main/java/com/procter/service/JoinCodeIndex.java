@@ -0,0 +1,228 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.cache.CacheRegistry;
+import com.procter.procter_app.cache.ExpiringLruCache;
+import com.procter.procter_app.model.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Join code -> test id, held in memory so joining never reads Mongo.
+ *
+ * The map is loaded once at startup and kept current from repository saves. Writes that
+ * bypass the save events (bulk updates, another instance) can still leave it behind, so a
+ * miss falls back to Mongo before the code is rejected; unknown codes are remembered in a
+ * short-lived negative cache, so repeating one costs no query.
+ *
+ * Each rejected code counts against the student. Counting per remote address as well is
+ * opt-in ({@code throttle-by-address}) with its own, higher limit, since a school behind one
+ * NAT address would otherwise be locked out by a few typos. A client over its limit is
+ * refused before any lookup for the rest of the window, which caps how fast a bot can
+ * enumerate the 2^48 code space.
+ */
+@Service
+public class JoinCodeIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(JoinCodeIndex.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final CoalescingLoader coalescingLoader;
+    private final int maxFailures;
+    private final Duration failureWindow;
+    private final boolean throttleByAddress;
+    private final int maxFailuresPerAddress;
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, String> testIdByCode = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    private final ExpiringLruCache<String, Boolean> unknownCodes;
+    private final ExpiringLruCache<String, AtomicInteger> failuresByClient;
+
+    private final LongAdder rejectedCodes = new LongAdder();
+    private final LongAdder blockedAttempts = new LongAdder();
+
+    public JoinCodeIndex(MongoTemplate mongoTemplate,
+                         CoalescingLoader coalescingLoader,
+                         CacheRegistry cacheRegistry,
+                         @Value("${app.tests.join-index.max-failures:10}") int maxFailures,
+                         @Value("${app.tests.join-index.failure-window-minutes:10}") long failureWindowMinutes,
+                         @Value("${app.tests.join-index.max-tracked-clients:100000}") int maxTrackedClients,
+                         @Value("${app.tests.join-index.negative-ttl-seconds:60}") long negativeTtlSeconds,
+                         @Value("${app.tests.join-index.throttle-by-address:false}") boolean throttleByAddress,
+                         @Value("${app.tests.join-index.max-failures-per-address:200}") int maxFailuresPerAddress) {
+        this.mongoTemplate = mongoTemplate;
+        this.coalescingLoader = coalescingLoader;
+        this.maxFailures = maxFailures;
+        this.failureWindow = Duration.ofMinutes(failureWindowMinutes);
+        this.throttleByAddress = throttleByAddress;
+        this.maxFailuresPerAddress = maxFailuresPerAddress;
+        this.unknownCodes = cacheRegistry.register(
+                new ExpiringLruCache<>("unknownJoinCodes", maxTrackedClients, Duration.ofSeconds(negativeTtlSeconds)));
+        this.failuresByClient = cacheRegistry.register(
+                new ExpiringLruCache<>("joinFailuresByClient", maxTrackedClients, failureWindow));
+    }
+
+    /* ===================== LOADING ===================== */
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        startLoader();
+    }
+
+    private void startLoader() {
+        Thread loader = new Thread(this::load, "join-code-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void load() {
+        long started = System.currentTimeMillis();
+        Query query = new Query();
+        query.fields().include("_id", "joinCode");
+        query.cursorBatchSize(1000);
+        try (Stream<Test> tests = mongoTemplate.stream(query, Test.class)) {
+            tests.forEach(this::register);
+            loaded = true;
+            log.info("Join code index loaded {} codes in {} ms", testIdByCode.size(), System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            log.error("Join code index failed to load; joins will query Mongo", e);
+        }
+    }
+
+    public void register(Test test) {
+        if (test.getJoinCode() != null && test.getId() != null) {
+            testIdByCode.put(test.getJoinCode(), test.getId());
+            unknownCodes.invalidate(test.getJoinCode());
+        }
+    }
+
+    @EventListener
+    public void onAfterSave(AfterSaveEvent<?> event) {
+        if (event.getSource() instanceof Test test) {
+            register(test);
+        }
+    }
+
+    // Deletes only carry the query; drop back to the Mongo fallback and reload
+    @EventListener
+    public void onAfterDelete(AfterDeleteEvent<?> event) {
+        if (Test.class.equals(event.getType())) {
+            loaded = false;
+            testIdByCode.clear();
+            startLoader();
+        }
+    }
+
+    public boolean contains(String joinCode) {
+        return testIdByCode.containsKey(joinCode);
+    }
+
+    // 48 random bits, base64url; retried until no indexed test uses the code
+    public String newJoinCode() {
+        String code;
+        do {
+            byte[] buf = new byte[6];
+            random.nextBytes(buf);
+            code = Base64.getUrlEncoder().withoutPadding().encodeToString(buf);
+        } while (contains(code));
+        return code;
+    }
+
+    /* ===================== LOOKUP ===================== */
+
+    /**
+     * Keys a join attempt is throttled under: always the student, and the remote address only
+     * when {@code throttle-by-address} is on.
+     */
+    public String[] clientKeys(String studentId, String remoteAddr) {
+        if (throttleByAddress && remoteAddr != null) {
+            return new String[]{"student:" + studentId, "ip:" + remoteAddr};
+        }
+        return new String[]{"student:" + studentId};
+    }
+
+    /**
+     * @return true if any of the client keys has used up its failures for the current window
+     */
+    public boolean isBlocked(String... clientKeys) {
+        for (String key : clientKeys) {
+            AtomicInteger failures = key != null ? failuresByClient.get(key) : null;
+            if (failures != null && failures.get() >= limitFor(key)) {
+                blockedAttempts.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Resolves a join code to its test id. An unknown code is counted against every given
+     * client key.
+     */
+    public Optional<String> resolve(String joinCode, String... clientKeys) {
+        Optional<String> testId = lookup(joinCode);
+        if (testId.isEmpty()) {
+            rejectedCodes.increment();
+            for (String key : clientKeys) {
+                if (key != null) {
+                    // The window starts with the first failure; later failures do not extend it
+                    failuresByClient.get(key, k -> new AtomicInteger()).incrementAndGet();
+                }
+            }
+        }
+        return testId;
+    }
+
+    private int limitFor(String clientKey) {
+        return clientKey.startsWith("ip:") ? maxFailuresPerAddress : maxFailures;
+    }
+
+    private Optional<String> lookup(String joinCode) {
+        String testId = testIdByCode.get(joinCode);
+        if (testId != null) {
+            return Optional.of(testId);
+        }
+        if (unknownCodes.get(joinCode) != null) {
+            return Optional.empty();
+        }
+        Optional<Test> test = coalescingLoader.findTestByJoinCode(joinCode);
+        test.ifPresentOrElse(this::register, () -> unknownCodes.put(joinCode, Boolean.TRUE));
+        return test.map(Test::getId);
+    }
+
+    public long getRetryAfterSeconds() {
+        return failureWindow.getSeconds();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("loaded", loaded);
+        stats.put("codes", testIdByCode.size());
+        stats.put("rejectedCodes", rejectedCodes.sum());
+        stats.put("blockedAttempts", blockedAttempts.sum());
+        stats.put("trackedClients", failuresByClient.size());
+        stats.put("maxFailures", maxFailures);
+        stats.put("throttleByAddress", throttleByAddress);
+        return stats;
+    }
+}
@@ -1,29 +1,81 @@
 package com.procter.procter_app.service;
 
+import com.procter.procter_app.cache.CacheRegistry;
+import com.procter.procter_app.cache.ExpiringLruCache;
 import com.procter.procter_app.model.User;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Base64;
 import java.util.Date;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class JwtService {
 
+    /**
+     * The claims of a token whose signature and expiry have been checked.
+     */
+    public record VerifiedToken(String jti, String subject, String role, String userId,
+                                Instant issuedAt, Instant expiresAt) {
+        public boolean isExpired() {
+            return expiresAt != null && !expiresAt.isAfter(Instant.now());
+        }
+    }
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
     private final Key key;
     private final long expirationMs;
+    // Parsers are immutable and thread-safe once built
+    private final JwtParser parser;
+    // Keyed by a hash of the token so raw bearer tokens are not kept in memory
+    private final ExpiringLruCache<String, VerifiedToken> verifiedTokens;
+    // verify() latency by result: served from the cache, checked and parsed, or rejected
+    private final Timer verifyCached;
+    private final Timer verifyParsed;
+    private final Timer verifyRejected;
 
     public JwtService(@Value("${app.jwt.secret}") String secret,
-                      @Value("${app.jwt.expiration}") long expirationMs) {
+                      @Value("${app.jwt.expiration}") long expirationMs,
+                      @Value("${app.jwt.verified-cache.max-size:10000}") int verifiedCacheSize,
+                      @Value("${app.jwt.verified-cache.ttl-seconds:600}") long verifiedCacheTtlSeconds,
+                      CacheRegistry cacheRegistry,
+                      MeterRegistry meterRegistry) {
         this.key = Keys.hmacShaKeyFor(resolveSecret(secret));
         this.expirationMs = expirationMs;
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.verifiedTokens = cacheRegistry.register(
+                new ExpiringLruCache<>("verifiedTokens", verifiedCacheSize, Duration.ofSeconds(verifiedCacheTtlSeconds)));
+        this.verifyCached = meterRegistry.timer("procter.jwt.verify", "result", "cached");
+        this.verifyParsed = meterRegistry.timer("procter.jwt.verify", "result", "parsed");
+        this.verifyRejected = meterRegistry.timer("procter.jwt.verify", "result", "rejected");
     }
 
     /* ===================== INTERNAL ===================== */
@@ -59,6 +111,7 @@ public class JwtService {
         long now = System.currentTimeMillis();
 
         return Jwts.builder()
+                .setId(newTokenId())
                 .setSubject(subject)
                 .addClaims(claims)
                 .setIssuedAt(new Date(now))
@@ -67,13 +120,71 @@ public class JwtService {
                 .compact();
     }
 
+    // Unique per token so a single token can be revoked
+    private static String newTokenId() {
+        byte[] id = new byte[16];
+        RANDOM.nextBytes(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id);
+    }
+
+    public long getExpirationMs() {
+        return expirationMs;
+    }
+
     /* ===================== TOKEN PARSING ===================== */
 
     public Jws<Claims> parse(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token);
+        return parser.parseClaimsJws(token);
+    }
+
+    /**
+     * Checks signature and expiry once and returns the claims the auth path needs.
+     * A token verified before is served from the cache until it expires, so repeat
+     * requests with the same token skip the HMAC check and the JSON parse.
+     *
+     * @return empty if the token is malformed, badly signed or expired
+     */
+    public Optional<VerifiedToken> verify(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        long started = System.nanoTime();
+        String cacheKey = hash(token);
+        VerifiedToken cached = verifiedTokens.get(cacheKey);
+        if (cached != null) {
+            return cached.isExpired()
+                    ? timed(started, verifyRejected, Optional.empty())
+                    : timed(started, verifyCached, Optional.of(cached));
+        }
+
+        Claims claims;
+        try {
+            claims = parse(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            return timed(started, verifyRejected, Optional.empty());
+        }
+        VerifiedToken verified = new VerifiedToken(
+                claims.getId(),
+                claims.getSubject(),
+                claims.get("role", String.class),
+                claims.get("uid", String.class),
+                claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null
+        );
+        if (verified.expiresAt() != null) {
+            verifiedTokens.put(cacheKey, verified, verified.expiresAt());
+        }
+        return timed(started, verifyParsed, Optional.of(verified));
+    }
+
+    private static Optional<VerifiedToken> timed(long started, Timer timer, Optional<VerifiedToken> result) {
+        timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    private static String hash(String token) {
+        byte[] digest = SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
     }
 
     /* ===================== 🔥 ADDED METHODS ===================== */
@@ -97,12 +208,14 @@ public class JwtService {
      * ✅ Validate token against user
      */
     public boolean isTokenValid(String token, User user) {
-        try {
-            String username = extractUsername(token);
-            return username.equals(user.getEmail()) && !isTokenExpired(token);
-        } catch (Exception e) {
-            return false;
-        }
+        return verify(token).map(verified -> isTokenValid(verified, user)).orElse(false);
+    }
+
+    /**
+     * Validate already verified claims against user (no re-parse)
+     */
+    public boolean isTokenValid(VerifiedToken token, User user) {
+        return token.subject() != null && token.subject().equals(user.getEmail()) && !token.isExpired();
     }
 
     /**
@@ -0,0 +1,37 @@
+package com.procter.procter_app.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a list sorted by (sortKey desc, id desc): the sort key and id of the last row
+ * of the previous page. Encoded as base64url so clients treat it as an opaque token.
+ */
+public record KeysetCursor(long sortKey, String id) {
+
+    public String encode() {
+        byte[] raw = (sortKey + ":" + id).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    /**
+     * @return null for a null or blank token (first page)
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode}
+     */
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(':');
+            if (sep <= 0 || sep == raw.length() - 1) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            return new KeysetCursor(Long.parseLong(raw.substring(0, sep)), raw.substring(sep + 1));
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException and bad base64 both land here
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.procter.procter_app.service;
+
+import java.util.*;
+
+/**
+ * Near-duplicate detection for short texts with MinHash signatures and LSH banding.
+ *
+ * Each text is normalized (lower case, punctuation dropped, whitespace collapsed) and cut
+ * into overlapping character shingles. A signature keeps, for each of bands * rows seeded
+ * hash functions, the minimum hash over the text's shingles; two signatures agree on a
+ * position with probability equal to the Jaccard similarity of the shingle sets.
+ *
+ * Signatures are split into bands and every band is hashed into a bucket, so texts only
+ * become candidates if they share a bucket in at least one band: roughly linear in the
+ * number of texts instead of comparing every pair. Candidates are then checked against the
+ * exact Jaccard similarity, so reported pairs have no false positives. With b bands of r
+ * rows, a pair at similarity s becomes a candidate with probability 1 - (1 - s^r)^b.
+ */
+public final class MinHashLsh {
+
+    public record Match(int first, int second, double similarity) {}
+
+    private final int shingleSize;
+    private final int bands;
+    private final int rows;
+    private final long[] seeds;
+
+    public MinHashLsh(int shingleSize, int bands, int rows) {
+        if (shingleSize < 1 || bands < 1 || rows < 1) {
+            throw new IllegalArgumentException("shingleSize, bands and rows must be positive");
+        }
+        this.shingleSize = shingleSize;
+        this.bands = bands;
+        this.rows = rows;
+        // Fixed seeds: signatures are comparable across runs and instances
+        Random random = new Random(0x5DEECE66DL);
+        this.seeds = new long[bands * rows];
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Finds every pair of texts whose shingle sets have Jaccard similarity >= threshold.
+     * Texts too short to form a shingle are skipped.
+     *
+     * @param maxPairs stop after this many matches (identical answers from a large class
+     *                 would otherwise produce a quadratic number of pairs)
+     * @return matches with first < second, indexes into texts, most similar first
+     */
+    public List<Match> findSimilar(List<String> texts, double threshold, int maxPairs) {
+        int n = texts.size();
+        long[][] shingles = new long[n][];
+        long[][] signatures = new long[n][];
+        for (int i = 0; i < n; i++) {
+            shingles[i] = shingles(texts.get(i));
+            signatures[i] = shingles[i].length > 0 ? signature(shingles[i]) : null;
+        }
+
+        Set<Long> seen = new HashSet<>();
+        List<Match> matches = new ArrayList<>();
+        for (int band = 0; band < bands && matches.size() < maxPairs; band++) {
+            Map<Long, List<Integer>> buckets = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                if (signatures[i] != null) {
+                    buckets.computeIfAbsent(bandHash(signatures[i], band), k -> new ArrayList<>()).add(i);
+                }
+            }
+            for (List<Integer> bucket : buckets.values()) {
+                for (int a = 0; a < bucket.size() && matches.size() < maxPairs; a++) {
+                    for (int b = a + 1; b < bucket.size() && matches.size() < maxPairs; b++) {
+                        int first = bucket.get(a);
+                        int second = bucket.get(b);
+                        if (!seen.add(((long) first << 32) | second)) {
+                            continue;
+                        }
+                        double similarity = jaccard(shingles[first], shingles[second]);
+                        if (similarity >= threshold) {
+                            matches.add(new Match(first, second, similarity));
+                        }
+                    }
+                }
+            }
+        }
+        matches.sort(Comparator.comparingDouble(Match::similarity).reversed());
+        return matches;
+    }
+
+    /* ===================== SHINGLING ===================== */
+
+    // Sorted, distinct 64-bit shingle hashes
+    long[] shingles(String text) {
+        String normalized = normalize(text);
+        if (normalized.length() < shingleSize) {
+            return new long[0];
+        }
+        long[] hashes = new long[normalized.length() - shingleSize + 1];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = fnv1a(normalized, i, i + shingleSize);
+        }
+        Arrays.sort(hashes);
+        int distinct = 0;
+        for (int i = 0; i < hashes.length; i++) {
+            if (i == 0 || hashes[i] != hashes[i - 1]) {
+                hashes[distinct++] = hashes[i];
+            }
+        }
+        return Arrays.copyOf(hashes, distinct);
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (Character.isLetterOrDigit(c)) {
+                if (space && out.length() > 0) {
+                    out.append(' ');
+                }
+                out.append(c);
+                space = false;
+            } else {
+                space = true;
+            }
+        }
+        return out.toString();
+    }
+
+    /* ===================== SIGNATURES ===================== */
+
+    long[] signature(long[] shingles) {
+        long[] signature = new long[seeds.length];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (long shingle : shingles) {
+            for (int i = 0; i < seeds.length; i++) {
+                long h = mix(shingle ^ seeds[i]);
+                if (h < signature[i]) {
+                    signature[i] = h;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private long bandHash(long[] signature, int band) {
+        long h = band * 0x9E3779B97F4A7C15L;
+        for (int i = band * rows, end = i + rows; i < end; i++) {
+            h = mix(h ^ signature[i]);
+        }
+        return h;
+    }
+
+    // Exact Jaccard over two sorted distinct arrays
+    static double jaccard(long[] a, long[] b) {
+        int i = 0, j = 0, common = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        int union = a.length + b.length - common;
+        return union == 0 ? 0.0 : (double) common / union;
+    }
+
+    private static long fnv1a(String s, int from, int to) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,161 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.model.User;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing (bcrypt by default) on its own small pool instead of on Tomcat
+ * request threads.
+ *
+ * The pool has one thread per core and a bounded queue. When the queue is full a check is
+ * rejected straight away with {@link SaturatedException} so a login storm before an exam
+ * turns into quick 503s for the overflow rather than a stalled server.
+ *
+ * After a successful check, hashes stored with outdated parameters (older algorithm id or
+ * bcrypt strength) are re-encoded in the background.
+ */
+@Service
+public class PasswordHashingService {
+
+    public static class SaturatedException extends RuntimeException {
+        public SaturatedException() {
+            super("Password hashing queue is full");
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordHashingService.class);
+
+    private final PasswordEncoder passwordEncoder;
+    private final MongoTemplate mongoTemplate;
+    private final ThreadPoolExecutor pool;
+    private final int retryAfterSeconds;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder rehashed = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final LongAccumulator maxQueueWaitNanos = new LongAccumulator(Long::max, 0);
+    private final LongAccumulator maxHashNanos = new LongAccumulator(Long::max, 0);
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  MongoTemplate mongoTemplate,
+                                  @Value("${app.auth.hashing.threads:0}") int threads,
+                                  @Value("${app.auth.hashing.queue-capacity:200}") int queueCapacity,
+                                  @Value("${app.auth.hashing.retry-after-seconds:2}") int retryAfterSeconds) {
+        this.passwordEncoder = passwordEncoder;
+        this.mongoTemplate = mongoTemplate;
+        this.retryAfterSeconds = retryAfterSeconds;
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.pool = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                DaemonThreads.named("password-hash-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /* ===================== HASHING ===================== */
+
+    /**
+     * Checks the raw password against the user's stored hash on the hashing pool.
+     * The future fails with {@link SaturatedException} if the pool is full.
+     */
+    public CompletableFuture<Boolean> matches(User user, String rawPassword) {
+        return submit(() -> passwordEncoder.matches(rawPassword, user.getPassword()))
+                .thenApply(matched -> {
+                    if (matched) {
+                        rehashIfOutdated(user, rawPassword);
+                    }
+                    return matched;
+                });
+    }
+
+    public CompletableFuture<String> encode(String rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> work) {
+        long enqueued = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long started = System.nanoTime();
+                record(queueWaitNanos, maxQueueWaitNanos, started - enqueued);
+                try {
+                    return work.get();
+                } finally {
+                    record(hashNanos, maxHashNanos, System.nanoTime() - started);
+                    completed.increment();
+                }
+            }, pool);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(new SaturatedException());
+        }
+    }
+
+    private static void record(LongAdder total, LongAccumulator max, long nanos) {
+        total.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    // Best effort: if the pool is busy the upgrade simply happens on a later login
+    private void rehashIfOutdated(User user, String rawPassword) {
+        if (!passwordEncoder.upgradeEncoding(user.getPassword())) {
+            return;
+        }
+        String previousHash = user.getPassword();
+        encode(rawPassword).thenAccept(newHash -> {
+            // Conditional on the old hash so a concurrent password change is not overwritten
+            Query query = new Query(Criteria.where("_id").is(user.getId()).and("password").is(previousHash));
+            if (mongoTemplate.updateFirst(query, new Update().set("password", newHash), User.class).getModifiedCount() > 0) {
+                rehashed.increment();
+            }
+        }).exceptionally(e -> {
+            log.debug("Skipped password re-hash for user {}: {}", user.getId(), e.getMessage());
+            return null;
+        });
+    }
+
+    /* ===================== STATS ===================== */
+
+    public Map<String, Object> stats() {
+        long done = completed.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("threads", pool.getMaximumPoolSize());
+        stats.put("active", pool.getActiveCount());
+        stats.put("queued", pool.getQueue().size());
+        stats.put("queueCapacity", pool.getQueue().size() + pool.getQueue().remainingCapacity());
+        stats.put("completed", done);
+        stats.put("rejected", rejected.sum());
+        stats.put("rehashed", rehashed.sum());
+        stats.put("avgQueueWaitMs", done > 0 ? queueWaitNanos.sum() / 1e6 / done : 0.0);
+        stats.put("maxQueueWaitMs", maxQueueWaitNanos.get() / 1e6);
+        stats.put("avgHashMs", done > 0 ? hashNanos.sum() / 1e6 / done : 0.0);
+        stats.put("maxHashMs", maxHashNanos.get() / 1e6);
+        return stats;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+}
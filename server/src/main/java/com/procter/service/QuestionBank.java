@@ -0,0 +1,215 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.cache.CacheRegistry;
+import com.procter.procter_app.cache.ExpiringLruCache;
+import com.procter.procter_app.model.BankQuestion;
+import com.procter.procter_app.model.Question;
+import com.procter.procter_app.model.QuestionRef;
+import com.procter.procter_app.model.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AfterConvertEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveEvent;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Content-addressed question storage shared by all tests.
+ *
+ * Each distinct question is stored once in question_bank under a hash of its content, and a
+ * test document keeps only {@link QuestionRef}s. Saving a test interns its questions (new
+ * content is upserted, known content is not written again) and reading one resolves the refs
+ * through an LRU of bank entries, so reused banks cost a few bytes per question in Mongo and
+ * on every test load. Bank entries are never modified: editing a question stores the edited
+ * content under its own hash and bumps the ref's version, leaving other tests untouched.
+ *
+ * Resolved Question objects are shared between tests and callers and must not be mutated;
+ * copy them with {@link Question#Question(Question)} before editing.
+ */
+@Service
+public class QuestionBank {
+
+    private final MongoTemplate mongoTemplate;
+    // Only holds hashes that are known to be stored
+    private final ExpiringLruCache<String, Question> questions;
+
+    public QuestionBank(MongoTemplate mongoTemplate,
+                        CacheRegistry cacheRegistry,
+                        @Value("${app.question-bank.cache-max-size:5000}") int maxSize,
+                        @Value("${app.question-bank.cache-ttl-minutes:720}") long ttlMinutes) {
+        this.mongoTemplate = mongoTemplate;
+        this.questions = cacheRegistry.register(
+                new ExpiringLruCache<>("questionBank", maxSize, Duration.ofMinutes(ttlMinutes)));
+    }
+
+    /* ===================== WRITES ===================== */
+
+    /**
+     * Stores any questions the bank does not have yet and returns their refs, in order.
+     * A question whose content is unchanged keeps the version it had in {@code previous};
+     * changed content gets the previous version of its slot plus one.
+     */
+    public List<QuestionRef> intern(List<Question> list, List<QuestionRef> previous) {
+        Map<String, Integer> knownVersions = new HashMap<>();
+        if (previous != null) {
+            for (QuestionRef ref : previous) {
+                knownVersions.merge(ref.getHash(), ref.getVersion(), Math::max);
+            }
+        }
+        List<QuestionRef> refs = new ArrayList<>(list.size());
+        Map<String, Question> unknown = new LinkedHashMap<>();
+        for (int i = 0; i < list.size(); i++) {
+            Question question = list.get(i);
+            String hash = hash(question);
+            Integer version = knownVersions.get(hash);
+            if (version == null) {
+                version = previous != null && i < previous.size() ? previous.get(i).getVersion() + 1 : 1;
+            }
+            refs.add(new QuestionRef(hash, version));
+            if (questions.get(hash) == null) {
+                unknown.put(hash, question);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            // setOnInsert keeps this idempotent when two saves race on the same content
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, BankQuestion.class);
+            Instant now = Instant.now();
+            unknown.forEach((hash, question) -> bulk.upsert(new Query(Criteria.where("_id").is(hash)),
+                    new Update().setOnInsert("question", question).setOnInsert("createdAt", now)));
+            bulk.execute();
+            unknown.forEach((hash, question) -> questions.put(hash, new Question(question)));
+        }
+        return refs;
+    }
+
+    /* ===================== READS ===================== */
+
+    /**
+     * The questions behind the refs, in order. Cache misses are fetched in one query.
+     *
+     * @throws IllegalStateException if a ref points at no bank entry
+     */
+    public List<Question> resolve(List<QuestionRef> refs) {
+        List<String> hashes = new ArrayList<>(refs.size());
+        for (QuestionRef ref : refs) {
+            hashes.add(ref.getHash());
+        }
+        return lookup(hashes);
+    }
+
+    /**
+     * @throws IllegalStateException if a hash has no bank entry
+     */
+    public List<Question> lookup(List<String> hashes) {
+        Question[] resolved = new Question[hashes.size()];
+        Set<String> missing = new HashSet<>();
+        for (int i = 0; i < resolved.length; i++) {
+            resolved[i] = questions.get(hashes.get(i));
+            if (resolved[i] == null) {
+                missing.add(hashes.get(i));
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<String, Question> loaded = new HashMap<>();
+            for (BankQuestion entry : mongoTemplate.find(new Query(Criteria.where("_id").in(missing)), BankQuestion.class)) {
+                loaded.put(entry.getHash(), entry.getQuestion());
+                questions.put(entry.getHash(), entry.getQuestion());
+            }
+            for (int i = 0; i < resolved.length; i++) {
+                if (resolved[i] == null) {
+                    resolved[i] = loaded.get(hashes.get(i));
+                    if (resolved[i] == null) {
+                        throw new IllegalStateException("Question bank has no entry " + hashes.get(i));
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(Arrays.asList(resolved));
+    }
+
+    /* ===================== TEST MAPPING ===================== */
+
+    @EventListener
+    public void onBeforeConvert(BeforeConvertEvent<?> event) {
+        if (event.getSource() instanceof Test test && test.getQuestions() != null) {
+            test.setQuestionRefs(intern(test.getQuestions(), test.getQuestionRefs()));
+            test.setQuestionsUpdatedAt(Instant.now());
+        }
+    }
+
+    // The refs are the stored form; the embedded list is only kept on legacy documents
+    @EventListener
+    public void onBeforeSave(BeforeSaveEvent<?> event) {
+        if (event.getSource() instanceof Test test && test.getQuestionRefs() != null && event.getDocument() != null) {
+            event.getDocument().remove("questions");
+        }
+    }
+
+    @EventListener
+    public void onAfterConvert(AfterConvertEvent<?> event) {
+        if (event.getSource() instanceof Test test && test.getQuestionRefs() != null) {
+            test.setQuestions(resolve(test.getQuestionRefs()));
+        }
+    }
+
+    /* ===================== HASHING ===================== */
+
+    /**
+     * 128 bits of SHA-256 over every field of the question, base64url encoded. Fields are
+     * length-prefixed and nulls are distinct from empty values, so different questions
+     * cannot serialize to the same bytes.
+     */
+    public static String hash(Question question) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        update(digest, question.getType());
+        update(digest, question.getQuestionText());
+        update(digest, question.getPoints());
+        if (question.getOptions() == null) {
+            update(digest, -1);
+        } else {
+            update(digest, question.getOptions().size());
+            question.getOptions().forEach(option -> update(digest, option));
+        }
+        if (question.getCorrectAnswer() == null) {
+            update(digest, -1);
+        } else {
+            update(digest, question.getCorrectAnswer().size());
+            question.getCorrectAnswer().forEach(option -> update(digest, option != null ? option : -1));
+        }
+        update(digest, question.getWordLimit() != null ? question.getWordLimit() : -1);
+        update(digest, question.getSampleAnswer());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest.digest(), 16));
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value == null) {
+            update(digest, -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        update(digest, bytes.length);
+        digest.update(bytes);
+    }
+
+    private static void update(MessageDigest digest, int value) {
+        digest.update(ByteBuffer.allocate(4).putInt(value).array());
+    }
+}
@@ -0,0 +1,393 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.model.Question;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over question bank entries, ranked with BM25.
+ *
+ * One document per bank hash: the stemmed words of its text, its options and the subject of
+ * the first test it was seen in. Every test that uses the question adds its owner and subject
+ * to the document, so a search can be limited to one teacher's questions or one subject
+ * without touching the postings. Postings are parallel int arrays of document ids (appended
+ * in increasing order) and term frequencies.
+ *
+ * Appends and reads share a read-write lock. {@link #writeTo} / {@link #readFrom} store the
+ * postings as delta-encoded varints, so a restart does not re-tokenize every question.
+ */
+public final class QuestionSearchIndex {
+
+    public record Hit(String hash, double score, List<String> subjects) {}
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MAGIC = 0x51534958;
+    private static final int FORMAT = 1;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> docIds = new HashMap<>();
+    private final List<String> hashes = new ArrayList<>();
+    private final List<int[]> docOwners = new ArrayList<>();
+    private final List<int[]> docSubjects = new ArrayList<>();
+    private int[] lengths = new int[256];
+    private long totalLength;
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Dictionary owners = new Dictionary();
+    private final Dictionary subjects = new Dictionary();
+
+    // Largest test id folded in; tests after it still need indexing
+    private String watermark;
+
+    /* ===================== WRITES ===================== */
+
+    /**
+     * Indexes one question of a test. A hash that is already indexed only gains the owner
+     * and subject, so re-adding a test is cheap and changes nothing.
+     */
+    public void add(String hash, Question question, String ownerId, String subject) {
+        lock.writeLock().lock();
+        try {
+            int owner = owners.encode(ownerId);
+            int subjectCode = subjects.encode(subject);
+            Integer existing = docIds.get(hash);
+            if (existing != null) {
+                docOwners.set(existing, with(docOwners.get(existing), owner));
+                docSubjects.set(existing, with(docSubjects.get(existing), subjectCode));
+                return;
+            }
+
+            int doc = hashes.size();
+            Map<String, Integer> frequencies = new HashMap<>();
+            int length = 0;
+            for (String word : words(question, subject)) {
+                frequencies.merge(word, 1, Integer::sum);
+                length++;
+            }
+            frequencies.forEach((term, tf) -> postings.computeIfAbsent(term, t -> new Postings()).add(doc, tf));
+
+            docIds.put(hash, doc);
+            hashes.add(hash);
+            docOwners.add(new int[]{owner});
+            docSubjects.add(new int[]{subjectCode});
+            if (doc == lengths.length) {
+                lengths = Arrays.copyOf(lengths, doc * 2);
+            }
+            lengths[doc] = length;
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static List<String> words(Question question, String subject) {
+        StringBuilder text = new StringBuilder();
+        if (question.getQuestionText() != null) text.append(question.getQuestionText()).append(' ');
+        if (question.getOptions() != null) question.getOptions().forEach(o -> text.append(o).append(' '));
+        if (subject != null) text.append(subject);
+        return TextAnswerIndex.words(text.toString());
+    }
+
+    private static int[] with(int[] codes, int code) {
+        for (int c : codes) {
+            if (c == code) return codes;
+        }
+        int[] grown = Arrays.copyOf(codes, codes.length + 1);
+        grown[codes.length] = code;
+        return grown;
+    }
+
+    public String getWatermark() {
+        lock.readLock().lock();
+        try {
+            return watermark;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Only moves forward; ids compare as ObjectId hex strings of equal length
+    public void advanceWatermark(String testId) {
+        lock.writeLock().lock();
+        try {
+            if (watermark == null || testId.length() > watermark.length()
+                    || (testId.length() == watermark.length() && testId.compareTo(watermark) > 0)) {
+                watermark = testId;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return hashes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /* ===================== SEARCH ===================== */
+
+    /**
+     * Top documents for the query by BM25, best first.
+     *
+     * @param ownerId only questions used in this owner's tests; null for all
+     * @param subject only questions used in tests of this subject; null for all
+     */
+    public List<Hit> search(String query, String ownerId, String subject, int limit) {
+        Set<String> terms = new LinkedHashSet<>(TextAnswerIndex.words(query));
+        lock.readLock().lock();
+        try {
+            int documents = hashes.size();
+            if (terms.isEmpty() || documents == 0 || limit <= 0) {
+                return List.of();
+            }
+            int owner = ownerId != null ? owners.lookup(ownerId) : -1;
+            int subjectCode = subject != null ? subjects.lookup(subject) : -1;
+            if ((ownerId != null && owner < 0) || (subject != null && subjectCode < 0)) {
+                return List.of();
+            }
+
+            double averageLength = Math.max(1.0, (double) totalLength / documents);
+            double[] scores = new double[documents];
+            int[] matched = new int[documents];
+            int matchedCount = 0;
+            for (String term : terms) {
+                Postings list = postings.get(term);
+                if (list == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (documents - list.size + 0.5) / (list.size + 0.5));
+                for (int i = 0; i < list.size; i++) {
+                    int doc = list.docs[i];
+                    int tf = list.tfs[i];
+                    double norm = K1 * (1 - B + B * lengths[doc] / averageLength);
+                    if (scores[doc] == 0) {
+                        matched[matchedCount++] = doc;
+                    }
+                    scores[doc] += idf * tf * (K1 + 1) / (tf + norm);
+                }
+            }
+
+            PriorityQueue<Integer> top = new PriorityQueue<>(Comparator.comparingDouble(d -> scores[d]));
+            for (int i = 0; i < matchedCount; i++) {
+                int doc = matched[i];
+                if ((owner >= 0 && !contains(docOwners.get(doc), owner))
+                        || (subjectCode >= 0 && !contains(docSubjects.get(doc), subjectCode))) {
+                    continue;
+                }
+                top.add(doc);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            List<Hit> hits = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                int doc = top.poll();
+                List<String> docSubjectNames = new ArrayList<>();
+                for (int code : docSubjects.get(doc)) {
+                    docSubjectNames.add(subjects.decode(code));
+                }
+                hits.add(new Hit(hashes.get(doc), Math.round(scores[doc] * 1000) / 1000.0, docSubjectNames));
+            }
+            Collections.reverse(hits);
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean contains(int[] codes, int code) {
+        for (int c : codes) {
+            if (c == code) return true;
+        }
+        return false;
+    }
+
+    /* ===================== PERSISTENCE ===================== */
+
+    public void writeTo(OutputStream target) throws IOException {
+        lock.readLock().lock();
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(target, 64 * 1024));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeUTF(watermark != null ? watermark : "");
+            owners.writeTo(out);
+            subjects.writeTo(out);
+
+            writeVarint(out, hashes.size());
+            for (int doc = 0; doc < hashes.size(); doc++) {
+                out.writeUTF(hashes.get(doc));
+                writeVarint(out, lengths[doc]);
+                writeCodes(out, docOwners.get(doc));
+                writeCodes(out, docSubjects.get(doc));
+            }
+
+            writeVarint(out, postings.size());
+            for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+                Postings list = entry.getValue();
+                out.writeUTF(entry.getKey());
+                writeVarint(out, list.size);
+                int previous = 0;
+                for (int i = 0; i < list.size; i++) {
+                    writeVarint(out, list.docs[i] - previous);
+                    writeVarint(out, list.tfs[i]);
+                    previous = list.docs[i];
+                }
+            }
+            out.flush();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @throws IOException if the stream is not a snapshot of this format
+     */
+    public static QuestionSearchIndex readFrom(InputStream source) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(source, 64 * 1024));
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT) {
+            throw new IOException("Not a question search index snapshot of format " + FORMAT);
+        }
+        QuestionSearchIndex index = new QuestionSearchIndex();
+        String watermark = in.readUTF();
+        index.watermark = watermark.isEmpty() ? null : watermark;
+        index.owners.readFrom(in);
+        index.subjects.readFrom(in);
+
+        int documents = readVarint(in);
+        index.lengths = new int[Math.max(256, documents)];
+        for (int doc = 0; doc < documents; doc++) {
+            String hash = in.readUTF();
+            index.docIds.put(hash, doc);
+            index.hashes.add(hash);
+            index.lengths[doc] = readVarint(in);
+            index.totalLength += index.lengths[doc];
+            index.docOwners.add(readCodes(in));
+            index.docSubjects.add(readCodes(in));
+        }
+
+        int terms = readVarint(in);
+        for (int t = 0; t < terms; t++) {
+            String term = in.readUTF();
+            int size = readVarint(in);
+            Postings list = new Postings(size);
+            int doc = 0;
+            for (int i = 0; i < size; i++) {
+                doc += readVarint(in);
+                list.add(doc, readVarint(in));
+            }
+            index.postings.put(term, list);
+        }
+        return index;
+    }
+
+    private static void writeCodes(DataOutputStream out, int[] codes) throws IOException {
+        writeVarint(out, codes.length);
+        for (int code : codes) {
+            writeVarint(out, code);
+        }
+    }
+
+    private static int[] readCodes(DataInputStream in) throws IOException {
+        int[] codes = new int[readVarint(in)];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = readVarint(in);
+        }
+        return codes;
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /* ===================== STORAGE ===================== */
+
+    private static final class Postings {
+        int[] docs;
+        int[] tfs;
+        int size;
+
+        Postings() {
+            this(4);
+        }
+
+        Postings(int capacity) {
+            docs = new int[Math.max(1, capacity)];
+            tfs = new int[docs.length];
+        }
+
+        void add(int doc, int tf) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                tfs = Arrays.copyOf(tfs, size * 2);
+            }
+            docs[size] = doc;
+            tfs[size] = tf;
+            size++;
+        }
+    }
+
+    // String <-> dense int code, guarded by the index lock
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            String key = value != null ? value : "";
+            Integer code = codes.get(key);
+            if (code == null) {
+                code = values.size();
+                codes.put(key, code);
+                values.add(key);
+            }
+            return code;
+        }
+
+        int lookup(String value) {
+            return codes.getOrDefault(value, -1);
+        }
+
+        String decode(int code) {
+            return values.get(code);
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            writeVarint(out, values.size());
+            for (String value : values) {
+                out.writeUTF(value);
+            }
+        }
+
+        void readFrom(DataInputStream in) throws IOException {
+            int count = readVarint(in);
+            for (int i = 0; i < count; i++) {
+                encode(in.readUTF());
+            }
+        }
+    }
+}
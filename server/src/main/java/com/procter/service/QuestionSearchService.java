@@ -0,0 +1,286 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.dto.QuestionSearchResult;
+import com.procter.procter_app.model.Question;
+import com.procter.procter_app.model.QuestionRef;
+import com.procter.procter_app.model.Test;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Question search for teachers building a test, backed by a {@link QuestionSearchIndex}.
+ *
+ * At startup the last snapshot is read from app.question-search.index-file; tests created
+ * after its watermark, and tests whose questions changed since it was written, are streamed
+ * in. Without a snapshot every test is indexed once. Tests saved afterwards are added as they
+ * are saved (answer key edits, which bypass the save events, through {@link #reindex}), and
+ * the snapshot is rewritten in the background whenever the index changed.
+ *
+ * The index only ever gains questions, so an edited question stays in it under its old hash.
+ * Teachers only search the questions of their own tests, and each result is checked against
+ * the questions those tests use now.
+ */
+@Service
+public class QuestionSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(QuestionSearchService.class);
+    // Saves whose event reached the index only after the snapshot was written
+    private static final Duration SNAPSHOT_SLACK = Duration.ofMinutes(1);
+
+    private final MongoTemplate mongoTemplate;
+    private final QuestionBank questionBank;
+    private final Path indexFile;
+    private final int maxResults;
+
+    private volatile QuestionSearchIndex index = new QuestionSearchIndex();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    // Guarded by pendingDuringLoad
+    private boolean loading = true;
+    private final List<Test> pendingDuringLoad = new ArrayList<>();
+
+    public QuestionSearchService(MongoTemplate mongoTemplate,
+                                 QuestionBank questionBank,
+                                 @Value("${app.question-search.index-file:${java.io.tmpdir}/procter-question-index.bin}") String indexFile,
+                                 @Value("${app.question-search.max-results:50}") int maxResults) {
+        this.mongoTemplate = mongoTemplate;
+        this.questionBank = questionBank;
+        this.indexFile = Paths.get(indexFile);
+        this.maxResults = Math.max(1, maxResults);
+    }
+
+    /* ===================== LOADING ===================== */
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        Thread loader = new Thread(this::load, "question-search-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void load() {
+        long started = System.currentTimeMillis();
+        Instant snapshotAt = snapshotTime();
+        QuestionSearchIndex loaded = readSnapshot();
+        int fromSnapshot = loaded.size();
+        try {
+            Query query = new Query();
+            if (loaded.getWatermark() != null && snapshotAt != null) {
+                query.addCriteria(new Criteria().orOperator(
+                        Criteria.where("_id").gt(new ObjectId(loaded.getWatermark())),
+                        Criteria.where("questionsUpdatedAt").gte(snapshotAt.minus(SNAPSHOT_SLACK))));
+            }
+            query.fields().include("subject", "createdByTeacherId", "questionRefs", "questions");
+            query.with(Sort.by(Sort.Direction.ASC, "_id"));
+            query.cursorBatchSize(200);
+            int[] streamed = {0};
+            try (Stream<Test> tests = mongoTemplate.stream(query, Test.class)) {
+                tests.forEach(test -> {
+                    add(loaded, test);
+                    streamed[0]++;
+                });
+            }
+            dirty.set(streamed[0] > 0);
+        } catch (Exception e) {
+            log.error("Question search index could not catch up with stored tests", e);
+        }
+        synchronized (pendingDuringLoad) {
+            pendingDuringLoad.forEach(test -> add(loaded, test));
+            dirty.compareAndSet(false, !pendingDuringLoad.isEmpty());
+            pendingDuringLoad.clear();
+            index = loaded;
+            loading = false;
+        }
+        log.info("Question search index ready: {} questions ({} from snapshot) in {} ms",
+                loaded.size(), fromSnapshot, System.currentTimeMillis() - started);
+        saveSnapshot();
+    }
+
+    private Instant snapshotTime() {
+        try {
+            return Files.isRegularFile(indexFile) ? Files.getLastModifiedTime(indexFile).toInstant() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private QuestionSearchIndex readSnapshot() {
+        if (!Files.isRegularFile(indexFile)) {
+            return new QuestionSearchIndex();
+        }
+        try (InputStream in = Files.newInputStream(indexFile)) {
+            return QuestionSearchIndex.readFrom(in);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable question search snapshot {}: {}", indexFile, e.getMessage());
+            return new QuestionSearchIndex();
+        }
+    }
+
+    @EventListener
+    public void onAfterSave(AfterSaveEvent<?> event) {
+        if (event.getSource() instanceof Test test) {
+            addLive(test);
+        }
+    }
+
+    /**
+     * Indexes the test's current questions after a write that fired no save event, such as
+     * an answer key edit.
+     */
+    public void reindex(String testId) {
+        Query query = new Query(Criteria.where("_id").is(testId));
+        query.fields().include("subject", "createdByTeacherId", "questionRefs", "questions");
+        Test test = mongoTemplate.findOne(query, Test.class);
+        if (test != null) {
+            addLive(test);
+        }
+    }
+
+    private void addLive(Test test) {
+        synchronized (pendingDuringLoad) {
+            if (loading) {
+                pendingDuringLoad.add(test);
+                return;
+            }
+        }
+        add(index, test);
+        dirty.set(true);
+    }
+
+    private static void add(QuestionSearchIndex target, Test test) {
+        List<Question> questions = test.getQuestions();
+        List<QuestionRef> refs = test.getQuestionRefs();
+        if (questions != null) {
+            for (int i = 0; i < questions.size(); i++) {
+                String hash = refs != null && i < refs.size() ? refs.get(i).getHash() : QuestionBank.hash(questions.get(i));
+                target.add(hash, questions.get(i), test.getCreatedByTeacherId(), test.getSubject());
+            }
+        }
+        if (test.getId() != null) {
+            target.advanceWatermark(test.getId());
+        }
+    }
+
+    /* ===================== SNAPSHOTS ===================== */
+
+    @Scheduled(fixedDelayString = "${app.question-search.snapshot-interval-ms:300000}",
+            initialDelayString = "${app.question-search.snapshot-interval-ms:300000}")
+    public void saveSnapshot() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        Path partial = indexFile.resolveSibling(indexFile.getFileName() + ".part");
+        try {
+            if (indexFile.getParent() != null) {
+                Files.createDirectories(indexFile.getParent());
+            }
+            try (OutputStream out = Files.newOutputStream(partial)) {
+                index.writeTo(out);
+            }
+            Files.move(partial, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty.set(true);
+            log.warn("Could not write question search snapshot {}: {}", indexFile, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        saveSnapshot();
+    }
+
+    /* ===================== SEARCH ===================== */
+
+    /**
+     * Best matches among the questions of the teacher's own tests.
+     *
+     * @param subject optional; only questions used in tests of this subject
+     */
+    public List<QuestionSearchResult> search(String teacherId, String query, String subject, Integer limit) {
+        int size = limit != null && limit > 0 ? Math.min(limit, maxResults) : Math.min(20, maxResults);
+        // Over-fetched: hits for questions the teacher has since edited away are dropped below
+        List<QuestionSearchIndex.Hit> candidates = index.search(query, teacherId, subject, size * 2);
+        Set<String> used = usedHashes(teacherId, subject, candidates);
+        List<QuestionSearchIndex.Hit> hits = new ArrayList<>(size);
+        List<String> hashes = new ArrayList<>(size);
+        for (QuestionSearchIndex.Hit hit : candidates) {
+            if (hits.size() < size && used.contains(hit.hash())) {
+                hits.add(hit);
+                hashes.add(hit.hash());
+            }
+        }
+        List<Question> questions = questionBank.lookup(hashes);
+        List<QuestionSearchResult> results = new ArrayList<>(hits.size());
+        for (int i = 0; i < hits.size(); i++) {
+            QuestionSearchIndex.Hit hit = hits.get(i);
+            results.add(new QuestionSearchResult(hit.hash(), hit.score(), hit.subjects(), questions.get(i)));
+        }
+        return results;
+    }
+
+    // Which of the hits a test of the teacher still uses; read as raw documents so no questions are resolved
+    private Set<String> usedHashes(String teacherId, String subject, List<QuestionSearchIndex.Hit> hits) {
+        if (hits.isEmpty()) {
+            return Set.of();
+        }
+        List<String> candidates = new ArrayList<>(hits.size());
+        for (QuestionSearchIndex.Hit hit : hits) {
+            candidates.add(hit.hash());
+        }
+        Query query = new Query(Criteria.where("createdByTeacherId").is(teacherId));
+        if (subject != null) {
+            query.addCriteria(Criteria.where("subject").is(subject));
+        }
+        // Legacy documents embed their questions and are hashed here instead
+        query.addCriteria(new Criteria().orOperator(
+                Criteria.where("questionRefs.hash").in(candidates),
+                Criteria.where("questionRefs").exists(false)));
+        query.fields().include("questionRefs.hash", "questions");
+
+        Set<String> used = new HashSet<>();
+        for (Document test : mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(Test.class))) {
+            List<Document> refs = test.getList("questionRefs", Document.class);
+            if (refs != null) {
+                refs.forEach(ref -> used.add(ref.getString("hash")));
+                continue;
+            }
+            List<Document> questions = test.getList("questions", Document.class);
+            if (questions != null) {
+                questions.forEach(q -> used.add(QuestionBank.hash(mongoTemplate.getConverter().read(Question.class, q))));
+            }
+        }
+        used.retainAll(candidates);
+        return used;
+    }
+
+    public boolean isReady() {
+        synchronized (pendingDuringLoad) {
+            return !loading;
+        }
+    }
+}
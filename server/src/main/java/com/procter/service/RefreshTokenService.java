@@ -0,0 +1,184 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.dto.TokenRefreshResponse;
+import com.procter.procter_app.model.RefreshToken;
+import com.procter.procter_app.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Issues and rotates refresh tokens so a student can stay signed in through a long exam
+ * without going back through the password check.
+ *
+ * A token is "sessionId.secret". A refresh is one findAndModify on the session's _id that
+ * only matches the current secret hash and swaps in a new one, followed by signing a new
+ * access token from the claims stored on the session. Presenting a secret that was already
+ * rotated out is treated as token theft and deletes the session, except for a short grace
+ * window that absorbs two tabs refreshing at the same moment.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Duration REUSE_GRACE = Duration.ofSeconds(10);
+
+    private final MongoTemplate mongoTemplate;
+    private final JwtService jwtService;
+    private final Duration slidingTtl;
+    private final Duration absoluteTtl;
+
+    public RefreshTokenService(MongoTemplate mongoTemplate,
+                               JwtService jwtService,
+                               @Value("${app.auth.refresh.sliding-minutes:720}") long slidingMinutes,
+                               @Value("${app.auth.refresh.absolute-hours:72}") long absoluteHours) {
+        this.mongoTemplate = mongoTemplate;
+        this.jwtService = jwtService;
+        this.slidingTtl = Duration.ofMinutes(slidingMinutes);
+        this.absoluteTtl = Duration.ofHours(absoluteHours);
+    }
+
+    /* ===================== ISSUE / ROTATE ===================== */
+
+    /**
+     * Starts a new refresh session for a user who has just logged in.
+     *
+     * @return the refresh token to hand to the client (the secret is not stored)
+     */
+    public String issue(User user) {
+        Instant now = Instant.now();
+        String secret = randomToken(32);
+
+        RefreshToken session = new RefreshToken();
+        session.setId(randomToken(16));
+        session.setUserId(user.getId());
+        session.setEmail(user.getEmail());
+        session.setRole(user.getRole().name());
+        session.setSecretHash(hash(secret));
+        session.setCreatedAt(now);
+        session.setLastUsedAt(now);
+        session.setAbsoluteExpiresAt(now.plus(absoluteTtl));
+        session.setExpiresAt(min(now.plus(slidingTtl), session.getAbsoluteExpiresAt()));
+        mongoTemplate.insert(session);
+
+        return session.getId() + "." + secret;
+    }
+
+    /**
+     * Exchanges a refresh token for a new access token and a new refresh token.
+     *
+     * @return empty if the token is unknown, expired, revoked or was already used
+     */
+    public Optional<TokenRefreshResponse> refresh(String presented) {
+        int dot = presented != null ? presented.indexOf('.') : -1;
+        if (dot <= 0 || dot == presented.length() - 1) {
+            return Optional.empty();
+        }
+        String sessionId = presented.substring(0, dot);
+        String presentedHash = hash(presented.substring(dot + 1));
+
+        Instant now = Instant.now();
+        String secret = randomToken(32);
+        Query current = new Query(Criteria.where("_id").is(sessionId)
+                .and("secretHash").is(presentedHash)
+                .and("expiresAt").gt(now)
+                .and("absoluteExpiresAt").gt(now));
+        // expiresAt may slide past absoluteExpiresAt; the query above still rejects the session then
+        Update rotate = new Update()
+                .set("secretHash", hash(secret))
+                .set("previousHash", presentedHash)
+                .set("lastUsedAt", now)
+                .set("expiresAt", now.plus(slidingTtl))
+                .inc("rotations", 1);
+        RefreshToken session = mongoTemplate.findAndModify(current, rotate,
+                FindAndModifyOptions.options().returnNew(true), RefreshToken.class);
+
+        if (session == null) {
+            handleRejected(sessionId, presentedHash, now);
+            return Optional.empty();
+        }
+
+        String accessToken = jwtService.generateToken(
+                session.getEmail(),
+                Map.of("role", session.getRole(), "uid", session.getUserId())
+        );
+        return Optional.of(new TokenRefreshResponse(accessToken, sessionId + "." + secret, jwtService.getExpirationMs()));
+    }
+
+    private void handleRejected(String sessionId, String presentedHash, Instant now) {
+        RefreshToken session = mongoTemplate.findById(sessionId, RefreshToken.class);
+        if (session == null || presentedHash.equals(session.getSecretHash())) {
+            // Unknown or simply expired
+            return;
+        }
+        boolean racingDuplicate = presentedHash.equals(session.getPreviousHash())
+                && session.getLastUsedAt() != null
+                && session.getLastUsedAt().plus(REUSE_GRACE).isAfter(now);
+        if (racingDuplicate) {
+            return;
+        }
+        log.warn("Refresh token reuse detected for user {}; revoking session {}", session.getUserId(), sessionId);
+        mongoTemplate.remove(new Query(Criteria.where("_id").is(sessionId)), RefreshToken.class);
+    }
+
+    /* ===================== REVOCATION ===================== */
+
+    // Logout: only the holder of the current secret can end the session
+    public void revoke(String presented) {
+        int dot = presented != null ? presented.indexOf('.') : -1;
+        if (dot <= 0) {
+            return;
+        }
+        mongoTemplate.remove(new Query(Criteria.where("_id").is(presented.substring(0, dot))
+                .and("secretHash").is(hash(presented.substring(dot + 1)))), RefreshToken.class);
+    }
+
+    public void revokeAllForUser(String userId) {
+        mongoTemplate.remove(new Query(Criteria.where("userId").is(userId)), RefreshToken.class);
+    }
+
+    // Access tokens are issued for the email, so sessions must follow an email change
+    public void onEmailChanged(String userId, String email) {
+        mongoTemplate.updateMulti(new Query(Criteria.where("userId").is(userId)),
+                new Update().set("email", email), RefreshToken.class);
+    }
+
+    /* ===================== INTERNAL ===================== */
+
+    private static String randomToken(int bytes) {
+        byte[] buffer = new byte[bytes];
+        RANDOM.nextBytes(buffer);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer);
+    }
+
+    private static String hash(String secret) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Instant min(Instant a, Instant b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
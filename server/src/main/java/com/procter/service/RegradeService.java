@@ -0,0 +1,404 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.model.AnswerSheet;
+import com.procter.procter_app.model.Question;
+import com.procter.procter_app.model.Test;
+import com.procter.procter_app.model.TestAttempt;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Answer-key edits and the regrade that follows them.
+ *
+ * A regrade streams the test's completed attempts through a cursor (answers plus the graded
+ * fields only), cuts the stream into batches and regrades each batch on a worker pool with
+ * the freshly compiled {@link AnswerKey}. Only attempts whose result changed are written,
+ * as one unordered bulk update per batch. Progress goes to the test's events topic.
+ *
+ * Regrading is a pure function of the stored answers and the key, so rerunning it is safe:
+ * a second run finds nothing to change. Text answers keep the isCorrect a teacher confirmed.
+ * A key edit that arrives while a job runs marks that job stale; one more run, compiled from
+ * the key stored by then, follows as soon as it finishes.
+ */
+@Service
+public class RegradeService {
+
+    public enum Status { RUNNING, COMPLETED, FAILED }
+
+    public static final class RegradeJob {
+        private final String testId;
+        private final Instant startedAt = Instant.now();
+        private volatile Status status = Status.RUNNING;
+        private volatile long total;
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong changed = new AtomicLong();
+        private volatile Instant finishedAt;
+        private volatile String error;
+        // Set when the key changed after this job compiled it; guarded by jobs.compute
+        private boolean stale;
+
+        RegradeJob(String testId) {
+            this.testId = testId;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("testId", testId);
+            map.put("status", status);
+            map.put("total", total);
+            map.put("processed", processed.get());
+            map.put("changed", changed.get());
+            map.put("startedAt", startedAt.toString());
+            map.put("finishedAt", finishedAt != null ? finishedAt.toString() : null);
+            map.put("error", error);
+            return map;
+        }
+
+        public Status getStatus() { return status; }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(RegradeService.class);
+    private static final long PROGRESS_INTERVAL_MS = 500;
+    // Re-reads of one attempt whose grades changed between the batch read and its write
+    private static final int MAX_WRITE_TRIES = 5;
+    private static final String[] GRADED_FIELDS =
+            {"studentId", "sheet.choices", "sheet.correct", "answers", "correctAnswers", "totalQuestions", "score"};
+
+    private final MongoTemplate mongoTemplate;
+    private final QuestionBank questionBank;
+    private final GradingService gradingService;
+    private final CoalescingLoader coalescingLoader;
+    private final StudentTestViewCache studentTestViewCache;
+    private final AnswerPatternService answerPatternService;
+    private final TextGradingService textGradingService;
+    private final TestStatsService testStatsService;
+    private final AttemptAnalyticsService attemptAnalyticsService;
+    private final AnalyticsPrecomputeService analyticsPrecomputeService;
+    private final QuestionSearchService questionSearchService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final int batchSize;
+    private final int threads;
+
+    private final Map<String, RegradeJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService runner;
+    private final ExecutorService workers;
+
+    public RegradeService(MongoTemplate mongoTemplate,
+                          QuestionBank questionBank,
+                          GradingService gradingService,
+                          CoalescingLoader coalescingLoader,
+                          StudentTestViewCache studentTestViewCache,
+                          AnswerPatternService answerPatternService,
+                          TextGradingService textGradingService,
+                          TestStatsService testStatsService,
+                          AttemptAnalyticsService attemptAnalyticsService,
+                          AnalyticsPrecomputeService analyticsPrecomputeService,
+                          QuestionSearchService questionSearchService,
+                          SimpMessagingTemplate messagingTemplate,
+                          @Value("${app.regrade.batch-size:500}") int batchSize,
+                          @Value("${app.regrade.threads:4}") int threads) {
+        this.mongoTemplate = mongoTemplate;
+        this.questionBank = questionBank;
+        this.gradingService = gradingService;
+        this.coalescingLoader = coalescingLoader;
+        this.studentTestViewCache = studentTestViewCache;
+        this.answerPatternService = answerPatternService;
+        this.textGradingService = textGradingService;
+        this.testStatsService = testStatsService;
+        this.attemptAnalyticsService = attemptAnalyticsService;
+        this.analyticsPrecomputeService = analyticsPrecomputeService;
+        this.questionSearchService = questionSearchService;
+        this.messagingTemplate = messagingTemplate;
+        this.batchSize = Math.max(1, batchSize);
+        this.threads = Math.max(1, threads);
+        this.runner = Executors.newCachedThreadPool(DaemonThreads.named("regrade-job-"));
+        this.workers = Executors.newFixedThreadPool(this.threads, DaemonThreads.named("regrade-worker-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /* ===================== ANSWER KEY ===================== */
+
+    /**
+     * Replaces the correct options of the given multiple-choice questions, drops everything
+     * derived from the old key and starts a regrade.
+     *
+     * @param correctAnswers question index -> correct option indexes
+     * @throws IllegalArgumentException if an index is not a multiple-choice question or an option is out of range
+     */
+    public RegradeJob updateAnswerKey(Test test, Map<Integer, List<Integer>> correctAnswers) {
+        List<Question> questions = test.getQuestions() != null ? test.getQuestions() : List.of();
+        // Bank questions are shared with other tests: edited ones are copies stored under a new hash
+        List<Question> edited = new ArrayList<>(questions);
+        for (Map.Entry<Integer, List<Integer>> change : correctAnswers.entrySet()) {
+            int index = change.getKey();
+            if (index < 0 || index >= questions.size()
+                    || questions.get(index).getOptions() == null || questions.get(index).getOptions().isEmpty()) {
+                throw new IllegalArgumentException("Question " + index + " is not a multiple-choice question");
+            }
+            List<Integer> options = change.getValue();
+            int optionCount = questions.get(index).getOptions().size();
+            if (options == null || options.isEmpty()
+                    || options.stream().anyMatch(o -> o == null || o < 0 || o >= optionCount)) {
+                throw new IllegalArgumentException("Question " + index + " needs options between 0 and " + (optionCount - 1));
+            }
+            Question copy = new Question(questions.get(index));
+            copy.setCorrectAnswer(new ArrayList<>(new TreeSet<>(options)));
+            edited.set(index, copy);
+        }
+        if (correctAnswers.isEmpty()) {
+            throw new IllegalArgumentException("No answer key changes given");
+        }
+        Update update = new Update()
+                .set("questionRefs", questionBank.intern(edited, test.getQuestionRefs()))
+                .unset("questions")
+                .set("questionsUpdatedAt", Instant.now());
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(test.getId())), update, Test.class);
+
+        coalescingLoader.forget(test);
+        gradingService.invalidate(test.getId());
+        studentTestViewCache.invalidate(test.getId());
+        answerPatternService.invalidate(test.getId());
+        textGradingService.invalidate(test.getId());
+        // updateFirst fires no save event, so the search index is told directly
+        questionSearchService.reindex(test.getId());
+        return start(test.getId(), true);
+    }
+
+    /* ===================== REGRADE ===================== */
+
+    // At most one job per test runs at a time; asking again while it runs returns that job
+    public RegradeJob start(String testId) {
+        return start(testId, false);
+    }
+
+    private RegradeJob start(String testId, boolean keyChanged) {
+        RegradeJob[] created = new RegradeJob[1];
+        RegradeJob job = jobs.compute(testId, (id, current) -> {
+            if (current != null && current.status == Status.RUNNING) {
+                // It may already have compiled the old key; rerun once it is done
+                current.stale |= keyChanged;
+                return current;
+            }
+            created[0] = new RegradeJob(id);
+            return created[0];
+        });
+        if (created[0] != null) {
+            runner.execute(() -> run(created[0]));
+        }
+        return job;
+    }
+
+    public Optional<RegradeJob> lastJob(String testId) {
+        return Optional.ofNullable(jobs.get(testId));
+    }
+
+    private void run(RegradeJob job) {
+        String testId = job.testId;
+        long started = System.currentTimeMillis();
+        try {
+            Test test = mongoTemplate.findById(testId, Test.class);
+            if (test == null) {
+                throw new IllegalStateException("Test not found");
+            }
+            // Not cached: this test document may already be older than a concurrent key edit
+            AnswerKey key = AnswerKey.compile(test);
+
+            Query query = new Query(Criteria.where("testId").is(testId).and("isCompleted").is(true));
+            job.total = mongoTemplate.count(query, TestAttempt.class);
+            query.fields().include(GRADED_FIELDS);
+            query.cursorBatchSize(1000);
+
+            // Bounds the batches held in memory to a couple per worker
+            Semaphore inFlight = new Semaphore(threads * 2);
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            AtomicLong lastProgress = new AtomicLong();
+            List<TestAttempt> batch = new ArrayList<>(batchSize);
+            try (Stream<TestAttempt> attempts = mongoTemplate.stream(query, TestAttempt.class)) {
+                for (TestAttempt attempt : (Iterable<TestAttempt>) attempts::iterator) {
+                    batch.add(attempt);
+                    if (batch.size() == batchSize) {
+                        submit(job, key, batch, inFlight, failure, lastProgress);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                    if (failure.get() != null) {
+                        break;
+                    }
+                }
+            }
+            if (!batch.isEmpty() && failure.get() == null) {
+                submit(job, key, batch, inFlight, failure, lastProgress);
+            }
+            inFlight.acquire(threads * 2);
+            if (failure.get() != null) {
+                throw new IllegalStateException("Regrade batch failed", failure.get());
+            }
+
+            if (job.changed.get() > 0) {
+                testStatsService.rebuild(testId);
+                attemptAnalyticsService.reload();
+            }
+            job.status = Status.COMPLETED;
+            log.info("Regraded test {}: {} attempts, {} changed in {} ms",
+                    testId, job.processed.get(), job.changed.get(), System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            job.error = e.getMessage();
+            job.status = Status.FAILED;
+            log.error("Regrade of test {} failed", testId, e);
+        } finally {
+            job.finishedAt = Instant.now();
+            publish(job, job.status == Status.COMPLETED ? "REGRADE_COMPLETED" : "REGRADE_FAILED");
+            rerunIfStale(job);
+        }
+    }
+
+    // The status is no longer RUNNING here, so a key edit from now on starts its own job
+    private void rerunIfStale(RegradeJob finished) {
+        RegradeJob[] created = new RegradeJob[1];
+        jobs.compute(finished.testId, (id, current) -> {
+            if (current == finished && finished.stale) {
+                created[0] = new RegradeJob(id);
+                return created[0];
+            }
+            return current;
+        });
+        if (created[0] != null) {
+            log.info("Answer key of test {} changed during its regrade; running it again", finished.testId);
+            runner.execute(() -> run(created[0]));
+        }
+    }
+
+    private void submit(RegradeJob job, AnswerKey key, List<TestAttempt> batch, Semaphore inFlight,
+                        AtomicReference<Throwable> failure, AtomicLong lastProgress) throws InterruptedException {
+        inFlight.acquire();
+        try {
+            workers.execute(() -> {
+                try {
+                    regradeBatch(job, key, batch);
+                    long now = System.currentTimeMillis();
+                    long last = lastProgress.get();
+                    if (now - last >= PROGRESS_INTERVAL_MS && lastProgress.compareAndSet(last, now)) {
+                        publish(job, "REGRADE_PROGRESS");
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    private void regradeBatch(RegradeJob job, AnswerKey key, List<TestAttempt> batch) {
+        BulkOperations bulk = null;
+        Set<String> changedStudents = new HashSet<>();
+        List<String> changedIds = new ArrayList<>();
+        int changed = 0;
+        for (TestAttempt attempt : batch) {
+            // Taken before regrade() changes the copy: a confirm that lands first makes the write miss
+            Query unchanged = GradingService.unchangedGrades(attempt);
+            Update update = regrade(attempt, key);
+            if (update != null) {
+                if (bulk == null) {
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TestAttempt.class);
+                }
+                bulk.updateOne(unchanged, update);
+                changedStudents.add(attempt.getStudentId());
+                changedIds.add(attempt.getId());
+                changed++;
+            }
+        }
+        if (bulk != null) {
+            if (bulk.execute().getMatchedCount() < changed) {
+                // Some attempts changed since the batch was read; the rest are already correct
+                changedIds.forEach(id -> regradeOne(id, key));
+            }
+            // Their precomputed analytics hold the old scores
+            analyticsPrecomputeService.invalidate(changedStudents);
+        }
+        job.changed.addAndGet(changed);
+        job.processed.addAndGet(batch.size());
+    }
+
+    // Re-reads and conditionally rewrites one attempt until its write lands or nothing is left to change
+    private void regradeOne(String attemptId, AnswerKey key) {
+        for (int tries = 0; tries < MAX_WRITE_TRIES; tries++) {
+            Query byId = new Query(Criteria.where("_id").is(attemptId));
+            byId.fields().include(GRADED_FIELDS);
+            TestAttempt attempt = mongoTemplate.findOne(byId, TestAttempt.class);
+            if (attempt == null) {
+                return;
+            }
+            Query unchanged = GradingService.unchangedGrades(attempt);
+            Update update = regrade(attempt, key);
+            if (update == null || mongoTemplate.updateFirst(unchanged, update, TestAttempt.class).getMatchedCount() > 0) {
+                return;
+            }
+        }
+        throw new IllegalStateException("Attempt " + attemptId + " kept changing while it was being regraded");
+    }
+
+    /**
+     * @return the update bringing the attempt in line with the key, or null if nothing changes
+     */
+    static Update regrade(TestAttempt attempt, AnswerKey key) {
+        AnswerSheet sheet = attempt.getSheet() != null ? attempt.getSheet() : new AnswerSheet(0);
+        boolean changed = false;
+        for (int q = 0, n = Math.min(sheet.size(), key.size()); q < n; q++) {
+            if (key.isAutoGraded(q)) {
+                boolean isCorrect = key.isCorrect(q, sheet.choice(q));
+                if (isCorrect != sheet.isCorrect(q)) {
+                    sheet.setCorrect(q, isCorrect);
+                    changed = true;
+                }
+            }
+        }
+        int correct = sheet.correctCount();
+        int total = key.size();
+        int score = GradingService.score(correct, total);
+        if (changed || correct != attempt.getCorrectAnswers() || total != attempt.getTotalQuestions()
+                || score != attempt.getScore()) {
+            // Legacy documents are rewritten whole so they never end up with a partial sheet
+            Update update = attempt.hasLegacyAnswers()
+                    ? new Update().set("sheet", sheet).unset("answers")
+                    : new Update().set("sheet.correct", sheet.getCorrect());
+            return update.set("correctAnswers", correct)
+                    .set("totalQuestions", total)
+                    .set("score", score)
+                    .set("regradedAt", Instant.now());
+        }
+        return null;
+    }
+
+    private void publish(RegradeJob job, String type) {
+        Map<String, Object> event = new LinkedHashMap<>(job.toMap());
+        event.put("type", type);
+        event.put("timestamp", Instant.now().toString());
+        event.values().removeIf(Objects::isNull);
+        messagingTemplate.convertAndSend("/topic/test/" + job.testId + "/events", event);
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.procter.procter_app.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.procter.procter_app.cache.CacheRegistry;
+import com.procter.procter_app.cache.ExpiringLruCache;
+import com.procter.procter_app.dto.StudentTestView;
+import com.procter.procter_app.model.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Student view of each test, serialized and gzipped once and then served as bytes.
+ *
+ * The ETag is a hash of the JSON, so it changes exactly when the student-visible content
+ * changes. Entries also carry who may read them (creator and participants), so a cache
+ * hit needs no Mongo read at all. Anything that edits a test must call {@link #invalidate}.
+ */
+@Service
+public class StudentTestViewCache {
+
+    public record RenderedView(String testId, String createdByTeacherId, Set<String> participantIds,
+                               byte[] json, byte[] gzip, String etag) {
+
+        // Strong validators name exactly one representation, so the gzip body has its own
+        public String gzipEtag() {
+            return etag.substring(0, etag.length() - 1) + "-gz\"";
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final MongoTemplate mongoTemplate;
+    private final ExpiringLruCache<String, RenderedView> views;
+
+    public StudentTestViewCache(ObjectMapper objectMapper,
+                                MongoTemplate mongoTemplate,
+                                CacheRegistry cacheRegistry,
+                                @Value("${app.tests.student-view-cache.max-size:500}") int maxSize,
+                                @Value("${app.tests.student-view-cache.ttl-minutes:30}") long ttlMinutes) {
+        this.objectMapper = objectMapper;
+        this.mongoTemplate = mongoTemplate;
+        this.views = cacheRegistry.register(
+                new ExpiringLruCache<>("studentTestViews", maxSize, Duration.ofMinutes(ttlMinutes)));
+    }
+
+    public RenderedView get(String testId) {
+        return views.get(testId);
+    }
+
+    public RenderedView render(Test test) {
+        RenderedView view = build(test);
+        views.put(test.getId(), view);
+        return view;
+    }
+
+    /**
+     * Whether the student may read the cached view. Students who joined after the entry
+     * was built are confirmed with an indexed existence check and then remembered.
+     */
+    public boolean isParticipant(RenderedView view, String studentId) {
+        if (view.participantIds().contains(studentId)) {
+            return true;
+        }
+        boolean joined = mongoTemplate.exists(
+                new Query(Criteria.where("_id").is(view.testId()).and("participantIds").is(studentId)), Test.class);
+        if (joined) {
+            view.participantIds().add(studentId);
+        }
+        return joined;
+    }
+
+    public void onParticipantJoined(String testId, String studentId) {
+        RenderedView view = views.get(testId);
+        if (view != null) {
+            view.participantIds().add(studentId);
+        }
+    }
+
+    public void invalidate(String testId) {
+        views.invalidate(testId);
+    }
+
+    private RenderedView build(Test test) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(StudentTestView.of(test));
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length / 3 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+                gzip.write(json);
+            }
+            Set<String> participants = ConcurrentHashMap.newKeySet();
+            if (test.getParticipantIds() != null) {
+                participants.addAll(test.getParticipantIds());
+            }
+            return new RenderedView(test.getId(), test.getCreatedByTeacherId(), participants,
+                    json, buffer.toByteArray(), etag(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize test " + test.getId(), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String etag(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.dto.AttemptSummary;
+import com.procter.procter_app.dto.PageResponse;
+import com.procter.procter_app.dto.TestSummary;
+import com.procter.procter_app.model.Test;
+import com.procter.procter_app.model.TestAttempt;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Summary lists for dashboards, paged by keyset rather than skip/limit.
+ *
+ * Each page is one index range scan that starts right after the cursor position and reads
+ * limit + 1 entries, so the cost of page 50 is the same as page 1 (the indexes are declared
+ * on TestAttempt and Test). Rows are projected to summaries: no attempt answers, no test
+ * questions or participant sets.
+ */
+@Service
+public class SummaryPageService {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final String[] ATTEMPT_SUMMARY_FIELDS = {
+            "testId", "testTitle", "subject", "joinCode", "score",
+            "correctAnswers", "totalQuestions", "durationInMinutes", "completedAt"
+    };
+
+    private final MongoTemplate mongoTemplate;
+
+    public SummaryPageService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /* ===================== ATTEMPTS ===================== */
+
+    /**
+     * Completed attempts of a student, newest first.
+     *
+     * @throws IllegalArgumentException if the cursor is not one this service issued
+     */
+    public PageResponse<AttemptSummary> completedAttempts(String studentId, String cursor, Integer limit) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        int size = pageSize(limit);
+
+        Query query = new Query(Criteria.where("studentId").is(studentId).and("isCompleted").is(true));
+        if (position != null) {
+            Date after = new Date(position.sortKey());
+            query.addCriteria(new Criteria().orOperator(
+                    Criteria.where("completedAt").lt(after),
+                    Criteria.where("completedAt").is(after).and("_id").lt(objectId(position.id()))));
+        }
+        query.with(Sort.by(Sort.Direction.DESC, "completedAt").and(Sort.by(Sort.Direction.DESC, "_id")));
+        query.limit(size + 1);
+        query.fields().include(ATTEMPT_SUMMARY_FIELDS);
+
+        List<AttemptSummary> rows = mongoTemplate.find(query, TestAttempt.class).stream()
+                .map(SummaryPageService::toSummary)
+                .collect(Collectors.toList());
+        return page(rows, size, last -> new KeysetCursor(
+                last.getCompletedAt() != null ? last.getCompletedAt().toEpochMilli() : 0L, last.getId()));
+    }
+
+    // Unpaged, for callers that still need every attempt (e.g. profile totals); answers are left out
+    public List<AttemptSummary> allCompletedAttempts(String studentId) {
+        Query query = new Query(Criteria.where("studentId").is(studentId).and("isCompleted").is(true))
+                .with(Sort.by(Sort.Direction.DESC, "completedAt").and(Sort.by(Sort.Direction.DESC, "_id")));
+        query.fields().include(ATTEMPT_SUMMARY_FIELDS);
+        return mongoTemplate.find(query, TestAttempt.class).stream()
+                .map(SummaryPageService::toSummary)
+                .collect(Collectors.toList());
+    }
+
+    private static AttemptSummary toSummary(TestAttempt attempt) {
+        AttemptSummary summary = new AttemptSummary();
+        summary.setId(attempt.getId());
+        summary.setTestId(attempt.getTestId());
+        summary.setTestTitle(attempt.getTestTitle());
+        summary.setSubject(attempt.getSubject());
+        summary.setJoinCode(attempt.getJoinCode());
+        summary.setScore(attempt.getScore());
+        summary.setCorrectAnswers(attempt.getCorrectAnswers());
+        summary.setTotalQuestions(attempt.getTotalQuestions());
+        summary.setDurationInMinutes(attempt.getDurationInMinutes());
+        summary.setCompletedAt(attempt.getCompletedAt());
+        return summary;
+    }
+
+    /* ===================== TESTS ===================== */
+
+    /**
+     * Tests created by a teacher, newest first. ObjectIds grow with creation time, so _id
+     * alone is the sort key; question and participant counts are computed in the projection.
+     *
+     * @throws IllegalArgumentException if the cursor is not one this service issued
+     */
+    public PageResponse<TestSummary> teacherTests(String teacherId, String cursor, Integer limit) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        int size = pageSize(limit);
+
+        Criteria match = Criteria.where("createdByTeacherId").is(teacherId);
+        if (position != null) {
+            match = match.and("_id").lt(objectId(position.id()));
+        }
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(match),
+                Aggregation.sort(Sort.Direction.DESC, "_id"),
+                Aggregation.limit(size + 1),
+                Aggregation.project("title", "subject", "joinCode", "scheduledAt", "durationInMinutes")
+                        .and(ArrayOperators.Size.lengthOfArray(
+                                ConditionalOperators.ifNull("questionRefs").thenValueOf(
+                                        ConditionalOperators.ifNull("questions").then(List.of())))).as("questionCount")
+                        .and(ArrayOperators.Size.lengthOfArray(
+                                ConditionalOperators.ifNull("participantIds").then(List.of()))).as("participantCount")
+        );
+        List<TestSummary> rows = mongoTemplate.aggregate(aggregation, Test.class, Document.class)
+                .getMappedResults().stream()
+                .map(SummaryPageService::toSummary)
+                .collect(Collectors.toList());
+        return page(rows, size, last -> new KeysetCursor(0L, last.getId()));
+    }
+
+    private static TestSummary toSummary(Document doc) {
+        TestSummary summary = new TestSummary();
+        Object id = doc.get("_id");
+        summary.setId(id != null ? id.toString() : null);
+        summary.setTitle(doc.getString("title"));
+        summary.setSubject(doc.getString("subject"));
+        summary.setJoinCode(doc.getString("joinCode"));
+        Date scheduledAt = doc.getDate("scheduledAt");
+        summary.setScheduledAt(scheduledAt != null ? scheduledAt.toInstant() : null);
+        summary.setDurationInMinutes(intValue(doc.get("durationInMinutes")));
+        summary.setQuestionCount(intValue(doc.get("questionCount")));
+        summary.setParticipantCount(intValue(doc.get("participantCount")));
+        return summary;
+    }
+
+    /* ===================== HELPERS ===================== */
+
+    private static <T> PageResponse<T> page(List<T> rows, int size,
+                                            Function<T, KeysetCursor> cursorOf) {
+        if (rows.size() <= size) {
+            return new PageResponse<>(rows, null);
+        }
+        List<T> items = rows.subList(0, size);
+        return new PageResponse<>(List.copyOf(items), cursorOf.apply(items.get(size - 1)).encode());
+    }
+
+    static int pageSize(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    // Ids are generated ObjectIds; compare them as such so the order matches the index
+    private static Object objectId(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+
+    private static int intValue(Object value) {
+        return value instanceof Number n ? n.intValue() : 0;
+    }
+}
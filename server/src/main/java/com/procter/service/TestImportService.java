@@ -0,0 +1,656 @@
+package com.procter.procter_app.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.procter.procter_app.dto.CreateTestRequest;
+import com.procter.procter_app.dto.ImportReport;
+import com.procter.procter_app.model.AnswerSheet;
+import com.procter.procter_app.model.Question;
+import com.procter.procter_app.model.Test;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk import of tests from an uploaded JSON-lines or CSV stream.
+ *
+ * The request thread only splits the upload into raw records and hands them to a small worker
+ * pool in batches; workers parse and validate each record, warm the question bank with one
+ * bulk upsert per batch and insert the batch's tests and stats with one insert each. At most
+ * threads * 2 batches are in flight, so memory stays bounded by the batch size however large
+ * the upload is. Invalid records are skipped and listed in the {@link ImportReport}; the rest
+ * of the upload is still imported.
+ *
+ * JSON lines: one {@link CreateTestRequest} object per line.
+ *
+ * CSV: a header row, then one row per question with the columns title, subject, scheduledAt,
+ * durationInMinutes, type, questionText, points, options, correctAnswer, wordLimit and
+ * sampleAnswer (any order; unused ones may be left out). Consecutive rows with the same title
+ * and subject make up one test, whose test-level fields come from its first row. options and
+ * correctAnswer hold '|'-separated values; correctAnswer is 0-based option indexes.
+ */
+@Service
+public class TestImportService {
+
+    public enum Format {
+        NDJSON("ndjson"),
+        CSV("csv");
+
+        private final String name;
+
+        Format(String name) {
+            this.name = name;
+        }
+
+        public String getName() { return name; }
+
+        /**
+         * The explicit format parameter wins; otherwise text/csv uploads are CSV and anything
+         * else is JSON lines. Returns null for an unknown parameter.
+         */
+        public static Format resolve(String format, String contentType) {
+            if (format != null && !format.isBlank()) {
+                String normalized = format.trim().toLowerCase(Locale.ROOT);
+                if (normalized.equals("ndjson") || normalized.equals("jsonl")) return NDJSON;
+                if (normalized.equals("csv")) return CSV;
+                return null;
+            }
+            return contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith("text/csv") ? CSV : NDJSON;
+        }
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(TestImportService.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final List<String> TYPES = List.of("MCQ", "MSQ", "Theory");
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final QuestionBank questionBank;
+    private final JoinCodeIndex joinCodeIndex;
+    private final TestStatsService testStatsService;
+    private final int batchSize;
+    private final int threads;
+    private final int maxErrors;
+    private final int maxRecordChars;
+    private final int maxQuestionsPerTest;
+    private final ExecutorService workers;
+
+    public TestImportService(MongoTemplate mongoTemplate,
+                             ObjectMapper objectMapper,
+                             QuestionBank questionBank,
+                             JoinCodeIndex joinCodeIndex,
+                             TestStatsService testStatsService,
+                             @Value("${app.import.batch-size:200}") int batchSize,
+                             @Value("${app.import.threads:4}") int threads,
+                             @Value("${app.import.max-errors:1000}") int maxErrors,
+                             @Value("${app.import.max-record-chars:1048576}") int maxRecordChars,
+                             @Value("${app.import.max-questions-per-test:500}") int maxQuestionsPerTest) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.questionBank = questionBank;
+        this.joinCodeIndex = joinCodeIndex;
+        this.testStatsService = testStatsService;
+        this.batchSize = Math.max(1, batchSize);
+        this.threads = Math.max(1, threads);
+        this.maxErrors = Math.max(0, maxErrors);
+        this.maxRecordChars = Math.max(1024, maxRecordChars);
+        this.maxQuestionsPerTest = Math.max(1, maxQuestionsPerTest);
+        this.workers = Executors.newFixedThreadPool(this.threads, DaemonThreads.named("test-import-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /* ===================== IMPORT ===================== */
+
+    /**
+     * Imports every valid record of the upload as a test owned by the teacher.
+     *
+     * @throws IllegalArgumentException if a CSV upload has no usable header row
+     * @throws IOException if the upload cannot be read; batches handed off before the
+     *                     failure are still written
+     */
+    public ImportReport importTests(String teacherId, Format format, InputStream upload) throws IOException {
+        long started = System.nanoTime();
+        Progress progress = new Progress(maxErrors);
+        Semaphore inFlight = new Semaphore(threads * 2);
+        Reader reader = new BufferedReader(new InputStreamReader(upload, StandardCharsets.UTF_8), BUFFER_SIZE);
+        RecordSource source = format == Format.CSV ? new CsvSource(reader) : new JsonLinesSource(reader);
+
+        int records = 0;
+        try {
+            List<RawRecord> batch = new ArrayList<>(batchSize);
+            RawRecord record;
+            while ((record = source.next(records + 1)) != null) {
+                records++;
+                batch.add(record);
+                if (batch.size() == batchSize) {
+                    submit(teacherId, batch, inFlight, progress);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                submit(teacherId, batch, inFlight, progress);
+            }
+        } finally {
+            // Wait for every batch already handed off, even if reading failed
+            inFlight.acquireUninterruptibly(threads * 2);
+        }
+
+        long elapsedNanos = Math.max(1, System.nanoTime() - started);
+        ImportReport report = new ImportReport();
+        report.setFormat(format.getName());
+        report.setRecords(records);
+        report.setImported(progress.imported.get());
+        report.setFailed(progress.failed.get());
+        report.setQuestions(progress.questions.get());
+        report.setElapsedMs(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        report.setQuestionsPerSecond(Math.round(progress.questions.get() * 1e10 / elapsedNanos) / 10.0);
+        report.setErrors(progress.sortedErrors());
+        report.setErrorsTruncated(progress.failed.get() > report.getErrors().size());
+        log.info("Imported {} of {} {} records ({} questions) for teacher {} in {} ms",
+                report.getImported(), records, format.getName(), report.getQuestions(), teacherId, report.getElapsedMs());
+        return report;
+    }
+
+    private void submit(String teacherId, List<RawRecord> batch, Semaphore inFlight, Progress progress) {
+        inFlight.acquireUninterruptibly();
+        try {
+            workers.execute(() -> {
+                try {
+                    importBatch(teacherId, batch, progress);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            batch.forEach(record -> progress.fail(record, "Import is shutting down"));
+        }
+    }
+
+    private void importBatch(String teacherId, List<RawRecord> batch, Progress progress) {
+        List<Test> tests = new ArrayList<>(batch.size());
+        List<RawRecord> accepted = new ArrayList<>(batch.size());
+        List<Question> questions = new ArrayList<>();
+        for (RawRecord record : batch) {
+            try {
+                Test test = toTest(teacherId, record.parse(objectMapper));
+                tests.add(test);
+                accepted.add(record);
+                questions.addAll(test.getQuestions());
+            } catch (IllegalArgumentException e) {
+                progress.fail(record, e.getMessage());
+            } catch (RuntimeException e) {
+                // A bug on one odd record must not drop the rest of its batch unreported
+                log.warn("Could not convert import record {}", record.number, e);
+                progress.fail(record, "Could not be read");
+            }
+        }
+        if (tests.isEmpty()) {
+            return;
+        }
+
+        try {
+            // One upsert for the whole batch; the per-test intern on insert then finds every hash cached
+            questionBank.intern(questions, null);
+            mongoTemplate.insertAll(tests);
+        } catch (RuntimeException e) {
+            log.warn("Could not store an import batch of {} tests: {}", tests.size(), e.getMessage());
+            accepted.forEach(record -> progress.fail(record, "Could not be stored"));
+            return;
+        }
+        progress.imported.addAndGet(tests.size());
+        progress.questions.addAndGet(questions.size());
+        try {
+            testStatsService.onTestsCreated(tests);
+        } catch (RuntimeException e) {
+            log.warn("Could not create stats for {} imported tests: {}", tests.size(), e.getMessage());
+        }
+    }
+
+    /* ===================== VALIDATION ===================== */
+
+    private Test toTest(String teacherId, CreateTestRequest request) {
+        if (request.getTitle() == null || request.getTitle().isBlank()) {
+            throw new IllegalArgumentException("title is required");
+        }
+        if (request.getSubject() == null || request.getSubject().isBlank()) {
+            throw new IllegalArgumentException("subject is required");
+        }
+        if (request.getDurationInMinutes() < 0) {
+            throw new IllegalArgumentException("durationInMinutes must not be negative");
+        }
+        List<Question> questions = request.getQuestions();
+        if (questions == null || questions.isEmpty()) {
+            throw new IllegalArgumentException("at least one question is required");
+        }
+        if (questions.size() > maxQuestionsPerTest) {
+            throw new IllegalArgumentException("more than " + maxQuestionsPerTest + " questions");
+        }
+        for (int i = 0; i < questions.size(); i++) {
+            validate(questions.get(i), i + 1);
+        }
+
+        Test test = new Test();
+        test.setTitle(request.getTitle().trim());
+        test.setSubject(request.getSubject().trim());
+        test.setScheduledAt(request.getScheduledAt());
+        test.setDurationInMinutes(request.getDurationInMinutes());
+        test.setQuestions(questions);
+        test.setCreatedByTeacherId(teacherId);
+        test.setJoinCode(joinCodeIndex.newJoinCode());
+        return test;
+    }
+
+    private static void validate(Question question, int number) {
+        if (question == null) {
+            throw new IllegalArgumentException("question " + number + ": missing");
+        }
+        String type = question.getType() == null ? null : TYPES.stream()
+                .filter(t -> t.equalsIgnoreCase(question.getType().trim()))
+                .findFirst().orElse(null);
+        if (type == null) {
+            throw new IllegalArgumentException("question " + number + ": type must be one of " + TYPES);
+        }
+        question.setType(type);
+        if (question.getQuestionText() == null || question.getQuestionText().isBlank()) {
+            throw new IllegalArgumentException("question " + number + ": questionText is required");
+        }
+        if (question.getPoints() < 0) {
+            throw new IllegalArgumentException("question " + number + ": points must not be negative");
+        }
+
+        if (type.equals("Theory")) {
+            if (question.getOptions() != null && !question.getOptions().isEmpty()) {
+                throw new IllegalArgumentException("question " + number + ": Theory questions take no options");
+            }
+            if (question.getWordLimit() != null && question.getWordLimit() <= 0) {
+                throw new IllegalArgumentException("question " + number + ": wordLimit must be positive");
+            }
+            question.setOptions(null);
+            question.setCorrectAnswer(null);
+            return;
+        }
+
+        List<String> options = question.getOptions();
+        if (options == null || options.size() < 2 || options.size() > AnswerSheet.MAX_OPTIONS) {
+            throw new IllegalArgumentException("question " + number + ": needs 2 to " + AnswerSheet.MAX_OPTIONS + " options");
+        }
+        for (String option : options) {
+            if (option == null || option.isBlank()) {
+                throw new IllegalArgumentException("question " + number + ": options must not be blank");
+            }
+        }
+        List<Integer> correct = question.getCorrectAnswer();
+        if (correct == null || correct.isEmpty()) {
+            throw new IllegalArgumentException("question " + number + ": correctAnswer is required");
+        }
+        Set<Integer> seen = new HashSet<>();
+        for (Integer index : correct) {
+            if (index == null || index < 0 || index >= options.size() || !seen.add(index)) {
+                throw new IllegalArgumentException("question " + number + ": correctAnswer must be distinct indexes into options");
+            }
+        }
+        if (type.equals("MCQ") && correct.size() != 1) {
+            throw new IllegalArgumentException("question " + number + ": MCQ questions have exactly one correct answer");
+        }
+    }
+
+    /* ===================== RECORDS ===================== */
+
+    private interface RecordSource {
+        // Next record of the upload, or null at the end
+        RawRecord next(int number) throws IOException;
+    }
+
+    private abstract static class RawRecord {
+        final int number;
+        final long line;
+        // Set while reading when the record is unusable as a whole
+        String readError;
+
+        RawRecord(int number, long line) {
+            this.number = number;
+            this.line = line;
+        }
+
+        CreateTestRequest parse(ObjectMapper objectMapper) {
+            if (readError != null) {
+                throw new IllegalArgumentException(readError);
+            }
+            return toRequest(objectMapper);
+        }
+
+        abstract CreateTestRequest toRequest(ObjectMapper objectMapper);
+    }
+
+    private static final class JsonRecord extends RawRecord {
+        final String json;
+
+        JsonRecord(int number, long line, String json) {
+            super(number, line);
+            this.json = json;
+        }
+
+        @Override
+        CreateTestRequest toRequest(ObjectMapper objectMapper) {
+            try {
+                CreateTestRequest request = objectMapper.readValue(json, CreateTestRequest.class);
+                if (request == null) {
+                    throw new IllegalArgumentException("record must be a JSON object, not null");
+                }
+                return request;
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    // One non-blank line per record; over-long lines are skipped without being buffered
+    private final class JsonLinesSource implements RecordSource {
+        private final Reader reader;
+        private final StringBuilder buffer = new StringBuilder();
+        private long line;
+        private boolean done;
+
+        JsonLinesSource(Reader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public RawRecord next(int number) throws IOException {
+            while (!done) {
+                line++;
+                buffer.setLength(0);
+                boolean tooLong = false;
+                int c;
+                while ((c = reader.read()) != -1 && c != '\n') {
+                    if (buffer.length() < maxRecordChars) {
+                        buffer.append((char) c);
+                    } else {
+                        tooLong = true;
+                    }
+                }
+                done = c == -1;
+                if (tooLong) {
+                    JsonRecord record = new JsonRecord(number, line, null);
+                    record.readError = "record longer than " + maxRecordChars + " characters";
+                    return record;
+                }
+                if (!buffer.toString().isBlank()) {
+                    return new JsonRecord(number, line, buffer.toString());
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class CsvRecord extends RawRecord {
+        final Map<String, Integer> columns;
+        final List<List<String>> rows = new ArrayList<>();
+        final List<Long> rowLines = new ArrayList<>();
+
+        CsvRecord(int number, long line, Map<String, Integer> columns) {
+            super(number, line);
+            this.columns = columns;
+        }
+
+        @Override
+        CreateTestRequest toRequest(ObjectMapper objectMapper) {
+            List<String> first = rows.get(0);
+            CreateTestRequest request = new CreateTestRequest();
+            request.setTitle(field(first, "title"));
+            request.setSubject(field(first, "subject"));
+            String scheduledAt = field(first, "scheduledat");
+            if (scheduledAt != null) {
+                try {
+                    request.setScheduledAt(Instant.parse(scheduledAt));
+                } catch (DateTimeParseException e) {
+                    throw new IllegalArgumentException("line " + line + ": scheduledAt is not an ISO-8601 instant");
+                }
+            }
+            Integer duration = number(first, "durationinminutes", line);
+            request.setDurationInMinutes(duration != null ? duration : 0);
+
+            List<Question> questions = new ArrayList<>(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                List<String> row = rows.get(i);
+                long rowLine = rowLines.get(i);
+                Question question = new Question();
+                question.setType(field(row, "type"));
+                question.setQuestionText(field(row, "questiontext"));
+                Integer points = number(row, "points", rowLine);
+                question.setPoints(points != null ? points : 1);
+                String options = field(row, "options");
+                if (options != null) {
+                    question.setOptions(Arrays.stream(options.split("\\|", -1)).map(String::trim).toList());
+                }
+                String correct = field(row, "correctanswer");
+                if (correct != null) {
+                    List<Integer> indexes = new ArrayList<>();
+                    for (String index : correct.split("\\|", -1)) {
+                        indexes.add(parseInt(index.trim(), "correctAnswer", rowLine));
+                    }
+                    question.setCorrectAnswer(indexes);
+                }
+                question.setWordLimit(number(row, "wordlimit", rowLine));
+                question.setSampleAnswer(field(row, "sampleanswer"));
+                questions.add(question);
+            }
+            request.setQuestions(questions);
+            return request;
+        }
+
+        // Trimmed value of the column, null when the column is absent or the cell empty
+        String field(List<String> row, String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= row.size()) {
+                return null;
+            }
+            String value = row.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        Integer number(List<String> row, String column, long rowLine) {
+            String value = field(row, column);
+            return value != null ? parseInt(value, column, rowLine) : null;
+        }
+
+        static int parseInt(String value, String column, long rowLine) {
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("line " + rowLine + ": " + column + " is not a number");
+            }
+        }
+    }
+
+    /**
+     * RFC 4180 rows (quoted fields may contain commas, quotes and line breaks), grouped into
+     * one record per run of rows with the same title and subject. A group keeps at most
+     * max-questions-per-test rows, so an oversized test is reported without buffering it.
+     */
+    private final class CsvSource implements RecordSource {
+        private final PushbackReader reader;
+        private Map<String, Integer> columns;
+        private long line = 1;
+        // First line of the row last read
+        private long rowLine;
+        private List<String> pendingRow;
+        private long pendingLine;
+        private boolean rowTooLong;
+
+        CsvSource(Reader reader) {
+            this.reader = new PushbackReader(reader, 1);
+        }
+
+        @Override
+        public RawRecord next(int number) throws IOException {
+            if (columns == null) {
+                List<String> header = readRow();
+                if (header == null) {
+                    return null;
+                }
+                columns = new HashMap<>();
+                for (int i = 0; i < header.size(); i++) {
+                    columns.putIfAbsent(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+                }
+                if (!columns.containsKey("title") || !columns.containsKey("questiontext")) {
+                    throw new IllegalArgumentException("CSV header needs at least the title and questionText columns");
+                }
+            }
+
+            List<String> row = pendingRow != null ? pendingRow : nextDataRow();
+            long firstLine = pendingRow != null ? pendingLine : rowLine;
+            pendingRow = null;
+            if (row == null) {
+                return null;
+            }
+            CsvRecord record = new CsvRecord(number, firstLine, columns);
+            String key = groupKey(record, row);
+            add(record, row, firstLine);
+            while (true) {
+                List<String> next = nextDataRow();
+                if (next == null) {
+                    break;
+                }
+                if (!groupKey(record, next).equals(key)) {
+                    pendingRow = next;
+                    pendingLine = rowLine;
+                    break;
+                }
+                add(record, next, rowLine);
+            }
+            return record;
+        }
+
+        private void add(CsvRecord record, List<String> row, long line) {
+            if (rowTooLong) {
+                rowTooLong = false;
+                if (record.readError == null) {
+                    record.readError = "line " + line + ": row longer than " + maxRecordChars + " characters";
+                }
+                return;
+            }
+            if (record.rows.size() >= maxQuestionsPerTest) {
+                record.readError = "more than " + maxQuestionsPerTest + " questions";
+                return;
+            }
+            record.rows.add(row);
+            record.rowLines.add(line);
+        }
+
+        private String groupKey(CsvRecord record, List<String> row) {
+            return Objects.toString(record.field(row, "title"), "") + '\u0000' + Objects.toString(record.field(row, "subject"), "");
+        }
+
+        // Skips rows whose cells are all empty
+        private List<String> nextDataRow() throws IOException {
+            List<String> row;
+            do {
+                row = readRow();
+            } while (row != null && row.stream().allMatch(String::isBlank));
+            return row;
+        }
+
+        private List<String> readRow() throws IOException {
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            reader.unread(c);
+            rowLine = line;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            int rowChars = 0;
+            boolean quoted = false;
+            while (true) {
+                c = reader.read();
+                if (c == -1) {
+                    fields.add(field.toString());
+                    return fields;
+                }
+                if (quoted) {
+                    if (c == '"') {
+                        int next = reader.read();
+                        if (next == '"') {
+                            c = '"';
+                        } else {
+                            if (next != -1) reader.unread(next);
+                            quoted = false;
+                            continue;
+                        }
+                    } else if (c == '\n') {
+                        line++;
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                    continue;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                    continue;
+                } else if (c == '\r') {
+                    continue;
+                } else if (c == '\n') {
+                    line++;
+                    fields.add(field.toString());
+                    return fields;
+                }
+                if (++rowChars > maxRecordChars) {
+                    rowTooLong = true;
+                } else {
+                    field.append((char) c);
+                }
+            }
+        }
+    }
+
+    /* ===================== REPORT ===================== */
+
+    private static final class Progress {
+        final AtomicInteger imported = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicLong questions = new AtomicLong();
+        private final int maxErrors;
+        private final List<ImportReport.RecordError> errors = new ArrayList<>();
+
+        Progress(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        void fail(RawRecord record, String error) {
+            failed.incrementAndGet();
+            synchronized (errors) {
+                if (errors.size() < maxErrors) {
+                    errors.add(new ImportReport.RecordError(record.number, record.line, error));
+                }
+            }
+        }
+
+        List<ImportReport.RecordError> sortedErrors() {
+            synchronized (errors) {
+                List<ImportReport.RecordError> sorted = new ArrayList<>(errors);
+                sorted.sort(Comparator.comparingInt(ImportReport.RecordError::getRecord));
+                return sorted;
+            }
+        }
+    }
+
+}
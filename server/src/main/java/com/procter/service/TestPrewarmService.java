@@ -0,0 +1,120 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.model.Test;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Gets tests ready shortly before they start, so the exam-start spike hits warm caches.
+ *
+ * Every scan looks up tests whose scheduledAt falls within the lead time (range query on
+ * the scheduledAt index), renders the student payload with its participant set and
+ * compiles the answer key. At the start time a START event goes to the test's topic with
+ * a spread window; clients wait a random delay within it before fetching, so the fetches
+ * do not all land in the same instant.
+ */
+@Service
+public class TestPrewarmService {
+
+    private static final Logger log = LoggerFactory.getLogger(TestPrewarmService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final StudentTestViewCache studentTestViewCache;
+    private final GradingService gradingService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final boolean enabled;
+    private final Duration leadTime;
+    private final long maxSpreadMs;
+
+    private final ScheduledExecutorService startSignals;
+    // testId -> scheduledAt it was prepared for; a moved start time gets prepared again
+    private final Map<String, Instant> prepared = new ConcurrentHashMap<>();
+
+    public TestPrewarmService(MongoTemplate mongoTemplate,
+                              StudentTestViewCache studentTestViewCache,
+                              GradingService gradingService,
+                              SimpMessagingTemplate messagingTemplate,
+                              @Value("${app.tests.prewarm.enabled:true}") boolean enabled,
+                              @Value("${app.tests.prewarm.lead-minutes:10}") long leadMinutes,
+                              @Value("${app.tests.prewarm.max-start-spread-ms:5000}") long maxSpreadMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.studentTestViewCache = studentTestViewCache;
+        this.gradingService = gradingService;
+        this.messagingTemplate = messagingTemplate;
+        this.enabled = enabled;
+        this.leadTime = Duration.ofMinutes(leadMinutes);
+        this.maxSpreadMs = maxSpreadMs;
+        this.startSignals = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "test-start-signals");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.tests.prewarm.scan-interval-ms:30000}",
+               initialDelayString = "${app.tests.prewarm.scan-interval-ms:30000}")
+    public void scan() {
+        if (!enabled) {
+            return;
+        }
+        Instant now = Instant.now();
+        // A minute of look-back catches tests that started between two scans
+        Query upcoming = new Query(Criteria.where("scheduledAt").gte(now.minusSeconds(60)).lte(now.plus(leadTime)));
+        try {
+            for (Test test : mongoTemplate.find(upcoming, Test.class)) {
+                if (!test.getScheduledAt().equals(prepared.get(test.getId()))) {
+                    prepare(test, now);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Test pre-warm scan failed: {}", e.getMessage());
+        }
+        prepared.values().removeIf(startsAt -> startsAt.isBefore(now.minus(Duration.ofHours(1))));
+    }
+
+    private void prepare(Test test, Instant now) {
+        studentTestViewCache.render(test);
+        gradingService.warm(test);
+        prepared.put(test.getId(), test.getScheduledAt());
+
+        long delayMs = Math.max(0, Duration.between(now, test.getScheduledAt()).toMillis());
+        int participants = test.getParticipantIds() != null ? test.getParticipantIds().size() : 0;
+        startSignals.schedule(() -> signalStart(test.getId(), test.getScheduledAt(), participants),
+                delayMs, TimeUnit.MILLISECONDS);
+        log.info("Pre-warmed test {} ({} participants), starts in {} s", test.getId(), participants, delayMs / 1000);
+    }
+
+    private void signalStart(String testId, Instant scheduledAt, int participants) {
+        // Skip if the test was rescheduled after this signal was queued
+        if (!scheduledAt.equals(prepared.get(testId))) {
+            return;
+        }
+        // Roughly 10 ms per participant, so small classes are not kept waiting
+        long spreadMs = Math.min(maxSpreadMs, Math.max(250, participants * 10L));
+        messagingTemplate.convertAndSend("/topic/test/" + testId + "/events",
+                Map.of(
+                        "type", "START",
+                        "testId", testId,
+                        "spreadMs", spreadMs,
+                        "timestamp", Instant.now().toString()
+                ));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        startSignals.shutdownNow();
+    }
+}
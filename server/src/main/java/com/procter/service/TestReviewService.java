@@ -0,0 +1,328 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.dto.SimilarityFlag;
+import com.procter.procter_app.dto.TestReviewResponse;
+import com.procter.procter_app.model.AnswerSheet;
+import com.procter.procter_app.model.Question;
+import com.procter.procter_app.model.Test;
+import com.procter.procter_app.model.TestAttempt;
+import com.procter.procter_app.repo.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the teacher's review of one test: class statistics, per-student results,
+ * per-question difficulty, a rule-based report, pairs of near-duplicate answers to
+ * free-text questions found with {@link MinHashLsh}, and pairs with improbable identical
+ * wrong multiple-choice answers from {@link AnswerPatternService}.
+ */
+@Service
+public class TestReviewService {
+
+    private static final int EXCERPT_LENGTH = 300;
+    private static final int HIGHLIGHTED_QUESTIONS = 3;
+
+    private final MongoTemplate mongoTemplate;
+    private final UserRepository userRepository;
+    private final AnswerPatternService answerPatternService;
+    private final MinHashLsh minHash;
+    private final double similarityThreshold;
+    private final int maxPairsPerQuestion;
+
+    public TestReviewService(MongoTemplate mongoTemplate,
+                             UserRepository userRepository,
+                             AnswerPatternService answerPatternService,
+                             @Value("${app.review.similarity.shingle-size:5}") int shingleSize,
+                             @Value("${app.review.similarity.bands:32}") int bands,
+                             @Value("${app.review.similarity.rows:4}") int rows,
+                             @Value("${app.review.similarity.threshold:0.8}") double similarityThreshold,
+                             @Value("${app.review.similarity.max-pairs-per-question:200}") int maxPairsPerQuestion) {
+        this.mongoTemplate = mongoTemplate;
+        this.userRepository = userRepository;
+        this.answerPatternService = answerPatternService;
+        this.minHash = new MinHashLsh(shingleSize, bands, rows);
+        this.similarityThreshold = similarityThreshold;
+        this.maxPairsPerQuestion = maxPairsPerQuestion;
+    }
+
+    public TestReviewResponse review(Test test, boolean includeReport) {
+        Query query = new Query(Criteria.where("testId").is(test.getId()).and("isCompleted").is(true));
+        List<TestAttempt> attempts = mongoTemplate.find(query, TestAttempt.class);
+        List<Question> questions = test.getQuestions() != null ? test.getQuestions() : List.of();
+
+        Set<String> studentIds = attempts.stream().map(TestAttempt::getStudentId).collect(Collectors.toSet());
+        Map<String, String> names = new HashMap<>();
+        userRepository.findAllById(studentIds).forEach(u -> names.put(u.getId(), u.getUsername()));
+
+        List<AnswerSheet> sheets = attempts.stream()
+                .map(a -> a.getSheet() != null ? a.getSheet() : new AnswerSheet(0))
+                .collect(Collectors.toList());
+
+        TestReviewResponse response = new TestReviewResponse();
+        response.setTestId(test.getId());
+        response.setTestTitle(test.getTitle());
+        response.setSubject(test.getSubject());
+        response.setStatistics(statistics(attempts));
+        response.setStudentResults(studentResults(questions, attempts, sheets, names));
+        response.setQuestionAnalysis(questionAnalysis(test, questions, attempts, sheets));
+        response.setSimilarityFlags(similarityFlags(questions, attempts, sheets, names));
+        response.setAnswerPatternFlags(answerPatternService.flagsFor(test, names));
+        if (includeReport) {
+            response.setAiReport(report(response));
+        }
+        return response;
+    }
+
+    /* ===================== STATISTICS ===================== */
+
+    private TestReviewResponse.TestStatistics statistics(List<TestAttempt> attempts) {
+        TestReviewResponse.TestStatistics stats = new TestReviewResponse.TestStatistics();
+        Map<String, Integer> distribution = new LinkedHashMap<>();
+        for (String grade : List.of("A", "B", "C", "D", "F")) {
+            distribution.put(grade, 0);
+        }
+        stats.setGradeDistribution(distribution);
+        stats.setTotalStudents(attempts.size());
+        if (attempts.isEmpty()) {
+            return stats;
+        }
+
+        int[] scores = attempts.stream().mapToInt(TestAttempt::getScore).sorted().toArray();
+        double mean = Arrays.stream(scores).average().orElse(0);
+        double variance = Arrays.stream(scores).mapToDouble(s -> (s - mean) * (s - mean)).sum() / scores.length;
+        int mid = scores.length / 2;
+
+        stats.setAverageScore(round(mean));
+        stats.setMedianScore(scores.length % 2 == 1 ? scores[mid] : (scores[mid - 1] + scores[mid]) / 2.0);
+        stats.setLowestScore(scores[0]);
+        stats.setHighestScore(scores[scores.length - 1]);
+        stats.setStandardDeviation(round(Math.sqrt(variance)));
+        long passed = Arrays.stream(scores).filter(s -> s >= TestStatsService.PASS_SCORE).count();
+        stats.setPassRate(round(passed * 100.0 / scores.length));
+        for (int score : scores) {
+            distribution.merge(grade(score), 1, Integer::sum);
+        }
+        return stats;
+    }
+
+    private List<TestReviewResponse.StudentResult> studentResults(List<Question> questions,
+                                                                 List<TestAttempt> attempts,
+                                                                 List<AnswerSheet> sheets,
+                                                                 Map<String, String> names) {
+        List<TestReviewResponse.StudentResult> results = new ArrayList<>();
+        for (int a = 0; a < attempts.size(); a++) {
+            TestAttempt attempt = attempts.get(a);
+            TestReviewResponse.StudentResult result = new TestReviewResponse.StudentResult();
+            result.setStudentId(attempt.getStudentId());
+            result.setStudentName(names.getOrDefault(attempt.getStudentId(), "Unknown"));
+            result.setScore(attempt.getScore());
+            result.setGrade(grade(attempt.getScore()));
+            result.setPerformanceLevel(performanceLevel(attempt.getScore()));
+            result.setCompletedAt(attempt.getCompletedAt());
+            result.setCorrectAnswers(attempt.getCorrectAnswers());
+            result.setTotalQuestions(attempt.getTotalQuestions());
+
+            List<TestReviewResponse.QuestionResult> questionResults = new ArrayList<>();
+            for (int i = 0; i < questions.size(); i++) {
+                AnswerSheet sheet = sheets.get(a);
+                TestReviewResponse.QuestionResult qr = new TestReviewResponse.QuestionResult();
+                qr.setQuestionIndex(i);
+                qr.setQuestionText(questions.get(i).getQuestionText());
+                qr.setCorrectAnswer(questions.get(i).getCorrectAnswer());
+                qr.setStudentAnswer(sheet.response(i, questions.get(i)));
+                qr.setCorrect(sheet.isCorrect(i));
+                qr.setTextGrade(sheet.textGrade(i));
+                questionResults.add(qr);
+            }
+            result.setQuestionResults(questionResults);
+            results.add(result);
+        }
+        results.sort(Comparator.comparingInt(TestReviewResponse.StudentResult::getScore).reversed());
+        return results;
+    }
+
+    private TestReviewResponse.QuestionAnalysis questionAnalysis(Test test, List<Question> questions,
+                                                                 List<TestAttempt> attempts,
+                                                                 List<AnswerSheet> sheets) {
+        List<TestReviewResponse.QuestionDifficulty> difficulties = new ArrayList<>();
+        for (int i = 0; i < questions.size(); i++) {
+            // Free-text answers are not auto-graded, so they say nothing about difficulty
+            if (isTextQuestion(questions.get(i)) || attempts.isEmpty()) {
+                continue;
+            }
+            int correct = 0;
+            for (AnswerSheet sheet : sheets) {
+                if (sheet.isCorrect(i)) {
+                    correct++;
+                }
+            }
+            double correctRate = correct * 100.0 / attempts.size();
+            TestReviewResponse.QuestionDifficulty difficulty = new TestReviewResponse.QuestionDifficulty();
+            difficulty.setQuestionIndex(i);
+            difficulty.setDifficultyPercentage(round(100 - correctRate));
+            difficulty.setDifficultyLevel(correctRate >= 70 ? "Easy" : correctRate >= 40 ? "Medium" : "Hard");
+            difficulties.add(difficulty);
+        }
+
+        Function<TestReviewResponse.QuestionDifficulty, String> label =
+                d -> "Q" + (d.getQuestionIndex() + 1) + ": " + questions.get(d.getQuestionIndex()).getQuestionText();
+        Comparator<TestReviewResponse.QuestionDifficulty> hardestFirst =
+                Comparator.comparingDouble(TestReviewResponse.QuestionDifficulty::getDifficultyPercentage).reversed();
+
+        TestReviewResponse.QuestionAnalysis analysis = new TestReviewResponse.QuestionAnalysis();
+        analysis.setQuestionDifficulties(difficulties);
+        analysis.setMostMissedQuestions(difficulties.stream()
+                .filter(d -> d.getDifficultyPercentage() > 0)
+                .sorted(hardestFirst).limit(HIGHLIGHTED_QUESTIONS).map(label).collect(Collectors.toList()));
+        analysis.setMostCorrectQuestions(difficulties.stream()
+                .filter(d -> d.getDifficultyPercentage() < 100)
+                .sorted(hardestFirst.reversed()).limit(HIGHLIGHTED_QUESTIONS).map(label).collect(Collectors.toList()));
+        Map<String, Double> topics = new LinkedHashMap<>();
+        if (test.getSubject() != null && !attempts.isEmpty()) {
+            topics.put(test.getSubject(), round(attempts.stream().mapToInt(TestAttempt::getScore).average().orElse(0)));
+        }
+        analysis.setTopicPerformance(topics);
+        return analysis;
+    }
+
+    /* ===================== SIMILARITY ===================== */
+
+    private List<SimilarityFlag> similarityFlags(List<Question> questions, List<TestAttempt> attempts,
+                                                 List<AnswerSheet> sheets,
+                                                 Map<String, String> names) {
+        List<SimilarityFlag> flags = new ArrayList<>();
+        for (int i = 0; i < questions.size(); i++) {
+            if (!isTextQuestion(questions.get(i))) {
+                continue;
+            }
+            List<String> texts = new ArrayList<>();
+            List<TestAttempt> owners = new ArrayList<>();
+            for (int a = 0; a < attempts.size(); a++) {
+                String text = sheets.get(a).text(i);
+                if (text != null && !text.isBlank()) {
+                    texts.add(text);
+                    owners.add(attempts.get(a));
+                }
+            }
+            if (texts.size() < 2) {
+                continue;
+            }
+            for (MinHashLsh.Match match : minHash.findSimilar(texts, similarityThreshold, maxPairsPerQuestion)) {
+                TestAttempt first = owners.get(match.first());
+                TestAttempt second = owners.get(match.second());
+                SimilarityFlag flag = new SimilarityFlag();
+                flag.setQuestionIndex(i);
+                flag.setQuestionText(questions.get(i).getQuestionText());
+                flag.setFirstStudentId(first.getStudentId());
+                flag.setFirstStudentName(names.getOrDefault(first.getStudentId(), "Unknown"));
+                flag.setFirstAnswer(excerpt(texts.get(match.first())));
+                flag.setSecondStudentId(second.getStudentId());
+                flag.setSecondStudentName(names.getOrDefault(second.getStudentId(), "Unknown"));
+                flag.setSecondAnswer(excerpt(texts.get(match.second())));
+                flag.setSimilarity(round(match.similarity()));
+                flags.add(flag);
+            }
+        }
+        return flags;
+    }
+
+    /* ===================== REPORT ===================== */
+
+    private TestReviewResponse.AIReport report(TestReviewResponse review) {
+        TestReviewResponse.TestStatistics stats = review.getStatistics();
+        TestReviewResponse.QuestionAnalysis analysis = review.getQuestionAnalysis();
+        TestReviewResponse.AIReport report = new TestReviewResponse.AIReport();
+
+        if (stats.getTotalStudents() == 0) {
+            report.setSummary("No students have completed this test yet.");
+            report.setInsights(List.of());
+            report.setRecommendations(List.of());
+            report.setAreasOfConcern(List.of());
+            report.setClassPerformance("Not enough data");
+            report.setSuggestedActions("Share the join code with your class to collect results.");
+            return report;
+        }
+
+        report.setSummary(String.format("%d students completed %s with an average of %.1f%% and a pass rate of %.1f%%.",
+                stats.getTotalStudents(), review.getTestTitle(), stats.getAverageScore(), stats.getPassRate()));
+        report.setClassPerformance(performanceLevel((int) Math.round(stats.getAverageScore())));
+
+        List<String> insights = new ArrayList<>();
+        insights.add(String.format("Scores range from %.0f%% to %.0f%% (median %.1f%%).",
+                stats.getLowestScore(), stats.getHighestScore(), stats.getMedianScore()));
+        if (stats.getStandardDeviation() >= 20) {
+            insights.add("Results are widely spread; the class is split between strong and struggling students.");
+        } else if (stats.getTotalStudents() > 1) {
+            insights.add("Results are fairly consistent across the class.");
+        }
+        report.setInsights(insights);
+
+        List<String> concerns = new ArrayList<>();
+        for (String question : analysis.getMostMissedQuestions()) {
+            concerns.add("Frequently missed - " + question);
+        }
+        if (stats.getPassRate() < 50) {
+            concerns.add("Fewer than half of the students passed.");
+        }
+        if (!review.getSimilarityFlags().isEmpty()) {
+            concerns.add(review.getSimilarityFlags().size() + " pair(s) of near-identical written answers need a closer look.");
+        }
+        if (!review.getAnswerPatternFlags().isEmpty()) {
+            concerns.add(review.getAnswerPatternFlags().size() + " pair(s) of students share unusually many identical wrong answers.");
+        }
+        report.setAreasOfConcern(concerns);
+
+        List<String> recommendations = new ArrayList<>();
+        if (!analysis.getMostMissedQuestions().isEmpty()) {
+            recommendations.add("Revisit the material behind the most missed questions.");
+        }
+        if (stats.getPassRate() < 70) {
+            recommendations.add("Offer a review session or practice test before moving on.");
+        }
+        if (recommendations.isEmpty()) {
+            recommendations.add("The class is ready for more advanced material.");
+        }
+        report.setRecommendations(recommendations);
+        boolean flagged = !review.getSimilarityFlags().isEmpty() || !review.getAnswerPatternFlags().isEmpty();
+        report.setSuggestedActions(flagged
+                ? "Follow up individually with students below the pass mark and review the flagged answer pairs."
+                : "Follow up individually with students below the pass mark.");
+        return report;
+    }
+
+    /* ===================== HELPERS ===================== */
+
+    private static boolean isTextQuestion(Question question) {
+        return question.getOptions() == null || question.getOptions().isEmpty();
+    }
+
+    private static String excerpt(String text) {
+        return text.length() <= EXCERPT_LENGTH ? text : text.substring(0, EXCERPT_LENGTH) + "...";
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static String grade(int score) {
+        if (score >= 90) return "A";
+        if (score >= 80) return "B";
+        if (score >= 70) return "C";
+        if (score >= 60) return "D";
+        return "F";
+    }
+
+    private static String performanceLevel(int score) {
+        if (score >= 90) return "Excellent";
+        if (score >= 80) return "Good";
+        if (score >= 70) return "Average";
+        return "Needs Improvement";
+    }
+}
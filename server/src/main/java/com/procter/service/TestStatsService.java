@@ -0,0 +1,210 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.cache.CacheRegistry;
+import com.procter.procter_app.cache.ExpiringLruCache;
+import com.procter.procter_app.dto.TeacherTestOverview;
+import com.procter.procter_app.model.Test;
+import com.procter.procter_app.model.TestAttempt;
+import com.procter.procter_app.model.TestStats;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the per-test counters behind the teacher overview up to date.
+ *
+ * Every hook is a single $inc on one small document. Tests created before the counters
+ * existed have no stats document; those are rebuilt from their attempts the first time
+ * the teacher overview asks for them, and increments are not applied until then.
+ */
+@Service
+public class TestStatsService {
+
+    // Same cut-off as the "D" grade used in the review endpoints
+    public static final int PASS_SCORE = 60;
+
+    private final MongoTemplate mongoTemplate;
+
+    // Proctoring samples arrive every few seconds; once a flag is stored the repeats skip the write
+    private final ExpiringLruCache<String, Boolean> flaggedStored;
+
+    public TestStatsService(MongoTemplate mongoTemplate,
+                            CacheRegistry cacheRegistry,
+                            @Value("${app.tests.flagged-cache.max-size:10000}") int flaggedCacheSize,
+                            @Value("${app.tests.flagged-cache.ttl-minutes:180}") long flaggedCacheTtlMinutes) {
+        this.mongoTemplate = mongoTemplate;
+        this.flaggedStored = cacheRegistry.register(
+                new ExpiringLruCache<>("flaggedStudents", flaggedCacheSize, Duration.ofMinutes(flaggedCacheTtlMinutes)));
+    }
+
+    /* ===================== HOOKS ===================== */
+
+    public void onTestCreated(Test test) {
+        mongoTemplate.save(initialStats(test));
+    }
+
+    // Bulk variant for imports: one insert for the whole batch
+    public void onTestsCreated(Collection<Test> tests) {
+        mongoTemplate.insertAll(tests.stream().map(TestStatsService::initialStats).collect(Collectors.toList()));
+    }
+
+    private static TestStats initialStats(Test test) {
+        TestStats stats = new TestStats();
+        stats.setTestId(test.getId());
+        stats.setTeacherId(test.getCreatedByTeacherId());
+        stats.setTitle(test.getTitle());
+        stats.setSubject(test.getSubject());
+        stats.setScheduledAt(test.getScheduledAt());
+        stats.setParticipantCount(test.getParticipantIds() != null ? test.getParticipantIds().size() : 0);
+        stats.setUpdatedAt(Instant.now());
+        return stats;
+    }
+
+    public void onParticipantJoined(String testId) {
+        increment(testId, new Update().inc("participantCount", 1));
+    }
+
+    public void onSubmission(String testId, int score) {
+        Update update = new Update()
+                .inc("submissionCount", 1)
+                .inc("scoreSum", score);
+        if (score >= PASS_SCORE) {
+            update.inc("passCount", 1);
+        }
+        increment(testId, update);
+    }
+
+    // A stored score changed without a new submission, e.g. a teacher confirmed a text grade
+    public void onScoreChanged(String testId, int oldScore, int newScore) {
+        if (oldScore == newScore) {
+            return;
+        }
+        Update update = new Update().inc("scoreSum", newScore - oldScore);
+        int passDelta = (newScore >= PASS_SCORE ? 1 : 0) - (oldScore >= PASS_SCORE ? 1 : 0);
+        if (passDelta != 0) {
+            update.inc("passCount", passDelta);
+        }
+        increment(testId, update);
+    }
+
+    /**
+     * Counts a student as flagged at most once per test. The $ne guard makes the
+     * add-and-increment a single atomic conditional update; the cache only skips repeats
+     * whose flag is known to be stored, so a failed write or a missing stats document is
+     * retried on the next sample. A student whose flag was stored before a restart or
+     * eviction matches no document through the guard, so that case is confirmed with a
+     * second read and cached too.
+     */
+    public void onStudentFlagged(String testId, String studentId) {
+        String key = testId + ":" + studentId;
+        if (flaggedStored.get(key) != null) {
+            return;
+        }
+        Query query = new Query(Criteria.where("_id").is(testId).and("flaggedStudentIds").ne(studentId));
+        Update update = new Update()
+                .addToSet("flaggedStudentIds", studentId)
+                .inc("flaggedCount", 1)
+                .set("updatedAt", Instant.now());
+        boolean stored = mongoTemplate.updateFirst(query, update, TestStats.class).getModifiedCount() == 1
+                || mongoTemplate.exists(new Query(Criteria.where("_id").is(testId).and("flaggedStudentIds").is(studentId)),
+                        TestStats.class);
+        if (stored) {
+            flaggedStored.put(key, Boolean.TRUE);
+        }
+    }
+
+    private void increment(String testId, Update update) {
+        // No upsert: a missing document is rebuilt in full by the overview
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(testId)),
+                update.set("updatedAt", Instant.now()), TestStats.class);
+    }
+
+    /* ===================== OVERVIEW ===================== */
+
+    public List<TeacherTestOverview> overviewForTeacher(String teacherId) {
+        Query statsQuery = new Query(Criteria.where("teacherId").is(teacherId));
+        statsQuery.fields().exclude("flaggedStudentIds");
+        Map<String, TestStats> stats = mongoTemplate.find(statsQuery, TestStats.class).stream()
+                .collect(Collectors.toMap(TestStats::getTestId, s -> s));
+
+        Query idsQuery = new Query(Criteria.where("createdByTeacherId").is(teacherId));
+        idsQuery.fields().include("_id");
+        for (Test test : mongoTemplate.find(idsQuery, Test.class)) {
+            if (!stats.containsKey(test.getId())) {
+                rebuild(test.getId()).ifPresent(s -> stats.put(s.getTestId(), s));
+            }
+        }
+
+        return stats.values().stream()
+                .sorted(Comparator.comparing(TestStats::getTestId).reversed())
+                .map(this::toOverview)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Recomputes the counters of one test from its participants and completed attempts.
+     * Flag counts are preserved since they are not derivable from stored data.
+     */
+    public Optional<TestStats> rebuild(String testId) {
+        Query testQuery = new Query(Criteria.where("_id").is(testId));
+        testQuery.fields().exclude("questions", "questionRefs");
+        Test test = mongoTemplate.findOne(testQuery, Test.class);
+        if (test == null) {
+            return Optional.empty();
+        }
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("testId").is(testId).and("isCompleted").is(true)),
+                Aggregation.group("testId")
+                        .count().as("submissionCount")
+                        .sum("score").as("scoreSum")
+                        .sum(ConditionalOperators.when(Criteria.where("score").gte(PASS_SCORE))
+                                .then(1).otherwise(0)).as("passCount")
+        );
+        Document totals = mongoTemplate.aggregate(aggregation, TestAttempt.class, Document.class)
+                .getUniqueMappedResult();
+
+        Update update = new Update()
+                .set("teacherId", test.getCreatedByTeacherId())
+                .set("title", test.getTitle())
+                .set("subject", test.getSubject())
+                .set("scheduledAt", test.getScheduledAt())
+                .set("participantCount", test.getParticipantIds() != null ? test.getParticipantIds().size() : 0)
+                .set("submissionCount", totals != null ? ((Number) totals.get("submissionCount")).intValue() : 0)
+                .set("scoreSum", totals != null ? ((Number) totals.get("scoreSum")).longValue() : 0L)
+                .set("passCount", totals != null ? ((Number) totals.get("passCount")).intValue() : 0)
+                .set("updatedAt", Instant.now());
+        mongoTemplate.upsert(new Query(Criteria.where("_id").is(testId)), update, TestStats.class);
+
+        Query statsQuery = new Query(Criteria.where("_id").is(testId));
+        statsQuery.fields().exclude("flaggedStudentIds");
+        return Optional.ofNullable(mongoTemplate.findOne(statsQuery, TestStats.class));
+    }
+
+    private TeacherTestOverview toOverview(TestStats stats) {
+        TeacherTestOverview overview = new TeacherTestOverview();
+        overview.setTestId(stats.getTestId());
+        overview.setTitle(stats.getTitle());
+        overview.setSubject(stats.getSubject());
+        overview.setScheduledAt(stats.getScheduledAt());
+        overview.setParticipantCount(stats.getParticipantCount());
+        overview.setSubmissionCount(stats.getSubmissionCount());
+        overview.setFlaggedCount(stats.getFlaggedCount());
+        if (stats.getSubmissionCount() > 0) {
+            overview.setAverageScore((double) stats.getScoreSum() / stats.getSubmissionCount());
+            overview.setPassRate(stats.getPassCount() * 100.0 / stats.getSubmissionCount());
+        }
+        return overview;
+    }
+}
@@ -0,0 +1,192 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.model.Question;
+import com.procter.procter_app.model.Test;
+
+import java.util.*;
+
+/**
+ * TF-IDF vectors for a test's free-text questions, built once from the teacher's sample
+ * answers, so scoring a student answer is one tokenization and a sparse dot product.
+ *
+ * Terms are stemmed words (stop words dropped) plus adjacent word pairs, which rewards
+ * answers that keep the sample's phrasing without requiring it. The question texts and
+ * sample answers of the whole test form the corpus, so terms every question shares weigh
+ * less than terms specific to one answer. Answer terms the index has never seen get the
+ * highest idf: they add to the answer's length but not to the match, which discounts padding.
+ */
+public final class TextAnswerIndex {
+
+    public record Score(double similarity, int answerTerms, int words) {}
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "been", "but", "by", "can", "do", "does", "for",
+            "from", "has", "have", "he", "her", "his", "how", "i", "if", "in", "into", "is", "it", "its",
+            "of", "on", "or", "our", "she", "so", "that", "the", "their", "them", "then", "there", "these",
+            "they", "this", "to", "was", "we", "were", "what", "when", "which", "who", "why", "will",
+            "with", "would", "you", "your");
+
+    private final Map<String, Integer> vocabulary = new HashMap<>();
+    private final double[] idf;
+    private final double unseenIdf;
+    // Per question: unit-length sample answer vector as parallel sorted term ids / weights; null if none
+    private final int[][] referenceTerms;
+    private final double[][] referenceWeights;
+
+    private TextAnswerIndex(List<Question> questions) {
+        int size = questions.size();
+        referenceTerms = new int[size][];
+        referenceWeights = new double[size][];
+
+        List<List<String>> documents = new ArrayList<>();
+        List<List<String>> samples = new ArrayList<>(Collections.nCopies(size, null));
+        for (int i = 0; i < size; i++) {
+            Question q = questions.get(i);
+            if (q.getQuestionText() != null) {
+                documents.add(terms(q.getQuestionText()));
+            }
+            if (isText(q) && q.getSampleAnswer() != null && !q.getSampleAnswer().isBlank()) {
+                samples.set(i, terms(q.getSampleAnswer()));
+                documents.add(samples.get(i));
+            }
+        }
+
+        Map<String, Integer> documentFrequency = new HashMap<>();
+        for (List<String> document : documents) {
+            for (String term : new HashSet<>(document)) {
+                documentFrequency.merge(term, 1, Integer::sum);
+                vocabulary.computeIfAbsent(term, t -> vocabulary.size());
+            }
+        }
+        idf = new double[vocabulary.size()];
+        vocabulary.forEach((term, id) -> idf[id] = idf(documents.size(), documentFrequency.get(term)));
+        unseenIdf = idf(documents.size(), 0);
+
+        for (int i = 0; i < size; i++) {
+            if (samples.get(i) != null && !samples.get(i).isEmpty()) {
+                Map<Integer, Double> weights = weigh(samples.get(i));
+                referenceTerms[i] = weights.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+                referenceWeights[i] = Arrays.stream(referenceTerms[i]).mapToDouble(weights::get).toArray();
+                normalize(referenceWeights[i]);
+            }
+        }
+    }
+
+    public static TextAnswerIndex build(Test test) {
+        return new TextAnswerIndex(test.getQuestions() != null ? test.getQuestions() : List.of());
+    }
+
+    public boolean canScore(int questionIndex) {
+        return questionIndex >= 0 && questionIndex < referenceTerms.length && referenceTerms[questionIndex] != null;
+    }
+
+    public int vocabularySize() {
+        return vocabulary.size();
+    }
+
+    /**
+     * Cosine similarity between the answer and the question's sample answer, in [0, 1].
+     * Only call for questions where {@link #canScore} is true.
+     */
+    public Score score(int questionIndex, String answer) {
+        List<String> terms = terms(answer);
+        int words = answer.isBlank() ? 0 : answer.trim().split("\\s+").length;
+        if (terms.isEmpty()) {
+            return new Score(0, 0, words);
+        }
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (String term : terms) {
+            counts.merge(term, 1, Integer::sum);
+        }
+        int[] reference = referenceTerms[questionIndex];
+        double[] referenceWeight = referenceWeights[questionIndex];
+        double dot = 0;
+        double norm = 0;
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            Integer id = vocabulary.get(entry.getKey());
+            double weight = (1 + Math.log(entry.getValue())) * (id != null ? idf[id] : unseenIdf);
+            norm += weight * weight;
+            if (id != null) {
+                int at = Arrays.binarySearch(reference, id);
+                if (at >= 0) {
+                    dot += weight * referenceWeight[at];
+                }
+            }
+        }
+        double similarity = norm > 0 ? Math.min(1.0, dot / Math.sqrt(norm)) : 0;
+        return new Score(similarity, counts.size(), words);
+    }
+
+    /* ===================== TERMS ===================== */
+
+    private Map<Integer, Double> weigh(List<String> terms) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (String term : terms) {
+            counts.merge(vocabulary.get(term), 1, Integer::sum);
+        }
+        Map<Integer, Double> weights = new HashMap<>();
+        counts.forEach((id, count) -> weights.put(id, (1 + Math.log(count)) * idf[id]));
+        return weights;
+    }
+
+    // Stemmed content words followed by adjacent pairs of them
+    static List<String> terms(String text) {
+        List<String> words = words(text);
+        List<String> terms = new ArrayList<>(words);
+        for (int i = 1; i < words.size(); i++) {
+            terms.add(words.get(i - 1) + " " + words.get(i));
+        }
+        return terms;
+    }
+
+    // Lower-cased, stemmed words without stop words; shared with QuestionSearchIndex
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty() && !STOP_WORDS.contains(token)) {
+                words.add(stem(token));
+            }
+        }
+        return words;
+    }
+
+    // Strips the commonest English suffixes and a final e; enough to match "produce" / "produces" / "producing"
+    static String stem(String word) {
+        if (word.length() <= 4) {
+            return word;
+        }
+        String stem = word;
+        for (String suffix : new String[]{"ational", "ations", "ation", "ness", "ment", "ing", "ies", "ed", "ly", "es", "s"}) {
+            if (word.endsWith(suffix) && word.length() - suffix.length() >= 3) {
+                stem = word.substring(0, word.length() - suffix.length());
+                if (suffix.equals("ies")) {
+                    stem += "y";
+                }
+                break;
+            }
+        }
+        return stem.length() > 4 && stem.endsWith("e") ? stem.substring(0, stem.length() - 1) : stem;
+    }
+
+    private static double idf(int documents, int frequency) {
+        return Math.log((documents + 1.0) / (frequency + 1.0)) + 1.0;
+    }
+
+    private static void normalize(double[] weights) {
+        double norm = 0;
+        for (double w : weights) {
+            norm += w * w;
+        }
+        norm = Math.sqrt(norm);
+        if (norm > 0) {
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] /= norm;
+            }
+        }
+    }
+
+    private static boolean isText(Question q) {
+        return q.getOptions() == null || q.getOptions().isEmpty();
+    }
+}
@@ -0,0 +1,264 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.cache.CacheRegistry;
+import com.procter.procter_app.cache.ExpiringLruCache;
+import com.procter.procter_app.model.AnswerSheet;
+import com.procter.procter_app.model.Question;
+import com.procter.procter_app.model.Test;
+import com.procter.procter_app.model.TestAttempt;
+import com.procter.procter_app.model.TextGrade;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/**
+ * Suggested scores for free-text answers, for the teacher to confirm or override.
+ *
+ * Grading still marks text answers as not correct. With app.grading.text-suggestions.enabled,
+ * each completed attempt is queued on a small worker pool that scores its text answers
+ * against the question's sampleAnswer with a {@link TextAnswerIndex} (built once per test and
+ * cached) and stores the result as the answer's {@link TextGrade}. Nothing leaves the
+ * server. A teacher's confirmation sets {@code awardedPoints} and, for full marks, marks the
+ * question correct, and recomputes the attempt's score.
+ */
+@Service
+public class TextGradingService {
+
+    public static final String PENDING = "PENDING";
+    public static final String CONFIRMED = "CONFIRMED";
+    // Re-reads allowed when a concurrent confirm or regrade changes the attempt under a confirm
+    private static final int MAX_WRITE_TRIES = 5;
+
+    private static final Logger log = LoggerFactory.getLogger(TextGradingService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final CoalescingLoader coalescingLoader;
+    private final TestStatsService testStatsService;
+    private final AttemptAnalyticsService attemptAnalyticsService;
+    private final AnalyticsPrecomputeService analyticsPrecomputeService;
+    private final boolean enabled;
+    private final double floor;
+    private final double ceiling;
+    private final ExpiringLruCache<String, TextAnswerIndex> indexes;
+    private final ExecutorService workers;
+
+    public TextGradingService(MongoTemplate mongoTemplate,
+                              CoalescingLoader coalescingLoader,
+                              TestStatsService testStatsService,
+                              AttemptAnalyticsService attemptAnalyticsService,
+                              AnalyticsPrecomputeService analyticsPrecomputeService,
+                              CacheRegistry cacheRegistry,
+                              @Value("${app.grading.text-suggestions.enabled:false}") boolean enabled,
+                              @Value("${app.grading.text-suggestions.zero-credit-below:0.15}") double floor,
+                              @Value("${app.grading.text-suggestions.full-credit-above:0.7}") double ceiling,
+                              @Value("${app.grading.text-suggestions.threads:2}") int threads,
+                              @Value("${app.grading.text-suggestions.index-cache-size:200}") int indexCacheSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.coalescingLoader = coalescingLoader;
+        this.testStatsService = testStatsService;
+        this.attemptAnalyticsService = attemptAnalyticsService;
+        this.analyticsPrecomputeService = analyticsPrecomputeService;
+        this.enabled = enabled;
+        this.floor = floor;
+        this.ceiling = Math.max(ceiling, floor + 0.01);
+        this.indexes = cacheRegistry.register(
+                new ExpiringLruCache<>("textAnswerIndexes", indexCacheSize, Duration.ofHours(6)));
+        this.workers = Executors.newFixedThreadPool(Math.max(1, threads), DaemonThreads.named("text-grader-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /* ===================== SUGGESTIONS ===================== */
+
+    public void onSubmission(TestAttempt attempt) {
+        if (enabled) {
+            workers.execute(() -> suggest(attempt));
+        }
+    }
+
+    /**
+     * Queues every completed attempt of the test for scoring, e.g. after a sample answer
+     * was added. Answers a teacher already confirmed are left alone.
+     *
+     * @return the number of attempts queued
+     */
+    public int suggestAll(Test test) {
+        indexes.invalidate(test.getId());
+        Query query = new Query(Criteria.where("testId").is(test.getId()).and("isCompleted").is(true));
+        query.fields().include("testId", "sheet", "answers");
+        int queued = 0;
+        try (Stream<TestAttempt> attempts = mongoTemplate.stream(query, TestAttempt.class)) {
+            for (TestAttempt attempt : (Iterable<TestAttempt>) attempts::iterator) {
+                workers.execute(() -> suggest(attempt));
+                queued++;
+            }
+        }
+        return queued;
+    }
+
+    public void invalidate(String testId) {
+        indexes.invalidate(testId);
+    }
+
+    private void suggest(TestAttempt attempt) {
+        try {
+            Optional<Test> test = coalescingLoader.findTestById(attempt.getTestId());
+            AnswerSheet sheet = attempt.getSheet();
+            if (test.isEmpty() || sheet == null) {
+                return;
+            }
+            List<Question> questions = test.get().getQuestions();
+            TextAnswerIndex index = indexes.get(attempt.getTestId(), id -> TextAnswerIndex.build(test.get()));
+
+            boolean legacy = attempt.hasLegacyAnswers();
+            Map<Integer, TextGrade> suggested = new LinkedHashMap<>();
+            for (int q = 0; q < sheet.size(); q++) {
+                String text = sheet.text(q);
+                TextGrade existing = sheet.textGrade(q);
+                if (text == null || !index.canScore(q) || (existing != null && existing.getAwardedPoints() != null)) {
+                    continue;
+                }
+                TextGrade grade = suggestion(index.score(q, text), questions.get(q));
+                sheet.putTextGrade(q, grade);
+                suggested.put(q, grade);
+            }
+            if (suggested.isEmpty()) {
+                return;
+            }
+            // The attempt was read when it was queued; a teacher may have confirmed since, so each
+            // write only lands where the stored answer still has no awarded points
+            if (legacy) {
+                // Any confirmation converts the document, so a legacy one has none
+                mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(attempt.getId()).and("answers").exists(true)),
+                        rewriteLegacy(sheet), TestAttempt.class);
+                return;
+            }
+            suggested.forEach((q, grade) -> mongoTemplate.updateFirst(
+                    new Query(Criteria.where("_id").is(attempt.getId())
+                            .and("sheet.textGrades." + q + ".awardedPoints").exists(false)),
+                    new Update().set("sheet.textGrades." + q, grade), TestAttempt.class));
+        } catch (Exception e) {
+            log.warn("Could not score text answers of attempt {}: {}", attempt.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Similarity below zero-credit-below earns nothing, above full-credit-above earns full
+     * points, linear in between, rounded to half points. Confidence is highest at either end
+     * of that range and drops for answers of under three words or over the word limit.
+     */
+    private TextGrade suggestion(TextAnswerIndex.Score score, Question question) {
+        int maxPoints = question.getPoints() > 0 ? question.getPoints() : 1;
+        double fraction = Math.max(0, Math.min(1, (score.similarity() - floor) / (ceiling - floor)));
+        double points = Math.round(fraction * maxPoints * 2) / 2.0;
+        boolean overWordLimit = question.getWordLimit() != null && question.getWordLimit() > 0
+                && score.words() > question.getWordLimit();
+
+        double confidence = 0.5 + Math.abs(fraction - 0.5);
+        if (score.words() < 3) confidence *= 0.6;
+        if (overWordLimit) confidence *= 0.8;
+
+        TextGrade grade = new TextGrade();
+        grade.setSimilarity(round(score.similarity()));
+        grade.setSuggestedPoints(points);
+        grade.setMaxPoints(maxPoints);
+        grade.setConfidence(round(confidence));
+        grade.setOverWordLimit(overWordLimit);
+        grade.setStatus(PENDING);
+        grade.setScoredAt(Instant.now());
+        return grade;
+    }
+
+    /* ===================== CONFIRMATION ===================== */
+
+    /**
+     * Records the teacher's points for one text answer. Full marks count the question as
+     * correct; the attempt's correctAnswers and score are recomputed. The test's stats get the
+     * score delta, the analytics column store reloads at most once per reload delay, and the student's
+     * precomputed analytics are dropped.
+     *
+     * @return the updated attempt, or empty if the test has no such completed attempt
+     * @throws IllegalArgumentException if the question is not a text question or points are out of range
+     */
+    public Optional<TestAttempt> confirm(Test test, String attemptId, int questionIndex, double points) {
+        List<Question> questions = test.getQuestions() != null ? test.getQuestions() : List.of();
+        if (questionIndex < 0 || questionIndex >= questions.size()
+                || (questions.get(questionIndex).getOptions() != null && !questions.get(questionIndex).getOptions().isEmpty())) {
+            throw new IllegalArgumentException("Question " + questionIndex + " is not a text question");
+        }
+        int maxPoints = questions.get(questionIndex).getPoints() > 0 ? questions.get(questionIndex).getPoints() : 1;
+        if (points < 0 || points > maxPoints) {
+            throw new IllegalArgumentException("points must be between 0 and " + maxPoints);
+        }
+
+        boolean fullMarks = points >= maxPoints;
+        for (int tries = 0; tries < MAX_WRITE_TRIES; tries++) {
+            TestAttempt attempt = mongoTemplate.findOne(new Query(Criteria.where("_id").is(attemptId)
+                    .and("testId").is(test.getId()).and("isCompleted").is(true)), TestAttempt.class);
+            AnswerSheet sheet = attempt != null ? attempt.getSheet() : null;
+            if (sheet == null || questionIndex >= sheet.size()) {
+                return Optional.empty();
+            }
+            // Taken before the copy is changed: the write only lands if the stored grades still match it
+            Query unchanged = GradingService.unchangedGrades(attempt);
+
+            TextGrade grade = sheet.textGrade(questionIndex) != null ? sheet.textGrade(questionIndex) : new TextGrade();
+            grade.setAwardedPoints(points);
+            if (grade.getStatus() != null) {
+                grade.setStatus(CONFIRMED);
+            }
+            sheet.putTextGrade(questionIndex, grade);
+            sheet.setCorrect(questionIndex, fullMarks);
+            int correct = sheet.correctCount();
+
+            Update update = attempt.hasLegacyAnswers()
+                    ? rewriteLegacy(sheet)
+                    : new Update().set("sheet.textGrades." + questionIndex, grade).set("sheet.correct", sheet.getCorrect());
+
+            int total = attempt.getTotalQuestions();
+            int score = GradingService.score(correct, total);
+            int previousScore = attempt.getScore();
+            attempt.setCorrectAnswers(correct);
+            attempt.setScore(score);
+            update.set("correctAnswers", correct).set("score", score);
+            if (mongoTemplate.updateFirst(unchanged, update, TestAttempt.class).getMatchedCount() > 0) {
+                // Per click: a counter delta, a coalesced column store reload and one snapshot delete
+                testStatsService.onScoreChanged(test.getId(), previousScore, score);
+                attemptAnalyticsService.reloadSoon();
+                analyticsPrecomputeService.invalidate(List.of(attempt.getStudentId()));
+                return Optional.of(attempt);
+            }
+        }
+        throw new IllegalStateException("Attempt " + attemptId + " kept changing while it was being graded");
+    }
+
+    // A document still in the legacy shape gets its whole converted sheet, never a partial one
+    private static Update rewriteLegacy(AnswerSheet sheet) {
+        return new Update().set("sheet", sheet).unset("answers");
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+}
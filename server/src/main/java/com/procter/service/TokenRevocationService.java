@@ -0,0 +1,267 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.cache.BloomFilter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory denylist for access tokens, consulted on every authenticated request.
+ *
+ * Two kinds of entries:
+ *  - a revoked token id (the jti claim), e.g. on logout;
+ *  - a per-user "not before" time: every token of that user issued earlier is rejected,
+ *    which kicks a compromised account out of all its sessions at once.
+ *
+ * Token ids go into a Bloom filter in front of the exact map, so the common case (token
+ * not revoked) is a few bit probes and never touches the map. Each entry expires together
+ * with the last token it can affect and is then dropped by the periodic purge.
+ *
+ * Each revocation is appended to a journal next to the state file, so a logout costs one
+ * small write however many entries exist. The purge and shutdown compact everything into the
+ * state file and start an empty journal; startup reads the state file and replays the journal.
+ * State is per-instance: with several server instances each one needs the same revocations.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private static final int FILE_VERSION = 1;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final byte JOURNAL_TOKEN = 1;
+    private static final byte JOURNAL_USER = 2;
+
+    private final Path stateFile;
+    private final Path journalFile;
+    // Open append stream of the journal; guarded by this
+    private DataOutputStream journal;
+    private final int expectedEntries;
+    private final long tokenLifetimeSeconds;
+
+    // jti -> epoch second the token expires
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    // userId -> [notBefore, expiresAt] in epoch seconds
+    private final Map<String, long[]> userNotBefore = new ConcurrentHashMap<>();
+    private volatile BloomFilter revokedFilter;
+
+    public TokenRevocationService(@Value("${app.auth.revocation.file:${java.io.tmpdir}/procter-revocations.bin}") String stateFile,
+                                  @Value("${app.auth.revocation.expected-entries:100000}") int expectedEntries,
+                                  @Value("${app.jwt.expiration}") long expirationMs) {
+        this.stateFile = Paths.get(stateFile);
+        this.journalFile = this.stateFile.resolveSibling(this.stateFile.getFileName() + ".journal");
+        this.expectedEntries = expectedEntries;
+        this.tokenLifetimeSeconds = Math.max(1, expirationMs / 1000);
+        this.revokedFilter = new BloomFilter(expectedEntries, FALSE_POSITIVE_RATE);
+    }
+
+    /* ===================== CHECK ===================== */
+
+    public boolean isRevoked(JwtService.VerifiedToken token) {
+        if (token.userId() != null && !userNotBefore.isEmpty()) {
+            long[] entry = userNotBefore.get(token.userId());
+            // iat has whole seconds, so a token from the second of the sign-out is rejected as well
+            if (entry != null && (token.issuedAt() == null || token.issuedAt().getEpochSecond() <= entry[0])) {
+                return true;
+            }
+        }
+        String jti = token.jti();
+        return jti != null && revokedFilter.mightContain(jti) && revokedTokens.containsKey(jti);
+    }
+
+    /* ===================== REVOKE ===================== */
+
+    public synchronized void revokeToken(String jti, Instant expiresAt) {
+        if (jti == null || expiresAt == null || !expiresAt.isAfter(Instant.now())) {
+            return;
+        }
+        revokedFilter.add(jti);
+        revokedTokens.put(jti, expiresAt.getEpochSecond());
+        append(JOURNAL_TOKEN, jti, expiresAt.getEpochSecond(), 0L);
+    }
+
+    /**
+     * Rejects every token of the user issued up to now, including the current second. The
+     * entry can be dropped once the longest-lived of those tokens has expired.
+     */
+    public synchronized void revokeUser(String userId) {
+        long now = Instant.now().getEpochSecond();
+        userNotBefore.put(userId, new long[]{now, now + tokenLifetimeSeconds});
+        append(JOURNAL_USER, userId, now, now + tokenLifetimeSeconds);
+    }
+
+    @Scheduled(fixedDelayString = "${app.auth.revocation.purge-interval-ms:600000}")
+    public synchronized void purgeExpired() {
+        long now = Instant.now().getEpochSecond();
+        boolean changed = revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        changed |= userNotBefore.values().removeIf(entry -> entry[1] <= now);
+        if (changed) {
+            rebuildFilter();
+        }
+        if (changed || Files.exists(journalFile)) {
+            persist();
+        }
+    }
+
+    @PreDestroy
+    synchronized void shutdown() {
+        persist();
+        closeJournal();
+    }
+
+    // Bloom filters cannot delete, so a purge starts a fresh one from the surviving ids
+    private void rebuildFilter() {
+        BloomFilter filter = new BloomFilter(Math.max(expectedEntries, revokedTokens.size() * 2), FALSE_POSITIVE_RATE);
+        revokedTokens.keySet().forEach(filter::add);
+        revokedFilter = filter;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("revokedTokens", revokedTokens.size());
+        stats.put("revokedUsers", userNotBefore.size());
+        stats.put("stateFile", stateFile.toString());
+        return stats;
+    }
+
+    /* ===================== PERSISTENCE ===================== */
+
+    @PostConstruct
+    synchronized void load() {
+        long now = Instant.now().getEpochSecond();
+        readState(now);
+        replayJournal(now);
+        rebuildFilter();
+        log.info("Loaded {} revoked tokens and {} revoked users", revokedTokens.size(), userNotBefore.size());
+    }
+
+    private void readState(long now) {
+        if (!Files.isRegularFile(stateFile)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(stateFile)))) {
+            if (in.readInt() != FILE_VERSION) {
+                log.warn("Ignoring revocation state {} with unknown version", stateFile);
+                return;
+            }
+            int tokens = in.readInt();
+            for (int i = 0; i < tokens; i++) {
+                String jti = in.readUTF();
+                long expiresAt = in.readLong();
+                if (expiresAt > now) revokedTokens.put(jti, expiresAt);
+            }
+            int users = in.readInt();
+            for (int i = 0; i < users; i++) {
+                String userId = in.readUTF();
+                long notBefore = in.readLong();
+                long expiresAt = in.readLong();
+                if (expiresAt > now) userNotBefore.put(userId, new long[]{notBefore, expiresAt});
+            }
+        } catch (IOException e) {
+            log.error("Could not read revocation state {}", stateFile, e);
+        }
+    }
+
+    // A crash can leave a torn last record; everything before it is kept
+    private void replayJournal(long now) {
+        if (!Files.isRegularFile(journalFile)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(journalFile)))) {
+            while (true) {
+                byte type = in.readByte();
+                String id = in.readUTF();
+                long first = in.readLong();
+                long second = in.readLong();
+                if (type == JOURNAL_TOKEN && first > now) {
+                    revokedTokens.put(id, first);
+                } else if (type == JOURNAL_USER && second > now) {
+                    userNotBefore.put(id, new long[]{first, second});
+                }
+            }
+        } catch (EOFException e) {
+            // End of journal
+        } catch (IOException e) {
+            log.error("Could not replay revocation journal {}", journalFile, e);
+        }
+    }
+
+    private void append(byte type, String id, long first, long second) {
+        try {
+            if (journal == null) {
+                Path dir = journalFile.toAbsolutePath().getParent();
+                if (dir != null) {
+                    Files.createDirectories(dir);
+                }
+                journal = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(journalFile,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE)));
+            }
+            journal.writeByte(type);
+            journal.writeUTF(id);
+            journal.writeLong(first);
+            journal.writeLong(second);
+            journal.flush();
+        } catch (IOException e) {
+            closeJournal();
+            log.error("Could not append to revocation journal {}", journalFile, e);
+        }
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                log.warn("Could not close revocation journal {}: {}", journalFile, e.getMessage());
+            }
+            journal = null;
+        }
+    }
+
+    /**
+     * Compacts the state into the state file and empties the journal. Written to a temp file
+     * and moved into place so a crash never leaves a torn file; the journal is only deleted
+     * once the state file holds everything in it.
+     */
+    private void persist() {
+        try {
+            Path dir = stateFile.toAbsolutePath().getParent();
+            if (dir != null) {
+                Files.createDirectories(dir);
+            }
+            Path temp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FILE_VERSION);
+                Map<String, Long> tokens = Map.copyOf(revokedTokens);
+                out.writeInt(tokens.size());
+                for (Map.Entry<String, Long> e : tokens.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    out.writeLong(e.getValue());
+                }
+                Map<String, long[]> users = Map.copyOf(userNotBefore);
+                out.writeInt(users.size());
+                for (Map.Entry<String, long[]> e : users.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    out.writeLong(e.getValue()[0]);
+                    out.writeLong(e.getValue()[1]);
+                }
+            }
+            Files.move(temp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            closeJournal();
+            Files.deleteIfExists(journalFile);
+        } catch (IOException e) {
+            log.error("Could not persist revocation state to {}", stateFile, e);
+        }
+    }
+}
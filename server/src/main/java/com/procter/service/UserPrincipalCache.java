@@ -0,0 +1,74 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.cache.CacheRegistry;
+import com.procter.procter_app.cache.ExpiringLruCache;
+import com.procter.procter_app.model.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Caches the User resolved from a JWT subject (the email), so authenticated requests and
+ * STOMP connects do not read the users collection every time.
+ *
+ * Entries live for a short TTL at most. Any save of a User through the repository drops the
+ * cached copy for its id (which covers profile and role changes); profile updates that
+ * change the email also invalidate the old address explicitly.
+ */
+@Service
+public class UserPrincipalCache {
+
+    private final CoalescingLoader coalescingLoader;
+    private final ExpiringLruCache<String, User> byEmail;
+
+    public UserPrincipalCache(CoalescingLoader coalescingLoader,
+                              CacheRegistry cacheRegistry,
+                              @Value("${app.auth.principal-cache.max-size:10000}") int maxSize,
+                              @Value("${app.auth.principal-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.coalescingLoader = coalescingLoader;
+        this.byEmail = cacheRegistry.register(
+                new ExpiringLruCache<>("userPrincipals", maxSize, Duration.ofSeconds(ttlSeconds)));
+    }
+
+    public Optional<User> findByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(byEmail.get(email, key -> coalescingLoader.findUserByEmail(key).orElse(null)));
+    }
+
+    public void invalidateEmail(String email) {
+        byEmail.invalidate(email);
+    }
+
+    // Matching on id as well catches a cached copy still stored under a previous email
+    public void invalidate(User user) {
+        if (user == null) {
+            return;
+        }
+        byEmail.invalidate(user.getEmail());
+        if (user.getId() != null) {
+            byEmail.invalidateIf(cached -> Objects.equals(cached.getId(), user.getId()));
+        }
+    }
+
+    @EventListener
+    public void onAfterSave(AfterSaveEvent<?> event) {
+        if (event.getSource() instanceof User user) {
+            invalidate(user);
+        }
+    }
+
+    @EventListener
+    public void onAfterDelete(AfterDeleteEvent<?> event) {
+        if (User.class.equals(event.getType())) {
+            byEmail.invalidateAll();
+        }
+    }
+}
@@ -11,9 +11,15 @@ import java.util.Optional;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final UserPrincipalCache userPrincipalCache;
+    private final RefreshTokenService refreshTokenService;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository,
+                       UserPrincipalCache userPrincipalCache,
+                       RefreshTokenService refreshTokenService) {
         this.userRepository = userRepository;
+        this.userPrincipalCache = userPrincipalCache;
+        this.refreshTokenService = refreshTokenService;
     }
 
     /**
@@ -37,6 +43,7 @@ public class UserService {
             }
 
             // Update email if a new value is provided
+            String previousEmail = user.getEmail();
             if (request.getEmail() != null && !request.getEmail().isBlank()) {
                 user.setEmail(request.getEmail());
             }
@@ -51,7 +58,14 @@ public class UserService {
                 user.setProfilePictureUrl(imageUrl);
             }
 
-            return userRepository.save(user);
+            User saved = userRepository.save(user);
+            // Tokens issued for the old email must stop resolving to this user
+            userPrincipalCache.invalidateEmail(previousEmail);
+            userPrincipalCache.invalidate(saved);
+            if (!saved.getEmail().equals(previousEmail)) {
+                refreshTokenService.onEmailChanged(saved.getId(), saved.getEmail());
+            }
+            return saved;
         });
     }
 
@@ -75,6 +89,7 @@ public class UserService {
             }
 
             // Update email if a new value is provided
+            String previousEmail = user.getEmail();
             if (request.getEmail() != null && !request.getEmail().isBlank()) {
                 user.setEmail(request.getEmail());
             }
@@ -89,7 +104,14 @@ public class UserService {
                 user.setProfilePictureUrl(imageUrl);
             }
 
-            return userRepository.save(user);
+            User saved = userRepository.save(user);
+            // Tokens issued for the old email must stop resolving to this user
+            userPrincipalCache.invalidateEmail(previousEmail);
+            userPrincipalCache.invalidate(saved);
+            if (!saved.getEmail().equals(previousEmail)) {
+                refreshTokenService.onEmailChanged(saved.getId(), saved.getEmail());
+            }
+            return saved;
         });
     }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.procter.procter_app.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpiringLruCacheTest {
+
+    @Test
+    void loadRacingAnInvalidationIsNotCached() {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>("test", 100, Duration.ofMinutes(5));
+
+        // The save lands (and invalidates) while the old value is being read
+        String loaded = cache.get("user", key -> {
+            cache.invalidate(key);
+            return "stale";
+        });
+
+        assertEquals("stale", loaded);
+        assertNull(cache.get("user"));
+        assertEquals("fresh", cache.get("user", key -> "fresh"));
+        assertEquals("fresh", cache.get("user"));
+    }
+
+    @Test
+    void invalidateIfAlsoDiscardsLoadsInFlight() {
+        ExpiringLruCache<String, String> cache = new ExpiringLruCache<>("test", 100, Duration.ofMinutes(5));
+
+        cache.get("user", key -> {
+            cache.invalidateIf(value -> value.startsWith("id-1"));
+            return "id-1:old@example.com";
+        });
+
+        assertNull(cache.get("user"));
+    }
+}
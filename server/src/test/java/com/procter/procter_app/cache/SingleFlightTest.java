@@ -0,0 +1,136 @@
+package com.procter.procter_app.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 32;
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>("test");
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = submitAll(() -> flight.load("k", () -> {
+            loads.incrementAndGet();
+            await(release);
+            return "value";
+        }));
+        waitForCalls(flight, CALLERS);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("value", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(CALLERS, flight.getCalls());
+        assertEquals(1, flight.getExecutions());
+        assertEquals(CALLERS - 1, flight.getCoalesced());
+        assertEquals(CALLERS, flight.getFanIn(), 0.0001);
+        assertEquals(0, flight.getInFlight());
+    }
+
+    @Test
+    void loaderExceptionReachesEveryCallerAndIsNotRemembered() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>("test");
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = submitAll(() -> flight.load("k", () -> {
+            await(release);
+            throw new IllegalStateException("mongo down");
+        }));
+        waitForCalls(flight, CALLERS);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+            assertEquals("mongo down", e.getCause().getMessage());
+        }
+        assertEquals(1, flight.getFailures());
+
+        // The failure is not cached: the next call runs the loader again
+        assertEquals("recovered", flight.load("k", () -> "recovered"));
+        assertEquals(2, flight.getExecutions());
+    }
+
+    @Test
+    void callersAfterForgetDoNotGetTheResultReadBeforeTheWrite() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>("test");
+        CountDownLatch staleRead = new CountDownLatch(1);
+        CountDownLatch releaseStale = new CountDownLatch(1);
+
+        Future<String> before = pool.submit(() -> flight.load("k", () -> {
+            staleRead.countDown();
+            await(releaseStale);
+            return "v1";
+        }));
+        assertTrue(staleRead.await(5, TimeUnit.SECONDS));
+
+        // A write lands while v1 is still in flight
+        flight.forget("k");
+        String after = flight.load("k", () -> "v2");
+        releaseStale.countDown();
+
+        assertEquals("v2", after);
+        assertEquals("v1", before.get(5, TimeUnit.SECONDS));
+        assertEquals(2, flight.getExecutions());
+
+        // The stale flight finishing must not detach a newer one
+        assertEquals(0, flight.getInFlight());
+        assertEquals("v3", flight.load("k", () -> "v3"));
+    }
+
+    @Test
+    void differentKeysDoNotShare() {
+        SingleFlight<String, String> flight = new SingleFlight<>("test");
+        assertEquals("a", flight.load("a", () -> "a"));
+        assertEquals("b", flight.load("b", () -> "b"));
+        assertEquals(2, flight.getExecutions());
+        assertEquals(1.0, flight.getFanIn(), 0.0001);
+    }
+
+    /* ===================== HELPERS ===================== */
+
+    private List<Future<String>> submitAll(Callable<String> call) {
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            futures.add(pool.submit(call));
+        }
+        return futures;
+    }
+
+    // Every caller has registered (joined or started the flight) before the loader is released
+    private static void waitForCalls(SingleFlight<?, ?> flight, int calls) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (flight.getCalls() < calls) {
+            assertTrue(System.nanoTime() < deadline, "callers did not arrive");
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
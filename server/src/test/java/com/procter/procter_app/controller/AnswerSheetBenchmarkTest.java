@@ -0,0 +1,223 @@
+package com.procter.procter_app.controller;
+
+import com.procter.procter_app.cache.CacheRegistry;
+import com.procter.procter_app.dto.StudentTestReviewResponse;
+import com.procter.procter_app.model.AnswerSheet;
+import com.procter.procter_app.model.Question;
+import com.procter.procter_app.model.Test;
+import com.procter.procter_app.model.TestAttempt;
+import com.procter.procter_app.service.AnswerKey;
+import com.procter.procter_app.service.GradingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.Tag;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stored size and review-assembly cost of a graded attempt, legacy answers list vs. AnswerSheet.
+ * Correctness and the size reduction are asserted on every build; the timing run is tagged
+ * "benchmark", prints ns/op and only runs with -Pbenchmarks.
+ */
+class AnswerSheetBenchmarkTest {
+
+    private static final int QUESTIONS = 60;
+    private static final int ITERATIONS = 20_000;
+
+    private final MappingMongoConverter converter = converter();
+    private final Test test = test();
+    private final List<Object> submitted = submission();
+
+    @org.junit.jupiter.api.Test
+    void legacyDocumentsReadBackAsTheSameSheet() {
+        TestAttempt graded = graded();
+        Document legacy = legacyDocument(graded);
+
+        TestAttempt read = converter.read(TestAttempt.class, legacy);
+        assertTrue(read.hasLegacyAnswers());
+        AnswerSheet sheet = read.getSheet();
+        AnswerSheet expected = graded.getSheet();
+        assertEquals(QUESTIONS, sheet.size());
+        for (int q = 0; q < QUESTIONS; q++) {
+            assertEquals(expected.response(q, test.getQuestions().get(q)), sheet.response(q, test.getQuestions().get(q)), "question " + q);
+            assertEquals(expected.isCorrect(q), sheet.isCorrect(q), "question " + q);
+        }
+        assertEquals(expected.correctCount(), sheet.correctCount());
+
+        List<StudentTestReviewResponse.QuestionResult> fromSheet = StudentController.buildQuestionResults(test, read);
+        List<StudentTestReviewResponse.QuestionResult> fromLegacy = legacyQuestionResults(test, legacyAnswers(legacy));
+        for (int q = 0; q < QUESTIONS; q++) {
+            assertEquals(fromLegacy.get(q).getStudentAnswer(), fromSheet.get(q).getStudentAnswer(), "question " + q);
+            assertEquals(fromLegacy.get(q).isCorrect(), fromSheet.get(q).isCorrect(), "question " + q);
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void sheetIsStoredSmallerThanLegacyAnswers() {
+        TestAttempt graded = graded();
+        Document current = new Document();
+        converter.write(graded, current);
+
+        assertTrue(bsonSize(current) < bsonSize(legacyDocument(graded)));
+    }
+
+    @org.junit.jupiter.api.Test
+    @Tag("benchmark")
+    void storageSizeAndReviewAssembly() {
+        TestAttempt graded = graded();
+        Document legacy = legacyDocument(graded);
+        Document current = new Document();
+        converter.write(graded, current);
+
+        int legacyBytes = bsonSize(legacy);
+        int sheetBytes = bsonSize(current);
+        System.out.printf("Stored attempt with %d questions: legacy answers %d bytes, answer sheet %d bytes (%.0f%%)%n",
+                QUESTIONS, legacyBytes, sheetBytes, sheetBytes * 100.0 / legacyBytes);
+
+        List<Map<String, Object>> legacyAnswers = legacyAnswers(legacy);
+        TestAttempt read = converter.read(TestAttempt.class, current);
+        long legacyNs = measure(() -> legacyQuestionResults(test, legacyAnswers).size() == QUESTIONS);
+        long sheetNs = measure(() -> StudentController.buildQuestionResults(test, read).size() == QUESTIONS);
+        System.out.printf("Review assembly per attempt: legacy scan %d ns, answer sheet %d ns%n", legacyNs, sheetNs);
+    }
+
+    /* ===================== FIXTURES ===================== */
+
+    // Same mapping as the application's MongoTemplate, without a connection
+    private static MappingMongoConverter converter() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext context = new MongoMappingContext();
+        context.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        context.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, context);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+
+    // Mostly single-choice, every fifth multi-select and every tenth written
+    private static Test test() {
+        List<Question> questions = new ArrayList<>();
+        for (int q = 0; q < QUESTIONS; q++) {
+            Question question = new Question();
+            question.setQuestionText("Question " + q);
+            question.setPoints(1);
+            if (q % 10 == 9) {
+                question.setType("Theory");
+            } else {
+                question.setType(q % 5 == 4 ? "MSQ" : "MCQ");
+                question.setOptions(List.of("a", "b", "c", "d"));
+                question.setCorrectAnswer(q % 5 == 4 ? List.of(0, 2) : List.of(q % 4));
+            }
+            questions.add(question);
+        }
+        Test test = new Test();
+        test.setId("bench-test");
+        test.setQuestions(questions);
+        return test;
+    }
+
+    private List<Object> submission() {
+        Random random = new Random(7);
+        List<Object> answers = new ArrayList<>();
+        for (Question question : test.getQuestions()) {
+            if (question.getOptions() == null) {
+                answers.add("A written answer of a handful of words about the topic");
+            } else if ("MSQ".equals(question.getType())) {
+                answers.add(random.nextBoolean() ? List.of(0, 2) : List.of(1));
+            } else {
+                answers.add(random.nextInt(4));
+            }
+        }
+        return answers;
+    }
+
+    private TestAttempt graded() {
+        GradingService.GradeResult grade = new GradingService(new CacheRegistry(), new SimpleMeterRegistry(), 10, 60).grade(AnswerKey.compile(test), submitted);
+        TestAttempt attempt = new TestAttempt("bench-test", "student-1", "Benchmark", "math", "CODE");
+        attempt.setId("0123456789abcdef01234567");
+        attempt.setCompleted(true);
+        attempt.setCompletedAt(Instant.now());
+        attempt.setSheet(grade.sheet());
+        attempt.setCorrectAnswers(grade.correctAnswers());
+        attempt.setTotalQuestions(grade.totalQuestions());
+        attempt.setScore(grade.score());
+        return attempt;
+    }
+
+    // The same attempt as the previous grader stored it: one {questionIndex, answer, isCorrect} per question
+    private Document legacyDocument(TestAttempt graded) {
+        Document document = new Document();
+        converter.write(graded, document);
+        document.remove("sheet");
+        List<Document> answers = new ArrayList<>();
+        for (int q = 0; q < QUESTIONS; q++) {
+            answers.add(new Document("questionIndex", q)
+                    .append("answer", submitted.get(q))
+                    .append("isCorrect", graded.getSheet().isCorrect(q)));
+        }
+        document.put("answers", answers);
+        return document;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> legacyAnswers(Document legacy) {
+        return (List<Map<String, Object>>) legacy.get("answers");
+    }
+
+    // The assembly loop StudentController used before AnswerSheet: a scan of the answers per question
+    private static List<StudentTestReviewResponse.QuestionResult> legacyQuestionResults(Test test, List<Map<String, Object>> answers) {
+        List<StudentTestReviewResponse.QuestionResult> results = new ArrayList<>();
+        for (int i = 0; i < test.getQuestions().size(); i++) {
+            Question question = test.getQuestions().get(i);
+            Object studentAnswer = null;
+            boolean isCorrect = false;
+            for (Map<String, Object> answerEntry : answers) {
+                if (answerEntry.get("questionIndex").equals(i)) {
+                    studentAnswer = answerEntry.get("answer");
+                    isCorrect = (Boolean) answerEntry.get("isCorrect");
+                    break;
+                }
+            }
+            StudentTestReviewResponse.QuestionResult result = new StudentTestReviewResponse.QuestionResult();
+            result.setQuestionIndex(i);
+            result.setQuestionText(question.getQuestionText());
+            result.setStudentAnswer(studentAnswer);
+            result.setCorrectAnswer(question.getCorrectAnswer());
+            result.setCorrect(isCorrect);
+            result.setQuestion(question);
+            results.add(result);
+        }
+        return results;
+    }
+
+    private static int bsonSize(Document document) {
+        return new RawBsonDocument(document, new DocumentCodec()).getByteBuffer().remaining();
+    }
+
+    // Runs the op once unmeasured as warm-up, then again measured; returns ns/op
+    private static long measure(BooleanSupplier op) {
+        run(op);
+        long start = System.nanoTime();
+        run(op);
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+
+    private static void run(BooleanSupplier op) {
+        for (int i = 0; i < ITERATIONS; i++) {
+            if (!op.getAsBoolean()) {
+                fail("wrong result size");
+            }
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.procter.procter_app.repo;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.procter.procter_app.config.MongoIndexProvisioner;
+import com.procter.procter_app.model.Role;
+import com.procter.procter_app.model.Test;
+import com.procter.procter_app.model.TestAttempt;
+import com.procter.procter_app.model.User;
+import com.procter.procter_app.service.SummaryPageService;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Query-plan regression checks: every repository query must be answered from an index.
+ *
+ * Each query is run through the real repository proxy; the find/aggregate command the driver
+ * sends is captured and re-run as explain, and the test fails if the winning plan contains a
+ * COLLSCAN. Indexes come from {@link MongoIndexProvisioner}, exactly as at startup.
+ *
+ * Needs a Mongo server (PROCTER_TEST_MONGO_URI, default mongodb://localhost:27017), so it is
+ * tagged "mongo" and only runs with {@code mvn test -Pquery-plans}. Asked for that way it fails
+ * when no server is reachable rather than passing as "0 tests run". Everything happens in a
+ * throwaway database.
+ */
+@Tag("mongo")
+class RepositoryQueryPlanTest {
+
+    private static final Set<String> CAPTURED_COMMANDS = Set.of("find", "aggregate", "count");
+
+    private static MongoClient client;
+    private static String databaseName;
+    private static MongoTemplate mongoTemplate;
+    private static final List<BsonDocument> commands = new ArrayList<>();
+
+    private static TestAttemptRepository attempts;
+    private static TestRepository tests;
+    private static UserRepository users;
+
+    @BeforeAll
+    static void connect() {
+        String uri = System.getenv().getOrDefault("PROCTER_TEST_MONGO_URI", "mongodb://localhost:27017");
+        databaseName = "procter_plan_" + UUID.randomUUID().toString().substring(0, 8);
+
+        CommandListener capture = new CommandListener() {
+            @Override
+            public void commandStarted(CommandStartedEvent event) {
+                if (databaseName.equals(event.getDatabaseName()) && CAPTURED_COMMANDS.contains(event.getCommandName())) {
+                    synchronized (commands) {
+                        commands.add(event.getCommand().clone());
+                    }
+                }
+            }
+        };
+        client = MongoClients.create(MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(uri))
+                .applyToClusterSettings(b -> b.serverSelectionTimeout(1, TimeUnit.SECONDS))
+                .addCommandListener(capture)
+                .build());
+
+        boolean reachable;
+        try {
+            client.getDatabase("admin").runCommand(new Document("ping", 1));
+            reachable = true;
+        } catch (Exception e) {
+            reachable = false;
+        }
+        assertTrue(reachable, "No Mongo server at " + uri + "; set PROCTER_TEST_MONGO_URI");
+
+        mongoTemplate = new MongoTemplate(client, databaseName);
+        assertFalse(new MongoIndexProvisioner(mongoTemplate).provision().isEmpty());
+
+        MongoRepositoryFactory factory = new MongoRepositoryFactory(mongoTemplate);
+        attempts = factory.getRepository(TestAttemptRepository.class);
+        tests = factory.getRepository(TestRepository.class);
+        users = factory.getRepository(UserRepository.class);
+        seed();
+    }
+
+    @AfterAll
+    static void dropDatabase() {
+        if (mongoTemplate != null) {
+            mongoTemplate.getDb().drop();
+        }
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @BeforeEach
+    void clearCaptured() {
+        synchronized (commands) {
+            commands.clear();
+        }
+    }
+
+    // A few hundred documents so the planner has a real choice between index and scan
+    private static void seed() {
+        List<Test> testDocs = new ArrayList<>();
+        for (int t = 0; t < 20; t++) {
+            Test test = new Test();
+            test.setTitle("Test " + t);
+            test.setSubject(t % 2 == 0 ? "math" : "physics");
+            test.setCreatedByTeacherId("teacher-" + (t % 3));
+            test.setJoinCode("CODE" + t);
+            test.setScheduledAt(Instant.now().plusSeconds(t * 3600L));
+            test.setParticipantIds(Set.of("student-" + t, "student-" + (t + 1)));
+            testDocs.add(test);
+        }
+        mongoTemplate.insertAll(testDocs);
+
+        List<TestAttempt> attemptDocs = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            TestAttempt attempt = new TestAttempt();
+            attempt.setTestId(testDocs.get(i % testDocs.size()).getId());
+            attempt.setStudentId("student-" + (i % 40));
+            attempt.setScore(i % 101);
+            attempt.setCompleted(i % 5 != 0);
+            attempt.setCompletedAt(Instant.now().minusSeconds(i * 60L));
+            attemptDocs.add(attempt);
+        }
+        mongoTemplate.insertAll(attemptDocs);
+
+        mongoTemplate.insert(new User("plan", "plan@example.com", "x", Role.STUDENT));
+    }
+
+    /* ===================== TestAttemptRepository ===================== */
+
+    @org.junit.jupiter.api.Test
+    void findByStudentIdAndIsCompletedTrueOrderByCompletedAtDesc() {
+        attempts.findByStudentIdAndIsCompletedTrueOrderByCompletedAtDesc("student-1");
+        assertIndexedPlans();
+    }
+
+    @org.junit.jupiter.api.Test
+    void findByTestIdAndStudentId() {
+        attempts.findByTestIdAndStudentId(anyTestId(), "student-1");
+        assertIndexedPlans();
+    }
+
+    @org.junit.jupiter.api.Test
+    void findByStudentId() {
+        attempts.findByStudentId("student-1");
+        assertIndexedPlans();
+    }
+
+    @org.junit.jupiter.api.Test
+    void existsByTestIdAndStudentIdAndIsCompletedTrue() {
+        attempts.existsByTestIdAndStudentIdAndIsCompletedTrue(anyTestId(), "student-1");
+        assertIndexedPlans();
+    }
+
+    @org.junit.jupiter.api.Test
+    void findByTestId() {
+        attempts.findByTestId(anyTestId());
+        assertIndexedPlans();
+    }
+
+    @org.junit.jupiter.api.Test
+    void existsByStudentIdAndIsCompletedTrue() {
+        attempts.existsByStudentIdAndIsCompletedTrue("student-1");
+        assertIndexedPlans();
+    }
+
+    @org.junit.jupiter.api.Test
+    void existsByStudentIdAndIsCompletedTrueAndCompletedAtAfter() {
+        attempts.existsByStudentIdAndIsCompletedTrueAndCompletedAtAfter("student-1", Instant.now().minusSeconds(3600));
+        assertIndexedPlans();
+    }
+
+    /* ===================== TestRepository ===================== */
+
+    @org.junit.jupiter.api.Test
+    void findByJoinCode() {
+        tests.findByJoinCode("CODE3");
+        assertIndexedPlans();
+    }
+
+    @org.junit.jupiter.api.Test
+    void findAllByCreatedByTeacherId() {
+        tests.findAllByCreatedByTeacherId("teacher-1");
+        assertIndexedPlans();
+    }
+
+    @org.junit.jupiter.api.Test
+    void findBySubjectAndUserInvolvement() {
+        tests.findBySubjectAndUserInvolvement("math", "student-4");
+        assertIndexedPlans();
+    }
+
+    /* ===================== UserRepository ===================== */
+
+    @org.junit.jupiter.api.Test
+    void findByEmail() {
+        users.findByEmail("plan@example.com");
+        assertIndexedPlans();
+    }
+
+    /* ===================== Paged summaries ===================== */
+
+    @org.junit.jupiter.api.Test
+    void summaryPagesSeekOnIndexes() {
+        SummaryPageService pages = new SummaryPageService(mongoTemplate);
+        String cursor = pages.completedAttempts("student-1", null, 3).getNextCursor();
+        assertNotNull(cursor);
+        pages.completedAttempts("student-1", cursor, 3);
+        String testCursor = pages.teacherTests("teacher-1", null, 2).getNextCursor();
+        assertNotNull(testCursor);
+        pages.teacherTests("teacher-1", testCursor, 2);
+        assertIndexedPlans();
+    }
+
+    /* ===================== HELPERS ===================== */
+
+    private static String anyTestId() {
+        List<Test> all = tests.findAll();
+        synchronized (commands) {
+            commands.clear();
+        }
+        return all.get(0).getId();
+    }
+
+    private void assertIndexedPlans() {
+        List<BsonDocument> issued;
+        synchronized (commands) {
+            issued = new ArrayList<>(commands);
+        }
+        assertFalse(issued.isEmpty(), "The repository call sent no query");
+        for (BsonDocument command : issued) {
+            Document explain = client.getDatabase(databaseName).runCommand(new BsonDocument()
+                    .append("explain", stripTransportFields(command))
+                    .append("verbosity", new BsonString("queryPlanner")));
+            List<String> stages = new ArrayList<>();
+            collectStages(explain, stages);
+            assertFalse(stages.isEmpty(), "No plan stages in explain output: " + explain.toJson());
+            assertFalse(stages.contains("COLLSCAN"),
+                    "Collection scan for " + command.toJson() + "\nstages: " + stages);
+        }
+    }
+
+    // Session and cluster-time fields are added per connection and are not accepted inside explain
+    private static BsonDocument stripTransportFields(BsonDocument command) {
+        BsonDocument copy = command.clone();
+        copy.keySet().removeIf(key -> key.startsWith("$") || key.equals("lsid") || key.equals("txnNumber"));
+        return copy;
+    }
+
+    // Walks the whole explain document; aggregate explains nest the query planner under $cursor
+    private static void collectStages(Object node, List<String> stages) {
+        if (node instanceof Document doc) {
+            Object stage = doc.get("stage");
+            if (stage instanceof String name) {
+                stages.add(name);
+            }
+            for (String key : doc.keySet()) {
+                if (!key.equals("rejectedPlans")) {
+                    collectStages(doc.get(key), stages);
+                }
+            }
+        } else if (node instanceof List<?> list) {
+            for (Object item : list) {
+                collectStages(item, stages);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.cache.CacheRegistry;
+import com.procter.procter_app.model.Role;
+import com.procter.procter_app.model.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.Date;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Rough per-request cost of authenticating a bearer token, old path vs. verify().
+ * Prints ns/op; only correctness is asserted so the build does not depend on timings.
+ * The timing run is tagged "benchmark" and only runs with -Pbenchmarks.
+ */
+class JwtServiceBenchmarkTest {
+
+    private static final String SECRET = "benchmark-secret-benchmark-secret-0123456789";
+    // The old path builds a parser per call and is two orders of magnitude slower, so it gets fewer rounds
+    private static final int LEGACY_ITERATIONS = 2_000;
+    private static final int ITERATIONS = 50_000;
+
+    private final JwtService jwtService = new JwtService(SECRET, 3_600_000L, 1000, 600, new CacheRegistry(), new SimpleMeterRegistry());
+    private final User user = new User("bench", "bench@example.com", "x", Role.STUDENT);
+
+    @Test
+    void verifyAcceptsValidAndRejectsTamperedTokens() {
+        String token = jwtService.generateToken(user.getEmail(), Map.of("role", "STUDENT", "uid", "u1"));
+
+        JwtService.VerifiedToken verified = jwtService.verify(token).orElseThrow();
+        assertEquals("bench@example.com", verified.subject());
+        assertEquals("STUDENT", verified.role());
+        assertEquals("u1", verified.userId());
+        assertTrue(jwtService.isTokenValid(verified, user));
+        // Second call comes from the cache and must return the same claims
+        assertEquals(verified, jwtService.verify(token).orElseThrow());
+
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+        assertTrue(jwtService.verify(tampered).isEmpty());
+        assertTrue(jwtService.verify("not-a-token").isEmpty());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void perRequestAuthCost() {
+        String token = jwtService.generateToken(user.getEmail(), Map.of("role", "STUDENT", "uid", "u1"));
+        Key key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+
+        // Previous filter path: extractUsername + isTokenValid (two more parses), new parser each time
+        long legacy = measure(LEGACY_ITERATIONS, () -> {
+            String email = legacyParse(key, token).getSubject();
+            boolean valid = legacyParse(key, token).getSubject().equals(email)
+                    && !legacyParse(key, token).getExpiration().before(new Date());
+            return valid;
+        });
+        long parseOnce = measure(ITERATIONS, () -> jwtService.parse(token).getBody().getSubject() != null);
+        long cached = measure(ITERATIONS, () -> jwtService.verify(token).map(v -> jwtService.isTokenValid(v, user)).orElse(false));
+
+        System.out.printf("JWT auth cost per request: legacy 3x parse %d ns, single parse %d ns, verify (cached) %d ns%n",
+                legacy, parseOnce, cached);
+        assertTrue(legacy > 0 && parseOnce > 0 && cached > 0);
+    }
+
+    private static Claims legacyParse(Key key, String token) {
+        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+    }
+
+    // Runs the op once unmeasured as warm-up, then again measured; returns ns/op
+    private static long measure(int iterations, BooleanSupplier op) {
+        run(iterations, op);
+        long start = System.nanoTime();
+        run(iterations, op);
+        return (System.nanoTime() - start) / iterations;
+    }
+
+    private static void run(int iterations, BooleanSupplier op) {
+        for (int i = 0; i < iterations; i++) {
+            if (!op.getAsBoolean()) {
+                fail("token rejected");
+            }
+        }
+    }
+}
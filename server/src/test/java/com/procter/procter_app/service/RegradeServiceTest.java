@@ -0,0 +1,119 @@
+package com.procter.procter_app.service;
+
+import com.procter.procter_app.cache.CacheRegistry;
+import com.procter.procter_app.model.Question;
+import com.procter.procter_app.model.TestAttempt;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegradeServiceTest {
+
+    private final GradingService gradingService = new GradingService(new CacheRegistry(), new SimpleMeterRegistry(), 10, 60);
+
+    @Test
+    void keyChangeRegradesChoicesAndKeepsConfirmedTextAnswers() {
+        com.procter.procter_app.model.Test original = test(List.of(1), List.of(0, 2));
+        TestAttempt attempt = graded(original, List.of(2, List.of(0, 2), "A written answer"));
+        // A teacher confirmed the written answer with full marks
+        attempt.getSheet().setCorrect(2, true);
+        attempt.setCorrectAnswers(2);
+        attempt.setScore(67);
+
+        Update update = RegradeService.regrade(attempt, AnswerKey.compile(test(List.of(2), List.of(0, 2))));
+
+        assertNotNull(update);
+        Document set = update.getUpdateObject().get("$set", Document.class);
+        assertEquals(3, set.get("correctAnswers"));
+        assertEquals(3, set.get("totalQuestions"));
+        assertEquals(100, set.get("score"));
+        assertNotNull(set.get("regradedAt"));
+        assertTrue(attempt.getSheet().isCorrect(0));
+        assertTrue(attempt.getSheet().isCorrect(2));
+    }
+
+    @Test
+    void rerunWithTheSameKeyWritesNothing() {
+        AnswerKey key = AnswerKey.compile(test(List.of(2), List.of(1)));
+        TestAttempt attempt = graded(test(List.of(1), List.of(0, 2)), List.of(2, List.of(1), "A written answer"));
+
+        Update first = RegradeService.regrade(attempt, key);
+        assertNotNull(first);
+        apply(attempt, first);
+
+        assertNull(RegradeService.regrade(attempt, key));
+    }
+
+    @Test
+    void attemptGradedWithTheCurrentKeyIsLeftAlone() {
+        com.procter.procter_app.model.Test test = test(List.of(1), List.of(0, 2));
+        TestAttempt attempt = graded(test, List.of(1, List.of(0), "A written answer"));
+
+        assertNull(RegradeService.regrade(attempt, AnswerKey.compile(test)));
+    }
+
+    @Test
+    void writeIsConditionalOnTheGradesAsRead() {
+        TestAttempt attempt = graded(test(List.of(1), List.of(0, 2)), List.of(2, List.of(0, 2), "A written answer"));
+        long readBits = attempt.getSheet().getCorrect()[0];
+
+        Document condition = GradingService.unchangedGrades(attempt).getQueryObject();
+        assertNotNull(RegradeService.regrade(attempt, AnswerKey.compile(test(List.of(2), List.of(0, 2)))));
+
+        // A confirm stored in between changes these bits, so the regrade write would match nothing
+        assertEquals(List.of(readBits), condition.get("sheet.correct"));
+        assertEquals(3, condition.get("totalQuestions"));
+        assertNotEquals(readBits, attempt.getSheet().getCorrect()[0]);
+    }
+
+    private TestAttempt graded(com.procter.procter_app.model.Test test, List<Object> answers) {
+        GradingService.GradeResult grade = gradingService.grade(AnswerKey.compile(test), answers);
+        TestAttempt attempt = new TestAttempt("regrade-test", "student-1", "Regrade", "math", "CODE");
+        attempt.setId("0123456789abcdef01234567");
+        attempt.setCompleted(true);
+        attempt.setSheet(grade.sheet());
+        attempt.setCorrectAnswers(grade.correctAnswers());
+        attempt.setTotalQuestions(grade.totalQuestions());
+        attempt.setScore(grade.score());
+        return attempt;
+    }
+
+    // What the bulk update leaves in the stored document; regrade() already updated the sheet
+    private static void apply(TestAttempt attempt, Update update) {
+        Document set = update.getUpdateObject().get("$set", Document.class);
+        attempt.setCorrectAnswers(set.getInteger("correctAnswers"));
+        attempt.setTotalQuestions(set.getInteger("totalQuestions"));
+        attempt.setScore(set.getInteger("score"));
+    }
+
+    // An MCQ, an MSQ and a written question
+    private static com.procter.procter_app.model.Test test(List<Integer> mcqKey, List<Integer> msqKey) {
+        List<Question> questions = new ArrayList<>();
+        questions.add(choice("MCQ", mcqKey));
+        questions.add(choice("MSQ", msqKey));
+        Question text = new Question();
+        text.setType("TEXT");
+        text.setQuestionText("Explain");
+        questions.add(text);
+
+        com.procter.procter_app.model.Test test = new com.procter.procter_app.model.Test();
+        test.setId("regrade-test");
+        test.setQuestions(questions);
+        return test;
+    }
+
+    private static Question choice(String type, List<Integer> key) {
+        Question question = new Question();
+        question.setType(type);
+        question.setQuestionText(type + " question");
+        question.setOptions(List.of("a", "b", "c"));
+        question.setCorrectAnswer(key);
+        return question;
+    }
+}